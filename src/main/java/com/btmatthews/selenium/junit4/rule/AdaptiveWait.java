@@ -0,0 +1,409 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.rule;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.btmatthews.selenium.junit4.runner.SeleniumConfiguration;
+import com.btmatthews.selenium.junit4.runner.SeleniumServer;
+import com.btmatthews.selenium.junit4.runner.SeleniumWebDriver;
+import com.google.common.base.Supplier;
+import com.thoughtworks.selenium.Selenium;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NotFoundException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.internal.WrapsDriver;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A method rule that waits for conditions to become true. The first poll happens immediately and the interval between
+ * polls starts small and doubles up to a maximum so that waits finish soon after the condition becomes true without
+ * flooding the browser with requests. The interval is never shorter than the time taken by the previous poll, even if
+ * that is longer than the maximum, so slow remote sessions are polled less often.
+ * <p/>
+ * The timeout defaults to the {@literal waitTimeout} of the configuration annotation on the test class. The duration
+ * of each wait is recorded and the total time spent waiting is logged when the test case finishes.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public class AdaptiveWait extends TestWatcher {
+
+    /**
+     * Used to log the time spent waiting.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveWait.class);
+
+    /**
+     * The number of milliseconds to wait for a condition if the test class does not have a configuration annotation.
+     */
+    private static final long DEFAULT_TIMEOUT = 30000L;
+
+    /**
+     * The default number of milliseconds to wait before polling for the second time.
+     */
+    private static final long DEFAULT_INITIAL_INTERVAL = 10L;
+
+    /**
+     * The default maximum number of milliseconds to wait between polls.
+     */
+    private static final long DEFAULT_MAXIMUM_INTERVAL = 500L;
+
+    /**
+     * Injected by the {@link com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner} if the Selenium RC
+     * API is being used to drive the browser.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumServer
+    private Selenium server;
+
+    /**
+     * Injected by the {@link com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner} if the Selenium Web
+     * Driver API is being used to drive the browser.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumWebDriver
+    private WebDriver webDriver;
+
+    /**
+     * The number of milliseconds to wait before polling for the second time.
+     */
+    private final long initialInterval;
+
+    /**
+     * The maximum number of milliseconds to wait between polls unless the previous poll took longer.
+     */
+    private final long maximumInterval;
+
+    /**
+     * The number of milliseconds to wait for a condition to become true.
+     */
+    private long timeout = DEFAULT_TIMEOUT;
+
+    /**
+     * The duration in milliseconds of each wait in the current test case.
+     */
+    private final List<Long> waitTimes = new ArrayList<Long>();
+
+    /**
+     * Construct a rule that starts polling after {@link #DEFAULT_INITIAL_INTERVAL} milliseconds and backs off
+     * to a maximum of {@link #DEFAULT_MAXIMUM_INTERVAL} milliseconds between polls.
+     */
+    public AdaptiveWait() {
+        this(DEFAULT_INITIAL_INTERVAL, DEFAULT_MAXIMUM_INTERVAL);
+    }
+
+    /**
+     * Construct a rule that starts polling after {@code initial} milliseconds and backs off to a maximum of
+     * {@code maximum} milliseconds between polls.
+     *
+     * @param initial The number of milliseconds to wait before polling for the second time.
+     * @param maximum The maximum number of milliseconds to wait between polls.
+     */
+    public AdaptiveWait(final long initial, final long maximum) {
+        initialInterval = initial;
+        maximumInterval = maximum;
+    }
+
+    /**
+     * Read the default timeout from the configuration annotation on the test class and forget the waits recorded
+     * for the previous test case.
+     *
+     * @param description Describes the test case.
+     */
+    @Override
+    protected void starting(final Description description) {
+        timeout = getTimeout(description.getTestClass());
+        waitTimes.clear();
+    }
+
+    /**
+     * Log the time spent waiting during the test case.
+     *
+     * @param description Describes the test case.
+     */
+    @Override
+    protected void finished(final Description description) {
+        if (!waitTimes.isEmpty()) {
+            LOGGER.info("{} spent {} ms in {} waits", new Object[]{description.getDisplayName(), getTotalWaitTime(),
+                    waitTimes.size()});
+        }
+    }
+
+    /**
+     * Get the number of milliseconds to wait for a condition to become true.
+     *
+     * @return The timeout in milliseconds.
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Override the number of milliseconds to wait for a condition to become true for the rest of the test case.
+     *
+     * @param milliseconds The timeout in milliseconds.
+     */
+    public void setTimeout(final long milliseconds) {
+        timeout = milliseconds;
+    }
+
+    /**
+     * Get the duration of each wait in the current test case.
+     *
+     * @return The durations in milliseconds.
+     */
+    public List<Long> getWaitTimes() {
+        return Collections.unmodifiableList(waitTimes);
+    }
+
+    /**
+     * Get the total time spent waiting in the current test case.
+     *
+     * @return The total time in milliseconds.
+     */
+    public long getTotalWaitTime() {
+        long total = 0;
+        for (final Long waitTime : waitTimes) {
+            total += waitTime;
+        }
+        return total;
+    }
+
+    /**
+     * Wait until the condition returns a value other than {@code null} or {@link Boolean#FALSE}. This can only be
+     * used with the Selenium Web Driver API or a Selenium RC object that wraps a web driver.
+     *
+     * @param condition The condition.
+     * @param <T>       The type of value returned by the condition.
+     * @return The value returned by the condition.
+     * @throws TimeoutException If the condition did not become true before the timeout expired.
+     */
+    public <T> T until(final ExpectedCondition<T> condition) {
+        final WebDriver driver = getWebDriver();
+        return poll(condition.toString(), new Supplier<T>() {
+            public T get() {
+                return condition.apply(driver);
+            }
+        });
+    }
+
+    /**
+     * Wait until all the JavaScript expressions are true. The expressions are evaluated in the context of the page
+     * using a single script call per poll.
+     *
+     * @param expressions The JavaScript expressions.
+     * @throws TimeoutException If the expressions did not all become true before the timeout expired.
+     */
+    public void untilAll(final String... expressions) {
+        final String script = buildScript(expressions);
+        poll("all of " + describe(expressions), new Supplier<Boolean>() {
+            public Boolean get() {
+                return evaluate(script, expressions.length).indexOf(Boolean.FALSE) == -1;
+            }
+        });
+    }
+
+    /**
+     * Wait until any of the JavaScript expressions are true. The expressions are evaluated in the context of the
+     * page using a single script call per poll.
+     *
+     * @param expressions The JavaScript expressions.
+     * @return The index of the first expression that is true.
+     * @throws TimeoutException If none of the expressions became true before the timeout expired.
+     */
+    public int untilAny(final String... expressions) {
+        final String script = buildScript(expressions);
+        return poll("any of " + describe(expressions), new Supplier<Integer>() {
+            public Integer get() {
+                final int index = evaluate(script, expressions.length).indexOf(Boolean.TRUE);
+                if (index == -1) {
+                    return null;
+                }
+                return index;
+            }
+        });
+    }
+
+    /**
+     * Poll the condition until it returns a value other than {@code null} or {@link Boolean#FALSE} or the timeout
+     * expires. Elements that cannot be found or have gone stale are treated as the condition being false.
+     *
+     * @param what      Describes the condition.
+     * @param condition The condition.
+     * @param <T>       The type of value returned by the condition.
+     * @return The value returned by the condition.
+     * @throws TimeoutException If the condition did not become true before the timeout expired.
+     */
+    private <T> T poll(final String what, final Supplier<T> condition) {
+        final long start = System.currentTimeMillis();
+        final long deadline = start + timeout;
+        long interval = initialInterval;
+        RuntimeException lastException = null;
+        while (true) {
+            final long pollStart = System.currentTimeMillis();
+            try {
+                final T value = condition.get();
+                if (value != null && !Boolean.FALSE.equals(value)) {
+                    record(start);
+                    return value;
+                }
+            } catch (final NotFoundException e) {
+                lastException = e;
+            } catch (final StaleElementReferenceException e) {
+                lastException = e;
+            }
+            final long now = System.currentTimeMillis();
+            final long remaining = deadline - now;
+            if (remaining <= 0) {
+                record(start);
+                throw new TimeoutException("Timed out after " + timeout + " ms waiting for " + what, lastException);
+            }
+            try {
+                Thread.sleep(Math.min(interval, remaining));
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new WebDriverException("Interrupted while waiting for " + what, e);
+            }
+            interval = Math.max(Math.min(interval * 2, maximumInterval), now - pollStart);
+        }
+    }
+
+    /**
+     * Record the duration of a wait.
+     *
+     * @param start The time at which the wait started.
+     */
+    private void record(final long start) {
+        final long duration = System.currentTimeMillis() - start;
+        waitTimes.add(duration);
+        LOGGER.debug("Waited {} ms", duration);
+    }
+
+    /**
+     * Build the body of a script that evaluates each expression and collects the results. Expressions that throw
+     * exceptions are treated as false.
+     *
+     * @param expressions The JavaScript expressions.
+     * @return The script body that leaves the results in an array named {@literal results}.
+     */
+    private String buildScript(final String... expressions) {
+        final StringBuilder builder = new StringBuilder("var results = [];");
+        for (final String expression : expressions) {
+            builder.append("try { results.push(!!(");
+            builder.append(expression);
+            builder.append(")); } catch (e) { results.push(false); }");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Evaluate the script built by {@link #buildScript(String...)} in the browser. The web driver is used if it is
+     * available, otherwise the script is evaluated using the Selenium RC API against the window under test.
+     *
+     * @param script The script body.
+     * @param count  The number of expressions.
+     * @return The result of each expression.
+     */
+    private List<Boolean> evaluate(final String script, final int count) {
+        final List<Boolean> results = new ArrayList<Boolean>(count);
+        if (webDriver != null || server instanceof WrapsDriver) {
+            final List<?> values = (List<?>)((JavascriptExecutor)getWebDriver()).executeScript(script
+                    + "return results;");
+            for (final Object value : values) {
+                results.add(Boolean.TRUE.equals(value));
+            }
+        } else {
+            final String values = server.getEval("var window = selenium.browserbot.getCurrentWindow(), "
+                    + "document = window.document;" + script + "results.join(',');");
+            for (final String value : values.split(",")) {
+                results.add(Boolean.valueOf(value));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Get the web driver that was injected or the web driver wrapped by the Selenium RC object.
+     *
+     * @return The web driver.
+     * @throws IllegalStateException If a web driver is not available.
+     */
+    private WebDriver getWebDriver() {
+        if (webDriver != null) {
+            return webDriver;
+        } else if (server instanceof WrapsDriver) {
+            return ((WrapsDriver)server).getWrappedDriver();
+        } else {
+            throw new IllegalStateException("A web driver is not available");
+        }
+    }
+
+    /**
+     * Describe the JavaScript expressions for use in timeout messages.
+     *
+     * @param expressions The JavaScript expressions.
+     * @return The description.
+     */
+    private static String describe(final String... expressions) {
+        final StringBuilder builder = new StringBuilder();
+        for (final String expression : expressions) {
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+            builder.append('[');
+            builder.append(expression);
+            builder.append(']');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Get the {@literal waitTimeout} from the configuration annotation on the test class.
+     *
+     * @param testClass The test class.
+     * @return The timeout in milliseconds or {@link #DEFAULT_TIMEOUT} if the test class does not have a
+     *         configuration annotation.
+     */
+    private static long getTimeout(final Class<?> testClass) {
+        if (testClass != null) {
+            for (final Annotation annotation : testClass.getAnnotations()) {
+                final Class<? extends Annotation> annotationType = annotation.annotationType();
+                if (annotationType.isAnnotationPresent(SeleniumConfiguration.class)) {
+                    try {
+                        final Method method = annotationType.getMethod("waitTimeout");
+                        return ((Long)method.invoke(annotation)).longValue();
+                    } catch (final Exception e) {
+                        LOGGER.debug("Configuration annotation does not have a wait timeout", e);
+                    }
+                }
+            }
+        }
+        return DEFAULT_TIMEOUT;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.rule;
+
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Describes the interface for the authentication fixtures run by {@link SessionSnapshot} to log into the application
+ * under test.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public interface Authenticator {
+
+    /**
+     * Log into the application under test. The browser must be left on a page of the application so that the cookies
+     * and storage for its domain can be captured.
+     *
+     * @param webDriver The web driver.
+     * @throws Exception If there was an error logging in.
+     */
+    void authenticate(WebDriver webDriver) throws Exception;
+
+}
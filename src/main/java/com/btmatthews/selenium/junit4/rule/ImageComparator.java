@@ -0,0 +1,434 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.rule;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Compares screen shots against baseline images. If the images have the same size and storage layout and their raw
+ * pixel data is identical the pixel-by-pixel comparison is skipped. Otherwise the images are split into tiles which
+ * are compared in parallel using a thread pool sized to the number of available processors and the configured
+ * tolerances decide whether the images match. Each pixel is compared once. The tiles that contain differences keep
+ * their highlighted pixels so that the difference image can be assembled without comparing them again when the
+ * comparison fails. The perceptual hashes of the images are only calculated when the comparison fails.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public class ImageComparator {
+
+    /**
+     * The width and height of the thumbnail used to calculate the perceptual hash.
+     */
+    private static final int HASH_SIZE = 8;
+
+    /**
+     * The default width and height of the tiles that are compared in parallel.
+     */
+    private static final int DEFAULT_TILE_SIZE = 256;
+
+    /**
+     * The colour used to highlight different pixels in the difference image.
+     */
+    private static final int DIFFERENCE_COLOUR = 0xFFFF0000;
+
+    /**
+     * The mask used to fade matching pixels in the difference image.
+     */
+    private static final int FADE_MASK = 0x7F7F7F;
+
+    /**
+     * The alpha component of an opaque pixel.
+     */
+    private static final int OPAQUE = 0xFF000000;
+
+    /**
+     * Mask used to extract a single 8-bit colour component.
+     */
+    private static final int COMPONENT_MASK = 0xFF;
+
+    /**
+     * The bit offset of the alpha component.
+     */
+    private static final int ALPHA_SHIFT = 24;
+
+    /**
+     * The bit offset of the red component.
+     */
+    private static final int RED_SHIFT = 16;
+
+    /**
+     * The bit offset of the green component.
+     */
+    private static final int GREEN_SHIFT = 8;
+
+    /**
+     * The thread pool shared by all comparators and used to compare tiles in parallel.
+     */
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            new ThreadFactory() {
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "image-comparator");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    /**
+     * The maximum amount by which each colour component can differ for two pixels to be considered the same.
+     */
+    private final int tolerance;
+
+    /**
+     * The maximum number of pixels that can differ for the images to be considered to match.
+     */
+    private final long maxDifferentPixels;
+
+    /**
+     * The width and height of the tiles that are compared in parallel.
+     */
+    private final int tileSize;
+
+    /**
+     * Construct a comparator that requires an exact match.
+     */
+    public ImageComparator() {
+        this(0, 0L);
+    }
+
+    /**
+     * Construct a comparator that allows for small differences between the images.
+     *
+     * @param componentTolerance The maximum amount by which each colour component can differ for two pixels to be
+     *                           considered the same.
+     * @param maxPixels          The maximum number of pixels that can differ for the images to be considered to
+     *                           match.
+     */
+    public ImageComparator(final int componentTolerance, final long maxPixels) {
+        this(componentTolerance, maxPixels, DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * Construct a comparator that allows for small differences between the images.
+     *
+     * @param componentTolerance The maximum amount by which each colour component can differ for two pixels to be
+     *                           considered the same.
+     * @param maxPixels          The maximum number of pixels that can differ for the images to be considered to
+     *                           match.
+     * @param size               The width and height of the tiles that are compared in parallel.
+     */
+    public ImageComparator(final int componentTolerance, final long maxPixels, final int size) {
+        tolerance = componentTolerance;
+        maxDifferentPixels = maxPixels;
+        tileSize = size;
+    }
+
+    /**
+     * Compare a screen shot against its baseline image.
+     *
+     * @param expected The baseline image.
+     * @param actual   The screen shot.
+     * @return The outcome of the comparison.
+     */
+    public ImageComparison compare(final BufferedImage expected, final BufferedImage actual) {
+        final boolean sameSize = expected.getWidth() == actual.getWidth()
+                && expected.getHeight() == actual.getHeight();
+        if (sameSize && identical(expected, actual)) {
+            return new ImageComparison(true, 0L, 0, null);
+        }
+        final List<Tile> tiles = split(expected, actual);
+        final long differentPixels = compareTiles(tiles);
+        if (sameSize && differentPixels <= maxDifferentPixels) {
+            return new ImageComparison(true, differentPixels, 0, null);
+        }
+        final BufferedImage difference = new BufferedImage(
+                Math.max(expected.getWidth(), actual.getWidth()),
+                Math.max(expected.getHeight(), actual.getHeight()),
+                BufferedImage.TYPE_INT_ARGB);
+        for (final Tile tile : tiles) {
+            tile.paint(difference);
+        }
+        final int hashDistance = Long.bitCount(hash(expected) ^ hash(actual));
+        return new ImageComparison(false, differentPixels, hashDistance, difference);
+    }
+
+    /**
+     * Calculate the average hash of an image. The image is reduced to an 8x8 grey scale thumbnail and each bit of the
+     * hash indicates whether the corresponding pixel was brighter than the mean.
+     *
+     * @param image The image.
+     * @return The 64-bit perceptual hash.
+     */
+    long hash(final BufferedImage image) {
+        final BufferedImage thumbnail = new BufferedImage(HASH_SIZE, HASH_SIZE, BufferedImage.TYPE_BYTE_GRAY);
+        final Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, HASH_SIZE, HASH_SIZE, null);
+        } finally {
+            graphics.dispose();
+        }
+        final int[] pixels = thumbnail.getRaster().getPixels(0, 0, HASH_SIZE, HASH_SIZE, (int[])null);
+        long total = 0;
+        for (final int pixel : pixels) {
+            total += pixel;
+        }
+        final long mean = total / pixels.length;
+        long hash = 0;
+        for (final int pixel : pixels) {
+            hash <<= 1;
+            if (pixel > mean) {
+                hash |= 1;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Determine whether two images of the same size have identical pixel data by comparing their backing arrays
+     * directly. Images that do not share a storage layout, or that are views onto part of a larger image, are never
+     * considered identical here and are left to the pixel-by-pixel comparison.
+     *
+     * @param expected The baseline image.
+     * @param actual   The screen shot.
+     * @return {@code true} if the pixel data is identical.
+     */
+    private boolean identical(final BufferedImage expected, final BufferedImage actual) {
+        if (expected.getType() == BufferedImage.TYPE_CUSTOM || expected.getType() != actual.getType()
+                || expected.getRaster().getParent() != null || actual.getRaster().getParent() != null) {
+            return false;
+        }
+        final DataBuffer expectedData = expected.getRaster().getDataBuffer();
+        final DataBuffer actualData = actual.getRaster().getDataBuffer();
+        if (expectedData instanceof DataBufferInt && actualData instanceof DataBufferInt) {
+            return Arrays.equals(((DataBufferInt)expectedData).getData(), ((DataBufferInt)actualData).getData());
+        } else if (expectedData instanceof DataBufferByte && actualData instanceof DataBufferByte) {
+            return Arrays.equals(((DataBufferByte)expectedData).getData(), ((DataBufferByte)actualData).getData());
+        }
+        return false;
+    }
+
+    /**
+     * Split the area covered by both images into tiles.
+     *
+     * @param expected The baseline image.
+     * @param actual   The screen shot.
+     * @return The tiles.
+     */
+    private List<Tile> split(final BufferedImage expected, final BufferedImage actual) {
+        final int width = Math.max(expected.getWidth(), actual.getWidth());
+        final int height = Math.max(expected.getHeight(), actual.getHeight());
+        final List<Tile> tiles = new ArrayList<Tile>();
+        for (int y = 0; y < height; y += tileSize) {
+            for (int x = 0; x < width; x += tileSize) {
+                tiles.add(new Tile(expected, actual, x, y,
+                        Math.min(tileSize, width - x), Math.min(tileSize, height - y)));
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Compare the tiles in parallel.
+     *
+     * @param tiles The tiles.
+     * @return The number of different pixels.
+     */
+    private long compareTiles(final List<Tile> tiles) {
+        try {
+            long differentPixels = 0;
+            for (final Future<Long> result : EXECUTOR.invokeAll(tiles)) {
+                differentPixels += result.get();
+            }
+            return differentPixels;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while comparing images", e);
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("Error comparing images", e.getCause());
+        }
+    }
+
+    /**
+     * Determine whether two pixels are the same allowing for the configured tolerance.
+     *
+     * @param expected The pixel from the baseline image.
+     * @param actual   The pixel from the screen shot.
+     * @return {@code true} if the pixels are considered the same.
+     */
+    private boolean same(final int expected, final int actual) {
+        if (expected == actual) {
+            return true;
+        }
+        return same(expected, actual, ALPHA_SHIFT)
+                && same(expected, actual, RED_SHIFT)
+                && same(expected, actual, GREEN_SHIFT)
+                && same(expected, actual, 0);
+    }
+
+    /**
+     * Determine whether a single colour component of two pixels is the same allowing for the configured tolerance.
+     *
+     * @param expected The pixel from the baseline image.
+     * @param actual   The pixel from the screen shot.
+     * @param shift    The bit offset of the colour component.
+     * @return {@code true} if the colour components are considered the same.
+     */
+    private boolean same(final int expected, final int actual, final int shift) {
+        return Math.abs(((expected >>> shift) & COMPONENT_MASK) - ((actual >>> shift) & COMPONENT_MASK)) <= tolerance;
+    }
+
+    /**
+     * Compares a rectangular region of the baseline image and screen shot.
+     */
+    private final class Tile implements Callable<Long> {
+
+        /**
+         * The baseline image.
+         */
+        private final BufferedImage expected;
+
+        /**
+         * The screen shot.
+         */
+        private final BufferedImage actual;
+
+        /**
+         * The left edge of the tile.
+         */
+        private final int left;
+
+        /**
+         * The top edge of the tile.
+         */
+        private final int top;
+
+        /**
+         * The width of the tile.
+         */
+        private final int width;
+
+        /**
+         * The height of the tile.
+         */
+        private final int height;
+
+        /**
+         * The pixels of the difference image for the tile or {@code null} if the tile has no differences.
+         */
+        private int[] differencePixels;
+
+        /**
+         * Construct the tile.
+         *
+         * @param expectedImage The baseline image.
+         * @param actualImage   The screen shot.
+         * @param x             The left edge of the tile.
+         * @param y             The top edge of the tile.
+         * @param w             The width of the tile.
+         * @param h             The height of the tile.
+         */
+        Tile(final BufferedImage expectedImage, final BufferedImage actualImage,
+             final int x, final int y, final int w, final int h) {
+            expected = expectedImage;
+            actual = actualImage;
+            left = x;
+            top = y;
+            width = w;
+            height = h;
+        }
+
+        /**
+         * Count the different pixels in the tile. When the first difference is found the faded pixels of the screen
+         * shot are copied for the difference image and the different pixels are highlighted in that copy.
+         *
+         * @return The number of different pixels.
+         */
+        public Long call() {
+            final int[] expectedPixels = read(expected);
+            final int[] actualPixels = read(actual);
+            long count = 0;
+            for (int i = 0; i < actualPixels.length; ++i) {
+                if (!same(expectedPixels[i], actualPixels[i])) {
+                    if (differencePixels == null) {
+                        differencePixels = fade(actualPixels);
+                    }
+                    differencePixels[i] = DIFFERENCE_COLOUR;
+                    ++count;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Paint the tile into the difference image. A tile without differences is painted with the faded pixels of
+         * the screen shot.
+         *
+         * @param difference The difference image.
+         */
+        void paint(final BufferedImage difference) {
+            final int[] pixels = differencePixels == null ? fade(read(actual)) : differencePixels;
+            difference.setRGB(left, top, width, height, pixels, 0, width);
+        }
+
+        /**
+         * Fade the pixels of the screen shot so that the highlighted differences stand out.
+         *
+         * @param pixels The pixels of the screen shot.
+         * @return The faded pixels.
+         */
+        private int[] fade(final int[] pixels) {
+            final int[] faded = new int[pixels.length];
+            for (int i = 0; i < pixels.length; ++i) {
+                faded[i] = OPAQUE | ((pixels[i] >> 1) & FADE_MASK);
+            }
+            return faded;
+        }
+
+        /**
+         * Read the pixels covered by the tile. Pixels that fall outside the image are returned as transparent so
+         * they always differ from opaque pixels in the other image.
+         *
+         * @param image The image.
+         * @return The pixels in row-major order.
+         */
+        private int[] read(final BufferedImage image) {
+            final int[] pixels = new int[width * height];
+            final int w = Math.min(width, image.getWidth() - left);
+            final int h = Math.min(height, image.getHeight() - top);
+            if (w > 0 && h > 0) {
+                image.getRGB(left, top, w, h, pixels, 0, width);
+            }
+            return pixels;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.rule;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Describes the outcome of comparing a screen shot against its baseline using an {@link ImageComparator}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public final class ImageComparison {
+
+    /**
+     * {@code true} if the images were considered to match.
+     */
+    private final boolean matches;
+
+    /**
+     * The number of pixels that differed.
+     */
+    private final long differentPixels;
+
+    /**
+     * The number of bits by which the perceptual hashes of the images differed.
+     */
+    private final int hashDistance;
+
+    /**
+     * An image highlighting the differences or {@code null} if the images matched.
+     */
+    private final BufferedImage difference;
+
+    /**
+     * Construct the comparison result.
+     *
+     * @param match     {@code true} if the images were considered to match.
+     * @param pixels    The number of pixels that differed.
+     * @param distance  The number of bits by which the perceptual hashes differed.
+     * @param diffImage An image highlighting the differences or {@code null} if the images matched.
+     */
+    ImageComparison(final boolean match, final long pixels, final int distance, final BufferedImage diffImage) {
+        matches = match;
+        differentPixels = pixels;
+        hashDistance = distance;
+        difference = diffImage;
+    }
+
+    /**
+     * Determine whether the images were considered to match.
+     *
+     * @return {@code true} if the images matched.
+     */
+    public boolean isMatch() {
+        return matches;
+    }
+
+    /**
+     * Get the number of pixels that differed. If the images had different dimensions this is the number of pixels
+     * in the larger image.
+     *
+     * @return The number of different pixels.
+     */
+    public long getDifferentPixels() {
+        return differentPixels;
+    }
+
+    /**
+     * Get the number of bits by which the perceptual hashes of the images differed. The hashes are only calculated
+     * when the comparison fails.
+     *
+     * @return The Hamming distance between the perceptual hashes or {@code 0} if the images matched.
+     */
+    public int getHashDistance() {
+        return hashDistance;
+    }
+
+    /**
+     * Get the image that highlights the differences between the baseline and the screen shot. The image is only
+     * generated when the comparison fails.
+     *
+     * @return The difference image or {@code null} if the images matched.
+     */
+    public BufferedImage getDifference() {
+        return difference;
+    }
+}
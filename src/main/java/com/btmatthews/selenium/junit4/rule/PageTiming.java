@@ -0,0 +1,218 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.rule;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import com.btmatthews.selenium.junit4.runner.SeleniumBrowser;
+import com.btmatthews.selenium.junit4.runner.SeleniumServer;
+import com.btmatthews.selenium.junit4.runner.SeleniumWebDriver;
+import com.thoughtworks.selenium.Selenium;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.internal.WrapsDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A method rule that reads the Navigation Timing and Resource Timing data for the page that the browser is showing,
+ * adds it to a report aggregated by browser and URL and enforces the {@link PerformanceBudget} declared on the test
+ * method or class. The page is measured when the test case calls {@link #measure()} after navigating and again when
+ * the test case succeeds if the browser has navigated to another page since. Browsers that do not support the
+ * Navigation Timing API are not measured.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public class PageTiming extends TestWatcher {
+
+    /**
+     * Used to log the page timings.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(PageTiming.class);
+
+    /**
+     * Script that returns the URL, navigation start, response start and load event end times and the number of
+     * resources or {@code null} if the browser does not support the Navigation Timing API.
+     */
+    private static final String TIMING_SCRIPT = "var performance = window.performance;"
+            + "if (!performance || !performance.timing) { return null; }"
+            + "var timing = performance.timing, resources = -1;"
+            + "if (performance.getEntriesByType) { resources = performance.getEntriesByType('resource').length; }"
+            + "return [document.location.href, timing.navigationStart, timing.responseStart, timing.loadEventEnd,"
+            + " resources];";
+
+    /**
+     * Injected by the {@link com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner} if the Selenium RC
+     * API is being used to drive the browser.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumServer
+    private Selenium server;
+
+    /**
+     * Injected by the {@link com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner} if the Selenium Web
+     * Driver API is being used to drive the browser.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumWebDriver
+    private WebDriver webDriver;
+
+    /**
+     * Injected by the {@link com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner} to identify the
+     * browser.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumBrowser
+    private String browser;
+
+    /**
+     * The directory to which the report is written.
+     */
+    private final File reportDirectory;
+
+    /**
+     * The budget for the current test case or {@code null} if there is no budget.
+     */
+    private PerformanceBudget budget;
+
+    /**
+     * The navigation start time of the last page measured so that a page is not measured twice.
+     */
+    private long lastNavigationStart;
+
+    /**
+     * Construct a rule that writes the report to {@code directory}.
+     *
+     * @param directory The directory to which the report is written.
+     */
+    public PageTiming(final String directory) {
+        this(new File(directory));
+    }
+
+    /**
+     * Construct a rule that writes the report to {@code directory}.
+     *
+     * @param directory The directory to which the report is written.
+     */
+    public PageTiming(final File directory) {
+        reportDirectory = directory;
+    }
+
+    /**
+     * Find the budget declared on the test method or class.
+     *
+     * @param description Describes the test case.
+     */
+    @Override
+    protected void starting(final Description description) {
+        budget = description.getAnnotation(PerformanceBudget.class);
+        if (budget == null && description.getTestClass() != null) {
+            budget = description.getTestClass().getAnnotation(PerformanceBudget.class);
+        }
+        lastNavigationStart = 0L;
+    }
+
+    /**
+     * Measure the page that the browser is showing when the test case succeeds.
+     *
+     * @param description Describes the test case.
+     */
+    @Override
+    protected void succeeded(final Description description) {
+        measure();
+    }
+
+    /**
+     * Measure the page that the browser is showing, add it to the report and check it against the budget. Pages that
+     * have already been measured or have not finished loading are ignored.
+     *
+     * @return The number of milliseconds from the start of navigation to the end of the load event or -1 if the page
+     *         was not measured.
+     * @throws AssertionError If the page exceeded the budget.
+     */
+    public long measure() {
+        final List<?> timing = getTiming();
+        if (timing == null) {
+            return -1L;
+        }
+        final String url = (String)timing.get(0);
+        final long navigationStart = ((Number)timing.get(1)).longValue();
+        final long responseStart = ((Number)timing.get(2)).longValue();
+        final long loadEventEnd = ((Number)timing.get(3)).longValue();
+        final long resources = ((Number)timing.get(4)).longValue();
+        if (navigationStart == lastNavigationStart || loadEventEnd == 0L) {
+            return -1L;
+        }
+        lastNavigationStart = navigationStart;
+        final long loadTime = loadEventEnd - navigationStart;
+        final long firstByte = responseStart - navigationStart;
+        LOGGER.debug("{} loaded {} in {} ms", new Object[]{browser, url, loadTime});
+        try {
+            PageTimingReport.record(reportDirectory, browser, url, loadTime, firstByte, resources);
+        } catch (final IOException e) {
+            LOGGER.error("Error writing page timing report to " + reportDirectory, e);
+        }
+        if (budget != null) {
+            if (budget.loadTime() > 0 && loadTime > budget.loadTime()) {
+                throw new AssertionError(url + " took " + loadTime + " ms to load in " + browser
+                        + " which exceeds the budget of " + budget.loadTime() + " ms");
+            }
+            if (budget.firstByte() > 0 && firstByte > budget.firstByte()) {
+                throw new AssertionError(url + " took " + firstByte + " ms to first byte in " + browser
+                        + " which exceeds the budget of " + budget.firstByte() + " ms");
+            }
+            if (budget.resources() > 0 && resources > budget.resources()) {
+                throw new AssertionError(url + " loaded " + resources + " resources in " + browser
+                        + " which exceeds the budget of " + budget.resources());
+            }
+        }
+        return loadTime;
+    }
+
+    /**
+     * Read the timing data from the browser.
+     *
+     * @return The URL, navigation start, response start, load event end and resource count or {@code null} if they
+     *         are not available.
+     */
+    private List<?> getTiming() {
+        final WebDriver driver;
+        if (webDriver != null) {
+            driver = webDriver;
+        } else if (server instanceof WrapsDriver) {
+            driver = ((WrapsDriver)server).getWrappedDriver();
+        } else {
+            return null;
+        }
+        if (driver instanceof JavascriptExecutor) {
+            try {
+                return (List<?>)((JavascriptExecutor)driver).executeScript(TIMING_SCRIPT);
+            } catch (final WebDriverException e) {
+                LOGGER.debug("Could not read page timing", e);
+            } catch (final UnsupportedOperationException e) {
+                LOGGER.debug("Could not read page timing", e);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.rule;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.LineIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Aggregates the page timings captured by all the {@link PageTiming} rules and writes them to the report directory.
+ * The raw samples are appended to {@literal page-timing-samples.csv}, tagged with the test run that captured them, so
+ * that trends can be tracked across builds. The percentiles for each browser and URL in the current test run are
+ * written to {@literal page-timing.csv} once, when the JVM exits. The report directory may be shared by several JVMs,
+ * such as forked test runners or worker JVMs, so the files are only updated while holding a lock on
+ * {@literal page-timing.lock}. JVMs that are given the same {@literal selenium.junit4.timing.run} system property
+ * belong to the same test run and the last of them to exit writes the percentiles for all their samples. Otherwise
+ * each JVM is a test run of its own.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class PageTimingReport {
+
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(PageTimingReport.class);
+
+    /**
+     * The name of the file to which the samples are appended.
+     */
+    private static final String SAMPLES_FILE = "page-timing-samples.csv";
+
+    /**
+     * The name of the file to which the percentiles are written.
+     */
+    private static final String SUMMARY_FILE = "page-timing.csv";
+
+    /**
+     * The name of the file that is locked while the report is updated.
+     */
+    private static final String LOCK_FILE = "page-timing.lock";
+
+    /**
+     * The heading for the samples file.
+     */
+    private static final String SAMPLES_HEADING = "run,timestamp,browser,url,load,first_byte,resources";
+
+    /**
+     * The character encoding of the report files.
+     */
+    private static final String ENCODING = "UTF-8";
+
+    /**
+     * The heading for the summary file.
+     */
+    private static final String SUMMARY_HEADING =
+            "browser,url,samples,load_p50,load_p90,load_p95,load_max,first_byte_p50,first_byte_p90,resources_max";
+
+    /**
+     * The system property used to identify the test run that the samples belong to.
+     */
+    private static final String RUN_PROPERTY = "selenium.junit4.timing.run";
+
+    /**
+     * The quoted identifier of the current test run as it appears at the start of its lines in the samples file.
+     */
+    private static final String RUN =
+            quote(System.getProperty(RUN_PROPERTY, UUID.randomUUID().toString())) + ',';
+
+    /**
+     * The report directories to which this JVM has added samples.
+     */
+    private static final Set<File> DIRECTORIES = new LinkedHashSet<File>();
+
+    /**
+     * Default constructor is private.
+     */
+    private PageTimingReport() {
+    }
+
+    /**
+     * Append a sample to the samples file. The summary is written when the JVM exits.
+     *
+     * @param directory The report directory.
+     * @param browser   The browser name.
+     * @param url       The page URL.
+     * @param loadTime  The number of milliseconds from the start of navigation to the end of the load event.
+     * @param firstByte The number of milliseconds from the start of navigation to the first byte of the response.
+     * @param resources The number of resources loaded by the page or -1 if unknown.
+     * @throws IOException If there was an error writing the samples file.
+     */
+    static synchronized void record(final File directory, final String browser, final String url, final long loadTime,
+                                    final long firstByte, final long resources) throws IOException {
+        FileUtils.forceMkdir(directory);
+        final RandomAccessFile lockFile = lock(directory);
+        try {
+            final File samplesFile = new File(directory, SAMPLES_FILE);
+            final StringBuilder sample = new StringBuilder();
+            if (!samplesFile.exists()) {
+                sample.append(SAMPLES_HEADING).append('\n');
+            }
+            sample.append(RUN).append(System.currentTimeMillis()).append(',').append(quote(browser)).append(',')
+                    .append(quote(url)).append(',').append(loadTime).append(',').append(firstByte).append(',')
+                    .append(resources).append('\n');
+            FileUtils.writeStringToFile(samplesFile, sample.toString(), ENCODING, true);
+        } finally {
+            lockFile.close();
+        }
+        if (DIRECTORIES.isEmpty()) {
+            Runtime.getRuntime().addShutdownHook(new Thread("page-timing-report") {
+                @Override
+                public void run() {
+                    summarise();
+                }
+            });
+        }
+        DIRECTORIES.add(directory.getAbsoluteFile());
+    }
+
+    /**
+     * Write the summary for the current test run to each report directory to which this JVM has added samples.
+     */
+    static synchronized void summarise() {
+        for (final File directory : DIRECTORIES) {
+            try {
+                final RandomAccessFile lockFile = lock(directory);
+                try {
+                    writeSummary(new File(directory, SUMMARY_FILE), readSamples(new File(directory, SAMPLES_FILE)));
+                } finally {
+                    lockFile.close();
+                }
+            } catch (final IOException e) {
+                LOGGER.error("Error writing page timing report to " + directory, e);
+            }
+        }
+    }
+
+    /**
+     * Open and lock the lock file of a report directory. Closing the lock file releases the lock.
+     *
+     * @param directory The report directory.
+     * @return The lock file.
+     * @throws IOException If the lock file could not be opened or locked.
+     */
+    private static RandomAccessFile lock(final File directory) throws IOException {
+        final RandomAccessFile lockFile = new RandomAccessFile(new File(directory, LOCK_FILE), "rw");
+        try {
+            lockFile.getChannel().lock();
+            return lockFile;
+        } catch (final IOException e) {
+            lockFile.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read the samples for the current test run from the samples file.
+     *
+     * @param samplesFile The samples file.
+     * @return The load time, first byte and resource count of each sample indexed by browser and URL.
+     * @throws IOException If there was an error reading the samples file.
+     */
+    private static Map<String, List<long[]>> readSamples(final File samplesFile) throws IOException {
+        final Map<String, List<long[]>> samples = new TreeMap<String, List<long[]>>();
+        final LineIterator lines = FileUtils.lineIterator(samplesFile, ENCODING);
+        try {
+            while (lines.hasNext()) {
+                final String line = lines.nextLine();
+                if (line.startsWith(RUN)) {
+                    addSample(samples, line);
+                }
+            }
+        } finally {
+            lines.close();
+        }
+        return samples;
+    }
+
+    /**
+     * Parse a line of the samples file and add it to the samples.
+     *
+     * @param samples The samples indexed by browser and URL.
+     * @param line    The line of the samples file.
+     */
+    private static void addSample(final Map<String, List<long[]>> samples, final String line) {
+        final StringBuilder browser = new StringBuilder();
+        final StringBuilder url = new StringBuilder();
+        int index = unquote(line, line.indexOf(',', RUN.length()) + 1, browser);
+        index = unquote(line, index + 1, url);
+        final String[] values = line.substring(index + 1).split(",");
+        final String key = browser.toString() + '\n' + url;
+        List<long[]> list = samples.get(key);
+        if (list == null) {
+            list = new ArrayList<long[]>();
+            samples.put(key, list);
+        }
+        list.add(new long[]{Long.parseLong(values[0]), Long.parseLong(values[1]), Long.parseLong(values[2])});
+    }
+
+    /**
+     * Rewrite the summary file with the percentiles calculated from the samples.
+     *
+     * @param summaryFile The summary file.
+     * @param samples     The samples indexed by browser and URL.
+     * @throws IOException If there was an error writing the summary file.
+     */
+    private static void writeSummary(final File summaryFile, final Map<String, List<long[]>> samples)
+            throws IOException {
+        final StringBuilder summary = new StringBuilder(SUMMARY_HEADING).append('\n');
+        for (final Map.Entry<String, List<long[]>> entry : samples.entrySet()) {
+            final String[] parts = entry.getKey().split("\n", 2);
+            final List<Long> loadTimes = column(entry.getValue(), 0);
+            final List<Long> firstBytes = column(entry.getValue(), 1);
+            final List<Long> resourceCounts = column(entry.getValue(), 2);
+            summary.append(quote(parts[0])).append(',').append(quote(parts[1])).append(',')
+                    .append(loadTimes.size()).append(',')
+                    .append(percentile(loadTimes, 50)).append(',')
+                    .append(percentile(loadTimes, 90)).append(',')
+                    .append(percentile(loadTimes, 95)).append(',')
+                    .append(percentile(loadTimes, 100)).append(',')
+                    .append(percentile(firstBytes, 50)).append(',')
+                    .append(percentile(firstBytes, 90)).append(',')
+                    .append(percentile(resourceCounts, 100)).append('\n');
+        }
+        FileUtils.writeStringToFile(summaryFile, summary.toString(), ENCODING);
+    }
+
+    /**
+     * Extract and sort one column of the samples.
+     *
+     * @param samples The samples.
+     * @param index   The column index.
+     * @return The sorted values.
+     */
+    private static List<Long> column(final List<long[]> samples, final int index) {
+        final List<Long> values = new ArrayList<Long>(samples.size());
+        for (final long[] sample : samples) {
+            values.add(sample[index]);
+        }
+        Collections.sort(values);
+        return values;
+    }
+
+    /**
+     * Calculate a percentile using the nearest rank method.
+     *
+     * @param sorted  The sorted values.
+     * @param percent The percentile.
+     * @return The value at the percentile.
+     */
+    private static long percentile(final List<Long> sorted, final int percent) {
+        final int rank = (int)Math.ceil(percent / 100.0 * sorted.size());
+        return sorted.get(Math.max(rank, 1) - 1);
+    }
+
+    /**
+     * Read a quoted value from a line of a CSV file.
+     *
+     * @param line  The line.
+     * @param start The index of the opening quote.
+     * @param value Receives the unquoted value.
+     * @return The index of the character after the closing quote.
+     */
+    private static int unquote(final String line, final int start, final StringBuilder value) {
+        int index = start + 1;
+        while (index < line.length()) {
+            final char ch = line.charAt(index++);
+            if (ch != '"') {
+                value.append(ch);
+            } else if (index < line.length() && line.charAt(index) == '"') {
+                value.append(ch);
+                ++index;
+            } else {
+                break;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Quote a value for inclusion in a CSV file.
+     *
+     * @param value The value.
+     * @return The quoted value.
+     */
+    private static String quote(final String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.rule;
+
+import java.lang.annotation.*;
+
+/**
+ * Declares the page-load performance budget enforced by the {@link PageTiming} method rule. The annotation can be
+ * applied to the test class or to individual test methods. Annotations on test methods take precedence.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface PerformanceBudget {
+
+    /**
+     * The maximum number of milliseconds from the start of navigation to the end of the load event. The default value
+     * of zero means that the load time is not checked.
+     */
+    long loadTime() default 0L;
+
+    /**
+     * The maximum number of milliseconds from the start of navigation to the first byte of the response. The default
+     * value of zero means that the time to first byte is not checked.
+     */
+    long firstByte() default 0L;
+
+    /**
+     * The maximum number of resources, such as scripts, style sheets and images, loaded by the page. The default value
+     * of zero means that the number of resources is not checked.
+     */
+    int resources() default 0;
+}
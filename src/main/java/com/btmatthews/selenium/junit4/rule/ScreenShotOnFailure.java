@@ -22,11 +22,10 @@ import java.io.IOException;
 import com.btmatthews.selenium.junit4.runner.SeleniumServer;
 import com.btmatthews.selenium.junit4.runner.SeleniumWebDriver;
 import com.thoughtworks.selenium.Selenium;
+import com.thoughtworks.selenium.SeleniumException;
 import org.apache.commons.io.FileUtils;
 import org.junit.rules.TestWatcher;
 import org.junit.runner.Description;
-import org.openqa.selenium.OutputType;
-import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,7 +41,7 @@ public class ScreenShotOnFailure extends TestWatcher {
     /**
      * Used to log failure messages.
      */
-    private static final Logger LOGGER = LoggerFactory.getLogger(DefaultScreenShotFilenameGenerator.class);
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScreenShotOnFailure.class);
 
     /**
      * Injected by the {@link com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner} if the Selenium RC
@@ -86,7 +85,9 @@ public class ScreenShotOnFailure extends TestWatcher {
     }
 
     /**
-     * Handle a test case failure by taking a screen shot from the browser and writing it to a file.
+     * Handle a test case failure by taking a screen shot from the browser and writing it to a file. When the
+     * Selenium RC API is being used the screen shot is streamed back from the Selenium Server and written on the
+     * client so that it lands in the same place as screen shots taken by web drivers.
      *
      * @param exception   The exception that describes the test case failure.
      * @param description Describes the unit test that failed.
@@ -95,18 +96,14 @@ public class ScreenShotOnFailure extends TestWatcher {
     protected void failed(final Throwable exception,
                           final Description description) {
         try {
-            if (webDriver != null) {
-                if (webDriver instanceof TakesScreenshot) {
-                    final File target = generator.getTargetFilename(description);
-                    final byte[] source = ((TakesScreenshot)webDriver).getScreenshotAs(OutputType.BYTES);
-                    FileUtils.forceMkdir(target.getParentFile());
-                    FileUtils.writeByteArrayToFile(target, source);
-                }
-            } else {
+            final byte[] source = ScreenShots.capture(server, webDriver);
+            if (source != null) {
                 final File target = generator.getTargetFilename(description);
                 FileUtils.forceMkdir(target.getParentFile());
-                server.captureEntirePageScreenshot(target.getAbsolutePath(), "");
+                FileUtils.writeByteArrayToFile(target, source);
             }
+        } catch (final SeleniumException e) {
+            LOGGER.error("Selenium error capturing screen shot after failure", e);
         } catch (final IOException e) {
             LOGGER.error("I/O error capturing screen shot after failure", e);
         }
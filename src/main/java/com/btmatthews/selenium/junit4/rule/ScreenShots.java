@@ -0,0 +1,78 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.rule;
+
+import com.thoughtworks.selenium.Selenium;
+import org.apache.commons.codec.binary.Base64;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.internal.WrapsDriver;
+
+/**
+ * Helper methods used by the rules to capture screen shots from whichever Selenium API has been injected.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class ScreenShots {
+
+    /**
+     * Default constructor is private.
+     */
+    private ScreenShots() {
+    }
+
+    /**
+     * Capture a screen shot of the entire page as PNG encoded bytes. The web driver is used if it has been injected,
+     * otherwise the Selenium RC API is used. When the Selenium RC object is wrapping a web driver the screen shot is
+     * taken directly from the web driver.
+     *
+     * @param server    The Selenium RC object or {@code null}.
+     * @param webDriver The web driver or {@code null}.
+     * @return The PNG encoded screen shot or {@code null} if the browser cannot take screen shots.
+     */
+    static byte[] capture(final Selenium server, final WebDriver webDriver) {
+        final byte[] source;
+        if (webDriver != null) {
+            source = capture(webDriver);
+        } else if (server instanceof WrapsDriver) {
+            source = capture(((WrapsDriver)server).getWrappedDriver());
+        } else if (server != null) {
+            source = Base64.decodeBase64(server.captureEntirePageScreenshotToString(""));
+        } else {
+            source = null;
+        }
+        return source;
+    }
+
+    /**
+     * Capture a screen shot of the entire page as PNG encoded bytes using the web driver.
+     *
+     * @param webDriver The web driver.
+     * @return The PNG encoded screen shot or {@code null} if the web driver cannot take screen shots.
+     */
+    private static byte[] capture(final WebDriver webDriver) {
+        final byte[] source;
+        if (webDriver instanceof TakesScreenshot) {
+            source = ((TakesScreenshot)webDriver).getScreenshotAs(OutputType.BYTES);
+        } else {
+            source = null;
+        }
+        return source;
+    }
+}
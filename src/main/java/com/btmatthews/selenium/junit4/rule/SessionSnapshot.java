@@ -0,0 +1,410 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.rule;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import com.btmatthews.selenium.junit4.runner.SeleniumBrowser;
+import com.btmatthews.selenium.junit4.runner.SeleniumServer;
+import com.btmatthews.selenium.junit4.runner.SeleniumWebDriver;
+import com.thoughtworks.selenium.Selenium;
+import org.junit.rules.ExternalResource;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.internal.WrapsDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A method rule that runs an {@link Authenticator} once and restores the resulting cookies, local storage and
+ * session storage into the browser before each later test case instead of logging in again. The snapshot is cached
+ * for each browser, or for each browser session, until it expires. If the authenticator fails the test case is not
+ * run.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public class SessionSnapshot extends ExternalResource {
+
+    /**
+     * Used to log the snapshot activity.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionSnapshot.class);
+
+    /**
+     * The default number of milliseconds for which a snapshot is reused.
+     */
+    private static final long DEFAULT_EXPIRY = 30L * 60L * 1000L;
+
+    /**
+     * Script that copies a storage area into an object or returns {@code null} if the browser does not support it.
+     */
+    private static final String CAPTURE_SCRIPT = "try {"
+            + "  var storage = window[arguments[0]], result = {}, i, key;"
+            + "  for (i = 0; i < storage.length; i++) { key = storage.key(i); result[key] = storage.getItem(key); }"
+            + "  return result;"
+            + "} catch (e) { return null; }";
+
+    /**
+     * Script that replaces the contents of a storage area.
+     */
+    private static final String RESTORE_SCRIPT = "try {"
+            + "  var storage = window[arguments[0]], values = arguments[1], key;"
+            + "  storage.clear();"
+            + "  for (key in values) { storage.setItem(key, values[key]); }"
+            + "} catch (e) { }";
+
+    /**
+     * The snapshots shared by all the sessions for a browser indexed by browser name and snapshot key.
+     */
+    private static final Map<String, Snapshot> BROWSER_SNAPSHOTS = new HashMap<String, Snapshot>();
+
+    /**
+     * The snapshots for individual browser sessions indexed by web driver and snapshot key.
+     */
+    private static final Map<WebDriver, Map<String, Snapshot>> SESSION_SNAPSHOTS =
+            new WeakHashMap<WebDriver, Map<String, Snapshot>>();
+
+    /**
+     * Injected by the {@link com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner} if the Selenium RC
+     * API is being used to drive the browser.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumServer
+    private Selenium server;
+
+    /**
+     * Injected by the {@link com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner} if the Selenium Web
+     * Driver API is being used to drive the browser.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumWebDriver
+    private WebDriver webDriver;
+
+    /**
+     * Injected by the {@link com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner} to identify the
+     * browser.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumBrowser
+    private String browser;
+
+    /**
+     * Identifies the snapshot so that different authenticators, such as different user roles, are cached separately.
+     */
+    private final String key;
+
+    /**
+     * Logs into the application under test.
+     */
+    private final Authenticator authenticator;
+
+    /**
+     * Determines whether the snapshot is shared by all the sessions for a browser or kept for each session.
+     */
+    private final Scope scope;
+
+    /**
+     * The number of milliseconds for which a snapshot is reused.
+     */
+    private final long expiry;
+
+    /**
+     * Construct a rule that shares the snapshot between all the sessions for a browser for 30 minutes.
+     *
+     * @param snapshotKey           Identifies the snapshot.
+     * @param authenticationFixture Logs into the application under test.
+     */
+    public SessionSnapshot(final String snapshotKey, final Authenticator authenticationFixture) {
+        this(snapshotKey, authenticationFixture, Scope.BROWSER, DEFAULT_EXPIRY);
+    }
+
+    /**
+     * Construct a rule.
+     *
+     * @param snapshotKey           Identifies the snapshot.
+     * @param authenticationFixture Logs into the application under test.
+     * @param snapshotScope         Determines whether the snapshot is shared by all the sessions for a browser or kept
+     *                              for each session.
+     * @param snapshotExpiry        The number of milliseconds for which a snapshot is reused.
+     */
+    public SessionSnapshot(final String snapshotKey, final Authenticator authenticationFixture,
+                           final Scope snapshotScope, final long snapshotExpiry) {
+        key = snapshotKey;
+        authenticator = authenticationFixture;
+        scope = snapshotScope;
+        expiry = snapshotExpiry;
+    }
+
+    /**
+     * Restore the cached snapshot into the browser or run the authenticator and capture a new snapshot if there is no
+     * cached snapshot or it has expired.
+     */
+    @Override
+    protected void before() {
+        final WebDriver driver = getWebDriver();
+        final Snapshot snapshot = lookup(driver);
+        if (snapshot == null || snapshot.isExpired()) {
+            LOGGER.debug("Authenticating {} for {}", key, browser);
+            try {
+                authenticator.authenticate(driver);
+            } catch (final RuntimeException e) {
+                throw e;
+            } catch (final Exception e) {
+                throw new WebDriverException("Authentication fixture " + key + " failed", e);
+            }
+            store(driver, capture(driver));
+        } else {
+            LOGGER.debug("Restoring {} for {}", key, browser);
+            restore(driver, snapshot);
+        }
+    }
+
+    /**
+     * Discard the cached snapshot so that the authenticator runs again before the next test case. This should be
+     * called by test cases that log out or otherwise invalidate the session.
+     */
+    public void invalidate() {
+        synchronized (SessionSnapshot.class) {
+            if (scope == Scope.BROWSER) {
+                BROWSER_SNAPSHOTS.remove(browser + '/' + key);
+            } else {
+                final Map<String, Snapshot> snapshots = SESSION_SNAPSHOTS.get(getWebDriver());
+                if (snapshots != null) {
+                    snapshots.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the cached snapshot.
+     *
+     * @param driver The web driver.
+     * @return The snapshot or {@code null} if there is no cached snapshot.
+     */
+    private Snapshot lookup(final WebDriver driver) {
+        synchronized (SessionSnapshot.class) {
+            if (scope == Scope.BROWSER) {
+                return BROWSER_SNAPSHOTS.get(browser + '/' + key);
+            } else {
+                final Map<String, Snapshot> snapshots = SESSION_SNAPSHOTS.get(driver);
+                if (snapshots == null) {
+                    return null;
+                }
+                return snapshots.get(key);
+            }
+        }
+    }
+
+    /**
+     * Add a snapshot to the cache.
+     *
+     * @param driver   The web driver.
+     * @param snapshot The snapshot.
+     */
+    private void store(final WebDriver driver, final Snapshot snapshot) {
+        synchronized (SessionSnapshot.class) {
+            if (scope == Scope.BROWSER) {
+                BROWSER_SNAPSHOTS.put(browser + '/' + key, snapshot);
+            } else {
+                Map<String, Snapshot> snapshots = SESSION_SNAPSHOTS.get(driver);
+                if (snapshots == null) {
+                    snapshots = new HashMap<String, Snapshot>();
+                    SESSION_SNAPSHOTS.put(driver, snapshots);
+                }
+                snapshots.put(key, snapshot);
+            }
+        }
+    }
+
+    /**
+     * Capture the cookies and storage for the page the browser is showing.
+     *
+     * @param driver The web driver.
+     * @return The snapshot.
+     */
+    private Snapshot capture(final WebDriver driver) {
+        return new Snapshot(driver.getCurrentUrl(),
+                driver.manage().getCookies(),
+                captureStorage(driver, "localStorage"),
+                captureStorage(driver, "sessionStorage"),
+                System.currentTimeMillis() + expiry);
+    }
+
+    /**
+     * Restore the cookies and storage into the browser. The browser is navigated to the page on which the snapshot
+     * was captured before and after the cookies are restored.
+     *
+     * @param driver   The web driver.
+     * @param snapshot The snapshot.
+     */
+    private void restore(final WebDriver driver, final Snapshot snapshot) {
+        driver.get(snapshot.url);
+        final WebDriver.Options options = driver.manage();
+        options.deleteAllCookies();
+        final long now = System.currentTimeMillis();
+        for (final Cookie cookie : snapshot.cookies) {
+            if (cookie.getExpiry() == null || cookie.getExpiry().getTime() > now) {
+                try {
+                    options.addCookie(cookie);
+                } catch (final WebDriverException e) {
+                    LOGGER.debug("Could not restore cookie " + cookie.getName(), e);
+                }
+            }
+        }
+        restoreStorage(driver, "localStorage", snapshot.localStorage);
+        restoreStorage(driver, "sessionStorage", snapshot.sessionStorage);
+        driver.navigate().refresh();
+    }
+
+    /**
+     * Copy a storage area.
+     *
+     * @param driver The web driver.
+     * @param area   The name of the storage area.
+     * @return The contents of the storage area or {@code null} if it is not supported.
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> captureStorage(final WebDriver driver, final String area) {
+        if (driver instanceof JavascriptExecutor) {
+            try {
+                return (Map<String, Object>)((JavascriptExecutor)driver).executeScript(CAPTURE_SCRIPT, area);
+            } catch (final WebDriverException e) {
+                LOGGER.debug("Could not capture " + area, e);
+            } catch (final UnsupportedOperationException e) {
+                LOGGER.debug("Could not capture " + area, e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replace the contents of a storage area.
+     *
+     * @param driver The web driver.
+     * @param area   The name of the storage area.
+     * @param values The contents of the storage area or {@code null} if it was not captured.
+     */
+    private static void restoreStorage(final WebDriver driver, final String area, final Map<String, Object> values) {
+        if (values != null && driver instanceof JavascriptExecutor) {
+            try {
+                ((JavascriptExecutor)driver).executeScript(RESTORE_SCRIPT, area, values);
+            } catch (final WebDriverException e) {
+                LOGGER.debug("Could not restore " + area, e);
+            } catch (final UnsupportedOperationException e) {
+                LOGGER.debug("Could not restore " + area, e);
+            }
+        }
+    }
+
+    /**
+     * Get the web driver that was injected or the web driver wrapped by the Selenium RC object.
+     *
+     * @return The web driver.
+     * @throws IllegalStateException If a web driver is not available.
+     */
+    private WebDriver getWebDriver() {
+        if (webDriver != null) {
+            return webDriver;
+        } else if (server instanceof WrapsDriver) {
+            return ((WrapsDriver)server).getWrappedDriver();
+        } else {
+            throw new IllegalStateException("A web driver is not available");
+        }
+    }
+
+    /**
+     * Determines how widely a snapshot is shared.
+     */
+    public enum Scope {
+
+        /**
+         * The snapshot is shared by all the sessions for the same browser in the JVM.
+         */
+        BROWSER,
+
+        /**
+         * The snapshot is kept for each browser session.
+         */
+        SESSION
+    }
+
+    /**
+     * The cookies and storage captured after running the authenticator.
+     */
+    private static final class Snapshot {
+
+        /**
+         * The URL of the page on which the snapshot was captured.
+         */
+        private final String url;
+
+        /**
+         * The cookies.
+         */
+        private final Set<Cookie> cookies;
+
+        /**
+         * The contents of local storage or {@code null} if it was not captured.
+         */
+        private final Map<String, Object> localStorage;
+
+        /**
+         * The contents of session storage or {@code null} if it was not captured.
+         */
+        private final Map<String, Object> sessionStorage;
+
+        /**
+         * The time at which the snapshot expires.
+         */
+        private final long expires;
+
+        /**
+         * Construct a snapshot.
+         *
+         * @param pageURL    The URL of the page on which the snapshot was captured.
+         * @param cookieSet  The cookies.
+         * @param local      The contents of local storage or {@code null}.
+         * @param session    The contents of session storage or {@code null}.
+         * @param expiryTime The time at which the snapshot expires.
+         */
+        Snapshot(final String pageURL, final Set<Cookie> cookieSet, final Map<String, Object> local,
+                 final Map<String, Object> session, final long expiryTime) {
+            url = pageURL;
+            cookies = Collections.unmodifiableSet(cookieSet);
+            localStorage = local;
+            sessionStorage = session;
+            expires = expiryTime;
+        }
+
+        /**
+         * Determine whether the snapshot has expired.
+         *
+         * @return {@code true} if the snapshot has expired.
+         */
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expires;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.rule;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+
+import com.btmatthews.selenium.junit4.runner.SeleniumBrowser;
+import com.btmatthews.selenium.junit4.runner.SeleniumServer;
+import com.btmatthews.selenium.junit4.runner.SeleniumWebDriver;
+import com.thoughtworks.selenium.Selenium;
+import org.apache.commons.io.FileUtils;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A method rule that compares screen shots of the page, or of individual elements, against baseline images that are
+ * committed alongside the test cases. The baseline image is recorded if it does not already exist. If the screen shot
+ * does not match the baseline the screen shot and an image highlighting the differences are written to the output
+ * directory and the test case fails.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public class VisualRegression extends TestWatcher {
+
+    /**
+     * Used to log failure messages.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(VisualRegression.class);
+
+    /**
+     * The image format used for the baseline, screen shot and difference images.
+     */
+    private static final String FORMAT = "png";
+
+    /**
+     * Injected by the {@link com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner} if the Selenium RC
+     * API is being used to drive the browser.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumServer
+    private Selenium server;
+
+    /**
+     * Injected by the {@link com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner} if the Selenium Web
+     * Driver API is being used to drive the browser.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumWebDriver
+    private WebDriver webDriver;
+
+    /**
+     * Injected by the {@link com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner} to identify the
+     * browser. Baselines are kept separately for each browser because they render pages differently.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumBrowser
+    private String browser;
+
+    /**
+     * The root directory under which the baseline images are kept.
+     */
+    private final File baselineDirectory;
+
+    /**
+     * The root directory under which the screen shots and difference images are written when a comparison fails.
+     */
+    private final File outputDirectory;
+
+    /**
+     * Used to compare the screen shots against the baseline images.
+     */
+    private final ImageComparator comparator;
+
+    /**
+     * Describes the test case that is currently running.
+     */
+    private Description description;
+
+    /**
+     * Construct a rule that requires the screen shots to match the baseline images exactly.
+     *
+     * @param baselines The root directory under which the baseline images are kept.
+     * @param output    The root directory under which the screen shots and difference images are written when a
+     *                  comparison fails.
+     */
+    public VisualRegression(final String baselines, final String output) {
+        this(new File(baselines), new File(output), new ImageComparator());
+    }
+
+    /**
+     * Construct a rule that uses {@code imageComparator} to compare the screen shots against the baseline images.
+     *
+     * @param baselines       The root directory under which the baseline images are kept.
+     * @param output          The root directory under which the screen shots and difference images are written
+     *                        when a comparison fails.
+     * @param imageComparator Used to compare the screen shots against the baseline images.
+     */
+    public VisualRegression(final File baselines, final File output, final ImageComparator imageComparator) {
+        baselineDirectory = baselines;
+        outputDirectory = output;
+        comparator = imageComparator;
+    }
+
+    /**
+     * Remember the test case that is about to run so that it can be used to name the baseline images.
+     *
+     * @param testDescription Describes the test case.
+     */
+    @Override
+    protected void starting(final Description testDescription) {
+        description = testDescription;
+    }
+
+    /**
+     * Forget the test case that has just finished.
+     *
+     * @param testDescription Describes the test case.
+     */
+    @Override
+    protected void finished(final Description testDescription) {
+        description = null;
+    }
+
+    /**
+     * Compare a screen shot of the entire page against the baseline image.
+     *
+     * @param name Identifies the baseline image within the test case.
+     * @throws IOException If there was an error reading or writing the images.
+     */
+    public void verify(final String name) throws IOException {
+        verify(name, capture());
+    }
+
+    /**
+     * Compare a screen shot of a single element against the baseline image. This can only be used with the Selenium
+     * Web Driver API.
+     *
+     * @param name    Identifies the baseline image within the test case.
+     * @param element The element.
+     * @throws IOException If there was an error reading or writing the images.
+     */
+    public void verify(final String name, final WebElement element) throws IOException {
+        final Point location = element.getLocation();
+        final Dimension size = element.getSize();
+        verify(name, crop(capture(), new Rectangle(location.getX(), location.getY(), size.getWidth(), size.getHeight())));
+    }
+
+    /**
+     * Compare a screen shot of a single element against the baseline image. This can only be used with the Selenium
+     * RC API.
+     *
+     * @param name    Identifies the baseline image within the test case.
+     * @param locator The element locator.
+     * @throws IOException If there was an error reading or writing the images.
+     */
+    public void verify(final String name, final String locator) throws IOException {
+        final Rectangle bounds = new Rectangle(
+                server.getElementPositionLeft(locator).intValue(),
+                server.getElementPositionTop(locator).intValue(),
+                server.getElementWidth(locator).intValue(),
+                server.getElementHeight(locator).intValue());
+        verify(name, crop(capture(), bounds));
+    }
+
+    /**
+     * Compare the screen shot against the baseline image. The screen shot becomes the baseline image if one has not
+     * been recorded yet.
+     *
+     * @param name   Identifies the baseline image within the test case.
+     * @param actual The screen shot.
+     * @throws IOException If there was an error reading or writing the images.
+     */
+    private void verify(final String name, final BufferedImage actual) throws IOException {
+        final File baseline = getFile(baselineDirectory, name, null);
+        if (baseline.exists()) {
+            final ImageComparison comparison = comparator.compare(ImageIO.read(baseline), actual);
+            if (!comparison.isMatch()) {
+                write(getFile(outputDirectory, name, "actual"), actual);
+                final File difference = getFile(outputDirectory, name, "diff");
+                write(difference, comparison.getDifference());
+                throw new AssertionError("Screen shot " + name + " does not match baseline " + baseline
+                        + ": " + comparison.getDifferentPixels() + " pixels differ, see " + difference);
+            }
+        } else {
+            LOGGER.warn("Recording new baseline image " + baseline);
+            write(baseline, actual);
+        }
+    }
+
+    /**
+     * Capture a screen shot of the entire page.
+     *
+     * @return The screen shot.
+     * @throws IOException If the screen shot could not be decoded.
+     */
+    private BufferedImage capture() throws IOException {
+        final byte[] source = ScreenShots.capture(server, webDriver);
+        if (source == null) {
+            throw new UnsupportedOperationException("Browser " + browser + " cannot take screen shots");
+        }
+        return ImageIO.read(new ByteArrayInputStream(source));
+    }
+
+    /**
+     * Crop the screen shot to the bounds of an element. The bounds are clipped to the screen shot.
+     *
+     * @param image  The screen shot.
+     * @param bounds The bounds of the element.
+     * @return The cropped screen shot.
+     */
+    private BufferedImage crop(final BufferedImage image, final Rectangle bounds) {
+        final Rectangle clip = bounds.intersection(new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+        if (clip.isEmpty()) {
+            throw new IllegalArgumentException("Element is outside of the screen shot");
+        }
+        return image.getSubimage(clip.x, clip.y, clip.width, clip.height);
+    }
+
+    /**
+     * Build the file name for a baseline, screen shot or difference image. The file name is derived from the test
+     * class, the browser, the test method and {@code name}.
+     *
+     * @param directory The root directory.
+     * @param name      Identifies the image within the test case.
+     * @param suffix    Distinguishes the screen shot and difference images or {@code null} for the baseline image.
+     * @return The file name.
+     */
+    private File getFile(final File directory, final String name, final String suffix) {
+        final StringBuilder builder = new StringBuilder();
+        builder.append(description.getMethodName());
+        builder.append('-');
+        builder.append(name);
+        if (suffix != null) {
+            builder.append('-');
+            builder.append(suffix);
+        }
+        builder.append('.');
+        builder.append(FORMAT);
+        final File classDirectory = new File(directory,
+                description.getTestClass().getCanonicalName().replace('.', File.separatorChar));
+        return new File(new File(classDirectory, browser), builder.toString());
+    }
+
+    /**
+     * Write an image to a file creating the parent directories if necessary.
+     *
+     * @param file  The file.
+     * @param image The image.
+     * @throws IOException If there was an error writing the file.
+     */
+    private void write(final File file, final BufferedImage image) throws IOException {
+        FileUtils.forceMkdir(file.getParentFile());
+        ImageIO.write(image, FORMAT, file);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.internal.Locatable;
+import org.openqa.selenium.internal.WrapsElement;
+import org.openqa.selenium.support.pagefactory.DefaultFieldDecorator;
+import org.openqa.selenium.support.pagefactory.ElementLocator;
+import org.openqa.selenium.support.pagefactory.ElementLocatorFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * A field decorator that initialises {@link WebElement} fields of page objects
+ * with proxies that locate the element when it is first used, cache it and
+ * relocate it only when the browser reports that it has gone stale. Fields of
+ * type {@code List<WebElement>} are decorated as usual and locate the elements
+ * each time they are used because the number of matching elements can change
+ * without the elements going stale.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class CachingFieldDecorator extends DefaultFieldDecorator {
+
+    /**
+     * Construct the field decorator.
+     *
+     * @param factory Creates the element locators for the page object fields.
+     */
+    CachingFieldDecorator(final ElementLocatorFactory factory) {
+        super(factory);
+    }
+
+    /**
+     * Create a caching proxy for a single element.
+     *
+     * @param loader  The class loader used to define the proxy class.
+     * @param locator Locates the element.
+     * @return The proxy.
+     */
+    @Override
+    protected WebElement proxyForLocator(final ClassLoader loader, final ElementLocator locator) {
+        return (WebElement)Proxy.newProxyInstance(loader,
+                new Class[]{WebElement.class, WrapsElement.class, Locatable.class},
+                new CachingElementHandler(locator));
+    }
+
+    /**
+     * Forwards method calls to the cached element, locating it first if
+     * necessary and relocating it once if it has gone stale.
+     */
+    private static final class CachingElementHandler implements InvocationHandler {
+
+        /**
+         * Locates the element.
+         */
+        private final ElementLocator locator;
+
+        /**
+         * The cached element or {@code null} if it has not been located yet.
+         */
+        private WebElement element;
+
+        /**
+         * Construct the invocation handler.
+         *
+         * @param elementLocator Locates the element.
+         */
+        CachingElementHandler(final ElementLocator elementLocator) {
+            locator = elementLocator;
+        }
+
+        /**
+         * Forward a method call to the cached element.
+         *
+         * @param proxy  The proxy.
+         * @param method The method being called.
+         * @param args   The method arguments.
+         * @return The value returned by the element.
+         * @throws Throwable The exception thrown by the element.
+         */
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return invokeObjectMethod(proxy, method, args);
+            }
+            if ("getWrappedElement".equals(method.getName())) {
+                return getElement(false);
+            }
+            try {
+                return invoke(getElement(false), method, args);
+            } catch (final StaleElementReferenceException e) {
+                return invoke(getElement(true), method, args);
+            }
+        }
+
+        /**
+         * Get the cached element, locating it if it has not been located yet
+         * or if it has gone stale.
+         *
+         * @param stale {@code true} if the cached element has gone stale.
+         * @return The element.
+         */
+        private synchronized WebElement getElement(final boolean stale) {
+            if (element == null || stale) {
+                element = locator.findElement();
+            }
+            return element;
+        }
+
+        /**
+         * Handle the methods of {@link Object} without locating the element.
+         *
+         * @param proxy  The proxy.
+         * @param method The method being called.
+         * @param args   The method arguments.
+         * @return The result.
+         */
+        private Object invokeObjectMethod(final Object proxy, final Method method, final Object[] args) {
+            if ("equals".equals(method.getName())) {
+                return proxy == args[0];
+            } else if ("hashCode".equals(method.getName())) {
+                return System.identityHashCode(proxy);
+            } else {
+                return "Proxy element for: " + locator;
+            }
+        }
+
+        /**
+         * Invoke a method on the element and unwrap any exception it throws.
+         *
+         * @param target The element.
+         * @param method The method being called.
+         * @param args   The method arguments.
+         * @return The value returned by the element.
+         * @throws Throwable The exception thrown by the element.
+         */
+        private static Object invoke(final WebElement target, final Method method, final Object[] args)
+                throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (final InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
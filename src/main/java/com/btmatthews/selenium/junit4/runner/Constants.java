@@ -39,6 +39,229 @@ final class Constants {
      */
     public static final String DEFAULT_START_COMMAND = "*firefox";
 
+    /**
+     * The default URL of the Selenium Server or Grid hub used by remote web drivers.
+     */
+    public static final String DEFAULT_HUB_URL = "http://localhost:4444/wd/hub";
+
+    /**
+     * The default browser name used by remote web drivers.
+     */
+    public static final String DEFAULT_BROWSER_NAME = "firefox";
+
+    /**
+     * The time in milliseconds to wait for a connection when checking the health of a Selenium Server.
+     */
+    public static final int SERVER_HEALTH_CHECK_TIMEOUT = 1000;
+
+    /**
+     * The time in milliseconds for which a failing Selenium Server is ejected.
+     */
+    public static final long SERVER_EJECTION_PERIOD = 30000L;
+
+    /**
+     * The maximum number of responses kept in the cache shared by HTML Unit sessions.
+     */
+    public static final int HTMLUNIT_CACHE_SIZE = 500;
+
+    /**
+     * The default directory in which responses recorded by the HTTP stand-in are stored.
+     */
+    public static final String DEFAULT_REPLAY_STORE = "src/test/resources/replay";
+
+    /**
+     * The system property used to override the mode of the HTTP stand-in.
+     */
+    public static final String REPLAY_MODE_PROPERTY = "selenium.junit4.replay.mode";
+
+    /**
+     * The default location of the content served by the embedded fixture web server.
+     */
+    public static final String DEFAULT_FIXTURE_RESOURCES = "classpath:fixtures";
+
+    /**
+     * The loopback address on which the servers managed by the test runner listen.
+     */
+    public static final String LOOPBACK_ADDRESS = "127.0.0.1";
+
+    /**
+     * The default number of milliseconds to wait for a condition to become true.
+     */
+    public static final long DEFAULT_WAIT_TIMEOUT = 30000L;
+
+    /**
+     * The default number of concurrent virtual users for a load test.
+     */
+    public static final int DEFAULT_LOAD_TEST_USERS = 10;
+
+    /**
+     * The default number of milliseconds for which a load test runs.
+     */
+    public static final long DEFAULT_LOAD_TEST_DURATION = 60000L;
+
+    /**
+     * The default directory to which the load test report is written.
+     */
+    public static final String DEFAULT_LOAD_TEST_REPORT = "target/load-test";
+
+    /**
+     * The default number of windows in which tests run concurrently when a browser session is shared.
+     */
+    public static final int DEFAULT_SHARED_BROWSER_WINDOWS = 4;
+
+    /**
+     * The system property used to enable asynchronous teardown of browser sessions.
+     */
+    public static final String ASYNC_TEARDOWN_PROPERTY = "selenium.junit4.teardown.async";
+
+    /**
+     * The system property used to override the maximum number of browser sessions being torn down at once.
+     */
+    public static final String TEARDOWN_MAX_IN_FLIGHT_PROPERTY = "selenium.junit4.teardown.maxInFlight";
+
+    /**
+     * The system property used to override the number of milliseconds a browser session is given to stop.
+     */
+    public static final String TEARDOWN_GRACE_PERIOD_PROPERTY = "selenium.junit4.teardown.gracePeriod";
+
+    /**
+     * The default maximum number of browser sessions being torn down at once.
+     */
+    public static final int DEFAULT_TEARDOWN_MAX_IN_FLIGHT = 4;
+
+    /**
+     * The default number of milliseconds a browser session is given to stop.
+     */
+    public static final long DEFAULT_TEARDOWN_GRACE_PERIOD = 30000L;
+
+    /**
+     * The system property used to enable the tracking of browser and driver processes so that they can be killed if
+     * their browser session cannot be stopped.
+     */
+    public static final String PROCESS_TRACKING_PROPERTY = "selenium.junit4.processes.track";
+
+    /**
+     * The directory, relative to the temporary directory, in which the registry of browser and driver processes is kept.
+     */
+    public static final String PROCESS_REGISTRY_DIRECTORY = "selenium-junit4-runner";
+
+    /**
+     * The system property used to limit the number of live browser sessions.
+     */
+    public static final String MAX_SESSIONS_PROPERTY = "selenium.junit4.sessions.max";
+
+    /**
+     * The system property used to set the free physical memory, in megabytes, required to start another browser session.
+     */
+    public static final String MIN_FREE_MEMORY_PROPERTY = "selenium.junit4.sessions.minFreeMemory";
+
+    /**
+     * The system property used to set the maximum system load average per processor at which another browser session
+     * can be started.
+     */
+    public static final String MAX_LOAD_PROPERTY = "selenium.junit4.sessions.maxLoad";
+
+    /**
+     * The number of milliseconds between checks of the free memory and system load while sessions are queued.
+     */
+    public static final long DEFAULT_ADMISSION_INTERVAL = 500L;
+
+    /**
+     * The system property used to set the port of the test daemon. Test classes are sent to the test daemon when it
+     * is set.
+     */
+    public static final String DAEMON_PORT_PROPERTY = "selenium.junit4.daemon.port";
+
+    /**
+     * The default port of the test daemon.
+     */
+    public static final int DEFAULT_DAEMON_PORT = 4455;
+
+    /**
+     * The directory, relative to the user's home directory, in which the test daemon writes the token that clients
+     * must send with each test run.
+     */
+    public static final String DAEMON_TOKEN_DIRECTORY = ".selenium-junit4-runner";
+
+    /**
+     * The system property used to set the port of the work coordinator.
+     */
+    public static final String COORDINATOR_PORT_PROPERTY = "selenium.junit4.coordinator.port";
+
+    /**
+     * The default port of the work coordinator.
+     */
+    public static final int DEFAULT_COORDINATOR_PORT = 4456;
+
+    /**
+     * The system property used to set the directory where the work coordinator writes the merged test results.
+     */
+    public static final String COORDINATOR_REPORT_PROPERTY = "selenium.junit4.coordinator.report";
+
+    /**
+     * The default directory where the work coordinator writes the merged test results.
+     */
+    public static final String DEFAULT_COORDINATOR_REPORT = "target/selenium-coordinator";
+
+    /**
+     * The system property used to enable the test impact cache and set the directory in which it is kept.
+     */
+    public static final String IMPACT_CACHE_PROPERTY = "selenium.junit4.impact.cache";
+
+    /**
+     * The system property used to supply the version of the application under test to the test impact cache.
+     */
+    public static final String IMPACT_VERSION_PROPERTY = "selenium.junit4.impact.version";
+
+    /**
+     * The system property used to clear the test impact cache before the tests are run.
+     */
+    public static final String IMPACT_INVALIDATE_PROPERTY = "selenium.junit4.impact.invalidate";
+
+    /**
+     * The system property used to run each test method on a single browser that rotates from build to build.
+     */
+    public static final String MATRIX_ROTATE_PROPERTY = "selenium.junit4.matrix.rotate";
+
+    /**
+     * The system property used to set the build number that determines the browser on which each test method runs.
+     */
+    public static final String MATRIX_BUILD_PROPERTY = "selenium.junit4.matrix.build";
+
+    /**
+     * The environment variable used for the build number if the system property is not set.
+     */
+    public static final String BUILD_NUMBER_VARIABLE = "BUILD_NUMBER";
+
+    /**
+     * The system property used to name a properties file that overrides the browser matrix and server settings.
+     */
+    public static final String MATRIX_FILE_PROPERTY = "selenium.junit4.matrix.file";
+
+    /**
+     * The prefix of the properties used to replace, include or exclude the web drivers of the
+     * {@link WebDriverConfiguration} and {@link WrappedDriverConfiguration} annotations.
+     */
+    public static final String BROWSERS_DRIVERS_PREFIX = "selenium.junit4.browsers.drivers.";
+
+    /**
+     * The prefix of the properties used to replace, include or exclude the browser start commands of the
+     * {@link ServerConfiguration} annotation.
+     */
+    public static final String BROWSERS_COMMANDS_PREFIX = "selenium.junit4.browsers.commands.";
+
+    /**
+     * The prefix of the properties used to replace, include or exclude the browser names of the
+     * {@link RemoteDriverConfiguration} annotation.
+     */
+    public static final String BROWSERS_NAMES_PREFIX = "selenium.junit4.browsers.names.";
+
+    /**
+     * The prefix of the properties used to override the serverHost, serverPort and browserURL configuration
+     * annotation values.
+     */
+    public static final String CONFIGURATION_OVERRIDE_PREFIX = "selenium.junit4.";
+
     /**
      * Default constructor is private.
      */
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.runner.Description;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunNotifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends a test class to the {@link SeleniumDaemon} and reports the results
+ * that are streamed back. The request is authenticated with the token that
+ * the daemon wrote to a file that only the user can read.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class DaemonClient {
+
+    /**
+     * Used to log when the daemon is not running.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(DaemonClient.class);
+
+    /**
+     * Default constructor is private.
+     */
+    private DaemonClient() {
+    }
+
+    /**
+     * Run the tests on the daemon.
+     *
+     * @param port        The port on which the daemon is listening.
+     * @param klass       The test class.
+     * @param description Describes the tests to be run.
+     * @param notifier    Used to report the test results.
+     * @return {@code true} if the tests were run by the daemon or
+     *         {@code false} if the daemon is not running.
+     */
+    static boolean run(final int port, final Class<?> klass, final Description description,
+                       final RunNotifier notifier) {
+        final File tokenFile = SeleniumDaemon.getTokenFile(port);
+        final String token;
+        try {
+            token = FileUtils.readFileToString(tokenFile, "UTF-8");
+        } catch (final IOException e) {
+            LOGGER.info("Selenium daemon token {} could not be read, running {} locally", tokenFile, klass.getName());
+            return false;
+        }
+        final Socket socket;
+        try {
+            socket = new Socket(InetAddress.getByName(null), port);
+        } catch (final ConnectException e) {
+            LOGGER.info("Selenium daemon is not listening on port {}, running {} locally", port, klass.getName());
+            return false;
+        } catch (final IOException e) {
+            LOGGER.warn("Could not connect to Selenium daemon, running " + klass.getName() + " locally", e);
+            return false;
+        }
+        final Map<String, Description> descriptions = new HashMap<String, Description>();
+        final List<String> tests = new ArrayList<String>();
+        index(description, descriptions, tests);
+        try {
+            try {
+                final DataOutputStream output = new DataOutputStream(
+                        new BufferedOutputStream(socket.getOutputStream()));
+                output.writeUTF(token);
+                ResultStreamer.writeString(output, klass.getName());
+                writeStrings(output, Arrays.asList(System.getProperty("java.class.path").split(File.pathSeparator)));
+                writeStrings(output, tests);
+                output.flush();
+                final DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                for (String event = input.readUTF(); !ResultStreamer.DONE.equals(event); event = input.readUTF()) {
+                    final String name = ResultStreamer.readString(input);
+                    final Throwable exception = ResultStreamer.readThrowable(input);
+                    Description test = descriptions.get(name);
+                    if (test == null) {
+                        test = Description.createSuiteDescription(name);
+                    }
+                    fire(notifier, event, test, exception);
+                }
+            } finally {
+                socket.close();
+            }
+        } catch (final Exception e) {
+            notifier.fireTestFailure(new Failure(description, e));
+        }
+        return true;
+    }
+
+    /**
+     * Write a list of strings as the number of strings followed by the
+     * strings.
+     *
+     * @param output  The stream connected to the daemon.
+     * @param strings The strings.
+     * @throws IOException If the strings could not be written.
+     */
+    private static void writeStrings(final DataOutputStream output, final List<String> strings) throws IOException {
+        output.writeInt(strings.size());
+        for (final String string : strings) {
+            ResultStreamer.writeString(output, string);
+        }
+    }
+
+    /**
+     * Index the descriptions by display name and collect the display names
+     * of the tests.
+     *
+     * @param description  The description.
+     * @param descriptions The descriptions indexed by display name.
+     * @param tests        The display names of the tests.
+     */
+    private static void index(final Description description, final Map<String, Description> descriptions,
+                              final List<String> tests) {
+        if (!descriptions.containsKey(description.getDisplayName())) {
+            descriptions.put(description.getDisplayName(), description);
+        }
+        if (description.isTest()) {
+            tests.add(description.getDisplayName());
+        }
+        for (final Description child : description.getChildren()) {
+            index(child, descriptions, tests);
+        }
+    }
+
+    /**
+     * Report a test event streamed back by the daemon.
+     *
+     * @param notifier  Used to report the test results.
+     * @param event     The event.
+     * @param test      Describes the test.
+     * @param exception The exception that caused the test to fail or
+     *                  {@code null}.
+     */
+    private static void fire(final RunNotifier notifier, final String event, final Description test,
+                             final Throwable exception) {
+        if (ResultStreamer.STARTED.equals(event)) {
+            notifier.fireTestStarted(test);
+        } else if (ResultStreamer.FINISHED.equals(event)) {
+            notifier.fireTestFinished(test);
+        } else if (ResultStreamer.FAILED.equals(event)) {
+            notifier.fireTestFailure(new Failure(test, exception));
+        } else if (ResultStreamer.ASSUMPTION_FAILED.equals(event)) {
+            notifier.fireTestAssumptionFailed(new Failure(test, exception));
+        } else if (ResultStreamer.IGNORED.equals(event)) {
+            notifier.fireTestIgnored(test);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import org.openqa.selenium.net.PortProber;
+import org.openqa.selenium.server.RemoteControlConfiguration;
+
+/**
+ * Manages the in-process Selenium Server that is shared by all test classes annotated with
+ * {@link ServerConfiguration#embedded()} running in the same JVM. The server is started on demand on a free port and
+ * stopped when the JVM exits, so parallel test forks each get their own server.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class EmbeddedServer {
+
+    /**
+     * The embedded Selenium Server or {@code null} if it has not been started yet.
+     */
+    private static org.openqa.selenium.server.SeleniumServer server;
+
+    /**
+     * Default constructor is private.
+     */
+    private EmbeddedServer() {
+    }
+
+    /**
+     * Get the port on which the embedded Selenium Server is listening, starting the server if this is the first time
+     * it has been requested.
+     *
+     * @return The port number.
+     * @throws Exception If there was a problem starting the Selenium Server.
+     */
+    static synchronized int getPort() throws Exception {
+        if (server == null) {
+            final RemoteControlConfiguration configuration = new RemoteControlConfiguration();
+            configuration.setPort(PortProber.findFreePort());
+            final org.openqa.selenium.server.SeleniumServer embeddedServer =
+                    new org.openqa.selenium.server.SeleniumServer(configuration);
+            embeddedServer.boot();
+            Runtime.getRuntime().addShutdownHook(new Thread("embedded-selenium-server") {
+                @Override
+                public void run() {
+                    embeddedServer.stop();
+                }
+            });
+            server = embeddedServer;
+        }
+        return server.getPort();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import org.apache.commons.lang3.StringUtils;
+import org.seleniumhq.jetty7.servlet.DefaultServlet;
+import org.seleniumhq.jetty7.servlet.ServletContextHandler;
+import org.seleniumhq.jetty7.servlet.ServletHolder;
+import org.seleniumhq.jetty7.util.resource.Resource;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Manages the embedded fixture web servers that serve static content to the browsers. A fixture web server is
+ * started on demand for each content location the first time it is requested and is shared by all the test classes
+ * in the JVM. Files are served from memory-mapped buffers over keep-alive connections.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class FixtureServer {
+
+    /**
+     * The prefix that identifies class path locations.
+     */
+    private static final String CLASSPATH_PREFIX = "classpath:";
+
+    /**
+     * The base URLs of the running fixture web servers indexed by content location.
+     */
+    private static final Map<String, String> SERVERS = new HashMap<String, String>();
+
+    /**
+     * Default constructor is private.
+     */
+    private FixtureServer() {
+    }
+
+    /**
+     * Get the base URL of the fixture web server for a content location, starting the server if this is the first
+     * time it has been requested.
+     *
+     * @param location The location of the static content.
+     * @return The base URL.
+     * @throws Exception If the content location does not exist or the server could not be started.
+     */
+    static synchronized String getURL(final String location) throws Exception {
+        String url = SERVERS.get(location);
+        if (url == null) {
+            final ServletContextHandler context = new ServletContextHandler();
+            context.setContextPath("/");
+            context.setBaseResource(getResource(location));
+            final ServletHolder holder = new ServletHolder(new DefaultServlet());
+            holder.setInitParameter("dirAllowed", "false");
+            holder.setInitParameter("useFileMappedBuffer", "true");
+            context.addServlet(holder, "/");
+            url = LoopbackServer.start("fixture-server", context, null);
+            SERVERS.put(location, url);
+        }
+        return url;
+    }
+
+    /**
+     * Resolve a content location.
+     *
+     * @param location The location of the static content.
+     * @return The resolved resource.
+     * @throws Exception If the content location does not exist.
+     */
+    private static Resource getResource(final String location) throws Exception {
+        final Resource resource;
+        if (location.startsWith(CLASSPATH_PREFIX)) {
+            resource = Resource.newClassPathResource(StringUtils.removeStart(location, CLASSPATH_PREFIX));
+        } else {
+            resource = Resource.newResource(new File(location));
+        }
+        if (resource == null || !resource.exists()) {
+            throw new FileNotFoundException("Fixture content not found: " + location);
+        }
+        return resource;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import com.thoughtworks.selenium.Selenium;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Factory that waits for the {@link SessionGovernor} to admit each browser
+ * session before it is created by the underlying factory and releases the
+ * session's slot when it is stopped.
+ *
+ * @param <T> <ul>
+ *            <li>{@link Selenium} for tests that use the Selenium 1.0 API</li>
+ *            <li>{@link WebDriver} for tests that use the Selenium 2.0 API</li>
+ *            </ul>
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class GovernedFactory<T> implements SeleniumFactory<T> {
+
+    /**
+     * The factory used to create, start and stop the Selenium object.
+     */
+    private final SeleniumFactory<T> delegate;
+
+    /**
+     * Construct the factory.
+     *
+     * @param factory The factory used to create, start and stop the Selenium
+     *                object.
+     */
+    GovernedFactory(final SeleniumFactory<T> factory) {
+        delegate = factory;
+    }
+
+    /**
+     * Get the underlying factory.
+     *
+     * @return The factory used to create, start and stop the Selenium object.
+     */
+    SeleniumFactory<T> getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Get the browser name from the underlying factory.
+     *
+     * @return The browser name.
+     */
+    public String getBrowser() {
+        return delegate.getBrowser();
+    }
+
+    /**
+     * Wait until the session is admitted and then create the Selenium object.
+     *
+     * @return The Selenium object.
+     * @throws Exception If the Selenium object could not be created.
+     */
+    public T create() throws Exception {
+        SessionGovernor.acquire(delegate.getBrowser());
+        final T selenium;
+        try {
+            selenium = delegate.create();
+        } catch (final Exception e) {
+            SessionGovernor.release();
+            throw e;
+        }
+        SessionGovernor.hold(selenium);
+        return selenium;
+    }
+
+    /**
+     * Start the Selenium object. The session's slot is released if it could
+     * not be started because the test runners do not stop it.
+     *
+     * @param selenium The Selenium object.
+     * @throws Exception If the Selenium object could not be started.
+     */
+    public void start(final T selenium) throws Exception {
+        try {
+            delegate.start(selenium);
+        } catch (final Exception e) {
+            SessionGovernor.release(selenium);
+            throw e;
+        }
+    }
+
+    /**
+     * Stop the Selenium object and release its slot. If the session is
+     * abandoned while it is stopping the {@link SessionReaper} releases the
+     * slot instead.
+     *
+     * @param selenium The Selenium object.
+     * @throws Exception If the Selenium object could not be stopped.
+     */
+    public void stop(final T selenium) throws Exception {
+        try {
+            delegate.stop(selenium);
+        } finally {
+            SessionGovernor.release(selenium);
+        }
+    }
+}
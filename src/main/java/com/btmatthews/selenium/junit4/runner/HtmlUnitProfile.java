@@ -0,0 +1,61 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import java.lang.annotation.*;
+
+/**
+ * {@code HtmlUnitProfile} defines class-level meta-data which can be used to
+ * tune the <a href="http://htmlunit.sourceforge.net/">HTML Unit</a> web drivers
+ * created for test classes annotated with {@link WebDriverConfiguration} or
+ * {@link WrappedDriverConfiguration}. Features that a test class does not need
+ * can be turned off and static HTTP responses can be shared with the other
+ * HTML Unit sessions in the JVM.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface HtmlUnitProfile {
+
+    /**
+     * If {@code true} JavaScript is executed. The default value is {@code true}.
+     */
+    boolean javascriptEnabled() default true;
+
+    /**
+     * If {@code true} style sheets are downloaded and applied. The default value
+     * is {@code true}.
+     */
+    boolean cssEnabled() default true;
+
+    /**
+     * If {@code true} images are downloaded. Otherwise an empty response is
+     * returned for image requests without contacting the web server. The
+     * default value is {@code true}.
+     */
+    boolean imagesEnabled() default true;
+
+    /**
+     * If {@code true} cacheable responses are kept in a cache that is shared by
+     * all HTML Unit sessions in the JVM. The default value is {@code true}.
+     */
+    boolean sharedCache() default true;
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import java.lang.annotation.*;
+
+/**
+ * {@code HttpReplay} defines class-level meta-data which instructs the
+ * {@link SeleniumJUnit4ClassRunner} to put a local HTTP stand-in in front of the
+ * browser URL of test classes annotated with {@link ServerConfiguration} or
+ * {@link WrappedDriverConfiguration}. The browser is pointed at the stand-in
+ * which either records the responses from the real web server or replays
+ * previously recorded responses, so the tests run without the network.
+ * <p/>
+ * Only requests made relative to the browser URL pass through the stand-in.
+ * The mode can be overridden without recompiling by setting the
+ * {@value Constants#REPLAY_MODE_PROPERTY} system property to {@code RECORD} or
+ * {@code REPLAY}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface HttpReplay {
+
+    /**
+     * Whether to record or replay the responses. The default value is
+     * {@link ReplayMode#REPLAY}.
+     */
+    ReplayMode mode() default ReplayMode.REPLAY;
+
+    /**
+     * The directory in which the recorded responses are stored. The default
+     * value is {@link Constants#DEFAULT_REPLAY_STORE}.
+     */
+    String store() default Constants.DEFAULT_REPLAY_STORE;
+}
@@ -0,0 +1,403 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner.AbstractSeleniumJUnit4ClassRunner;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.internal.AssumptionViolatedException;
+import org.junit.runner.Description;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.annotation.Annotation;
+import java.nio.channels.FileLock;
+import java.security.MessageDigest;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Skips the tests for a test class and browser if nothing that they depend on
+ * has changed since they last passed. The test impact cache is enabled by
+ * setting the {@link Constants#IMPACT_CACHE_PROPERTY} system property to the
+ * directory in which the cache is kept and the
+ * {@link Constants#IMPACT_VERSION_PROPERTY} system property to a key that
+ * identifies the version of the application under test.
+ * <p/>
+ * The fingerprint for a test class and browser is a digest of the byte code
+ * of the test class, its super-classes and nested classes, the configuration
+ * annotations with the overrides applied by {@link MatrixOverride}, the
+ * browser name reported by the factory and the application version key.
+ * When the tests pass the fingerprint is recorded in the cache and while it
+ * still matches the tests are reported as skipped. A failure removes the test
+ * class and browser from the cache. Runs of a subset of the tests are never
+ * recorded. The cache is cleared if the {@link Constants#IMPACT_INVALIDATE_PROPERTY}
+ * system property is {@literal true} and can also be cleared by deleting the
+ * cache directory.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class ImpactCache {
+
+    /**
+     * Used to log skipped tests.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImpactCache.class);
+
+    /**
+     * The name of the cache file.
+     */
+    private static final String CACHE_FILE = "impact-cache.properties";
+
+    /**
+     * The name of the file locked while the cache file is being read or
+     * updated.
+     */
+    private static final String LOCK_FILE = "impact-cache.lock";
+
+    /**
+     * The digest algorithm used to compute the fingerprints.
+     */
+    private static final String ALGORITHM = "SHA-256";
+
+    /**
+     * {@code true} once the cache has been cleared if that was requested.
+     */
+    private static boolean invalidated;
+
+    /**
+     * Default constructor is private.
+     */
+    private ImpactCache() {
+    }
+
+    /**
+     * Determine whether the test impact cache is enabled.
+     *
+     * @return {@code true} if the cache directory has been set.
+     */
+    static boolean isEnabled() {
+        return System.getProperty(Constants.IMPACT_CACHE_PROPERTY) != null;
+    }
+
+    /**
+     * Run the tests for a browser unless they passed last time and their
+     * fingerprint has not changed. The fingerprint is recorded if the tests
+     * pass.
+     *
+     * @param runner   The test runner for the browser.
+     * @param notifier Used to report the test results.
+     * @param action   Runs the tests.
+     */
+    static void run(final AbstractSeleniumJUnit4ClassRunner<?, ?> runner, final RunNotifier notifier,
+                    final Runnable action) {
+        final File directory = new File(System.getProperty(Constants.IMPACT_CACHE_PROPERTY));
+        final String version = System.getProperty(Constants.IMPACT_VERSION_PROPERTY);
+        if (version == null) {
+            LOGGER.warn("Test impact cache is disabled because {} is not set", Constants.IMPACT_VERSION_PROPERTY);
+            action.run();
+            return;
+        }
+        final Class<?> klass = runner.getTestClass().getJavaClass();
+        final String key = klass.getName() + '|' + runner.getBrowser();
+        final String fingerprint;
+        try {
+            fingerprint = fingerprint(klass, runner.getBrowser(), version);
+        } catch (final Exception e) {
+            LOGGER.warn("Could not compute fingerprint for " + key, e);
+            action.run();
+            return;
+        }
+        if (fingerprint.equals(read(directory, key))) {
+            skip(runner.getDescription(), fingerprint, notifier);
+            return;
+        }
+        final AtomicBoolean failed = new AtomicBoolean();
+        final RunListener listener = new RunListener() {
+            @Override
+            public void testFailure(final Failure failure) {
+                if (contains(runner.getDescription(), failure.getDescription())) {
+                    failed.set(true);
+                }
+            }
+        };
+        notifier.addListener(listener);
+        try {
+            action.run();
+        } finally {
+            notifier.removeListener(listener);
+        }
+        if (failed.get()) {
+            write(directory, key, null);
+        } else if (!runner.isFiltered()) {
+            write(directory, key, fingerprint);
+        }
+    }
+
+    /**
+     * Report the tests as skipped because they passed last time and nothing
+     * has changed since.
+     *
+     * @param description Describes the tests.
+     * @param fingerprint The fingerprint.
+     * @param notifier    Used to report the test results.
+     */
+    private static void skip(final Description description, final String fingerprint,
+                             final RunNotifier notifier) {
+        LOGGER.info("Skipping {} because it is unchanged since it last passed", description.getDisplayName());
+        for (final Description test : description.getChildren()) {
+            notifier.fireTestStarted(test);
+            notifier.fireTestAssumptionFailed(new Failure(test, new AssumptionViolatedException(
+                    "Unchanged since the last successful run (fingerprint " + fingerprint + ")")));
+            notifier.fireTestFinished(test);
+        }
+    }
+
+    /**
+     * Determine whether a description is, or is a descendant of, another
+     * description.
+     *
+     * @param parent      The parent description.
+     * @param description The description.
+     * @return {@code true} if {@code description} is within {@code parent}.
+     */
+    private static boolean contains(final Description parent, final Description description) {
+        if (parent.equals(description)) {
+            return true;
+        }
+        for (final Description child : parent.getChildren()) {
+            if (contains(child, description)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compute the fingerprint for a test class and browser.
+     *
+     * @param klass   The test class.
+     * @param browser The browser name.
+     * @param version The application version key.
+     * @return The fingerprint.
+     * @throws Exception If the byte code could not be read.
+     */
+    static String fingerprint(final Class<?> klass, final String browser, final String version) throws Exception {
+        final MessageDigest digest = MessageDigest.getInstance(ALGORITHM);
+        for (Class<?> type = klass; type != null && type != Object.class; type = type.getSuperclass()) {
+            digestClass(digest, type);
+        }
+        digestConfiguration(digest, klass);
+        digest.update(browser.getBytes("UTF-8"));
+        digest.update((byte)0);
+        digest.update(version.getBytes("UTF-8"));
+        final StringBuilder builder = new StringBuilder();
+        for (final byte b : digest.digest()) {
+            builder.append(String.format("%02x", b & 0xff));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Add the configuration annotations of a test class to the digest. The
+     * overrides are applied by {@link MatrixOverride} in the same way as when
+     * the test runners are built so that the digest reflects the server and
+     * browser URL that the tests actually use.
+     *
+     * @param digest The digest.
+     * @param klass  The test class.
+     * @throws Exception If the overrides could not be applied.
+     */
+    @SuppressWarnings("unchecked")
+    private static void digestConfiguration(final MessageDigest digest, final Class<?> klass) throws Exception {
+        for (final Annotation annotation : klass.getAnnotations()) {
+            final Class<? extends Annotation> type = annotation.annotationType();
+            if (type.isAnnotationPresent(SeleniumConfiguration.class)
+                    || type == HtmlUnitProfile.class || type == HttpReplay.class) {
+                final Annotation configuration = MatrixOverride.configuration(annotation, (Class<Annotation>)type);
+                digest.update(configuration.toString().getBytes("UTF-8"));
+                digest.update((byte)0);
+            }
+        }
+    }
+
+    /**
+     * Add the byte code of a class, its nested classes and its anonymous
+     * classes to the digest.
+     *
+     * @param digest The digest.
+     * @param type   The class.
+     * @throws IOException If the byte code could not be read.
+     */
+    private static void digestClass(final MessageDigest digest, final Class<?> type) throws IOException {
+        digestResource(digest, type, type.getName());
+        for (int i = 1; digestResource(digest, type, type.getName() + '$' + i); ++i) {
+            continue;
+        }
+        for (final Class<?> nested : type.getDeclaredClasses()) {
+            digestClass(digest, nested);
+        }
+    }
+
+    /**
+     * Add the byte code of a class to the digest.
+     *
+     * @param digest    The digest.
+     * @param type      A class loaded by the same class loader.
+     * @param className The name of the class.
+     * @return {@code true} if the byte code was found.
+     * @throws IOException If the byte code could not be read.
+     */
+    private static boolean digestResource(final MessageDigest digest, final Class<?> type, final String className)
+            throws IOException {
+        final ClassLoader classLoader = type.getClassLoader();
+        if (classLoader == null) {
+            return false;
+        }
+        final InputStream input = classLoader.getResourceAsStream(className.replace('.', '/') + ".class");
+        if (input == null) {
+            return false;
+        }
+        try {
+            digest.update(className.getBytes("UTF-8"));
+            digest.update(IOUtils.toByteArray(input));
+        } finally {
+            input.close();
+        }
+        return true;
+    }
+
+    /**
+     * Read the fingerprint recorded for a test class and browser.
+     *
+     * @param directory The cache directory.
+     * @param key       Identifies the test class and browser.
+     * @return The fingerprint or {@code null} if none was recorded.
+     */
+    private static synchronized String read(final File directory, final String key) {
+        final Properties cache = new Properties();
+        withLock(directory, new Runnable() {
+            public void run() {
+                load(directory, cache);
+            }
+        });
+        return cache.getProperty(key);
+    }
+
+    /**
+     * Record or remove the fingerprint for a test class and browser.
+     *
+     * @param directory   The cache directory.
+     * @param key         Identifies the test class and browser.
+     * @param fingerprint The fingerprint or {@code null} to remove it.
+     */
+    private static synchronized void write(final File directory, final String key, final String fingerprint) {
+        withLock(directory, new Runnable() {
+            public void run() {
+                final Properties cache = new Properties();
+                load(directory, cache);
+                if (fingerprint == null) {
+                    if (cache.remove(key) == null) {
+                        return;
+                    }
+                } else {
+                    cache.setProperty(key, fingerprint);
+                }
+                final File temporary = new File(directory, CACHE_FILE + ".tmp");
+                try {
+                    final OutputStream output = new FileOutputStream(temporary);
+                    try {
+                        cache.store(output, "Selenium JUnit 4 Runner test impact cache");
+                    } finally {
+                        output.close();
+                    }
+                    final File file = new File(directory, CACHE_FILE);
+                    if (!temporary.renameTo(file)) {
+                        FileUtils.copyFile(temporary, file);
+                        FileUtils.deleteQuietly(temporary);
+                    }
+                } catch (final IOException e) {
+                    LOGGER.warn("Could not write test impact cache " + directory, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Load the cache file.
+     *
+     * @param directory The cache directory.
+     * @param cache     Receives the fingerprints.
+     */
+    private static void load(final File directory, final Properties cache) {
+        final File file = new File(directory, CACHE_FILE);
+        if (file.exists()) {
+            try {
+                final InputStream input = new FileInputStream(file);
+                try {
+                    cache.load(input);
+                } finally {
+                    input.close();
+                }
+            } catch (final IOException e) {
+                LOGGER.warn("Could not read test impact cache " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Run an action while holding the lock on the cache. The cache is cleared
+     * first if that was requested and has not been done yet.
+     *
+     * @param directory The cache directory.
+     * @param action    The action.
+     */
+    private static void withLock(final File directory, final Runnable action) {
+        try {
+            FileUtils.forceMkdir(directory);
+            final RandomAccessFile lockFile = new RandomAccessFile(new File(directory, LOCK_FILE), "rw");
+            try {
+                final FileLock lock = lockFile.getChannel().lock();
+                try {
+                    if (!invalidated && Boolean.getBoolean(Constants.IMPACT_INVALIDATE_PROPERTY)) {
+                        LOGGER.info("Clearing test impact cache {}", directory);
+                        FileUtils.deleteQuietly(new File(directory, CACHE_FILE));
+                    }
+                    invalidated = true;
+                    action.run();
+                } finally {
+                    lock.release();
+                }
+            } finally {
+                lockFile.close();
+            }
+        } catch (final IOException e) {
+            LOGGER.warn("Could not lock test impact cache " + directory, e);
+        }
+    }
+}
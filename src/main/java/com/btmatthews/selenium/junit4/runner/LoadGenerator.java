@@ -0,0 +1,251 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner.AbstractSeleniumJUnit4ClassRunner;
+import org.apache.commons.io.FileUtils;
+import org.junit.runner.Description;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunNotifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the tests for a browser repeatedly using the concurrent virtual users
+ * described by a {@link LoadTest} annotation and reports the results.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class LoadGenerator {
+
+    /**
+     * Used to log the load test progress and results.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadGenerator.class);
+
+    /**
+     * The name of the report file.
+     */
+    private static final String REPORT_FILE = "load-test.csv";
+
+    /**
+     * The heading for the report file.
+     */
+    private static final String REPORT_HEADING =
+            "timestamp,class,browser,method,executions,errors,error_rate,throughput,p50,p90,p95,p99,max\n";
+
+    /**
+     * Default constructor is private.
+     */
+    private LoadGenerator() {
+    }
+
+    /**
+     * Run the load test for a browser.
+     *
+     * @param runner        The test runner for the browser.
+     * @param configuration The load test configuration.
+     * @param notifier      Used to report the result of each test method.
+     */
+    static void run(final AbstractSeleniumJUnit4ClassRunner<?, ?> runner,
+                    final LoadTest configuration, final RunNotifier notifier) {
+        final LoadStatistics statistics = new LoadStatistics();
+        final RunNotifier loadNotifier = new RunNotifier();
+        loadNotifier.addListener(statistics);
+
+        final int users = Math.max(configuration.users(), 1);
+        final long start = System.currentTimeMillis();
+        final long deadline = start + configuration.duration();
+        LOGGER.info("Starting {} virtual users for {}", users, runner.getDescription().getDisplayName());
+        final ExecutorService executor = Executors.newFixedThreadPool(users);
+        final List<Future<?>> futures = new ArrayList<Future<?>>(users);
+        try {
+            for (int user = 0; user < users; ++user) {
+                final long delay = configuration.rampUp() * user / users;
+                futures.add(executor.submit(new VirtualUser(runner, loadNotifier, start + delay, deadline)));
+            }
+            for (final Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (final ExecutionException e) {
+                    notifier.fireTestFailure(new Failure(runner.getDescription(), e.getCause()));
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            notifier.fireTestFailure(new Failure(runner.getDescription(), e));
+        } finally {
+            executor.shutdownNow();
+        }
+        final long elapsed = Math.max(System.currentTimeMillis() - start, 1L);
+        report(runner, configuration, statistics, notifier, elapsed);
+    }
+
+    /**
+     * Report each test method once to JUnit and write the statistics to the
+     * report file.
+     *
+     * @param runner        The test runner for the browser.
+     * @param configuration The load test configuration.
+     * @param statistics    The statistics collected by the virtual users.
+     * @param notifier      Used to report the result of each test method.
+     * @param elapsed       The number of milliseconds the load test ran for.
+     */
+    private static void report(final AbstractSeleniumJUnit4ClassRunner<?, ?> runner,
+                               final LoadTest configuration,
+                               final LoadStatistics statistics,
+                               final RunNotifier notifier,
+                               final long elapsed) {
+        final StringBuilder report = new StringBuilder();
+        final long timestamp = System.currentTimeMillis();
+        final String className = runner.getTestClass().getName();
+        for (final Description method : runner.getDescription().getChildren()) {
+            final LoadStatistics.MethodStatistics methodStatistics = statistics.get(method);
+            if (methodStatistics == null) {
+                notifier.fireTestIgnored(method);
+                continue;
+            }
+            notifier.fireTestStarted(method);
+            final double throughput = methodStatistics.getCount() * 1000.0 / elapsed;
+            LOGGER.info("{}: {} executions, {} errors, {} per second, p50 {} ms, p95 {} ms",
+                    new Object[]{method.getDisplayName(), methodStatistics.getCount(),
+                            methodStatistics.getErrors(), String.format(Locale.ROOT, "%.2f", throughput),
+                            methodStatistics.getPercentile(50), methodStatistics.getPercentile(95)});
+            report.append(timestamp).append(',')
+                    .append(className).append(',')
+                    .append(runner.getBrowser()).append(',')
+                    .append(method.getMethodName()).append(',')
+                    .append(methodStatistics.getCount()).append(',')
+                    .append(methodStatistics.getErrors()).append(',')
+                    .append(String.format(Locale.ROOT, "%.4f", methodStatistics.getErrorRate())).append(',')
+                    .append(String.format(Locale.ROOT, "%.2f", throughput)).append(',')
+                    .append(methodStatistics.getPercentile(50)).append(',')
+                    .append(methodStatistics.getPercentile(90)).append(',')
+                    .append(methodStatistics.getPercentile(95)).append(',')
+                    .append(methodStatistics.getPercentile(99)).append(',')
+                    .append(methodStatistics.getPercentile(100)).append('\n');
+            if (methodStatistics.getErrors() > 0
+                    && methodStatistics.getErrorRate() > configuration.maxErrorRate()) {
+                final AssertionError error = new AssertionError("Error rate "
+                        + String.format(Locale.ROOT, "%.4f", methodStatistics.getErrorRate())
+                        + " exceeds " + configuration.maxErrorRate() + ", first failure: "
+                        + methodStatistics.getFirstFailure().getMessage());
+                error.initCause(methodStatistics.getFirstFailure().getException());
+                notifier.fireTestFailure(new Failure(method, error));
+            }
+            notifier.fireTestFinished(method);
+        }
+        write(new File(configuration.report()), report.toString());
+    }
+
+    /**
+     * Append the statistics to the report file.
+     *
+     * @param directory The report directory.
+     * @param lines     The statistics.
+     */
+    private static synchronized void write(final File directory, final String lines) {
+        try {
+            FileUtils.forceMkdir(directory);
+            final File file = new File(directory, REPORT_FILE);
+            final String content;
+            if (file.exists()) {
+                content = lines;
+            } else {
+                content = REPORT_HEADING + lines;
+            }
+            FileUtils.writeStringToFile(file, content, "UTF-8", true);
+        } catch (final IOException e) {
+            LOGGER.error("Error writing load test report to " + directory, e);
+        }
+    }
+
+    /**
+     * A virtual user that runs the tests repeatedly using its own test runner
+     * and Selenium object.
+     */
+    private static final class VirtualUser implements Callable<Void> {
+
+        /**
+         * The test runner for the browser that is copied for this virtual user.
+         */
+        private final AbstractSeleniumJUnit4ClassRunner<?, ?> runner;
+
+        /**
+         * Collects the statistics.
+         */
+        private final RunNotifier notifier;
+
+        /**
+         * The time at which this virtual user starts.
+         */
+        private final long startTime;
+
+        /**
+         * The time after which no more iterations are started.
+         */
+        private final long deadline;
+
+        /**
+         * Construct a virtual user.
+         *
+         * @param browserRunner The test runner for the browser.
+         * @param loadNotifier  Collects the statistics.
+         * @param userStartTime The time at which this virtual user starts.
+         * @param userDeadline  The time after which no more iterations are started.
+         */
+        VirtualUser(final AbstractSeleniumJUnit4ClassRunner<?, ?> browserRunner,
+                    final RunNotifier loadNotifier,
+                    final long userStartTime,
+                    final long userDeadline) {
+            runner = browserRunner;
+            notifier = loadNotifier;
+            startTime = userStartTime;
+            deadline = userDeadline;
+        }
+
+        /**
+         * Wait for the ramp up delay and then run the tests until the deadline.
+         *
+         * @return Always {@code null}.
+         * @throws Exception If the Selenium object could not be created,
+         *                   started or stopped.
+         */
+        public Void call() throws Exception {
+            final long delay = startTime - System.currentTimeMillis();
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+            if (System.currentTimeMillis() < deadline) {
+                runner.copy().runRepeatedly(notifier, deadline);
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import org.junit.runner.Description;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the latency and outcome of each test method execution on behalf of
+ * the {@link LoadGenerator}. The virtual users run on separate threads so the
+ * start time and outcome of the current execution are kept per thread.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class LoadStatistics extends RunListener {
+
+    /**
+     * The time at which the current execution started on this thread.
+     */
+    private final ThreadLocal<Long> started = new ThreadLocal<Long>();
+
+    /**
+     * The first failure of the current execution on this thread.
+     */
+    private final ThreadLocal<Failure> failed = new ThreadLocal<Failure>();
+
+    /**
+     * The statistics for each test method in the order they were first run.
+     */
+    private final Map<Description, MethodStatistics> methods =
+            new LinkedHashMap<Description, MethodStatistics>();
+
+    @Override
+    public void testStarted(final Description description) {
+        started.set(System.nanoTime());
+        failed.remove();
+    }
+
+    @Override
+    public void testFailure(final Failure failure) {
+        if (failed.get() == null) {
+            failed.set(failure);
+        }
+    }
+
+    @Override
+    public void testFinished(final Description description) {
+        final Long start = started.get();
+        if (start != null) {
+            final long latency = (System.nanoTime() - start) / 1000000L;
+            final Failure failure = failed.get();
+            synchronized (methods) {
+                MethodStatistics statistics = methods.get(description);
+                if (statistics == null) {
+                    statistics = new MethodStatistics();
+                    methods.put(description, statistics);
+                }
+                statistics.record(latency, failure);
+            }
+        }
+        started.remove();
+        failed.remove();
+    }
+
+    /**
+     * Get the statistics for a test method.
+     *
+     * @param description Describes the test method.
+     * @return The statistics or {@code null} if the test method was not run.
+     */
+    MethodStatistics get(final Description description) {
+        synchronized (methods) {
+            return methods.get(description);
+        }
+    }
+
+    /**
+     * The latencies and failures of a single test method.
+     */
+    static final class MethodStatistics {
+
+        /**
+         * The latency of each execution in milliseconds.
+         */
+        private final List<Long> latencies = new ArrayList<Long>();
+
+        /**
+         * The number of executions that failed.
+         */
+        private int errors;
+
+        /**
+         * The first failure or {@code null} if no execution failed.
+         */
+        private Failure firstFailure;
+
+        /**
+         * Record an execution.
+         *
+         * @param latency The latency in milliseconds.
+         * @param failure The failure or {@code null} if the execution succeeded.
+         */
+        void record(final long latency, final Failure failure) {
+            latencies.add(latency);
+            if (failure != null) {
+                ++errors;
+                if (firstFailure == null) {
+                    firstFailure = failure;
+                }
+            }
+        }
+
+        /**
+         * Get the number of executions.
+         *
+         * @return The number of executions.
+         */
+        int getCount() {
+            return latencies.size();
+        }
+
+        /**
+         * Get the number of executions that failed.
+         *
+         * @return The number of failed executions.
+         */
+        int getErrors() {
+            return errors;
+        }
+
+        /**
+         * Get the fraction of executions that failed.
+         *
+         * @return The error rate.
+         */
+        double getErrorRate() {
+            return (double)errors / latencies.size();
+        }
+
+        /**
+         * Get the first failure.
+         *
+         * @return The first failure or {@code null} if no execution failed.
+         */
+        Failure getFirstFailure() {
+            return firstFailure;
+        }
+
+        /**
+         * Calculate a latency percentile using the nearest rank method.
+         *
+         * @param percent The percentile.
+         * @return The latency in milliseconds.
+         */
+        long getPercentile(final int percent) {
+            final List<Long> sorted = new ArrayList<Long>(latencies);
+            Collections.sort(sorted);
+            final int rank = (int)Math.ceil(percent / 100.0 * sorted.size());
+            return sorted.get(Math.max(rank, 1) - 1);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import java.lang.annotation.*;
+
+/**
+ * {@code LoadTest} instructs the {@link SeleniumJUnit4ClassRunner} to run the
+ * tests repeatedly for each browser using several concurrent virtual users in
+ * order to generate load on the application under test. Each virtual user has
+ * its own Selenium object created by the test runner's factory. Lightweight
+ * browsers such as {@link org.openqa.selenium.htmlunit.HtmlUnitDriver} keep
+ * the cost of generating the load low.
+ * <p/>
+ * The throughput, latency percentiles and error rate for each test method are
+ * written to {@literal load-test.csv} in the {@link #report()} directory and
+ * each test method is reported once to JUnit.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface LoadTest {
+
+    /**
+     * The number of concurrent virtual users for each browser. The default
+     * value is {@link Constants#DEFAULT_LOAD_TEST_USERS}.
+     */
+    int users() default Constants.DEFAULT_LOAD_TEST_USERS;
+
+    /**
+     * The number of milliseconds over which the virtual users are started.
+     * The default value is zero which starts all the virtual users at once.
+     */
+    long rampUp() default 0L;
+
+    /**
+     * The number of milliseconds after which the virtual users stop starting
+     * new iterations of the tests. The default value is
+     * {@link Constants#DEFAULT_LOAD_TEST_DURATION}.
+     */
+    long duration() default Constants.DEFAULT_LOAD_TEST_DURATION;
+
+    /**
+     * The fraction of executions of a test method that may fail before the
+     * test method is reported as failed. The default value of {@literal 1.0}
+     * only reports the error rate.
+     */
+    double maxErrorRate() default 1.0;
+
+    /**
+     * The directory to which the report is written. The default value is
+     * {@link Constants#DEFAULT_LOAD_TEST_REPORT}.
+     */
+    String report() default Constants.DEFAULT_LOAD_TEST_REPORT;
+}
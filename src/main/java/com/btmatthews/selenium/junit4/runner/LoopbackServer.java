@@ -0,0 +1,71 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import org.seleniumhq.jetty7.server.Handler;
+import org.seleniumhq.jetty7.server.Server;
+import org.seleniumhq.jetty7.server.nio.SelectChannelConnector;
+
+/**
+ * Starts the Jetty servers that the test runner manages on free ports of the loopback interface. Each server is
+ * stopped when the JVM exits.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class LoopbackServer {
+
+    /**
+     * Default constructor is private.
+     */
+    private LoopbackServer() {
+    }
+
+    /**
+     * Start a Jetty server on a free port of the loopback interface.
+     *
+     * @param name     The name of the shutdown hook thread.
+     * @param handler  The handler that processes requests.
+     * @param stopped  Invoked after the server has been stopped when the JVM exits or {@code null}.
+     * @return The base URL of the server.
+     * @throws Exception If the server could not be started.
+     */
+    static String start(final String name, final Handler handler, final Runnable stopped) throws Exception {
+        final Server server = new Server();
+        final SelectChannelConnector connector = new SelectChannelConnector();
+        connector.setHost(Constants.LOOPBACK_ADDRESS);
+        connector.setPort(0);
+        server.addConnector(connector);
+        server.setHandler(handler);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(name) {
+            @Override
+            public void run() {
+                try {
+                    server.stop();
+                } catch (final Exception e) {
+                    // Ignore
+                } finally {
+                    if (stopped != null) {
+                        stopped.run();
+                    }
+                }
+            }
+        });
+        return "http://" + Constants.LOOPBACK_ADDRESS + ":" + connector.getLocalPort();
+    }
+}
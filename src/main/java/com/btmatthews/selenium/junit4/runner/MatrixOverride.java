@@ -0,0 +1,441 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.runners.model.InitializationError;
+import org.openqa.selenium.WebDriver;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Merges the browser matrix and server settings in the configuration
+ * annotations with overrides supplied by the build so that the browsers can
+ * be chosen without recompiling the tests. The overrides are read from system
+ * properties or, if they are not set, from the properties file named by the
+ * {@link Constants#MATRIX_FILE_PROPERTY} system property. The properties file
+ * is read once.
+ * <p/>
+ * The browsers are overridden by properties whose names start with
+ * {@link Constants#BROWSERS_DRIVERS_PREFIX} for web drivers,
+ * {@link Constants#BROWSERS_COMMANDS_PREFIX} for browser start commands and
+ * {@link Constants#BROWSERS_NAMES_PREFIX} for remote browser names, so that
+ * the values for one type of configuration are never applied to another.
+ * <ul>
+ * <li>{@code replace} replaces the browsers with a comma separated list.
+ * Web drivers must be given by their fully qualified class names.</li>
+ * <li>{@code include} keeps only the listed browsers.</li>
+ * <li>{@code exclude} removes the listed browsers.</li>
+ * </ul>
+ * Web drivers can be included or excluded by their simple or fully qualified
+ * class names. {@code selenium.junit4.serverHost},
+ * {@code selenium.junit4.serverPort} and {@code selenium.junit4.browserURL}
+ * override the configuration annotation values.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class MatrixOverride {
+
+    /**
+     * The configuration annotation values that can be overridden.
+     */
+    private static final String[] ATTRIBUTES = {"serverHost", "serverPort", "browserURL"};
+
+    /**
+     * The suffix of the properties that replace the browsers.
+     */
+    private static final String REPLACE = "replace";
+
+    /**
+     * The suffix of the properties that list the only browsers to run.
+     */
+    private static final String INCLUDE = "include";
+
+    /**
+     * The suffix of the properties that list the browsers to skip.
+     */
+    private static final String EXCLUDE = "exclude";
+
+    /**
+     * The properties files that have been read indexed by path.
+     */
+    private static final Map<String, Properties> FILES = new HashMap<String, Properties>();
+
+    /**
+     * Default constructor is private.
+     */
+    private MatrixOverride() {
+    }
+
+    /**
+     * Apply the overrides to a list of web drivers.
+     *
+     * @param drivers The web drivers from the configuration annotation.
+     * @return The web drivers to run.
+     * @throws InitializationError If a replacement web driver could not be
+     *                             loaded or the properties file could not be
+     *                             read.
+     */
+    @SuppressWarnings("unchecked")
+    static List<Class<? extends WebDriver>> drivers(final Class<? extends WebDriver>[] drivers)
+            throws InitializationError {
+        List<Class<? extends WebDriver>> result = Arrays.asList(drivers);
+        final String[] replace = getList(Constants.BROWSERS_DRIVERS_PREFIX + REPLACE);
+        if (replace != null) {
+            result = new ArrayList<Class<? extends WebDriver>>();
+            for (final String className : replace) {
+                try {
+                    result.add((Class<? extends WebDriver>)Class.forName(className).asSubclass(WebDriver.class));
+                } catch (final Exception e) {
+                    throw new InitializationError(e);
+                }
+            }
+        }
+        final String[] include = getList(Constants.BROWSERS_DRIVERS_PREFIX + INCLUDE);
+        final String[] exclude = getList(Constants.BROWSERS_DRIVERS_PREFIX + EXCLUDE);
+        final List<Class<? extends WebDriver>> filtered = new ArrayList<Class<? extends WebDriver>>();
+        for (final Class<? extends WebDriver> driver : result) {
+            if ((include == null || matches(include, driver)) && (exclude == null || !matches(exclude, driver))) {
+                filtered.add(driver);
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * Apply the overrides to a list of browser start commands or browser
+     * names.
+     *
+     * @param prefix The prefix of the override properties, either
+     *               {@link Constants#BROWSERS_COMMANDS_PREFIX} or
+     *               {@link Constants#BROWSERS_NAMES_PREFIX}.
+     * @param names  The browser start commands or browser names from the
+     *               configuration annotation.
+     * @return The browser start commands or browser names to run.
+     * @throws InitializationError If the properties file could not be read.
+     */
+    static List<String> names(final String prefix, final String[] names) throws InitializationError {
+        final String[] replace = getList(prefix + REPLACE);
+        final String[] include = getList(prefix + INCLUDE);
+        final String[] exclude = getList(prefix + EXCLUDE);
+        final List<String> filtered = new ArrayList<String>();
+        for (final String name : replace == null ? names : replace) {
+            if ((include == null || Arrays.asList(include).contains(name))
+                    && (exclude == null || !Arrays.asList(exclude).contains(name))) {
+                filtered.add(name);
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * Apply the overrides for the serverHost, serverPort and browserURL
+     * values to a configuration annotation. If any of them are overridden the
+     * annotation is wrapped in a proxy that returns the overriding values and
+     * whose {@code toString()}, {@code equals()} and {@code hashCode()}
+     * methods are based on them.
+     *
+     * @param annotation The configuration annotation.
+     * @param type       The type of the configuration annotation.
+     * @param <A>        The type of the configuration annotation.
+     * @return The configuration annotation with the overrides applied.
+     * @throws InitializationError If the properties file could not be read or
+     *                             an overriding value is invalid.
+     */
+    static <A extends Annotation> A configuration(final A annotation, final Class<A> type)
+            throws InitializationError {
+        if (annotation == null) {
+            return null;
+        }
+        final Map<String, Object> overrides = new HashMap<String, Object>();
+        for (final String attribute : ATTRIBUTES) {
+            final String value = get(Constants.CONFIGURATION_OVERRIDE_PREFIX + attribute);
+            if (value != null) {
+                try {
+                    final Class<?> returnType = type.getMethod(attribute).getReturnType();
+                    overrides.put(attribute, returnType == int.class ? Integer.valueOf(value.trim()) : value.trim());
+                } catch (final NoSuchMethodException e) {
+                    continue;
+                } catch (final NumberFormatException e) {
+                    throw new InitializationError("Invalid value " + value + " for " + attribute);
+                }
+            }
+        }
+        if (overrides.isEmpty()) {
+            return annotation;
+        }
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                new OverrideHandler<A>(annotation, type, overrides)));
+    }
+
+    /**
+     * Determine whether a web driver is in a list of class names.
+     *
+     * @param classNames The simple or fully qualified class names.
+     * @param driver     The web driver.
+     * @return {@code true} if the web driver is in the list.
+     */
+    private static boolean matches(final String[] classNames, final Class<? extends WebDriver> driver) {
+        for (final String className : classNames) {
+            if (className.equals(driver.getName()) || className.equals(driver.getSimpleName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get a comma separated list from a system property or the properties
+     * file.
+     *
+     * @param key The property name.
+     * @return The trimmed list items or {@code null} if the property is not
+     *         set.
+     * @throws InitializationError If the properties file could not be read.
+     */
+    private static String[] getList(final String key) throws InitializationError {
+        final String value = get(key);
+        if (value == null) {
+            return null;
+        }
+        return StringUtils.stripAll(StringUtils.split(value, ','));
+    }
+
+    /**
+     * Get a value from a system property or the properties file.
+     *
+     * @param key The property name.
+     * @return The value or {@code null} if it is not set.
+     * @throws InitializationError If the properties file could not be read.
+     */
+    private static String get(final String key) throws InitializationError {
+        final String value = System.getProperty(key);
+        if (value != null) {
+            return value;
+        }
+        final String path = System.getProperty(Constants.MATRIX_FILE_PROPERTY);
+        if (path == null) {
+            return null;
+        }
+        return load(path).getProperty(key);
+    }
+
+    /**
+     * Read a properties file the first time it is requested.
+     *
+     * @param path The path of the properties file.
+     * @return The properties.
+     * @throws InitializationError If the properties file could not be read.
+     */
+    private static synchronized Properties load(final String path) throws InitializationError {
+        Properties properties = FILES.get(path);
+        if (properties == null) {
+            properties = new Properties();
+            try {
+                final InputStream input = new FileInputStream(new File(path));
+                try {
+                    properties.load(input);
+                } finally {
+                    input.close();
+                }
+            } catch (final IOException e) {
+                throw new InitializationError(e);
+            }
+            FILES.put(path, properties);
+        }
+        return properties;
+    }
+
+    /**
+     * Returns the overriding values of a configuration annotation and
+     * implements {@link Annotation#toString()}, {@link Annotation#equals(Object)}
+     * and {@link Annotation#hashCode()} using them, so that the proxy is
+     * identified by the configuration that is actually used.
+     *
+     * @param <A> The type of the configuration annotation.
+     */
+    private static final class OverrideHandler<A extends Annotation> implements InvocationHandler {
+
+        /**
+         * The configuration annotation.
+         */
+        private final A annotation;
+
+        /**
+         * The type of the configuration annotation.
+         */
+        private final Class<A> type;
+
+        /**
+         * The overriding values indexed by attribute name.
+         */
+        private final Map<String, Object> overrides;
+
+        /**
+         * The attributes of the configuration annotation sorted by name.
+         */
+        private final Method[] attributes;
+
+        /**
+         * Construct the handler.
+         *
+         * @param annotation The configuration annotation.
+         * @param type       The type of the configuration annotation.
+         * @param overrides  The overriding values indexed by attribute name.
+         */
+        OverrideHandler(final A annotation, final Class<A> type, final Map<String, Object> overrides) {
+            this.annotation = annotation;
+            this.type = type;
+            this.overrides = overrides;
+            attributes = type.getDeclaredMethods();
+            Arrays.sort(attributes, new Comparator<Method>() {
+                public int compare(final Method first, final Method second) {
+                    return first.getName().compareTo(second.getName());
+                }
+            });
+        }
+
+        /**
+         * Return the overriding value of an attribute, implement the
+         * identity methods or pass the call on to the configuration
+         * annotation.
+         *
+         * @param proxy  The proxy.
+         * @param method The method that was called.
+         * @param args   The arguments.
+         * @return The result.
+         * @throws Throwable If the configuration annotation threw an
+         *                   exception.
+         */
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            final String name = method.getName();
+            if (args == null && "toString".equals(name)) {
+                return describe();
+            } else if (args == null && "hashCode".equals(name)) {
+                return hash();
+            } else if (args != null && args.length == 1 && "equals".equals(name)
+                    && method.getParameterTypes()[0] == Object.class) {
+                return equalTo(args[0]);
+            } else if (args == null && "annotationType".equals(name)) {
+                return type;
+            } else {
+                return value(method);
+            }
+        }
+
+        /**
+         * Get the value of an attribute.
+         *
+         * @param attribute The attribute.
+         * @return The overriding value or the value of the configuration
+         *         annotation.
+         * @throws Throwable If the configuration annotation threw an
+         *                   exception.
+         */
+        private Object value(final Method attribute) throws Throwable {
+            if (overrides.containsKey(attribute.getName())) {
+                return overrides.get(attribute.getName());
+            }
+            try {
+                return attribute.invoke(annotation);
+            } catch (final InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * Describe the configuration annotation with the overriding values.
+         *
+         * @return The description.
+         * @throws Throwable If the configuration annotation threw an
+         *                   exception.
+         */
+        private String describe() throws Throwable {
+            final StringBuilder builder = new StringBuilder("@").append(type.getName()).append('(');
+            for (int i = 0; i < attributes.length; ++i) {
+                if (i > 0) {
+                    builder.append(", ");
+                }
+                final String value = Arrays.deepToString(new Object[]{value(attributes[i])});
+                builder.append(attributes[i].getName()).append('=').append(value, 1, value.length() - 1);
+            }
+            return builder.append(')').toString();
+        }
+
+        /**
+         * Compute the hash code as specified by {@link Annotation#hashCode()}
+         * using the overriding values.
+         *
+         * @return The hash code.
+         * @throws Throwable If the configuration annotation threw an
+         *                   exception.
+         */
+        private int hash() throws Throwable {
+            int hash = 0;
+            for (final Method attribute : attributes) {
+                // The hash code of a one element array is 31 plus that of the element, which is
+                // computed by Arrays.hashCode() if the element is an array.
+                final int valueHash = Arrays.deepHashCode(new Object[]{value(attribute)}) - 31;
+                hash += (127 * attribute.getName().hashCode()) ^ valueHash;
+            }
+            return hash;
+        }
+
+        /**
+         * Determine whether another annotation of the same type has the same
+         * values as the configuration annotation with the overrides applied.
+         *
+         * @param other The other annotation.
+         * @return {@code true} if all the values are equal.
+         * @throws Throwable If the configuration annotation threw an
+         *                   exception.
+         */
+        private boolean equalTo(final Object other) throws Throwable {
+            if (!type.isInstance(other)) {
+                return false;
+            }
+            for (final Method attribute : attributes) {
+                final Object otherValue;
+                try {
+                    otherValue = attribute.invoke(other);
+                } catch (final InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (!Arrays.deepEquals(new Object[]{value(attribute)}, new Object[]{otherValue})) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
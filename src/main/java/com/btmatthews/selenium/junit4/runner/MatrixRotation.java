@@ -0,0 +1,171 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner.AbstractSeleniumJUnit4ClassRunner;
+import org.junit.runner.Description;
+import org.junit.runner.Runner;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.manipulation.NoTestsRemainException;
+import org.junit.runners.model.InitializationError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Reduces the browser matrix for fast builds by running each test method on
+ * one browser instead of all of them. Each data set of a data-driven test is
+ * treated as a separate test method. The test methods are sorted by name and
+ * the browser for the method at position {@code i} is the browser at position
+ * {@code (i + build) % browsers}. The browser assigned to each method moves on
+ * by one with each build so over as many consecutive builds as there are
+ * browsers every test method is run on every browser.
+ * <p/>
+ * Rotation is enabled by setting the {@link Constants#MATRIX_ROTATE_PROPERTY}
+ * system property to {@literal true}. The build number is taken from the
+ * {@link Constants#MATRIX_BUILD_PROPERTY} system property or the
+ * {@link Constants#BUILD_NUMBER_VARIABLE} environment variable. Browsers that
+ * are not assigned any test methods are not launched.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class MatrixRotation {
+
+    /**
+     * Used to log the browsers that are skipped.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(MatrixRotation.class);
+
+    /**
+     * Default constructor is private.
+     */
+    private MatrixRotation() {
+    }
+
+    /**
+     * Filter the test runners for each browser so that each test method is
+     * only run by one of them if rotation is enabled.
+     *
+     * @param klass   The test class.
+     * @param runners The test runners for each browser.
+     * @return The test runners that have test methods left to run.
+     * @throws InitializationError If the build number is not a number.
+     */
+    static List<Runner> apply(final Class<?> klass, final List<Runner> runners) throws InitializationError {
+        if (!Boolean.getBoolean(Constants.MATRIX_ROTATE_PROPERTY) || runners.size() < 2) {
+            return runners;
+        }
+        final int build = getBuildNumber();
+        final SortedSet<String> names = new TreeSet<String>();
+        for (final Runner runner : runners) {
+            for (final Description method : runner.getDescription().getChildren()) {
+                names.add(method.getMethodName());
+            }
+        }
+        final List<String> methods = new ArrayList<String>(names);
+        final List<Runner> reduced = new ArrayList<Runner>();
+        for (int i = 0; i < runners.size(); ++i) {
+            final AbstractSeleniumJUnit4ClassRunner<?, ?> runner = (AbstractSeleniumJUnit4ClassRunner<?, ?>)runners.get(i);
+            try {
+                runner.filter(new RotationFilter(methods, build, i, runners.size()));
+                reduced.add(runner);
+            } catch (final NoTestsRemainException e) {
+                LOGGER.info("Skipping {} on {} in build {}", new Object[]{klass.getName(), runner.getBrowser(), build});
+            }
+        }
+        return reduced;
+    }
+
+    /**
+     * Get the build number from the system property or environment variable.
+     *
+     * @return The build number or zero if neither is set.
+     * @throws InitializationError If the build number is not a number.
+     */
+    private static int getBuildNumber() throws InitializationError {
+        String build = System.getProperty(Constants.MATRIX_BUILD_PROPERTY);
+        if (build == null) {
+            build = System.getenv(Constants.BUILD_NUMBER_VARIABLE);
+        }
+        if (build == null) {
+            return 0;
+        }
+        try {
+            return Math.abs(Integer.parseInt(build.trim()));
+        } catch (final NumberFormatException e) {
+            throw new InitializationError("Build number " + build + " is not a number");
+        }
+    }
+
+    /**
+     * Selects the test methods assigned to a browser in this build.
+     */
+    private static final class RotationFilter extends Filter {
+
+        /**
+         * The names of the test methods in sorted order.
+         */
+        private final List<String> methods;
+
+        /**
+         * The build number.
+         */
+        private final int build;
+
+        /**
+         * The position of the browser.
+         */
+        private final int browser;
+
+        /**
+         * The number of browsers.
+         */
+        private final int browsers;
+
+        /**
+         * Construct the filter.
+         *
+         * @param methodNames   The names of the test methods in sorted order.
+         * @param buildNumber   The build number.
+         * @param browserIndex  The position of the browser.
+         * @param browserCount  The number of browsers.
+         */
+        RotationFilter(final List<String> methodNames, final int buildNumber, final int browserIndex,
+                       final int browserCount) {
+            methods = methodNames;
+            build = buildNumber;
+            browser = browserIndex;
+            browsers = browserCount;
+        }
+
+        @Override
+        public boolean shouldRun(final Description description) {
+            final int index = methods.indexOf(description.getMethodName());
+            return index < 0 || (index + build) % browsers == browser;
+        }
+
+        @Override
+        public String describe() {
+            return "methods assigned to browser " + browser + " in build " + build;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import com.thoughtworks.selenium.Selenium;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.internal.WrapsDriver;
+import org.openqa.selenium.support.PageFactory;
+import org.openqa.selenium.support.pagefactory.DefaultElementLocatorFactory;
+
+import java.lang.reflect.Constructor;
+
+/**
+ * Creates the page objects that are injected into fields annotated with
+ * {@link SeleniumPage}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class PageObjects {
+
+    /**
+     * Default constructor is private.
+     */
+    private PageObjects() {
+    }
+
+    /**
+     * Create a page object and initialise its element fields with caching
+     * element proxies.
+     *
+     * @param pageClass The page object class.
+     * @param selenium  The web driver or a Selenium RC object that wraps a
+     *                  web driver.
+     * @return The page object.
+     * @throws Exception If the page object could not be created.
+     */
+    static Object create(final Class<?> pageClass, final Object selenium) throws Exception {
+        final WebDriver webDriver = getWebDriver(selenium);
+        Object page;
+        try {
+            final Constructor<?> constructor = pageClass.getDeclaredConstructor(WebDriver.class);
+            constructor.setAccessible(true);
+            page = constructor.newInstance(webDriver);
+        } catch (final NoSuchMethodException e) {
+            final Constructor<?> constructor = pageClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            page = constructor.newInstance();
+        }
+        PageFactory.initElements(new CachingFieldDecorator(new DefaultElementLocatorFactory(webDriver)), page);
+        return page;
+    }
+
+    /**
+     * Get the web driver used to locate the page elements.
+     *
+     * @param selenium The web driver or a Selenium RC object that wraps a web
+     *                 driver.
+     * @return The web driver.
+     * @throws IllegalStateException If a web driver is not available.
+     */
+    private static WebDriver getWebDriver(final Object selenium) {
+        if (selenium instanceof WebDriver) {
+            return (WebDriver)selenium;
+        } else if (selenium instanceof WrapsDriver) {
+            return ((WrapsDriver)selenium).getWrappedDriver();
+        } else if (selenium instanceof Selenium) {
+            throw new IllegalStateException("Page objects require a web driver but the Selenium RC object does not wrap one");
+        } else {
+            throw new IllegalStateException("Page objects require a web driver");
+        }
+    }
+}
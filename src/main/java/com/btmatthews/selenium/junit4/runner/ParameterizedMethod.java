@@ -0,0 +1,92 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import org.junit.runners.model.FrameworkMethod;
+
+import java.text.MessageFormat;
+
+/**
+ * A test method that is run with one of the data sets provided by the
+ * {@link SeleniumParameters} method of the test class. The name of the data
+ * set is appended to the method name.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class ParameterizedMethod extends FrameworkMethod {
+
+    /**
+     * The values passed to the constructor of the test class.
+     */
+    private final Object[] parameters;
+
+    /**
+     * The position of the data set.
+     */
+    private final int index;
+
+    /**
+     * The name of the data set.
+     */
+    private final String name;
+
+    /**
+     * Construct a test method for a data set.
+     *
+     * @param method  The test method.
+     * @param values  The values passed to the constructor of the test class.
+     * @param position The position of the data set.
+     * @param pattern The pattern used to name the data set.
+     */
+    ParameterizedMethod(final FrameworkMethod method, final Object[] values, final int position,
+                        final String pattern) {
+        super(method.getMethod());
+        parameters = values;
+        index = position;
+        name = MessageFormat.format(pattern.replace("{index}", Integer.toString(position)), values);
+    }
+
+    /**
+     * Get the values passed to the constructor of the test class.
+     *
+     * @return The values.
+     */
+    Object[] getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Get the name of the test method followed by the name of the data set.
+     *
+     * @return The name.
+     */
+    @Override
+    public String getName() {
+        return super.getName() + '[' + name + ']';
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return obj instanceof ParameterizedMethod && super.equals(obj) && index == ((ParameterizedMethod)obj).index;
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode() * 31 + index;
+    }
+}
@@ -0,0 +1,667 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps track of the browser and driver processes spawned by this JVM for each
+ * browser session so that they can be killed if the session fails to stop or
+ * the JVM exits without stopping it. The processes are also recorded in a
+ * registry file shared by all the JVMs on the machine and the first JVM to
+ * track a session after another JVM crashed kills the processes that JVM left
+ * behind.
+ * <p/>
+ * Processes are discovered as the descendants of the JVM using the
+ * {@code java.lang.ProcessHandle} API which is accessed using reflection
+ * because it requires Java 9 or later. A process is attributed to a browser
+ * session if it started while the session was being created or started and
+ * no other session was being created or started at the time. Processes that
+ * cannot be attributed to one session are never killed. Process tracking is
+ * enabled by the {@link Constants#PROCESS_TRACKING_PROPERTY} system property
+ * and is disabled on older JVMs.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class ProcessRegistry {
+
+    /**
+     * Used to log the processes that are killed.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProcessRegistry.class);
+
+    /**
+     * The registry file.
+     */
+    private static final File REGISTRY_FILE = new File(new File(System.getProperty("java.io.tmpdir"),
+            Constants.PROCESS_REGISTRY_DIRECTORY), "processes.txt");
+
+    /**
+     * The file locked while the registry file is being updated.
+     */
+    private static final File LOCK_FILE = new File(REGISTRY_FILE.getParentFile(), "processes.lock");
+
+    /**
+     * The {@code ProcessHandle} methods or {@code null} if process tracking is
+     * not supported.
+     */
+    private static final Method[] METHODS = getMethods();
+
+    /**
+     * Index of {@code ProcessHandle.current()}.
+     */
+    private static final int CURRENT = 0;
+
+    /**
+     * Index of {@code ProcessHandle.of(long)}.
+     */
+    private static final int OF = 1;
+
+    /**
+     * Index of {@code ProcessHandle.pid()}.
+     */
+    private static final int PID = 2;
+
+    /**
+     * Index of {@code ProcessHandle.isAlive()}.
+     */
+    private static final int IS_ALIVE = 3;
+
+    /**
+     * Index of {@code ProcessHandle.descendants()}.
+     */
+    private static final int DESCENDANTS = 4;
+
+    /**
+     * Index of {@code ProcessHandle.destroyForcibly()}.
+     */
+    private static final int DESTROY = 5;
+
+    /**
+     * Index of {@code ProcessHandle.info()}.
+     */
+    private static final int INFO = 6;
+
+    /**
+     * Index of {@code ProcessHandle.Info.startInstant()}.
+     */
+    private static final int START_INSTANT = 7;
+
+    /**
+     * Index of {@code Optional.isPresent()}.
+     */
+    private static final int IS_PRESENT = 8;
+
+    /**
+     * Index of {@code Optional.get()}.
+     */
+    private static final int GET = 9;
+
+    /**
+     * Index of {@code BaseStream.iterator()}.
+     */
+    private static final int ITERATOR = 10;
+
+    /**
+     * Index of {@code Instant.toEpochMilli()}.
+     */
+    private static final int TO_EPOCH_MILLI = 11;
+
+    /**
+     * The number of milliseconds by which the start time reported for a
+     * process may differ from the system clock.
+     */
+    private static final long START_TIME_TOLERANCE = 1000L;
+
+    /**
+     * Recorded in the registry file when the start time of a process is not
+     * known.
+     */
+    private static final String UNKNOWN = "-";
+
+    /**
+     * The start times of the processes spawned for each browser session
+     * indexed by process identifier.
+     */
+    private static final Map<Object, Map<Long, String>> SESSIONS = new IdentityHashMap<Object, Map<Long, String>>();
+
+    /**
+     * The create and start operations that are in progress or that overlapped
+     * an operation that is in progress. Each operation is the period during
+     * which the processes it spawned could have started and its end is
+     * {@link Long#MAX_VALUE} while it is in progress.
+     */
+    private static final List<long[]> OPERATIONS = new ArrayList<long[]>();
+
+    /**
+     * The processes that started during overlapping operations and so cannot
+     * be attributed to a browser session.
+     */
+    private static final Set<Long> UNATTRIBUTED = new HashSet<Long>();
+
+    /**
+     * The browser session that each window of a shared browser session
+     * belongs to.
+     */
+    private static final Map<Object, Object> WINDOWS = new IdentityHashMap<Object, Object>();
+
+    /**
+     * Identifies this JVM in the registry file or {@code null} if the registry
+     * has not been initialised.
+     */
+    private static String owner;
+
+    /**
+     * Default constructor is private.
+     */
+    private ProcessRegistry() {
+    }
+
+    /**
+     * Determine whether process tracking has been enabled and is supported by
+     * the JVM.
+     *
+     * @return {@code true} if process tracking is enabled.
+     */
+    static boolean isEnabled() {
+        return METHODS != null && Boolean.getBoolean(Constants.PROCESS_TRACKING_PROPERTY);
+    }
+
+    /**
+     * Begin an operation that creates or starts a browser session.
+     *
+     * @return The operation which must be passed to
+     *         {@link #register(Object, long[])} when it ends.
+     */
+    static synchronized long[] begin() {
+        final long[] operation = {System.currentTimeMillis() - START_TIME_TOLERANCE, Long.MAX_VALUE};
+        OPERATIONS.add(operation);
+        return operation;
+    }
+
+    /**
+     * End an operation that created or started a browser session and
+     * register the processes that started during the operation. The first
+     * registration sweeps the registry file for processes left behind by JVMs
+     * that have exited.
+     *
+     * @param session   The Selenium object or {@code null} if the operation
+     *                  failed to create it.
+     * @param operation The operation returned by {@link #begin()}.
+     */
+    static synchronized void register(final Object session, final long[] operation) {
+        operation[1] = System.currentTimeMillis() + START_TIME_TOLERANCE;
+        try {
+            if (METHODS == null) {
+                return;
+            }
+            initialise();
+            final Map<Long, String> spawned = new HashMap<Long, String>();
+            final Set<Long> running = new HashSet<Long>();
+            try {
+                for (final Object handle : descendants(invoke(CURRENT, null))) {
+                    final Long pid = (Long)invoke(PID, handle);
+                    running.add(pid);
+                    final long started = startMillis(handle);
+                    if (started < operation[0] || started > operation[1] || isAttributed(pid)) {
+                        continue;
+                    }
+                    if (session == null || overlaps(operation, started)) {
+                        UNATTRIBUTED.add(pid);
+                    } else {
+                        spawned.put(pid, startTime(handle));
+                    }
+                }
+            } catch (final Exception e) {
+                LOGGER.debug("Could not list child processes", e);
+            }
+            UNATTRIBUTED.retainAll(running);
+            if (!spawned.isEmpty()) {
+                Map<Long, String> pids = SESSIONS.get(session);
+                if (pids == null) {
+                    pids = new HashMap<Long, String>();
+                    SESSIONS.put(session, pids);
+                }
+                pids.putAll(spawned);
+                LOGGER.debug("Tracking processes {}", spawned.keySet());
+                updateRegistryFile();
+            }
+        } finally {
+            prune();
+        }
+    }
+
+    /**
+     * Stop tracking the processes for a browser session that was stopped
+     * cleanly.
+     *
+     * @param session The Selenium object.
+     */
+    static synchronized void release(final Object session) {
+        final Map<Long, String> pids = SESSIONS.remove(session);
+        if (pids != null && !pids.isEmpty()) {
+            updateRegistryFile();
+        }
+    }
+
+    /**
+     * Record that a Selenium object is bound to a window of a shared browser
+     * session so that reaping the window reaps the browser session.
+     *
+     * @param window  The Selenium object bound to the window.
+     * @param session The Selenium object for the browser session.
+     */
+    static synchronized void share(final Object window, final Object session) {
+        WINDOWS.put(window, session);
+    }
+
+    /**
+     * Forget a window of a shared browser session that has been closed.
+     *
+     * @param window The Selenium object bound to the window.
+     */
+    static synchronized void unshare(final Object window) {
+        WINDOWS.remove(window);
+    }
+
+    /**
+     * Kill the processes for a browser session that could not be stopped. If
+     * the Selenium object is bound to a window of a shared browser session the
+     * processes for the browser session are killed.
+     *
+     * @param session The Selenium object.
+     */
+    static synchronized void reap(final Object session) {
+        final Object shared = WINDOWS.remove(session);
+        final Map<Long, String> pids = SESSIONS.remove(shared == null ? session : shared);
+        if (pids != null && !pids.isEmpty()) {
+            for (final Map.Entry<Long, String> pid : pids.entrySet()) {
+                kill(pid.getKey(), pid.getValue());
+            }
+            updateRegistryFile();
+        }
+    }
+
+    /**
+     * Determine whether a process has already been attributed to a browser
+     * session or could not be attributed to one.
+     *
+     * @param pid The process identifier.
+     * @return {@code true} if the process has been considered.
+     */
+    private static boolean isAttributed(final Long pid) {
+        if (UNATTRIBUTED.contains(pid)) {
+            return true;
+        }
+        for (final Map<Long, String> pids : SESSIONS.values()) {
+            if (pids.containsKey(pid)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determine whether another operation could also have started a process.
+     *
+     * @param operation The operation that is ending.
+     * @param started   The time the process started.
+     * @return {@code true} if another operation was in progress when the
+     *         process started.
+     */
+    private static boolean overlaps(final long[] operation, final long started) {
+        for (final long[] other : OPERATIONS) {
+            if (other != operation && started >= other[0] && started <= other[1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Forget the operations that have ended before every operation that is
+     * still in progress began.
+     */
+    private static void prune() {
+        long earliest = Long.MAX_VALUE;
+        for (final long[] operation : OPERATIONS) {
+            if (operation[1] == Long.MAX_VALUE) {
+                earliest = Math.min(earliest, operation[0]);
+            }
+        }
+        final Iterator<long[]> iterator = OPERATIONS.iterator();
+        while (iterator.hasNext()) {
+            final long[] operation = iterator.next();
+            if (operation[1] != Long.MAX_VALUE && operation[1] < earliest) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Sweep the registry file and register the shutdown hook that kills the
+     * processes for the browser sessions that have not been stopped when the
+     * JVM exits.
+     */
+    private static void initialise() {
+        if (owner == null) {
+            try {
+                final Object current = invoke(CURRENT, null);
+                owner = invoke(PID, current) + " " + startTime(current);
+            } catch (final Exception e) {
+                owner = "0 " + UNKNOWN;
+            }
+            sweep();
+            Runtime.getRuntime().addShutdownHook(new Thread("process-reaper") {
+                @Override
+                public void run() {
+                    SessionReaper.awaitPending();
+                    synchronized (ProcessRegistry.class) {
+                        for (final Object session : new ArrayList<Object>(SESSIONS.keySet())) {
+                            reap(session);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Kill the processes recorded in the registry file by JVMs that are no
+     * longer running and remove them from the registry file.
+     */
+    private static void sweep() {
+        final List<String> survivors = new ArrayList<String>();
+        withLock(new Runnable() {
+            public void run() {
+                for (final String line : readRegistryFile()) {
+                    final String[] fields = StringUtils.split(line);
+                    if (fields.length != 4) {
+                        continue;
+                    }
+                    if (isRunning(Long.parseLong(fields[0]), fields[1])) {
+                        survivors.add(line);
+                    } else {
+                        kill(Long.parseLong(fields[2]), fields[3]);
+                    }
+                }
+                writeRegistryFile(survivors);
+            }
+        });
+    }
+
+    /**
+     * Rewrite this JVM's entries in the registry file.
+     */
+    private static void updateRegistryFile() {
+        withLock(new Runnable() {
+            public void run() {
+                final List<String> lines = new ArrayList<String>();
+                for (final String line : readRegistryFile()) {
+                    if (!line.startsWith(owner + " ")) {
+                        lines.add(line);
+                    }
+                }
+                for (final Map<Long, String> pids : SESSIONS.values()) {
+                    for (final Map.Entry<Long, String> pid : pids.entrySet()) {
+                        lines.add(owner + " " + pid.getKey() + " " + pid.getValue());
+                    }
+                }
+                writeRegistryFile(lines);
+            }
+        });
+    }
+
+    /**
+     * Run an action while holding the lock on the registry file.
+     *
+     * @param action The action.
+     */
+    private static void withLock(final Runnable action) {
+        try {
+            FileUtils.forceMkdir(LOCK_FILE.getParentFile());
+            final RandomAccessFile lockFile = new RandomAccessFile(LOCK_FILE, "rw");
+            try {
+                final FileLock lock = lockFile.getChannel().lock();
+                try {
+                    action.run();
+                } finally {
+                    lock.release();
+                }
+            } finally {
+                lockFile.close();
+            }
+        } catch (final IOException e) {
+            LOGGER.warn("Could not update process registry " + REGISTRY_FILE, e);
+        }
+    }
+
+    /**
+     * Read the lines of the registry file.
+     *
+     * @return The lines or an empty list if the registry file does not exist.
+     */
+    private static List<String> readRegistryFile() {
+        try {
+            if (REGISTRY_FILE.exists()) {
+                return FileUtils.readLines(REGISTRY_FILE, "UTF-8");
+            }
+        } catch (final IOException e) {
+            LOGGER.warn("Could not read process registry " + REGISTRY_FILE, e);
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Write the lines of the registry file.
+     *
+     * @param lines The lines.
+     */
+    private static void writeRegistryFile(final List<String> lines) {
+        try {
+            FileUtils.writeLines(REGISTRY_FILE, "UTF-8", lines);
+        } catch (final IOException e) {
+            LOGGER.warn("Could not write process registry " + REGISTRY_FILE, e);
+        }
+    }
+
+    /**
+     * Determine whether a process is still running. The start time is
+     * compared so that a process that reused the identifier is not mistaken
+     * for the original.
+     *
+     * @param pid       The process identifier.
+     * @param startTime The start time recorded for the process.
+     * @return {@code true} if the process is running.
+     */
+    private static boolean isRunning(final long pid, final String startTime) {
+        final Object handle = getHandle(pid);
+        try {
+            return handle != null && (Boolean)invoke(IS_ALIVE, handle) && startTime.equals(startTime(handle));
+        } catch (final Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Kill a process and its descendants. The process is only killed if its
+     * start time matches the one that was recorded so that a process that
+     * reused the identifier is not killed. A process whose start time was not
+     * recorded is never killed.
+     *
+     * @param pid       The process identifier.
+     * @param startTime The start time recorded for the process.
+     */
+    private static void kill(final long pid, final String startTime) {
+        if (UNKNOWN.equals(startTime)) {
+            LOGGER.warn("Not killing process {} because its start time is not known", pid);
+            return;
+        }
+        final Object handle = getHandle(pid);
+        if (handle == null) {
+            return;
+        }
+        try {
+            if ((Boolean)invoke(IS_ALIVE, handle) && startTime.equals(startTime(handle))) {
+                LOGGER.warn("Killing orphaned browser process {}", pid);
+                for (final Object descendant : descendants(handle)) {
+                    invoke(DESTROY, descendant);
+                }
+                invoke(DESTROY, handle);
+            }
+        } catch (final Exception e) {
+            LOGGER.warn("Could not kill process " + pid, e);
+        }
+    }
+
+    /**
+     * Get the process handle for a process identifier.
+     *
+     * @param pid The process identifier.
+     * @return The process handle or {@code null} if the process does not exist.
+     */
+    private static Object getHandle(final long pid) {
+        if (METHODS == null) {
+            return null;
+        }
+        try {
+            final Object optional = invoke(OF, null, pid);
+            if ((Boolean)invoke(IS_PRESENT, optional)) {
+                return invoke(GET, optional);
+            }
+        } catch (final Exception e) {
+            LOGGER.debug("Could not find process " + pid, e);
+        }
+        return null;
+    }
+
+    /**
+     * Get the descendants of a process.
+     *
+     * @param handle The process handle.
+     * @return The process handles of the descendants.
+     * @throws Exception If the descendants could not be listed.
+     */
+    private static List<Object> descendants(final Object handle) throws Exception {
+        final List<Object> handles = new ArrayList<Object>();
+        final Iterator<?> iterator = (Iterator<?>)invoke(ITERATOR, invoke(DESCENDANTS, handle));
+        while (iterator.hasNext()) {
+            handles.add(iterator.next());
+        }
+        return handles;
+    }
+
+    /**
+     * Get the start time of a process.
+     *
+     * @param handle The process handle.
+     * @return The start time or {@link #UNKNOWN} if it is not known.
+     */
+    private static String startTime(final Object handle) {
+        try {
+            final Object optional = invoke(START_INSTANT, invoke(INFO, handle));
+            if ((Boolean)invoke(IS_PRESENT, optional)) {
+                return invoke(GET, optional).toString();
+            }
+        } catch (final Exception e) {
+            LOGGER.debug("Could not get process start time", e);
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Get the start time of a process in milliseconds.
+     *
+     * @param handle The process handle.
+     * @return The start time or {@code -1} if it is not known.
+     */
+    private static long startMillis(final Object handle) {
+        try {
+            final Object optional = invoke(START_INSTANT, invoke(INFO, handle));
+            if ((Boolean)invoke(IS_PRESENT, optional)) {
+                return (Long)invoke(TO_EPOCH_MILLI, invoke(GET, optional));
+            }
+        } catch (final Exception e) {
+            LOGGER.debug("Could not get process start time", e);
+        }
+        return -1;
+    }
+
+    /**
+     * Invoke one of the {@code ProcessHandle} methods.
+     *
+     * @param method    The index of the method.
+     * @param target    The target object or {@code null} for static methods.
+     * @param arguments The method arguments.
+     * @return The value returned by the method.
+     * @throws Exception If the method could not be invoked.
+     */
+    private static Object invoke(final int method, final Object target, final Object... arguments) throws Exception {
+        return METHODS[method].invoke(target, arguments);
+    }
+
+    /**
+     * Look up the {@code ProcessHandle} methods.
+     *
+     * @return The methods or {@code null} if the JVM does not support them.
+     */
+    private static Method[] getMethods() {
+        try {
+            final Class<?> handleClass = Class.forName("java.lang.ProcessHandle");
+            final Class<?> infoClass = Class.forName("java.lang.ProcessHandle$Info");
+            final Class<?> optionalClass = Class.forName("java.util.Optional");
+            final Class<?> streamClass = Class.forName("java.util.stream.BaseStream");
+            final Class<?> instantClass = Class.forName("java.time.Instant");
+            return new Method[]{
+                    handleClass.getMethod("current"),
+                    handleClass.getMethod("of", long.class),
+                    handleClass.getMethod("pid"),
+                    handleClass.getMethod("isAlive"),
+                    handleClass.getMethod("descendants"),
+                    handleClass.getMethod("destroyForcibly"),
+                    handleClass.getMethod("info"),
+                    infoClass.getMethod("startInstant"),
+                    optionalClass.getMethod("isPresent"),
+                    optionalClass.getMethod("get"),
+                    streamClass.getMethod("iterator"),
+                    instantClass.getMethod("toEpochMilli")
+            };
+        } catch (final Exception e) {
+            LOGGER.debug("Process tracking requires Java 9 or later", e);
+            return null;
+        }
+    }
+}
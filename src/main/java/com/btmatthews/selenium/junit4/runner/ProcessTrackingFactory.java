@@ -0,0 +1,120 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import com.thoughtworks.selenium.Selenium;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Factory that registers the browser and driver processes spawned by the
+ * underlying factory with the {@link ProcessRegistry} so that they are killed
+ * if the browser session cannot be stopped. The processes spawned by a
+ * session are identified by their start times so sessions can be created and
+ * started concurrently. The factory is only used if
+ * {@link ProcessRegistry#isEnabled()}.
+ *
+ * @param <T> <ul>
+ *            <li>{@link Selenium} for tests that use the Selenium 1.0 API</li>
+ *            <li>{@link WebDriver} for tests that use the Selenium 2.0 API</li>
+ *            </ul>
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class ProcessTrackingFactory<T> implements SeleniumFactory<T> {
+
+    /**
+     * The factory used to create, start and stop the Selenium object.
+     */
+    private final SeleniumFactory<T> delegate;
+
+    /**
+     * Construct the factory.
+     *
+     * @param factory The factory used to create, start and stop the Selenium
+     *                object.
+     */
+    ProcessTrackingFactory(final SeleniumFactory<T> factory) {
+        delegate = factory;
+    }
+
+    /**
+     * Get the underlying factory.
+     *
+     * @return The factory used to create, start and stop the Selenium object.
+     */
+    SeleniumFactory<T> getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Get the browser name from the underlying factory.
+     *
+     * @return The browser name.
+     */
+    public String getBrowser() {
+        return delegate.getBrowser();
+    }
+
+    /**
+     * Create the Selenium object and register the processes spawned.
+     *
+     * @return The Selenium object.
+     * @throws Exception If the Selenium object could not be created.
+     */
+    public T create() throws Exception {
+        final long[] operation = ProcessRegistry.begin();
+        T selenium = null;
+        try {
+            selenium = delegate.create();
+            return selenium;
+        } finally {
+            ProcessRegistry.register(selenium, operation);
+        }
+    }
+
+    /**
+     * Start the Selenium object and register the processes spawned.
+     *
+     * @param selenium The Selenium object.
+     * @throws Exception If the Selenium object could not be started.
+     */
+    public void start(final T selenium) throws Exception {
+        final long[] operation = ProcessRegistry.begin();
+        try {
+            delegate.start(selenium);
+        } finally {
+            ProcessRegistry.register(selenium, operation);
+        }
+    }
+
+    /**
+     * Stop the Selenium object. The processes spawned for the session are
+     * killed if it could not be stopped.
+     *
+     * @param selenium The Selenium object.
+     * @throws Exception If the Selenium object could not be stopped.
+     */
+    public void stop(final T selenium) throws Exception {
+        try {
+            delegate.stop(selenium);
+        } catch (final Exception e) {
+            ProcessRegistry.reap(selenium);
+            throw e;
+        }
+        ProcessRegistry.release(selenium);
+    }
+}
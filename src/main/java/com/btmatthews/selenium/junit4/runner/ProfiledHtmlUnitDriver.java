@@ -0,0 +1,83 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.WebResponse;
+import com.gargoylesoftware.htmlunit.WebResponseData;
+import com.gargoylesoftware.htmlunit.util.NameValuePair;
+import com.gargoylesoftware.htmlunit.util.WebConnectionWrapper;
+import org.apache.commons.lang3.StringUtils;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Collections;
+
+/**
+ * A {@link HtmlUnitDriver} that is tuned according to a {@link HtmlUnitProfile}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class ProfiledHtmlUnitDriver extends HtmlUnitDriver {
+
+    /**
+     * The file extensions of the image requests that are suppressed when images are disabled.
+     */
+    private static final String[] IMAGE_EXTENSIONS = {".png", ".gif", ".jpg", ".jpeg", ".ico", ".bmp", ".svg"};
+
+    /**
+     * Construct a {@link HtmlUnitDriver} and apply the profile to the underlying web client.
+     *
+     * @param profile The {@link HtmlUnitProfile} annotation.
+     */
+    ProfiledHtmlUnitDriver(final HtmlUnitProfile profile) {
+        super(profile.javascriptEnabled());
+        final WebClient client = getWebClient();
+        client.getOptions().setCssEnabled(profile.cssEnabled());
+        if (profile.sharedCache()) {
+            client.setCache(SharedCache.getInstance());
+        }
+        if (!profile.imagesEnabled()) {
+            new WebConnectionWrapper(client) {
+                @Override
+                public WebResponse getResponse(final WebRequest request) throws IOException {
+                    if (isImage(request)) {
+                        final WebResponseData data = new WebResponseData(new byte[0], HttpURLConnection.HTTP_OK, "OK",
+                                Collections.<NameValuePair>emptyList());
+                        return new WebResponse(data, request, 0L);
+                    }
+                    return super.getResponse(request);
+                }
+            };
+        }
+    }
+
+    /**
+     * Determine whether a request is for an image from the file extension or accept header.
+     *
+     * @param request The request.
+     * @return {@code true} if the request is for an image.
+     */
+    private static boolean isImage(final WebRequest request) {
+        final String accept = request.getAdditionalHeaders().get("Accept");
+        return StringUtils.startsWith(accept, "image/")
+                || StringUtils.endsWithAny(request.getUrl().getPath().toLowerCase(), IMAGE_EXTENSIONS);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import java.lang.annotation.*;
+
+/**
+ * {@code RemoteDriverConfiguration} defines class-level meta-data which can be
+ * used to instruct client code with regard to use a <a
+ * href="http://seleniumhq.org">Selenium</a> remote web driver connected to a
+ * Selenium Server or Grid hub.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@SeleniumConfiguration
+public @interface RemoteDriverConfiguration {
+
+    /**
+     * The URL of the Selenium Server or Grid hub. The default value is
+     * {@link Constants#DEFAULT_HUB_URL}.
+     */
+    String hubURL() default Constants.DEFAULT_HUB_URL;
+
+    /**
+     * The names of the browsers used to launch the tests (e.g. {@literal "firefox"}).
+     * The default value is {@link Constants#DEFAULT_BROWSER_NAME}.
+     */
+    String[] browserNames() default {Constants.DEFAULT_BROWSER_NAME};
+
+    /**
+     * Additional capabilities requested for every browser expressed as
+     * {@literal name=value} pairs.
+     */
+    String[] capabilities() default {};
+
+    /**
+     * The number of milliseconds that {@link com.btmatthews.selenium.junit4.rule.AdaptiveWait} waits for a condition
+     * to become true. The default value is {@link Constants#DEFAULT_WAIT_TIMEOUT}.
+     */
+    long waitTimeout() default Constants.DEFAULT_WAIT_TIMEOUT;
+}
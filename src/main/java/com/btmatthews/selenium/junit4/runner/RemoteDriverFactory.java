@@ -0,0 +1,115 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openqa.selenium.Platform;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.remote.HttpCommandExecutor;
+import org.openqa.selenium.remote.RemoteWebDriver;
+
+import java.net.URL;
+
+/**
+ * Factory that is responsible for creating the {@link RemoteWebDriver} instance and
+ * acting as a an wrapper for the start and stop methods.
+ * <p/>
+ * Every session is given its own {@link HttpCommandExecutor} but they all share the
+ * JVM-wide pool of keep-alive connections maintained by the executor, so commands
+ * sent to the same hub do not pay for a new connection each time.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public final class RemoteDriverFactory implements SeleniumFactory<WebDriver> {
+
+    /**
+     * The annotation that provides configuration for the test runner.
+     */
+    private final RemoteDriverConfiguration configuration;
+
+    /**
+     * The name of the browser (e.g. {@literal "firefox"}).
+     */
+    private final String browserName;
+
+    /**
+     * Construct the factory for creating {@link RemoteWebDriver} instances.
+     *
+     * @param config  The {@link RemoteDriverConfiguration} annotation that provides
+     *                configuration for the test runner.
+     * @param browser The name of the browser (e.g. {@literal "firefox"}).
+     */
+    public RemoteDriverFactory(final RemoteDriverConfiguration config,
+                               final String browser) {
+        configuration = config;
+        browserName = browser;
+    }
+
+    /**
+     * Return the name of the browser.
+     *
+     * @return The browser identification string.
+     */
+    public String getBrowser() {
+        return browserName;
+    }
+
+    /**
+     * Create a {@link RemoteWebDriver} that requests a browser session from the
+     * hub with the browser name and additional capabilities specified by the
+     * configuration annotation.
+     *
+     * @return The new {@link RemoteWebDriver} instance.
+     * @throws Exception If the hub URL is malformed or the session could not be created.
+     * @see SeleniumFactory#create()
+     */
+    public WebDriver create() throws Exception {
+        final DesiredCapabilities capabilities = new DesiredCapabilities(browserName, StringUtils.EMPTY, Platform.ANY);
+        for (final String capability : configuration.capabilities()) {
+            final String name = StringUtils.substringBefore(capability, "=");
+            final String value = StringUtils.substringAfter(capability, "=");
+            if ("true".equals(value) || "false".equals(value)) {
+                capabilities.setCapability(name, Boolean.parseBoolean(value));
+            } else {
+                capabilities.setCapability(name, value);
+            }
+        }
+        return new RemoteWebDriver(new HttpCommandExecutor(new URL(configuration.hubURL())), capabilities);
+    }
+
+    /**
+     * This method is not implemented because the {@link RemoteWebDriver} was started
+     * during instantiation.
+     *
+     * @param webDriver The {@link RemoteWebDriver} instance.
+     * @see SeleniumFactory#start(Object)
+     */
+    public void start(final WebDriver webDriver) {
+    }
+
+    /**
+     * Stop the {@link RemoteWebDriver} by issuing a quit command.
+     *
+     * @param webDriver The {@link RemoteWebDriver} instance.
+     * @see SeleniumFactory#stop(Object)
+     */
+    public void stop(final WebDriver webDriver) {
+        webDriver.quit();
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.seleniumhq.jetty7.server.Request;
+import org.seleniumhq.jetty7.server.handler.AbstractHandler;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The local HTTP stand-in configured by {@link HttpReplay}. A stand-in is started on demand on a free loopback port
+ * for each combination of origin, store and mode and is stopped when the JVM exits. In {@link ReplayMode#RECORD}
+ * mode requests are forwarded to the origin and the responses are written to the {@link ReplayStore}. In
+ * {@link ReplayMode#REPLAY} mode responses are served from the {@link ReplayStore} and requests that were not
+ * recorded are rejected.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class ReplayServer extends AbstractHandler {
+
+    /**
+     * The headers that apply to a single connection and are not forwarded or recorded.
+     */
+    private static final Set<String> HOP_BY_HOP_HEADERS = new HashSet<String>(Arrays.asList(
+            "connection", "keep-alive", "proxy-authenticate", "proxy-authorization", "te", "trailer",
+            "transfer-encoding", "upgrade", "host", "content-length"));
+
+    /**
+     * The name of the header that holds the target of a redirect.
+     */
+    private static final String LOCATION_HEADER = "location";
+
+    /**
+     * The size of the buffer used to copy response bodies.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Separates the components of the key used to index the running stand-ins.
+     */
+    private static final char SEPARATOR = '|';
+
+    /**
+     * The running stand-ins indexed by origin, store and mode.
+     */
+    private static final Map<String, ReplayServer> SERVERS = new HashMap<String, ReplayServer>();
+
+    /**
+     * The scheme, host and port of the real web server.
+     */
+    private final String origin;
+
+    /**
+     * Whether the stand-in is recording or replaying.
+     */
+    private final ReplayMode mode;
+
+    /**
+     * The recorded responses.
+     */
+    private final ReplayStore store;
+
+    /**
+     * The base URL of the stand-in.
+     */
+    private volatile String base;
+
+    /**
+     * Construct the stand-in.
+     *
+     * @param originURL   The scheme, host and port of the real web server.
+     * @param replayMode  Whether the stand-in is recording or replaying.
+     * @param replayStore The recorded responses.
+     */
+    private ReplayServer(final String originURL, final ReplayMode replayMode, final ReplayStore replayStore) {
+        origin = originURL;
+        mode = replayMode;
+        store = replayStore;
+    }
+
+    /**
+     * Translate the browser URL into the equivalent URL on the stand-in, starting the stand-in if necessary.
+     *
+     * @param browserURL The browser URL.
+     * @param replay     The {@link HttpReplay} annotation.
+     * @return The equivalent URL on the stand-in.
+     * @throws Exception If the stand-in could not be started.
+     */
+    static synchronized String getURL(final String browserURL, final HttpReplay replay) throws Exception {
+        final URL url = new URL(browserURL);
+        final String origin = StringUtils.substringBefore(browserURL, url.getAuthority()) + url.getAuthority();
+        final ReplayMode mode = ReplayMode.valueOf(System.getProperty(Constants.REPLAY_MODE_PROPERTY,
+                replay.mode().name()));
+        final File directory = new File(replay.store(), url.getAuthority().replace(':', '_'));
+        final String key = origin + SEPARATOR + directory.getAbsolutePath() + SEPARATOR + mode;
+        ReplayServer server = SERVERS.get(key);
+        if (server == null) {
+            final ReplayStore store;
+            if (mode == ReplayMode.RECORD) {
+                store = ReplayStore.openForRecording(directory);
+            } else {
+                store = ReplayStore.openForReplay(directory);
+            }
+            server = new ReplayServer(origin, mode, store);
+            server.base = LoopbackServer.start("http-replay", server, new Runnable() {
+                public void run() {
+                    store.close();
+                }
+            });
+            SERVERS.put(key, server);
+        }
+        return server.base + url.getFile();
+    }
+
+    /**
+     * Handle a request from the browser by replaying the recorded response or forwarding it to the origin and
+     * recording the response.
+     *
+     * @param target      The target of the request.
+     * @param baseRequest The Jetty request.
+     * @param request     The servlet request.
+     * @param response    The servlet response.
+     * @throws IOException If there was an error reading the request or writing the response.
+     */
+    @Override
+    public void handle(final String target, final Request baseRequest, final HttpServletRequest request,
+                       final HttpServletResponse response) throws IOException {
+        baseRequest.setHandled(true);
+        final byte[] body = IOUtils.toByteArray(request.getInputStream());
+        final StringBuilder key = new StringBuilder(request.getMethod());
+        key.append(' ');
+        key.append(request.getRequestURI());
+        if (request.getQueryString() != null) {
+            key.append('?');
+            key.append(request.getQueryString());
+        }
+        if (body.length > 0) {
+            key.append(' ');
+            key.append(DigestUtils.md5Hex(body));
+        }
+        final ReplayStore.Response recorded;
+        if (mode == ReplayMode.RECORD) {
+            recorded = forward(request, body);
+            store.record(key.toString(), recorded);
+        } else {
+            recorded = store.lookup(key.toString());
+        }
+        if (recorded == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "No recorded response for " + key);
+        } else {
+            response.setStatus(recorded.getStatus());
+            for (final String[] header : recorded.getHeaders()) {
+                response.addHeader(header[0], resolveLocation(header[0], header[1]));
+            }
+            final ByteBuffer content = recorded.getBody().duplicate();
+            response.setContentLength(content.remaining());
+            final OutputStream output = response.getOutputStream();
+            final byte[] buffer = new byte[Math.min(BUFFER_SIZE, content.remaining())];
+            while (content.hasRemaining()) {
+                final int length = Math.min(buffer.length, content.remaining());
+                content.get(buffer, 0, length);
+                output.write(buffer, 0, length);
+            }
+        }
+    }
+
+    /**
+     * Forward a request to the origin. Redirects are not followed and the locations of redirects to the origin are
+     * recorded relative to the origin. They are resolved against the stand-in when the response is served because
+     * the stand-in listens on a different port each time it is started.
+     *
+     * @param request The servlet request.
+     * @param body    The request body.
+     * @return The response from the origin.
+     * @throws IOException If there was an error communicating with the origin.
+     */
+    private ReplayStore.Response forward(final HttpServletRequest request, final byte[] body) throws IOException {
+        final StringBuilder target = new StringBuilder(origin);
+        target.append(request.getRequestURI());
+        if (request.getQueryString() != null) {
+            target.append('?');
+            target.append(request.getQueryString());
+        }
+        final HttpURLConnection connection = (HttpURLConnection)new URL(target.toString()).openConnection();
+        try {
+            connection.setInstanceFollowRedirects(false);
+            connection.setRequestMethod(request.getMethod());
+            final Enumeration<?> names = request.getHeaderNames();
+            while (names.hasMoreElements()) {
+                final String name = (String)names.nextElement();
+                if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase())) {
+                    connection.addRequestProperty(name, request.getHeader(name));
+                }
+            }
+            if (body.length > 0) {
+                connection.setDoOutput(true);
+                final OutputStream output = connection.getOutputStream();
+                try {
+                    output.write(body);
+                } finally {
+                    output.close();
+                }
+            }
+            final int status = connection.getResponseCode();
+            final List<String[]> headers = new ArrayList<String[]>();
+            for (final Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+                if (header.getKey() != null && !HOP_BY_HOP_HEADERS.contains(header.getKey().toLowerCase())) {
+                    for (final String value : header.getValue()) {
+                        headers.add(new String[]{header.getKey(), relativeLocation(header.getKey(), value)});
+                    }
+                }
+            }
+            InputStream input = connection.getErrorStream();
+            if (input == null) {
+                input = connection.getInputStream();
+            }
+            try {
+                return new ReplayStore.Response(status, headers, ByteBuffer.wrap(IOUtils.toByteArray(input)));
+            } finally {
+                input.close();
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Make the location of redirects to the origin relative to the origin so that the recording does not depend on
+     * the port of the stand-in.
+     *
+     * @param name  The header name.
+     * @param value The header value.
+     * @return The header value to record.
+     */
+    private String relativeLocation(final String name, final String value) {
+        if (LOCATION_HEADER.equalsIgnoreCase(name) && value.startsWith(origin)) {
+            final String path = value.substring(origin.length());
+            return path.startsWith("/") ? path : "/" + path;
+        }
+        return value;
+    }
+
+    /**
+     * Resolve the origin relative location of redirects against the stand-in so that the browser stays on the
+     * stand-in.
+     *
+     * @param name  The header name.
+     * @param value The recorded header value.
+     * @return The header value to serve.
+     */
+    private String resolveLocation(final String name, final String value) {
+        if (LOCATION_HEADER.equalsIgnoreCase(name) && value.startsWith("/") && !value.startsWith("//")) {
+            return base + value;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The on-disk store of the responses recorded by the HTTP stand-in. The responses are appended to a data file and
+ * their offsets are written to an index file. When replaying, the data file is memory-mapped and the index is loaded
+ * into memory so that responses are served without any further file I/O.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class ReplayStore {
+
+    /**
+     * The name of the file containing the recorded responses.
+     */
+    private static final String DATA_FILE = "responses.dat";
+
+    /**
+     * The name of the file containing the offsets of the recorded responses.
+     */
+    private static final String INDEX_FILE = "responses.idx";
+
+    /**
+     * The character encoding used for the index file and the response headers.
+     */
+    private static final String ENCODING = "UTF-8";
+
+    /**
+     * Separates the fields in the index file.
+     */
+    private static final char SEPARATOR = '\t';
+
+    /**
+     * The offset and length of each recorded response indexed by request key.
+     */
+    private final Map<String, long[]> index = new HashMap<String, long[]>();
+
+    /**
+     * The data file being written when recording or {@code null} when replaying.
+     */
+    private final OutputStream data;
+
+    /**
+     * The index file being written when recording or {@code null} when replaying.
+     */
+    private final Writer indexWriter;
+
+    /**
+     * The memory-mapped data file when replaying or {@code null} when recording.
+     */
+    private final ByteBuffer mapped;
+
+    /**
+     * The offset at which the next response will be written when recording.
+     */
+    private long offset;
+
+    /**
+     * Construct a store that is used to record responses.
+     *
+     * @param dataStream  The data file.
+     * @param indexStream The index file.
+     */
+    private ReplayStore(final OutputStream dataStream, final Writer indexStream) {
+        data = dataStream;
+        indexWriter = indexStream;
+        mapped = null;
+    }
+
+    /**
+     * Construct a store that is used to replay responses.
+     *
+     * @param buffer The memory-mapped data file.
+     */
+    private ReplayStore(final ByteBuffer buffer) {
+        data = null;
+        indexWriter = null;
+        mapped = buffer;
+    }
+
+    /**
+     * Open a store for recording responses. Any responses previously recorded in the directory are discarded.
+     *
+     * @param directory The directory.
+     * @return The store.
+     * @throws IOException If the store could not be created.
+     */
+    static ReplayStore openForRecording(final File directory) throws IOException {
+        FileUtils.forceMkdir(directory);
+        final OutputStream dataStream = new FileOutputStream(new File(directory, DATA_FILE));
+        final Writer indexStream = new OutputStreamWriter(new FileOutputStream(new File(directory, INDEX_FILE)), ENCODING);
+        return new ReplayStore(dataStream, indexStream);
+    }
+
+    /**
+     * Open a store for replaying responses.
+     *
+     * @param directory The directory.
+     * @return The store.
+     * @throws IOException If the store could not be read.
+     */
+    static ReplayStore openForReplay(final File directory) throws IOException {
+        final FileInputStream input = new FileInputStream(new File(directory, DATA_FILE));
+        final ReplayStore store;
+        try {
+            final FileChannel channel = input.getChannel();
+            store = new ReplayStore(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            input.close();
+        }
+        for (final String line : FileUtils.readLines(new File(directory, INDEX_FILE), ENCODING)) {
+            final String[] fields = StringUtils.split(line, SEPARATOR);
+            store.index.put(fields[2], new long[]{Long.parseLong(fields[0]), Long.parseLong(fields[1])});
+        }
+        return store;
+    }
+
+    /**
+     * Record a response.
+     *
+     * @param key      Identifies the request.
+     * @param response The response.
+     * @throws IOException If the response could not be written.
+     */
+    synchronized void record(final String key, final Response response) throws IOException {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(buffer);
+        output.writeInt(response.getStatus());
+        output.writeInt(response.getHeaders().size());
+        for (final String[] header : response.getHeaders()) {
+            writeString(output, header[0]);
+            writeString(output, header[1]);
+        }
+        final byte[] body = new byte[response.getBody().remaining()];
+        response.getBody().duplicate().get(body);
+        output.writeInt(body.length);
+        output.write(body);
+        output.flush();
+        buffer.writeTo(data);
+        data.flush();
+        indexWriter.write(Long.toString(offset) + SEPARATOR + buffer.size() + SEPARATOR + key + '\n');
+        indexWriter.flush();
+        index.put(key, new long[]{offset, buffer.size()});
+        offset += buffer.size();
+    }
+
+    /**
+     * Find a recorded response.
+     *
+     * @param key Identifies the request.
+     * @return The response or {@code null} if the request was not recorded.
+     * @throws IOException If the response could not be decoded.
+     */
+    Response lookup(final String key) throws IOException {
+        final long[] location = index.get(key);
+        if (location == null) {
+            return null;
+        }
+        final ByteBuffer buffer = mapped.duplicate();
+        buffer.position((int)location[0]);
+        buffer.limit((int)(location[0] + location[1]));
+        final int status = buffer.getInt();
+        final int headerCount = buffer.getInt();
+        final List<String[]> headers = new ArrayList<String[]>(headerCount);
+        for (int i = 0; i < headerCount; ++i) {
+            headers.add(new String[]{readString(buffer), readString(buffer)});
+        }
+        final int length = buffer.getInt();
+        final ByteBuffer body = buffer.slice();
+        body.limit(length);
+        return new Response(status, headers, body);
+    }
+
+    /**
+     * Close the data and index files if the store was opened for recording.
+     */
+    synchronized void close() {
+        IOUtils.closeQuietly(data);
+        IOUtils.closeQuietly(indexWriter);
+    }
+
+    /**
+     * Write a length prefixed UTF-8 string.
+     *
+     * @param output The output stream.
+     * @param value  The string.
+     * @throws IOException If the string could not be written.
+     */
+    private static void writeString(final DataOutputStream output, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(ENCODING);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Read a length prefixed UTF-8 string.
+     *
+     * @param buffer The buffer.
+     * @return The string.
+     * @throws IOException If the string could not be decoded.
+     */
+    private static String readString(final ByteBuffer buffer) throws IOException {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, ENCODING);
+    }
+
+    /**
+     * A recorded response.
+     */
+    static final class Response {
+
+        /**
+         * The HTTP status code.
+         */
+        private final int status;
+
+        /**
+         * The response headers as name/value pairs.
+         */
+        private final List<String[]> headers;
+
+        /**
+         * The response body.
+         */
+        private final ByteBuffer body;
+
+        /**
+         * Construct a response.
+         *
+         * @param statusCode      The HTTP status code.
+         * @param responseHeaders The response headers as name/value pairs.
+         * @param responseBody    The response body.
+         */
+        Response(final int statusCode, final List<String[]> responseHeaders, final ByteBuffer responseBody) {
+            status = statusCode;
+            headers = Collections.unmodifiableList(responseHeaders);
+            body = responseBody;
+        }
+
+        /**
+         * Get the HTTP status code.
+         *
+         * @return The status code.
+         */
+        int getStatus() {
+            return status;
+        }
+
+        /**
+         * Get the response headers.
+         *
+         * @return The response headers as name/value pairs.
+         */
+        List<String[]> getHeaders() {
+            return headers;
+        }
+
+        /**
+         * Get the response body. The buffer is shared so callers must use a duplicate if they change its position.
+         *
+         * @return The response body.
+         */
+        ByteBuffer getBody() {
+            return body;
+        }
+    }
+}
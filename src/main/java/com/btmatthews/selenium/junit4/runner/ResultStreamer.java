@@ -0,0 +1,305 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import org.junit.runner.Description;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Streams test events to another JVM. Each event is written as the event
+ * name, the display name of the test and the exception, if any, and the end
+ * of the results is marked by {@link #DONE}. Exceptions are written as their
+ * class name, message, stack trace and cause rather than using Java
+ * serialisation so that reading the events never instantiates classes chosen
+ * by the other JVM. This is the wire format used by the
+ * {@link SeleniumDaemon} and the {@link SeleniumCoordinator}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class ResultStreamer extends RunListener {
+
+    /**
+     * Used to log errors sending test events.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResultStreamer.class);
+
+    /**
+     * The event sent when a test starts.
+     */
+    static final String STARTED = "started";
+
+    /**
+     * The event sent when a test finishes.
+     */
+    static final String FINISHED = "finished";
+
+    /**
+     * The event sent when a test fails.
+     */
+    static final String FAILED = "failed";
+
+    /**
+     * The event sent when a test violates an assumption.
+     */
+    static final String ASSUMPTION_FAILED = "assumptionFailed";
+
+    /**
+     * The event sent when a test is ignored.
+     */
+    static final String IGNORED = "ignored";
+
+    /**
+     * The event sent when all the tests have been run.
+     */
+    static final String DONE = "done";
+
+    /**
+     * The largest number of bytes accepted for a string.
+     */
+    private static final int MAX_STRING_LENGTH = 16 * 1024 * 1024;
+
+    /**
+     * The largest number of causes written for an exception.
+     */
+    private static final int MAX_CAUSES = 16;
+
+    /**
+     * The stream connected to the other JVM.
+     */
+    private final DataOutputStream output;
+
+    /**
+     * Construct the listener.
+     *
+     * @param stream The stream connected to the other JVM.
+     */
+    ResultStreamer(final DataOutputStream stream) {
+        output = stream;
+    }
+
+    @Override
+    public void testStarted(final Description description) throws IOException {
+        send(STARTED, description, null);
+    }
+
+    @Override
+    public void testFinished(final Description description) throws IOException {
+        send(FINISHED, description, null);
+    }
+
+    @Override
+    public void testFailure(final Failure failure) throws IOException {
+        send(FAILED, failure.getDescription(), failure.getException());
+    }
+
+    @Override
+    public void testAssumptionFailure(final Failure failure) {
+        try {
+            send(ASSUMPTION_FAILED, failure.getDescription(), failure.getException());
+        } catch (final IOException e) {
+            LOGGER.warn("Error sending test result", e);
+        }
+    }
+
+    @Override
+    public void testIgnored(final Description description) throws IOException {
+        send(IGNORED, description, null);
+    }
+
+    /**
+     * Mark the end of the results.
+     *
+     * @throws IOException If the marker could not be sent.
+     */
+    void done() throws IOException {
+        synchronized (output) {
+            output.writeUTF(DONE);
+            output.flush();
+        }
+    }
+
+    /**
+     * Send a test event.
+     *
+     * @param event       The event.
+     * @param description Describes the test.
+     * @param exception   The exception that caused the test to fail or
+     *                    {@code null}.
+     * @throws IOException If the event could not be sent.
+     */
+    private void send(final String event, final Description description, final Throwable exception)
+            throws IOException {
+        synchronized (output) {
+            output.writeUTF(event);
+            writeString(output, description.getDisplayName());
+            writeThrowable(output, exception, MAX_CAUSES);
+            output.flush();
+        }
+    }
+
+    /**
+     * Write a string that may be {@code null} or longer than
+     * {@link DataOutputStream#writeUTF(String)} allows.
+     *
+     * @param stream The stream.
+     * @param value  The string or {@code null}.
+     * @throws IOException If the string could not be written.
+     */
+    static void writeString(final DataOutputStream stream, final String value) throws IOException {
+        if (value == null) {
+            stream.writeInt(-1);
+        } else {
+            final byte[] bytes = value.getBytes("UTF-8");
+            stream.writeInt(bytes.length);
+            stream.write(bytes);
+        }
+    }
+
+    /**
+     * Read a string written by {@link #writeString(DataOutputStream, String)}.
+     *
+     * @param stream The stream.
+     * @return The string or {@code null}.
+     * @throws IOException If the string could not be read or is too long.
+     */
+    static String readString(final DataInputStream stream) throws IOException {
+        final int length = stream.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > MAX_STRING_LENGTH) {
+            throw new IOException("String of " + length + " bytes is too long");
+        }
+        final byte[] bytes = new byte[length];
+        stream.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    /**
+     * Write an exception as its class name, message, stack trace and cause.
+     *
+     * @param stream    The stream.
+     * @param throwable The exception or {@code null}.
+     * @param depth     The number of causes that may still be written.
+     * @throws IOException If the exception could not be written.
+     */
+    private static void writeThrowable(final DataOutputStream stream, final Throwable throwable, final int depth)
+            throws IOException {
+        stream.writeBoolean(throwable != null);
+        if (throwable != null) {
+            writeString(stream, throwable.getClass().getName());
+            writeString(stream, throwable.getMessage());
+            stream.writeBoolean(throwable instanceof AssertionError);
+            final StackTraceElement[] stackTrace = throwable.getStackTrace();
+            stream.writeInt(stackTrace.length);
+            for (final StackTraceElement element : stackTrace) {
+                writeString(stream, element.getClassName());
+                writeString(stream, element.getMethodName());
+                writeString(stream, element.getFileName());
+                stream.writeInt(element.getLineNumber());
+            }
+            final Throwable cause = throwable.getCause();
+            writeThrowable(stream, depth > 0 && cause != throwable ? cause : null, depth - 1);
+        }
+    }
+
+    /**
+     * Read an exception written by {@link #writeThrowable(DataOutputStream, Throwable, int)}.
+     * Assertion failures are read as an {@link AssertionError} and other
+     * exceptions as a {@link StreamedException} so that the original class is
+     * not loaded.
+     *
+     * @param stream The stream.
+     * @return The exception or {@code null}.
+     * @throws IOException If the exception could not be read.
+     */
+    static Throwable readThrowable(final DataInputStream stream) throws IOException {
+        if (!stream.readBoolean()) {
+            return null;
+        }
+        final String className = readString(stream);
+        final String message = readString(stream);
+        final Throwable throwable;
+        if (stream.readBoolean()) {
+            throwable = new AssertionError(message);
+        } else {
+            throwable = new StreamedException(className, message);
+        }
+        final int length = stream.readInt();
+        if (length < 0 || length > MAX_STRING_LENGTH) {
+            throw new IOException("Stack trace of " + length + " elements is too long");
+        }
+        final StackTraceElement[] stackTrace = new StackTraceElement[length];
+        for (int i = 0; i < length; ++i) {
+            stackTrace[i] = new StackTraceElement(readString(stream), readString(stream), readString(stream),
+                    stream.readInt());
+        }
+        throwable.setStackTrace(stackTrace);
+        final Throwable cause = readThrowable(stream);
+        if (cause != null) {
+            throwable.initCause(cause);
+        }
+        return throwable;
+    }
+
+    /**
+     * An exception streamed from another JVM that is reported with the class
+     * name of the original exception.
+     */
+    static final class StreamedException extends Exception {
+
+        /**
+         * The serial version identifier.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The class name of the original exception.
+         */
+        private final String className;
+
+        /**
+         * Construct the exception.
+         *
+         * @param name    The class name of the original exception.
+         * @param message The message of the original exception.
+         */
+        StreamedException(final String name, final String message) {
+            super(message);
+            className = name;
+        }
+
+        /**
+         * Describe the exception in the same way as the original exception.
+         *
+         * @return The class name and message of the original exception.
+         */
+        @Override
+        public String toString() {
+            final String message = getLocalizedMessage();
+            return message == null ? className : className + ": " + message;
+        }
+    }
+}
@@ -0,0 +1,529 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner.AbstractSeleniumJUnit4ClassRunner;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.runner.Runner;
+import org.junit.runners.model.InitializationError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coordinates the test runs of several {@link SeleniumWorker} JVMs on the
+ * same machine. Each test class is split into work items, one for each
+ * browser, and the workers pull work items over a local socket as soon as
+ * they are idle so that a worker that draws short test classes is not left
+ * waiting for one that draws long test classes.
+ * <p/>
+ * When there are no work items left to hand out an idle worker is given a
+ * copy of the work item that has been running the longest. The results of
+ * whichever copy finishes first are kept. The results of all the work items
+ * are merged into a single report, {@code results.csv}, in the report
+ * directory along with the name of the worker that ran them.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public class SeleniumCoordinator {
+
+    /**
+     * Sent by a worker to request the next work item.
+     */
+    static final String NEXT = "next";
+
+    /**
+     * Used to log the progress of the test run.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SeleniumCoordinator.class);
+
+    /**
+     * The name of the report file.
+     */
+    private static final String REPORT_FILE = "results.csv";
+
+    /**
+     * The heading of the report file.
+     */
+    private static final String REPORT_HEADING = "Class,Browser,Worker,Test,Result,Duration (ms),Message\n";
+
+    /**
+     * The maximum number of workers that run copies of the same work item.
+     */
+    private static final int MAX_COPIES = 2;
+
+    /**
+     * The port on which the coordinator listens.
+     */
+    private final int port;
+
+    /**
+     * The directory where the report is written.
+     */
+    private final File reportDirectory;
+
+    /**
+     * All the work items.
+     */
+    private final List<WorkItem> items = new ArrayList<WorkItem>();
+
+    /**
+     * The work items that have not been handed out.
+     */
+    private final LinkedList<WorkItem> pending = new LinkedList<WorkItem>();
+
+    /**
+     * The number of work items that have not been completed.
+     */
+    private int remaining;
+
+    /**
+     * The server socket or {@code null} if the coordinator has not been
+     * started.
+     */
+    private ServerSocket serverSocket;
+
+    /**
+     * Construct a coordinator that will hand out a work item for each browser
+     * of each test class.
+     *
+     * @param port       The port number or zero to use any free port.
+     * @param directory  The directory where the report is written.
+     * @param classNames The names of the test classes.
+     * @throws InitializationError If a test class could not be loaded or its
+     *                             test runners could not be initialised.
+     */
+    public SeleniumCoordinator(final int port, final File directory, final Collection<String> classNames)
+            throws InitializationError {
+        this.port = port;
+        reportDirectory = directory;
+        for (final String className : classNames) {
+            final Class<?> klass;
+            try {
+                klass = Class.forName(className);
+            } catch (final ClassNotFoundException e) {
+                throw new InitializationError(e);
+            }
+            final List<Runner> runners = SeleniumJUnit4ClassRunner.buildRunners(klass);
+            for (int i = 0; i < runners.size(); ++i) {
+                final String browser = ((AbstractSeleniumJUnit4ClassRunner<?, ?>)runners.get(i)).getBrowser();
+                items.add(new WorkItem(className, i, browser));
+            }
+        }
+        pending.addAll(items);
+        remaining = items.size();
+    }
+
+    /**
+     * Coordinate the test classes named on the command line and exit with a
+     * non-zero status if any tests failed. The port defaults to the value of
+     * the {@link Constants#COORDINATOR_PORT_PROPERTY} system property or
+     * {@link Constants#DEFAULT_COORDINATOR_PORT} and the report directory to
+     * the value of the {@link Constants#COORDINATOR_REPORT_PROPERTY} system
+     * property or {@link Constants#DEFAULT_COORDINATOR_REPORT}.
+     *
+     * @param args The names of the test classes.
+     * @throws Exception If the coordinator could not be started.
+     */
+    public static void main(final String[] args) throws Exception {
+        final SeleniumCoordinator coordinator = new SeleniumCoordinator(
+                Integer.getInteger(Constants.COORDINATOR_PORT_PROPERTY, Constants.DEFAULT_COORDINATOR_PORT),
+                new File(System.getProperty(Constants.COORDINATOR_REPORT_PROPERTY,
+                        Constants.DEFAULT_COORDINATOR_REPORT)),
+                Arrays.asList(args));
+        coordinator.start();
+        System.exit(coordinator.await() ? 0 : 1);
+    }
+
+    /**
+     * Start listening for workers on a background thread.
+     *
+     * @throws IOException If the coordinator could not listen on the port.
+     */
+    public synchronized void start() throws IOException {
+        serverSocket = new ServerSocket(port, 0, InetAddress.getByName(null));
+        final ServerSocket listener = serverSocket;
+        final Thread thread = new Thread("selenium-coordinator") {
+            @Override
+            public void run() {
+                accept(listener);
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.info("Coordinating {} work items on port {}", items.size(), listener.getLocalPort());
+    }
+
+    /**
+     * Get the port on which the coordinator is listening.
+     *
+     * @return The port number.
+     */
+    public synchronized int getPort() {
+        if (serverSocket == null) {
+            return port;
+        }
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Wait until all the work items have been completed, stop listening for
+     * workers and write the report.
+     *
+     * @return {@code true} if all the tests passed.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public boolean await() throws InterruptedException {
+        synchronized (this) {
+            while (remaining > 0) {
+                wait();
+            }
+            try {
+                serverSocket.close();
+            } catch (final IOException e) {
+                LOGGER.debug("Error closing coordinator socket", e);
+            }
+        }
+        return report();
+    }
+
+    /**
+     * Accept worker connections until the server socket is closed and handle
+     * each worker on its own thread.
+     *
+     * @param listener The server socket.
+     */
+    private void accept(final ServerSocket listener) {
+        while (!listener.isClosed()) {
+            try {
+                final Socket socket = listener.accept();
+                final Thread thread = new Thread("selenium-coordinator-worker") {
+                    @Override
+                    public void run() {
+                        handle(socket);
+                    }
+                };
+                thread.setDaemon(true);
+                thread.start();
+            } catch (final IOException e) {
+                LOGGER.debug("Coordinator socket closed", e);
+            }
+        }
+    }
+
+    /**
+     * Hand out work items to a worker and collect the results until there is
+     * no work left or the worker disconnects. The worker sends its name when
+     * it connects. If the worker disconnects while
+     * running a work item the work item is handed out again.
+     *
+     * @param socket The worker connection.
+     */
+    private void handle(final Socket socket) {
+        WorkItem item = null;
+        try {
+            try {
+                final DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                final DataOutputStream output = new DataOutputStream(
+                        new BufferedOutputStream(socket.getOutputStream()));
+                final String worker = input.readUTF();
+                while (NEXT.equals(input.readUTF())) {
+                    item = next();
+                    if (item == null) {
+                        output.writeBoolean(false);
+                        output.flush();
+                        break;
+                    }
+                    output.writeBoolean(true);
+                    output.writeUTF(item.className);
+                    output.writeInt(item.index);
+                    output.flush();
+                    complete(item, worker, collect(input));
+                    item = null;
+                }
+            } finally {
+                socket.close();
+            }
+        } catch (final Exception e) {
+            LOGGER.warn("Lost connection to worker", e);
+        }
+        if (item != null) {
+            abandon(item);
+        }
+    }
+
+    /**
+     * Get the next work item. If there are no work items left to hand out a
+     * copy of the work item that has been running the longest is handed out
+     * and if that is not possible the worker waits until a work item is
+     * handed back or all the work items have been completed.
+     *
+     * @return The work item or {@code null} if all the work items have been
+     *         completed.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private synchronized WorkItem next() throws InterruptedException {
+        while (remaining > 0) {
+            WorkItem item = pending.poll();
+            if (item == null) {
+                for (final WorkItem running : items) {
+                    if (!running.completed && running.copies > 0 && running.copies < MAX_COPIES
+                            && (item == null || running.started < item.started)) {
+                        item = running;
+                    }
+                }
+                if (item != null) {
+                    LOGGER.info("Sharing out straggler {}", item);
+                }
+            }
+            if (item != null) {
+                if (item.copies++ == 0 && item.started == 0) {
+                    item.started = System.currentTimeMillis();
+                }
+                return item;
+            }
+            wait();
+        }
+        return null;
+    }
+
+    /**
+     * Record the results of a work item if it is the first copy of the work
+     * item to finish.
+     *
+     * @param item    The work item.
+     * @param worker  The name of the worker that ran the work item.
+     * @param results The results.
+     */
+    private synchronized void complete(final WorkItem item, final String worker,
+                                       final Collection<TestResult> results) {
+        item.copies--;
+        if (!item.completed) {
+            item.completed = true;
+            item.worker = worker;
+            item.results = results;
+            --remaining;
+            LOGGER.info("Completed {} in {} ms, {} work items remaining",
+                    new Object[]{item, System.currentTimeMillis() - item.started, remaining});
+            notifyAll();
+        }
+    }
+
+    /**
+     * Hand a work item out again because the worker running it disconnected.
+     *
+     * @param item The work item.
+     */
+    private synchronized void abandon(final WorkItem item) {
+        item.copies--;
+        if (!item.completed && item.copies == 0) {
+            pending.addFirst(item);
+            notifyAll();
+        }
+    }
+
+    /**
+     * Read the test events for a work item until the end of the results.
+     *
+     * @param input The stream connected to the worker.
+     * @return The results for each test.
+     * @throws Exception If the test events could not be read.
+     */
+    private Collection<TestResult> collect(final DataInputStream input) throws Exception {
+        final Map<String, TestResult> results = new LinkedHashMap<String, TestResult>();
+        for (String event = input.readUTF(); !ResultStreamer.DONE.equals(event); event = input.readUTF()) {
+            final String name = ResultStreamer.readString(input);
+            final Throwable exception = ResultStreamer.readThrowable(input);
+            TestResult result = results.get(name);
+            if (result == null) {
+                result = new TestResult(name);
+                results.put(name, result);
+            }
+            if (ResultStreamer.STARTED.equals(event)) {
+                result.started = System.currentTimeMillis();
+            } else if (ResultStreamer.FINISHED.equals(event)) {
+                result.duration = System.currentTimeMillis() - result.started;
+            } else if (ResultStreamer.FAILED.equals(event)) {
+                result.outcome = "failed";
+                result.message = String.valueOf(exception);
+            } else if (ResultStreamer.ASSUMPTION_FAILED.equals(event)) {
+                result.outcome = "skipped";
+                result.message = String.valueOf(exception);
+            } else if (ResultStreamer.IGNORED.equals(event)) {
+                result.outcome = "ignored";
+            }
+        }
+        return results.values();
+    }
+
+    /**
+     * Write the merged results to the report file.
+     *
+     * @return {@code true} if all the tests passed.
+     */
+    private boolean report() {
+        final StringBuilder report = new StringBuilder(REPORT_HEADING);
+        int tests = 0;
+        int failures = 0;
+        for (final WorkItem item : items) {
+            for (final TestResult result : item.results) {
+                ++tests;
+                if ("failed".equals(result.outcome)) {
+                    ++failures;
+                }
+                report.append(item.className).append(',')
+                        .append(StringEscapeUtils.escapeCsv(item.browser)).append(',')
+                        .append(StringEscapeUtils.escapeCsv(item.worker)).append(',')
+                        .append(StringEscapeUtils.escapeCsv(result.name)).append(',')
+                        .append(result.outcome).append(',')
+                        .append(result.duration).append(',')
+                        .append(StringEscapeUtils.escapeCsv(StringUtils.defaultString(result.message))).append('\n');
+            }
+        }
+        LOGGER.info("Ran {} tests in {} work items, {} failures", new Object[]{tests, items.size(), failures});
+        try {
+            FileUtils.forceMkdir(reportDirectory);
+            FileUtils.writeStringToFile(new File(reportDirectory, REPORT_FILE), report.toString(), "UTF-8");
+        } catch (final IOException e) {
+            LOGGER.error("Error writing test results to " + reportDirectory, e);
+        }
+        return failures == 0;
+    }
+
+    /**
+     * A test class and browser to be run by a worker.
+     */
+    private static final class WorkItem {
+
+        /**
+         * The name of the test class.
+         */
+        private final String className;
+
+        /**
+         * The index of the browser.
+         */
+        private final int index;
+
+        /**
+         * The browser name.
+         */
+        private final String browser;
+
+        /**
+         * The number of workers running copies of this work item.
+         */
+        private int copies;
+
+        /**
+         * The time the work item was first handed out.
+         */
+        private long started;
+
+        /**
+         * {@code true} if a copy of the work item has finished.
+         */
+        private boolean completed;
+
+        /**
+         * The name of the worker that ran the first copy to finish.
+         */
+        private String worker;
+
+        /**
+         * The results from the first copy to finish.
+         */
+        private Collection<TestResult> results;
+
+        /**
+         * Construct a work item.
+         *
+         * @param name        The name of the test class.
+         * @param position    The index of the browser.
+         * @param browserName The browser name.
+         */
+        WorkItem(final String name, final int position, final String browserName) {
+            className = name;
+            index = position;
+            browser = browserName;
+        }
+
+        @Override
+        public String toString() {
+            return className + " [" + browser + "]";
+        }
+    }
+
+    /**
+     * The result of a single test.
+     */
+    private static final class TestResult {
+
+        /**
+         * The display name of the test.
+         */
+        private final String name;
+
+        /**
+         * The outcome of the test.
+         */
+        private String outcome = "passed";
+
+        /**
+         * The time the test started.
+         */
+        private long started;
+
+        /**
+         * The number of milliseconds the test took.
+         */
+        private long duration;
+
+        /**
+         * The failure message or {@code null}.
+         */
+        private String message;
+
+        /**
+         * Construct a test result.
+         *
+         * @param testName The display name of the test.
+         */
+        TestResult(final String testName) {
+            name = testName;
+        }
+    }
+}
@@ -0,0 +1,568 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner.AbstractSeleniumJUnit4ClassRunner;
+import org.apache.commons.io.FileUtils;
+import org.junit.runner.Description;
+import org.junit.runner.Runner;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.manipulation.NoTestsRemainException;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunNotifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A long-lived test daemon that keeps the browser sessions and the JVM warm
+ * between test runs. When the {@link Constants#DAEMON_PORT_PROPERTY} system
+ * property is set {@link SeleniumJUnit4ClassRunner} sends the test class to
+ * the daemon listening on that port of the local host and the results are
+ * streamed back. This avoids the JVM start up and browser launch each time a
+ * test is run from the IDE.
+ * <p/>
+ * The test classes are loaded from the class path of the client. Classes in
+ * class path directories are reloaded for each run so that the changes made
+ * since the last run are picked up while classes in JAR files are shared with
+ * the daemon. A browser session is kept for each browser and combination of
+ * configuration annotations and the cookies are deleted before each run.
+ * Test classes are run one at a time.
+ * <p/>
+ * When it starts the daemon writes a random token to a file in the
+ * {@link Constants#DAEMON_TOKEN_DIRECTORY} directory of the user's home
+ * directory that only the user can read. Test runs that do not send the
+ * token are rejected so that other users of the machine cannot run code in
+ * the daemon.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public class SeleniumDaemon {
+
+    /**
+     * Used to log the test runs.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SeleniumDaemon.class);
+
+    /**
+     * The packages whose classes are always loaded by the daemon's class
+     * loader because the daemon depends on them.
+     */
+    private static final Set<String> SHARED_PACKAGES = new HashSet<String>(Arrays.asList(
+            "com.btmatthews.selenium.junit4.runner",
+            "com.btmatthews.selenium.junit4.rule",
+            "com.btmatthews.selenium.junit4.support"));
+
+    /**
+     * The number of random bytes in the token.
+     */
+    private static final int TOKEN_BYTES = 32;
+
+    /**
+     * The number of milliseconds a client is given to send a test run
+     * request.
+     */
+    private static final int REQUEST_TIMEOUT = 10000;
+
+    /**
+     * The largest number of class path entries or tests accepted in a test
+     * run request.
+     */
+    private static final int MAX_ENTRIES = 65536;
+
+    /**
+     * The factories that keep a browser session warm for each browser and
+     * combination of configuration annotations.
+     */
+    private final Map<String, SharedSessionFactory<?>> factories = new HashMap<String, SharedSessionFactory<?>>();
+
+    /**
+     * The port on which the daemon listens.
+     */
+    private final int port;
+
+    /**
+     * The server socket or {@code null} if the daemon has not been started.
+     */
+    private ServerSocket serverSocket;
+
+    /**
+     * The token that clients must send or {@code null} if the daemon has not
+     * been started.
+     */
+    private byte[] token;
+
+    /**
+     * The file containing the token or {@code null} if the daemon has not
+     * been started.
+     */
+    private File tokenFile;
+
+    /**
+     * Construct a daemon that will listen on {@code port}.
+     *
+     * @param port The port number or zero to use any free port.
+     */
+    public SeleniumDaemon(final int port) {
+        this.port = port;
+    }
+
+    /**
+     * Start a daemon and run until the JVM is stopped. The port number can be
+     * passed as the only argument and otherwise defaults to the value of the
+     * {@link Constants#DAEMON_PORT_PROPERTY} system property or
+     * {@link Constants#DEFAULT_DAEMON_PORT}.
+     *
+     * @param args The command line arguments.
+     * @throws IOException If the daemon could not listen on the port.
+     */
+    public static void main(final String[] args) throws IOException {
+        final int port;
+        if (args.length > 0) {
+            port = Integer.parseInt(args[0]);
+        } else {
+            port = Integer.getInteger(Constants.DAEMON_PORT_PROPERTY, Constants.DEFAULT_DAEMON_PORT);
+        }
+        final SeleniumDaemon daemon = new SeleniumDaemon(port);
+        Runtime.getRuntime().addShutdownHook(new Thread("selenium-daemon-shutdown") {
+            @Override
+            public void run() {
+                daemon.close();
+            }
+        });
+        daemon.start();
+    }
+
+    /**
+     * Start listening for test runs on a background thread and write the
+     * token that clients must send.
+     *
+     * @throws IOException If the daemon could not listen on the port or the
+     *                     token could not be written.
+     */
+    public synchronized void start() throws IOException {
+        serverSocket = new ServerSocket(port, 0, InetAddress.getByName(null));
+        final ServerSocket listener = serverSocket;
+        final byte[] random = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(random);
+        final StringBuilder hex = new StringBuilder();
+        for (final byte value : random) {
+            hex.append(String.format("%02x", value & 0xff));
+        }
+        token = hex.toString().getBytes("UTF-8");
+        tokenFile = getTokenFile(listener.getLocalPort());
+        writeToken(tokenFile, token);
+        final Thread thread = new Thread("selenium-daemon") {
+            @Override
+            public void run() {
+                accept(listener);
+            }
+        };
+        thread.start();
+        LOGGER.info("Selenium daemon listening on port {}", listener.getLocalPort());
+    }
+
+    /**
+     * Get the port on which the daemon is listening.
+     *
+     * @return The port number.
+     */
+    public synchronized int getPort() {
+        if (serverSocket == null) {
+            return port;
+        }
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stop listening for test runs and stop the warm browser sessions.
+     */
+    public void close() {
+        synchronized (this) {
+            if (serverSocket != null) {
+                try {
+                    serverSocket.close();
+                } catch (final IOException e) {
+                    LOGGER.debug("Error closing daemon socket", e);
+                }
+                serverSocket = null;
+            }
+            if (tokenFile != null) {
+                if (!tokenFile.delete()) {
+                    LOGGER.debug("Could not delete token file {}", tokenFile);
+                }
+                tokenFile = null;
+            }
+        }
+        synchronized (factories) {
+            for (final SharedSessionFactory<?> factory : factories.values()) {
+                try {
+                    factory.close();
+                } catch (final Exception e) {
+                    LOGGER.warn("Error stopping " + factory.getBrowser() + " session", e);
+                }
+            }
+            factories.clear();
+        }
+    }
+
+    /**
+     * Get the file in which the daemon listening on a port writes its token.
+     *
+     * @param port The port on which the daemon is listening.
+     * @return The token file.
+     */
+    static File getTokenFile(final int port) {
+        return new File(new File(System.getProperty("user.home"), Constants.DAEMON_TOKEN_DIRECTORY),
+                "daemon-" + port + ".token");
+    }
+
+    /**
+     * Write the token to a file that only the user can read. The file and its
+     * directory are restricted to the user before the token is written so
+     * that the token is never readable by other users.
+     *
+     * @param file  The token file.
+     * @param value The token.
+     * @throws IOException If the token could not be written.
+     */
+    private static void writeToken(final File file, final byte[] value) throws IOException {
+        final File directory = file.getParentFile();
+        if (!directory.isDirectory()) {
+            if (!directory.mkdirs()) {
+                throw new IOException("Could not create token directory " + directory);
+            }
+            restrict(directory);
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Could not delete token file " + file);
+        }
+        if (!file.createNewFile()) {
+            throw new IOException("Could not create token file " + file);
+        }
+        restrict(file);
+        FileUtils.writeByteArrayToFile(file, value);
+    }
+
+    /**
+     * Restrict access to a file or directory to the user.
+     *
+     * @param file The file or directory.
+     * @throws IOException If access could not be restricted.
+     */
+    private static void restrict(final File file) throws IOException {
+        final boolean restricted = file.setReadable(false, false) && file.setReadable(true, true)
+                && file.setWritable(false, false) && file.setWritable(true, true)
+                && (!file.isDirectory() || file.setExecutable(false, false) && file.setExecutable(true, true));
+        if (!restricted) {
+            throw new IOException("Could not restrict access to " + file);
+        }
+    }
+
+    /**
+     * Accept and handle the test runs one at a time until the server socket
+     * is closed.
+     *
+     * @param listener The server socket.
+     */
+    private void accept(final ServerSocket listener) {
+        while (!listener.isClosed()) {
+            try {
+                final Socket socket = listener.accept();
+                try {
+                    handle(socket);
+                } finally {
+                    socket.close();
+                }
+            } catch (final SocketException e) {
+                LOGGER.debug("Daemon socket closed", e);
+            } catch (final Exception e) {
+                LOGGER.warn("Error handling test run", e);
+            }
+        }
+    }
+
+    /**
+     * Read a test run request, run the tests and stream the results back to
+     * the client. The request is the token, the name of the test class, the
+     * class path entries and the display names of the tests. Requests with
+     * the wrong token are rejected.
+     *
+     * @param socket The client connection.
+     * @throws Exception If there was an error reading the request or writing
+     *                   the results.
+     */
+    private void handle(final Socket socket) throws Exception {
+        socket.setSoTimeout(REQUEST_TIMEOUT);
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        final byte[] expected;
+        synchronized (this) {
+            expected = token;
+        }
+        if (!MessageDigest.isEqual(expected, input.readUTF().getBytes("UTF-8"))) {
+            LOGGER.warn("Rejected test run with an invalid token from {}", socket.getRemoteSocketAddress());
+            return;
+        }
+        final String className = ResultStreamer.readString(input);
+        final String[] classPath = readStrings(input).toArray(new String[0]);
+        final Set<String> tests = new HashSet<String>(readStrings(input));
+        socket.setSoTimeout(0);
+        final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        final long start = System.currentTimeMillis();
+        final ResultStreamer streamer = new ResultStreamer(output);
+        final RunNotifier notifier = new RunNotifier();
+        notifier.addListener(streamer);
+        final TestClassLoader classLoader = new TestClassLoader(classPath);
+        try {
+            final Class<?> klass = Class.forName(className, false, classLoader);
+            for (final Runner runner : SeleniumJUnit4ClassRunner.buildRunners(klass)) {
+                final Runner shared = share(klass, (AbstractSeleniumJUnit4ClassRunner<?, ?>)runner);
+                try {
+                    new TestFilter(tests).apply(shared);
+                } catch (final NoTestsRemainException e) {
+                    continue;
+                }
+                shared.run(notifier);
+            }
+        } catch (final Throwable e) {
+            notifier.fireTestFailure(new Failure(Description.createSuiteDescription(className), e));
+        } finally {
+            classLoader.dispose();
+        }
+        streamer.done();
+        LOGGER.info("Ran {} in {} ms", className, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Read a list of strings written as the number of strings followed by
+     * the strings.
+     *
+     * @param input The stream connected to the client.
+     * @return The strings.
+     * @throws IOException If the strings could not be read.
+     */
+    private static List<String> readStrings(final DataInputStream input) throws IOException {
+        final int count = input.readInt();
+        if (count < 0 || count > MAX_ENTRIES) {
+            throw new IOException("Invalid number of entries " + count);
+        }
+        final List<String> strings = new ArrayList<String>(count);
+        for (int i = 0; i < count; ++i) {
+            strings.add(ResultStreamer.readString(input));
+        }
+        return strings;
+    }
+
+    /**
+     * Copy a test runner so that it uses the warm browser session for its
+     * browser and configuration, creating the session on first use.
+     *
+     * @param klass  The test class.
+     * @param runner The test runner.
+     * @param <T>    The type of Selenium object.
+     * @return The copied test runner.
+     * @throws Exception If there was an error copying the test runner.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Runner share(final Class<?> klass, final AbstractSeleniumJUnit4ClassRunner<T, ?> runner)
+            throws Exception {
+        final String key = SeleniumSuite.getSession(klass, runner);
+        SharedSessionFactory<T> factory;
+        synchronized (factories) {
+            factory = (SharedSessionFactory<T>)factories.get(key);
+            if (factory == null) {
+                factory = new SharedSessionFactory<T>(runner.getSeleniumFactory());
+                factories.put(key, factory);
+            }
+        }
+        return runner.copy(factory);
+    }
+
+    /**
+     * Selects the tests requested by the client.
+     */
+    private static final class TestFilter extends Filter {
+
+        /**
+         * The display names of the tests requested by the client.
+         */
+        private final Set<String> tests;
+
+        /**
+         * Construct the filter.
+         *
+         * @param testNames The display names of the tests requested by the
+         *                  client.
+         */
+        TestFilter(final Set<String> testNames) {
+            tests = testNames;
+        }
+
+        @Override
+        public boolean shouldRun(final Description description) {
+            if (description.isTest()) {
+                return tests.contains(description.getDisplayName());
+            }
+            for (final Description child : description.getChildren()) {
+                if (shouldRun(child)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String describe() {
+            return "tests requested by client";
+        }
+    }
+
+    /**
+     * Loads the test classes from the class path of the client. Classes in
+     * class path directories are loaded by this class loader so that they are
+     * reloaded for each run. Other classes are loaded by the daemon's class
+     * loader if possible so that they are shared.
+     */
+    private static final class TestClassLoader extends URLClassLoader {
+
+        /**
+         * The {@code URLClassLoader.close()} method or {@code null} if the JVM
+         * is older than Java 7.
+         */
+        private static final Method CLOSE = getCloseMethod();
+
+        /**
+         * Used to find classes in the class path directories.
+         */
+        private final URLClassLoader directories;
+
+        /**
+         * Construct the class loader.
+         *
+         * @param classPath The class path of the client.
+         * @throws MalformedURLException If a class path entry is invalid.
+         */
+        TestClassLoader(final String[] classPath) throws MalformedURLException {
+            super(toURLs(classPath, false), SeleniumDaemon.class.getClassLoader());
+            directories = new URLClassLoader(toURLs(classPath, true), null);
+        }
+
+        /**
+         * Close this class loader and the one used to find classes in the
+         * class path directories so that the files they opened are released.
+         * Class loaders can only be closed on Java 7 or later.
+         */
+        void dispose() {
+            close(this);
+            close(directories);
+        }
+
+        @Override
+        protected synchronized Class<?> loadClass(final String name, final boolean resolve)
+                throws ClassNotFoundException {
+            Class<?> loaded = findLoadedClass(name);
+            if (loaded == null) {
+                final int lastDot = name.lastIndexOf('.');
+                final String packageName = lastDot < 0 ? "" : name.substring(0, lastDot);
+                if (!SHARED_PACKAGES.contains(packageName)
+                        && directories.findResource(name.replace('.', '/') + ".class") != null) {
+                    loaded = findClass(name);
+                } else {
+                    return super.loadClass(name, resolve);
+                }
+            }
+            if (resolve) {
+                resolveClass(loaded);
+            }
+            return loaded;
+        }
+
+        /**
+         * Close a class loader if the JVM supports it.
+         *
+         * @param loader The class loader.
+         */
+        private static void close(final URLClassLoader loader) {
+            if (CLOSE != null) {
+                try {
+                    CLOSE.invoke(loader);
+                } catch (final Exception e) {
+                    LOGGER.debug("Could not close class loader", e);
+                }
+            }
+        }
+
+        /**
+         * Look up the {@code URLClassLoader.close()} method.
+         *
+         * @return The method or {@code null} if the JVM does not support it.
+         */
+        private static Method getCloseMethod() {
+            try {
+                return URLClassLoader.class.getMethod("close");
+            } catch (final NoSuchMethodException e) {
+                LOGGER.debug("Closing class loaders requires Java 7 or later", e);
+                return null;
+            }
+        }
+
+        /**
+         * Convert the class path entries to URLs.
+         *
+         * @param classPath       The class path entries.
+         * @param directoriesOnly {@code true} if only directories are to be
+         *                        converted.
+         * @return The URLs.
+         * @throws MalformedURLException If a class path entry is invalid.
+         */
+        private static URL[] toURLs(final String[] classPath, final boolean directoriesOnly)
+                throws MalformedURLException {
+            final List<URL> urls = new ArrayList<URL>();
+            for (final String entry : classPath) {
+                final File file = new File(entry);
+                if (!directoriesOnly || file.isDirectory()) {
+                    urls.add(file.toURI().toURL());
+                }
+            }
+            return urls.toArray(new URL[urls.size()]);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import java.lang.annotation.*;
+
+/**
+ * Used to annotate {@link String} fields in test cases and method rules that
+ * should be injected by the {@link SeleniumJUnit4ClassRunner} with the base URL
+ * of the embedded fixture web server. The fixture web server serves the static
+ * content found at {@link #value()} and is started once per JVM on a free port
+ * of the loopback interface.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.CONSTRUCTOR, ElementType.FIELD, ElementType.METHOD})
+public @interface SeleniumFixture {
+
+    /**
+     * The location of the static content. Locations prefixed with
+     * {@literal classpath:} are resolved against the class path, otherwise the
+     * location is a directory. The default value is
+     * {@link Constants#DEFAULT_FIXTURE_RESOURCES}.
+     */
+    String value() default Constants.DEFAULT_FIXTURE_RESOURCES;
+}
@@ -25,14 +25,19 @@ import org.junit.runner.notification.RunNotifier;
 import org.junit.runners.BlockJUnit4ClassRunner;
 import org.junit.runners.Suite;
 import org.junit.runners.model.FrameworkField;
+import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.RunnerScheduler;
+import org.junit.runners.model.Statement;
 import org.junit.runners.model.TestClass;
 import org.openqa.selenium.WebDriver;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A test runner that runs a test case as a suite of tests.
@@ -56,22 +61,47 @@ public class SeleniumJUnit4ClassRunner extends Suite {
 
     /**
      * Build the test runners for each browser. The test class must have been
-     * annotated with {@link ServerConfiguration} or
-     * {@link WebDriverConfiguration} to provide the configuration.
+     * annotated with {@link ServerConfiguration}, {@link WebDriverConfiguration},
+     * {@link WrappedDriverConfiguration} or {@link RemoteDriverConfiguration}
+     * to provide the configuration. The configuration is merged with the
+     * overrides supplied by the build using {@link MatrixOverride} and the
+     * browser matrix is reduced if {@link MatrixRotation} is enabled. The
+     * test runners for each browser share the data sets from the
+     * {@link SeleniumParameters} method.
      *
      * @param klass The test class.
      * @return A list of {@link Runner} objects.
      * @throws InitializationError If there was an error initialising the test runners.
      */
-    private static List<Runner> buildRunners(final Class<?> klass)
+    static List<Runner> buildRunners(final Class<?> klass)
+            throws InitializationError {
+        final Map<Class<?>, List<Object[]>> previous = AbstractSeleniumJUnit4ClassRunner
+                .shareDataSets(new HashMap<Class<?>, List<Object[]>>());
+        try {
+            return MatrixRotation.apply(klass, buildBrowserRunners(klass));
+        } finally {
+            AbstractSeleniumJUnit4ClassRunner.shareDataSets(previous);
+        }
+    }
+
+    /**
+     * Build the test runners for each browser from the configuration.
+     *
+     * @param klass The test class.
+     * @return A list of {@link Runner} objects.
+     * @throws InitializationError If there was an error initialising the test runners.
+     */
+    private static List<Runner> buildBrowserRunners(final Class<?> klass)
             throws InitializationError {
         final List<Runner> runners;
-        final ServerConfiguration seleniumServerConfiguration = klass
-                .getAnnotation(ServerConfiguration.class);
+        final ServerConfiguration seleniumServerConfiguration = MatrixOverride.configuration(klass
+                .getAnnotation(ServerConfiguration.class), ServerConfiguration.class);
         final WebDriverConfiguration webDriverConfiguration = klass
                 .getAnnotation(WebDriverConfiguration.class);
-        final WrappedDriverConfiguration wrappedDriverConfiguration = klass
-                .getAnnotation(WrappedDriverConfiguration.class);
+        final WrappedDriverConfiguration wrappedDriverConfiguration = MatrixOverride.configuration(klass
+                .getAnnotation(WrappedDriverConfiguration.class), WrappedDriverConfiguration.class);
+        final RemoteDriverConfiguration remoteDriverConfiguration = klass
+                .getAnnotation(RemoteDriverConfiguration.class);
         if (seleniumServerConfiguration != null) {
             runners = buildSeleniumServerRunners(seleniumServerConfiguration,
                     klass);
@@ -80,13 +110,93 @@ public class SeleniumJUnit4ClassRunner extends Suite {
         } else if (wrappedDriverConfiguration != null) {
             runners = buildWrappedDriverRunners(wrappedDriverConfiguration,
                     klass);
+        } else if (remoteDriverConfiguration != null) {
+            runners = buildRemoteDriverRunners(remoteDriverConfiguration,
+                    klass);
         } else {
             throw new InitializationError(
-                    "Annotate test class with either ServerConfiguration, WebDriverConfiguration or WrappedDriverConfiguration");
+                    "Annotate test class with either ServerConfiguration, WebDriverConfiguration, WrappedDriverConfiguration"
+                            + " or RemoteDriverConfiguration");
         }
         return runners;
     }
 
+    /**
+     * Run the tests. If the {@link Constants#DAEMON_PORT_PROPERTY} system
+     * property is set and a {@link SeleniumDaemon} is listening on that port
+     * the tests are run by the daemon. Test classes annotated with
+     * {@link LoadTest} or {@link SharedBrowser} are always run locally.
+     *
+     * @param notifier Used to report the test results.
+     */
+    @Override
+    public void run(final RunNotifier notifier) {
+        final Class<?> klass = getTestClass().getJavaClass();
+        final Integer daemonPort = Integer.getInteger(Constants.DAEMON_PORT_PROPERTY);
+        if (daemonPort == null || klass.isAnnotationPresent(LoadTest.class)
+                || klass.isAnnotationPresent(SharedBrowser.class)
+                || !DaemonClient.run(daemonPort, klass, getDescription(), notifier)) {
+            super.run(notifier);
+        }
+    }
+
+    /**
+     * Run the tests for a browser. If the test class is annotated with
+     * {@link LoadTest} the tests are run repeatedly by concurrent virtual
+     * users to generate load. If the test class is annotated with
+     * {@link SharedBrowser} the tests are run concurrently in several windows
+     * of a single browser session. If the test impact cache is enabled the
+     * tests are skipped when they are unchanged since they last passed.
+     *
+     * @param runner   The test runner for the browser.
+     * @param notifier Used to report the test results.
+     * @see ImpactCache
+     */
+    @Override
+    protected void runChild(final Runner runner, final RunNotifier notifier) {
+        final LoadTest loadTest = getTestClass().getJavaClass().getAnnotation(LoadTest.class);
+        final SharedBrowser sharedBrowser = getTestClass().getJavaClass().getAnnotation(SharedBrowser.class);
+        if (loadTest != null && runner instanceof AbstractSeleniumJUnit4ClassRunner) {
+            LoadGenerator.run((AbstractSeleniumJUnit4ClassRunner<?, ?>)runner, loadTest, notifier);
+        } else if (ImpactCache.isEnabled() && runner instanceof AbstractSeleniumJUnit4ClassRunner) {
+            ImpactCache.run((AbstractSeleniumJUnit4ClassRunner<?, ?>)runner, notifier, new Runnable() {
+                public void run() {
+                    runTests(runner, sharedBrowser, notifier);
+                }
+            });
+        } else {
+            runTests(runner, sharedBrowser, notifier);
+        }
+    }
+
+    /**
+     * Run the tests for a browser either sequentially or, if the test class
+     * is annotated with {@link SharedBrowser}, concurrently in several windows
+     * of a single browser session.
+     *
+     * @param runner        The test runner for the browser.
+     * @param sharedBrowser The {@link SharedBrowser} annotation or {@code null}.
+     * @param notifier      Used to report the test results.
+     */
+    private void runTests(final Runner runner, final SharedBrowser sharedBrowser, final RunNotifier notifier) {
+        if (sharedBrowser != null && runner instanceof SeleniumWebDriverJUnit4ClassRunner) {
+            SharedBrowserRunner.run((SeleniumWebDriverJUnit4ClassRunner)runner, sharedBrowser, notifier);
+        } else {
+            super.runChild(runner, notifier);
+        }
+    }
+
+    /**
+     * Run the tests for one browser. This is used by the
+     * {@link SeleniumWorker} to run a work item.
+     *
+     * @param index    The index of the browser.
+     * @param notifier Used to report the test results.
+     */
+    void runBrowser(final int index, final RunNotifier notifier) {
+        runChild(getChildren().get(index), notifier);
+    }
+
     /**
      * Build the test runners for each browser for test cases that were
      * annotated with {@link WebDriverConfiguration} to provide the
@@ -102,12 +212,13 @@ public class SeleniumJUnit4ClassRunner extends Suite {
             final WebDriverConfiguration configuration, final Class<?> klass)
             throws InitializationError {
         final List<Runner> runners = new ArrayList<Runner>();
+        final HtmlUnitProfile profile = klass.getAnnotation(HtmlUnitProfile.class);
         try {
-            for (final Class<? extends WebDriver> webDriverClass : configuration
-                    .baseDrivers()) {
-                final WebDriverFactory factory = new WebDriverFactory(webDriverClass);
-                runners.add(new SeleniumWebDriverJUnit4ClassRunner(factory,
-                        klass));
+            for (final Class<? extends WebDriver> webDriverClass : MatrixOverride
+                    .drivers(configuration.baseDrivers())) {
+                final WebDriverFactory factory = new WebDriverFactory(webDriverClass, profile);
+                runners.add(new SeleniumWebDriverJUnit4ClassRunner(
+                        decorate(factory), klass));
             }
         } catch (final Exception e) {
             throw new InitializationError(e);
@@ -130,12 +241,44 @@ public class SeleniumJUnit4ClassRunner extends Suite {
             final WrappedDriverConfiguration configuration, final Class<?> klass)
             throws InitializationError {
         final List<Runner> runners = new ArrayList<Runner>();
+        final HtmlUnitProfile profile = klass.getAnnotation(HtmlUnitProfile.class);
+        final HttpReplay replay = klass.getAnnotation(HttpReplay.class);
         try {
-            for (final Class<? extends WebDriver> webDriverClass : configuration
-                    .baseDrivers()) {
+            for (final Class<? extends WebDriver> webDriverClass : MatrixOverride
+                    .drivers(configuration.baseDrivers())) {
                 final WrappedDriverFactory factory = new WrappedDriverFactory(
-                        configuration, webDriverClass);
-                runners.add(new SeleniumServerJUnit4ClassRunner(factory, klass));
+                        configuration, webDriverClass, profile, replay);
+                runners.add(new SeleniumServerJUnit4ClassRunner(
+                        decorate(factory), klass));
+            }
+        } catch (final Exception e) {
+            throw new InitializationError(e);
+        }
+        return runners;
+    }
+
+    /**
+     * Build the test runners for each browser for test cases that were
+     * annotated with {@link RemoteDriverConfiguration} to provide the
+     * configuration. A test runner is created for each browser name specified
+     * by {@link RemoteDriverConfiguration#browserNames()}.
+     *
+     * @param configuration The {@link RemoteDriverConfiguration} annotation.
+     * @param klass         The test class.
+     * @return A list of {@link Runner} test runners.
+     * @throws InitializationError If there was an error initialising the test runners.
+     */
+    private static List<Runner> buildRemoteDriverRunners(
+            final RemoteDriverConfiguration configuration, final Class<?> klass)
+            throws InitializationError {
+        final List<Runner> runners = new ArrayList<Runner>();
+        try {
+            for (final String browserName : MatrixOverride.names(Constants.BROWSERS_NAMES_PREFIX,
+                    configuration.browserNames())) {
+                final RemoteDriverFactory factory = new RemoteDriverFactory(
+                        configuration, browserName);
+                runners.add(new SeleniumWebDriverJUnit4ClassRunner(
+                        decorate(factory), klass));
             }
         } catch (final Exception e) {
             throw new InitializationError(e);
@@ -158,12 +301,14 @@ public class SeleniumJUnit4ClassRunner extends Suite {
             final ServerConfiguration configuration, final Class<?> klass)
             throws InitializationError {
         final List<Runner> runners = new ArrayList<Runner>();
+        final HttpReplay replay = klass.getAnnotation(HttpReplay.class);
         try {
-            for (final String browserStartCommand : configuration
-                    .browserStartCommands()) {
+            for (final String browserStartCommand : MatrixOverride.names(Constants.BROWSERS_COMMANDS_PREFIX,
+                    configuration.browserStartCommands())) {
                 final ServerFactory factory = new ServerFactory(configuration,
-                        browserStartCommand);
-                runners.add(new SeleniumServerJUnit4ClassRunner(factory, klass));
+                        browserStartCommand, replay);
+                runners.add(new SeleniumServerJUnit4ClassRunner(
+                        decorate(factory), klass));
             }
         } catch (final Exception e) {
             throw new InitializationError(e);
@@ -171,6 +316,23 @@ public class SeleniumJUnit4ClassRunner extends Suite {
         return runners;
     }
 
+    /**
+     * Wrap a factory so that its sessions are admitted by the
+     * {@link SessionGovernor} and, if process tracking is enabled, the
+     * processes they spawn are tracked by the {@link ProcessRegistry}.
+     *
+     * @param factory The factory.
+     * @param <T>     The type of Selenium object.
+     * @return The wrapped factory.
+     */
+    private static <T> SeleniumFactory<T> decorate(final SeleniumFactory<T> factory) {
+        if (ProcessRegistry.isEnabled()) {
+            return new GovernedFactory<T>(new ProcessTrackingFactory<T>(factory));
+        } else {
+            return new GovernedFactory<T>(factory);
+        }
+    }
+
     /**
      * An abstract test runner that implements the
      * {@link Runner#run(RunNotifier)} and {@link org.junit.runners.ParentRunner<T>#createTest() ParentRunner<T>#createTest()}
@@ -190,11 +352,39 @@ public class SeleniumJUnit4ClassRunner extends Suite {
     abstract static class AbstractSeleniumJUnit4ClassRunner<T, A extends Annotation>
             extends BlockJUnit4ClassRunner {
 
+        /**
+         * The data set for the test object that is being created.
+         */
+        private static final ThreadLocal<Object[]> DATA_SET = new ThreadLocal<Object[]>();
+
+        /**
+         * The data sets, indexed by test class, that are shared by the test
+         * runners being constructed on this thread or {@code null} if the
+         * test runner being constructed does not share its data sets.
+         */
+        private static final ThreadLocal<Map<Class<?>, List<Object[]>>> SHARED_DATA_SETS =
+                new ThreadLocal<Map<Class<?>, List<Object[]>>>();
+
+        /**
+         * The data sets from the {@link SeleniumParameters} method or
+         * {@code null} if they have not been requested. This is not
+         * initialised because it is populated while the super-class
+         * constructor validates the test class.
+         */
+        private List<Object[]> dataSets;
+
         /**
          * The Selenium object.
          */
         private T selenium;
 
+        /**
+         * The Selenium object bound to the current thread, if any, which
+         * takes the place of {@link #selenium} for the tests run on that
+         * thread.
+         */
+        private final ThreadLocal<T> boundSelenium = new ThreadLocal<T>();
+
         /**
          * The factory used to create, start and stop the Selenium object.
          */
@@ -235,7 +425,7 @@ public class SeleniumJUnit4ClassRunner extends Suite {
                 try {
                     super.run(notifier);
                 } finally {
-                    seleniumFactory.stop(selenium);
+                    SessionReaper.stop(seleniumFactory, selenium);
                 }
             } catch (Throwable e) {
                 final Failure failure = new Failure(getDescription(), e);
@@ -245,23 +435,298 @@ public class SeleniumJUnit4ClassRunner extends Suite {
             }
         }
 
+        /**
+         * Run the tests repeatedly using a single Selenium object until the
+         * deadline has passed. This is used by each virtual user of a
+         * {@link LoadTest}. The class level fixtures are run once around all
+         * the iterations.
+         *
+         * @param notifier Used to report the test results.
+         * @param deadline The time after which no more iterations are started.
+         * @throws Exception If there was an error creating, starting or
+         *                   stopping the Selenium object.
+         */
+        void runRepeatedly(final RunNotifier notifier, final long deadline)
+                throws Exception {
+            selenium = seleniumFactory.create();
+            try {
+                seleniumFactory.start(selenium);
+                try {
+                    runScheduled(notifier, new RunnerScheduler() {
+                        private final List<Runnable> children =
+                                new ArrayList<Runnable>();
+
+                        public void schedule(final Runnable childStatement) {
+                            children.add(childStatement);
+                        }
+
+                        public void finished() {
+                            while (System.currentTimeMillis() < deadline) {
+                                for (final Runnable child : children) {
+                                    child.run();
+                                }
+                            }
+                        }
+                    });
+                } finally {
+                    SessionReaper.stop(seleniumFactory, selenium);
+                }
+            } finally {
+                selenium = null;
+            }
+        }
+
+        /**
+         * Run the tests using a scheduler that runs each test method on a
+         * thread with its own Selenium object bound by
+         * {@link #bind(Object)}. The class level fixtures are run once around
+         * all the test methods and no Selenium object is created for the
+         * runner itself.
+         *
+         * @param notifier  Used to report the test results.
+         * @param scheduler Runs the test methods.
+         */
+        void runScheduled(final RunNotifier notifier,
+                          final RunnerScheduler scheduler) {
+            setScheduler(scheduler);
+            super.run(notifier);
+        }
+
+        /**
+         * Bind a Selenium object to the current thread so that it is injected
+         * into the tests run on that thread.
+         *
+         * @param threadSelenium The Selenium object or {@code null} to remove
+         *                       the binding.
+         */
+        void bind(final T threadSelenium) {
+            if (threadSelenium == null) {
+                boundSelenium.remove();
+            } else {
+                boundSelenium.set(threadSelenium);
+            }
+        }
+
+        /**
+         * Determine whether a filter has excluded some of the tests.
+         *
+         * @return {@code true} if only some of the tests will be run.
+         */
+        boolean isFiltered() {
+            return getDescription().getChildren().size() < computeTestMethods().size();
+        }
+
+        /**
+         * Get the name of the browser for which this runner runs the tests.
+         *
+         * @return The browser name.
+         */
+        String getBrowser() {
+            return seleniumFactory.getBrowser();
+        }
+
+        /**
+         * Get the factory used to create, start and stop the Selenium object.
+         *
+         * @return The factory.
+         */
+        SeleniumFactory<T> getSeleniumFactory() {
+            return seleniumFactory;
+        }
+
+        /**
+         * Create another test runner for the same browser and test class. Each
+         * virtual user of a {@link LoadTest} uses its own test runner.
+         *
+         * @return The test runner.
+         * @throws InitializationError If there was a problem constructing the
+         *                             test runner.
+         */
+        AbstractSeleniumJUnit4ClassRunner<T, A> copy()
+                throws InitializationError {
+            return copy(seleniumFactory);
+        }
+
+        /**
+         * Create another test runner for the same test class that uses a
+         * different factory to create, start and stop the Selenium object.
+         * The copy uses the same data sets as this test runner.
+         *
+         * @param factory The factory.
+         * @return The test runner.
+         * @throws InitializationError If there was a problem constructing the
+         *                             test runner.
+         */
+        final AbstractSeleniumJUnit4ClassRunner<T, A> copy(
+                final SeleniumFactory<T> factory) throws InitializationError {
+            final Map<Class<?>, List<Object[]>> shared = new HashMap<Class<?>, List<Object[]>>();
+            if (dataSets != null) {
+                shared.put(getTestClass().getJavaClass(), dataSets);
+            }
+            final Map<Class<?>, List<Object[]>> previous = shareDataSets(shared);
+            try {
+                return newRunner(factory);
+            } finally {
+                shareDataSets(previous);
+            }
+        }
+
+        /**
+         * Construct another test runner for the same test class that uses a
+         * different factory to create, start and stop the Selenium object.
+         *
+         * @param factory The factory.
+         * @return The test runner.
+         * @throws InitializationError If there was a problem constructing the
+         *                             test runner.
+         */
+        abstract AbstractSeleniumJUnit4ClassRunner<T, A> newRunner(
+                SeleniumFactory<T> factory) throws InitializationError;
+
+        /**
+         * Share data sets between the test runners constructed on this thread
+         * until the previously shared data sets are restored.
+         *
+         * @param shared The data sets indexed by test class or {@code null}
+         *               if the data sets are not shared.
+         * @return The previously shared data sets.
+         */
+        static Map<Class<?>, List<Object[]>> shareDataSets(final Map<Class<?>, List<Object[]>> shared) {
+            final Map<Class<?>, List<Object[]>> previous = SHARED_DATA_SETS.get();
+            if (shared == null) {
+                SHARED_DATA_SETS.remove();
+            } else {
+                SHARED_DATA_SETS.set(shared);
+            }
+            return previous;
+        }
+
+        /**
+         * Get the test methods. If the test class has a
+         * {@link SeleniumParameters} method each test method is repeated for
+         * each data set.
+         *
+         * @return The test methods.
+         */
+        @Override
+        protected List<FrameworkMethod> computeTestMethods() {
+            final List<FrameworkMethod> methods = super.computeTestMethods();
+            final List<FrameworkMethod> dataMethods = getTestClass().getAnnotatedMethods(SeleniumParameters.class);
+            if (dataMethods.isEmpty()) {
+                return methods;
+            }
+            final String pattern = dataMethods.get(0).getAnnotation(SeleniumParameters.class).name();
+            final List<Object[]> dataSets = getDataSets(dataMethods.get(0));
+            final List<FrameworkMethod> expanded = new ArrayList<FrameworkMethod>();
+            for (final FrameworkMethod method : methods) {
+                for (int index = 0; index < dataSets.size(); ++index) {
+                    expanded.add(new ParameterizedMethod(method, dataSets.get(index), index, pattern));
+                }
+            }
+            return expanded;
+        }
+
+        /**
+         * Get the data sets from the {@link SeleniumParameters} method. The
+         * method is invoked once for the test runners of all the browsers
+         * and their copies so that they run the same data sets in the same
+         * order.
+         *
+         * @param dataMethod The {@link SeleniumParameters} method.
+         * @return The data sets.
+         */
+        private List<Object[]> getDataSets(final FrameworkMethod dataMethod) {
+            final Class<?> klass = getTestClass().getJavaClass();
+            final Map<Class<?>, List<Object[]>> shared = SHARED_DATA_SETS.get();
+            if (dataSets == null && shared != null) {
+                dataSets = shared.get(klass);
+            }
+            if (dataSets == null) {
+                final List<Object[]> values = new ArrayList<Object[]>();
+                try {
+                    for (final Object dataSet : (Iterable<?>)dataMethod.invokeExplosively(null)) {
+                        if (dataSet instanceof Object[]) {
+                            values.add((Object[])dataSet);
+                        } else {
+                            values.add(new Object[]{dataSet});
+                        }
+                    }
+                } catch (final Throwable e) {
+                    throw new IllegalStateException("Error getting data sets from " + dataMethod.getName(), e);
+                }
+                dataSets = values;
+                if (shared != null) {
+                    shared.put(klass, values);
+                }
+            }
+            return dataSets;
+        }
+
+        /**
+         * Check that the test class has a public zero-argument constructor
+         * or, if it has a {@link SeleniumParameters} method, a single public
+         * constructor.
+         *
+         * @param errors Receives the validation errors.
+         */
+        @Override
+        protected void validateConstructor(final List<Throwable> errors) {
+            if (getTestClass().getAnnotatedMethods(SeleniumParameters.class).isEmpty()) {
+                super.validateConstructor(errors);
+            } else {
+                validateOnlyOneConstructor(errors);
+            }
+        }
+
+        /**
+         * Build the statement that runs a test method. The data set is
+         * remembered while the test object is created.
+         *
+         * @param method The test method.
+         * @return The statement.
+         */
+        @Override
+        protected Statement methodBlock(final FrameworkMethod method) {
+            if (method instanceof ParameterizedMethod) {
+                DATA_SET.set(((ParameterizedMethod)method).getParameters());
+                try {
+                    return super.methodBlock(method);
+                } finally {
+                    DATA_SET.remove();
+                }
+            }
+            return super.methodBlock(method);
+        }
+
         /**
          * Create the test object and inject Selenium server or web driver into
-         * fields that were annotated with {@code annotationType}.
+         * fields that were annotated with {@code annotationType}. The browser
+         * name and fixture web server URL are injected into fields annotated
+         * with {@link SeleniumBrowser} and {@link SeleniumFixture} and page
+         * objects are injected into fields annotated with {@link SeleniumPage}.
+         * The values of the data set are passed to the constructor of a
+         * data-driven test class.
          *
          * @return The test object.
          * @throws Exception If there was an error creating the test object.
          */
         @Override
         protected Object createTest() throws Exception {
-            final Object test = super.createTest();
+            final Object[] dataSet = DATA_SET.get();
+            final Object test;
+            if (dataSet == null) {
+                test = super.createTest();
+            } else {
+                test = getTestClass().getOnlyConstructor().newInstance(dataSet);
+            }
             final TestClass testClass = getTestClass();
             final String browser = seleniumFactory.getBrowser();
+            final T current = boundSelenium.get() == null ? selenium : boundSelenium.get();
 
             List<FrameworkField> fields = testClass
                     .getAnnotatedFields(annotationType);
             for (final FrameworkField field : fields) {
-                FieldUtils.writeField(field.getField(), test, selenium, true);
+                FieldUtils.writeField(field.getField(), test, current, true);
             }
 
             fields = testClass.getAnnotatedFields(SeleniumBrowser.class);
@@ -269,14 +734,29 @@ public class SeleniumJUnit4ClassRunner extends Suite {
                 FieldUtils.writeField(field.getField(), test, browser, true);
             }
 
+            fields = testClass.getAnnotatedFields(SeleniumFixture.class);
+            for (final FrameworkField field : fields) {
+                final SeleniumFixture fixture = field.getField().getAnnotation(SeleniumFixture.class);
+                FieldUtils.writeField(field.getField(), test, FixtureServer.getURL(fixture.value()), true);
+            }
+
+            fields = testClass.getAnnotatedFields(SeleniumPage.class);
+            for (final FrameworkField field : fields) {
+                final Object page = PageObjects.create(field.getType(), current);
+                FieldUtils.writeField(field.getField(), test, page, true);
+            }
+
             final List<TestRule> rules = this.getTestRules(test);
             for (final TestRule rule : rules) {
                 final Field[] ruleFields = rule.getClass().getDeclaredFields();
                 for (final Field ruleField : ruleFields) {
                     if (ruleField.getAnnotation(annotationType) != null) {
-                        FieldUtils.writeField(ruleField, rule, selenium, true);
+                        FieldUtils.writeField(ruleField, rule, current, true);
                     } else if (ruleField.getAnnotation(SeleniumBrowser.class) != null) {
                         FieldUtils.writeField(ruleField, rule, browser, true);
+                    } else if (ruleField.getAnnotation(SeleniumFixture.class) != null) {
+                        final SeleniumFixture fixture = ruleField.getAnnotation(SeleniumFixture.class);
+                        FieldUtils.writeField(ruleField, rule, FixtureServer.getURL(fixture.value()), true);
                     }
                 }
             }
@@ -307,6 +787,14 @@ public class SeleniumJUnit4ClassRunner extends Suite {
                 throws InitializationError {
             super(factory, SeleniumServer.class, klass);
         }
+
+        @Override
+        SeleniumServerJUnit4ClassRunner newRunner(
+                final SeleniumFactory<Selenium> factory)
+                throws InitializationError {
+            return new SeleniumServerJUnit4ClassRunner(factory,
+                    getTestClass().getJavaClass());
+        }
     }
 
     /**
@@ -326,9 +814,17 @@ public class SeleniumJUnit4ClassRunner extends Suite {
          * @throws InitializationError If there was a problem constructing the test runner.
          */
         public SeleniumWebDriverJUnit4ClassRunner(
-                final WebDriverFactory factory, final Class<?> klass)
+                final SeleniumFactory<WebDriver> factory, final Class<?> klass)
                 throws InitializationError {
             super(factory, SeleniumWebDriver.class, klass);
         }
+
+        @Override
+        SeleniumWebDriverJUnit4ClassRunner newRunner(
+                final SeleniumFactory<WebDriver> factory)
+                throws InitializationError {
+            return new SeleniumWebDriverJUnit4ClassRunner(factory,
+                    getTestClass().getJavaClass());
+        }
     }
 }
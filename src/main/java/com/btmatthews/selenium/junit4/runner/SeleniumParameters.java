@@ -0,0 +1,47 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import java.lang.annotation.*;
+
+/**
+ * {@code SeleniumParameters} marks a public static method of the test class
+ * that provides the data sets for a data-driven test. The method must return
+ * an {@link Iterable} whose elements are {@code Object[]} arrays, or single
+ * values, that are passed to the constructor of the test class. Each test
+ * method is run once for each data set by the test runner for each browser
+ * and all the data sets for a browser share the same browser session.
+ * <p/>
+ * The data sets run one after the other. Annotating the test class with
+ * {@link SharedBrowser} as well runs them concurrently in several windows of
+ * the browser session.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface SeleniumParameters {
+
+    /**
+     * The pattern used to name each data set in the test names. {@code {index}}
+     * is replaced by the position of the data set and {@code {0}},
+     * {@code {1}}, etc. by its values. The default value is {@code {index}}.
+     */
+    String name() default "{index}";
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner.AbstractSeleniumJUnit4ClassRunner;
+import org.junit.internal.builders.AllDefaultPossibilitiesBuilder;
+import org.junit.runner.Runner;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.Suite;
+import org.junit.runners.model.InitializationError;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A suite runner that runs the classes listed by {@link SuiteClasses}
+ * browser-first. The test classes that are annotated with
+ * {@link ServerConfiguration}, {@link WebDriverConfiguration},
+ * {@link WrappedDriverConfiguration} or {@link RemoteDriverConfiguration} are
+ * grouped by browser and each browser is launched once and used to run all
+ * the test classes in its group before it is stopped. Test classes are only
+ * grouped together if they use the same browser with the same server, URL,
+ * {@link HtmlUnitProfile} and {@link HttpReplay} settings. The
+ * cookies are deleted before each test class but other browser state, such as
+ * the current page, is carried over.
+ * <p/>
+ * Other test classes are run after the browser groups using their usual test
+ * runners. The {@link LoadTest} and {@link SharedBrowser} annotations are not
+ * applied to test classes run by this suite.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public class SeleniumSuite extends Suite {
+
+    /**
+     * Creates a {@code SeleniumSuite} to run the test classes listed by the
+     * {@link SuiteClasses} annotation on {@code klass}.
+     *
+     * @param klass The suite class.
+     * @throws InitializationError If there was an error initialising the test runners.
+     */
+    public SeleniumSuite(final Class<?> klass) throws InitializationError {
+        super(klass, buildRunners(klass));
+    }
+
+    /**
+     * Build a test runner for each browser that runs all the test classes in
+     * its group followed by the test runners for the other test classes.
+     *
+     * @param klass The suite class.
+     * @return The test runners.
+     * @throws InitializationError If there was an error initialising the test runners.
+     */
+    private static List<Runner> buildRunners(final Class<?> klass) throws InitializationError {
+        final SuiteClasses suiteClasses = klass.getAnnotation(SuiteClasses.class);
+        if (suiteClasses == null) {
+            throw new InitializationError("Annotate suite class " + klass.getName() + " with SuiteClasses");
+        }
+        final Map<String, BrowserGroup> groups = new LinkedHashMap<String, BrowserGroup>();
+        final List<Runner> others = new ArrayList<Runner>();
+        for (final Class<?> suiteClass : suiteClasses.value()) {
+            final String configuration = getConfiguration(suiteClass);
+            if (configuration == null) {
+                try {
+                    others.add(new AllDefaultPossibilitiesBuilder(true).runnerForClass(suiteClass));
+                } catch (final Throwable e) {
+                    throw new InitializationError(e);
+                }
+            } else {
+                for (final Runner runner : SeleniumJUnit4ClassRunner.buildRunners(suiteClass)) {
+                    final AbstractSeleniumJUnit4ClassRunner<?, ?> browserRunner =
+                            (AbstractSeleniumJUnit4ClassRunner<?, ?>)runner;
+                    final String key = getSession(suiteClass, browserRunner);
+                    BrowserGroup group = groups.get(key);
+                    if (group == null) {
+                        group = new BrowserGroup(browserRunner.getBrowser(),
+                                getGroupName(groups, browserRunner.getBrowser()));
+                        groups.put(key, group);
+                    }
+                    group.add(browserRunner);
+                }
+            }
+        }
+        final List<Runner> runners = new ArrayList<Runner>();
+        for (final BrowserGroup group : groups.values()) {
+            runners.add(group.build());
+        }
+        runners.addAll(others);
+        return runners;
+    }
+
+    /**
+     * Describe the settings that configure the browser sessions for a test
+     * class: the Selenium Server, remote hub or browser URL and the
+     * {@link HtmlUnitProfile} and {@link HttpReplay} annotations. Settings
+     * that do not affect the browser session, such as the wait timeout, are
+     * ignored. Test classes with the same description can share browser
+     * sessions.
+     *
+     * @param suiteClass The test class.
+     * @return The description or {@code null} if the test class is not
+     *         configured to use Selenium.
+     * @throws InitializationError If the configuration overrides could not be
+     *                             applied.
+     */
+    static String getConfiguration(final Class<?> suiteClass) throws InitializationError {
+        final ServerConfiguration server = MatrixOverride.configuration(
+                suiteClass.getAnnotation(ServerConfiguration.class), ServerConfiguration.class);
+        final WrappedDriverConfiguration wrapped = MatrixOverride.configuration(
+                suiteClass.getAnnotation(WrappedDriverConfiguration.class), WrappedDriverConfiguration.class);
+        final RemoteDriverConfiguration remote = suiteClass.getAnnotation(RemoteDriverConfiguration.class);
+        final StringBuilder builder = new StringBuilder();
+        if (server != null) {
+            builder.append("server ").append(server.serverHost()).append(':').append(server.serverPort())
+                    .append(' ').append(server.embedded()).append(' ').append(Arrays.toString(server.servers()))
+                    .append(' ').append(server.browserURL());
+        } else if (suiteClass.isAnnotationPresent(WebDriverConfiguration.class)) {
+            builder.append("webdriver");
+        } else if (wrapped != null) {
+            builder.append("wrapped ").append(wrapped.browserURL());
+        } else if (remote != null) {
+            builder.append("remote ").append(remote.hubURL()).append(' ')
+                    .append(Arrays.toString(remote.capabilities()));
+        } else {
+            return null;
+        }
+        builder.append('|').append(suiteClass.getAnnotation(HtmlUnitProfile.class))
+                .append('|').append(suiteClass.getAnnotation(HttpReplay.class));
+        return builder.toString();
+    }
+
+    /**
+     * Describe the browser session used by a test runner. Test runners with
+     * the same description can share a browser session.
+     *
+     * @param suiteClass The test class.
+     * @param runner     The test runner for one of its browsers.
+     * @return The description.
+     * @throws InitializationError If the configuration overrides could not be
+     *                             applied.
+     */
+    static String getSession(final Class<?> suiteClass, final AbstractSeleniumJUnit4ClassRunner<?, ?> runner)
+            throws InitializationError {
+        SeleniumFactory<?> factory = runner.getSeleniumFactory();
+        while (factory instanceof GovernedFactory || factory instanceof ProcessTrackingFactory) {
+            if (factory instanceof GovernedFactory) {
+                factory = ((GovernedFactory<?>)factory).getDelegate();
+            } else {
+                factory = ((ProcessTrackingFactory<?>)factory).getDelegate();
+            }
+        }
+        final String browser;
+        if (factory instanceof ServerFactory) {
+            browser = ((ServerFactory)factory).getBrowserStartCommand();
+        } else {
+            browser = factory.getBrowser();
+        }
+        return getConfiguration(suiteClass) + '|' + browser;
+    }
+
+    /**
+     * Generate a unique name for a browser group.
+     *
+     * @param groups  The existing browser groups.
+     * @param browser The browser name.
+     * @return The group name.
+     */
+    private static String getGroupName(final Map<String, BrowserGroup> groups, final String browser) {
+        int count = 0;
+        for (final BrowserGroup group : groups.values()) {
+            if (group.browser.equals(browser)) {
+                ++count;
+            }
+        }
+        if (count == 0) {
+            return browser;
+        }
+        return browser + " [" + (count + 1) + "]";
+    }
+
+    /**
+     * Collects the test runners for the test classes that share a browser.
+     */
+    private static final class BrowserGroup {
+
+        /**
+         * The browser name.
+         */
+        private final String browser;
+
+        /**
+         * The name of the group.
+         */
+        private final String name;
+
+        /**
+         * The test runners.
+         */
+        private final List<Runner> runners = new ArrayList<Runner>();
+
+        /**
+         * The factory that shares the browser session or {@code null} until
+         * the first test runner is added.
+         */
+        private SharedSessionFactory<?> factory;
+
+        /**
+         * Construct a browser group.
+         *
+         * @param browserName The browser name.
+         * @param groupName   The name of the group.
+         */
+        BrowserGroup(final String browserName, final String groupName) {
+            browser = browserName;
+            name = groupName;
+        }
+
+        /**
+         * Add the test runner for a test class to the group. The test runner
+         * is copied so that it uses the shared browser session.
+         *
+         * @param runner The test runner.
+         * @throws InitializationError If there was an error copying the test runner.
+         */
+        void add(final AbstractSeleniumJUnit4ClassRunner<?, ?> runner) throws InitializationError {
+            runners.add(share(runner));
+        }
+
+        /**
+         * Copy a test runner so that it uses the shared browser session.
+         *
+         * @param runner The test runner.
+         * @param <T>    The type of Selenium object.
+         * @return The copied test runner.
+         * @throws InitializationError If there was an error copying the test runner.
+         */
+        @SuppressWarnings("unchecked")
+        private <T> Runner share(final AbstractSeleniumJUnit4ClassRunner<T, ?> runner) throws InitializationError {
+            if (factory == null) {
+                factory = new SharedSessionFactory<T>(runner.getSeleniumFactory());
+            }
+            return runner.copy((SharedSessionFactory<T>)factory);
+        }
+
+        /**
+         * Build the test runner for the group.
+         *
+         * @return The test runner.
+         * @throws InitializationError If there was an error building the test runner.
+         */
+        Runner build() throws InitializationError {
+            return new Suite((Class<?>)null, runners) {
+
+                @Override
+                protected String getName() {
+                    return name;
+                }
+
+                @Override
+                public void run(final RunNotifier notifier) {
+                    try {
+                        super.run(notifier);
+                    } finally {
+                        try {
+                            factory.close();
+                        } catch (final Exception e) {
+                            notifier.fireTestFailure(new Failure(getDescription(), e));
+                        }
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import org.junit.runner.Description;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunNotifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * A worker that pulls work items from the {@link SeleniumCoordinator} over a
+ * local socket and runs them using {@link SeleniumJUnit4ClassRunner} until
+ * there is no work left. The worker identifies itself to the coordinator by
+ * the name of its JVM, which is usually the process id and host name, and the
+ * test results are streamed back to the coordinator as they happen.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public class SeleniumWorker {
+
+    /**
+     * Used to log the work items.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SeleniumWorker.class);
+
+    /**
+     * The port on which the coordinator is listening.
+     */
+    private final int port;
+
+    /**
+     * Construct a worker.
+     *
+     * @param port The port on which the coordinator is listening.
+     */
+    public SeleniumWorker(final int port) {
+        this.port = port;
+    }
+
+    /**
+     * Run a worker until there is no work left. The port number can be passed
+     * as the only argument and otherwise defaults to the value of the
+     * {@link Constants#COORDINATOR_PORT_PROPERTY} system property or
+     * {@link Constants#DEFAULT_COORDINATOR_PORT}.
+     *
+     * @param args The command line arguments.
+     * @throws Exception If there was an error communicating with the
+     *                   coordinator.
+     */
+    public static void main(final String[] args) throws Exception {
+        final int port;
+        if (args.length > 0) {
+            port = Integer.parseInt(args[0]);
+        } else {
+            port = Integer.getInteger(Constants.COORDINATOR_PORT_PROPERTY, Constants.DEFAULT_COORDINATOR_PORT);
+        }
+        new SeleniumWorker(port).run();
+        System.exit(0);
+    }
+
+    /**
+     * Pull and run work items until there is no work left.
+     *
+     * @throws Exception If there was an error communicating with the
+     *                   coordinator.
+     */
+    public void run() throws Exception {
+        final Socket socket = new Socket(InetAddress.getByName(null), port);
+        try {
+            final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            final DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            output.writeUTF(ManagementFactory.getRuntimeMXBean().getName());
+            final ResultStreamer streamer = new ResultStreamer(output);
+            final RunNotifier notifier = new RunNotifier();
+            notifier.addListener(streamer);
+            while (true) {
+                synchronized (output) {
+                    output.writeUTF(SeleniumCoordinator.NEXT);
+                    output.flush();
+                }
+                if (!input.readBoolean()) {
+                    break;
+                }
+                final String className = input.readUTF();
+                final int index = input.readInt();
+                LOGGER.info("Running browser {} of {}", index, className);
+                try {
+                    new SeleniumJUnit4ClassRunner(Class.forName(className)).runBrowser(index, notifier);
+                } catch (final Throwable e) {
+                    notifier.fireTestFailure(new Failure(Description.createSuiteDescription(className), e));
+                }
+                streamer.done();
+            }
+        } finally {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Distributes Selenium RC sessions across the Selenium Servers listed in {@link ServerConfiguration#servers()}. The
+ * server with the fewest active sessions in this JVM is chosen, servers that fail a health check or fail to start a
+ * browser are ejected for {@link Constants#SERVER_EJECTION_PERIOD} milliseconds.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class ServerBalancer {
+
+    /**
+     * The known endpoints indexed by their host:port address.
+     */
+    private static final Map<String, Endpoint> ENDPOINTS = new HashMap<String, Endpoint>();
+
+    /**
+     * Orders endpoints by the number of active sessions.
+     */
+    private static final Comparator<Endpoint> LEAST_ACTIVE = new Comparator<Endpoint>() {
+        public int compare(final Endpoint first, final Endpoint second) {
+            return first.activeSessions - second.activeSessions;
+        }
+    };
+
+    /**
+     * Default constructor is private.
+     */
+    private ServerBalancer() {
+    }
+
+    /**
+     * Choose the healthy endpoint with the fewest active sessions and register a new session against it. The session
+     * is registered against the endpoint as it is chosen so that concurrent callers see the new count. The health check
+     * is performed afterwards, outside the lock, and the registration is withdrawn if it fails.
+     *
+     * @param addresses The host:port addresses of the candidate Selenium Servers.
+     * @return The chosen endpoint.
+     * @throws IllegalStateException If none of the Selenium Servers are available.
+     */
+    static Endpoint acquire(final String[] addresses) {
+        final Set<Endpoint> tried = new HashSet<Endpoint>();
+        Endpoint endpoint = reserve(addresses, tried);
+        while (endpoint != null) {
+            if (endpoint.isHealthy()) {
+                return endpoint;
+            }
+            synchronized (ServerBalancer.class) {
+                endpoint.activeSessions--;
+                eject(endpoint);
+            }
+            tried.add(endpoint);
+            endpoint = reserve(addresses, tried);
+        }
+        throw new IllegalStateException("None of the Selenium Servers are available: "
+                + StringUtils.join(addresses, ", "));
+    }
+
+    /**
+     * Release a session that was registered against an endpoint.
+     *
+     * @param endpoint The endpoint.
+     */
+    static synchronized void release(final Endpoint endpoint) {
+        endpoint.activeSessions--;
+    }
+
+    /**
+     * Temporarily eject an endpoint because it is failing.
+     *
+     * @param endpoint The endpoint.
+     */
+    static synchronized void eject(final Endpoint endpoint) {
+        endpoint.ejectedUntil = System.currentTimeMillis() + Constants.SERVER_EJECTION_PERIOD;
+    }
+
+    /**
+     * Choose the endpoint with the fewest active sessions that has not been ejected or already tried and register a
+     * new session against it.
+     *
+     * @param addresses The host:port addresses of the candidate Selenium Servers.
+     * @param tried     The endpoints that have already failed a health check.
+     * @return The chosen endpoint or {@code null} if there are no candidates left.
+     */
+    private static synchronized Endpoint reserve(final String[] addresses, final Set<Endpoint> tried) {
+        final long now = System.currentTimeMillis();
+        final List<Endpoint> candidates = new ArrayList<Endpoint>();
+        for (final String address : addresses) {
+            Endpoint endpoint = ENDPOINTS.get(address);
+            if (endpoint == null) {
+                endpoint = new Endpoint(address);
+                ENDPOINTS.put(address, endpoint);
+            }
+            if (endpoint.ejectedUntil <= now && !tried.contains(endpoint)) {
+                candidates.add(endpoint);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        final Endpoint endpoint = Collections.min(candidates, LEAST_ACTIVE);
+        endpoint.activeSessions++;
+        return endpoint;
+    }
+
+    /**
+     * Describes a Selenium Server and the sessions it is hosting for this JVM.
+     */
+    static final class Endpoint {
+
+        /**
+         * The host on which the Selenium Server resides.
+         */
+        private final String host;
+
+        /**
+         * The port on which the Selenium Server is listening.
+         */
+        private final int port;
+
+        /**
+         * The number of active sessions.
+         */
+        private int activeSessions;
+
+        /**
+         * The time until which the Selenium Server has been ejected.
+         */
+        private long ejectedUntil;
+
+        /**
+         * Construct an endpoint from a host:port address. The port defaults to
+         * {@link Constants#SELENIUM_SERVER_PORT} if it is omitted.
+         *
+         * @param address The host:port address.
+         */
+        Endpoint(final String address) {
+            if (address.indexOf(':') >= 0) {
+                host = StringUtils.substringBeforeLast(address, ":");
+                port = Integer.parseInt(StringUtils.substringAfterLast(address, ":"));
+            } else {
+                host = address;
+                port = Constants.SELENIUM_SERVER_PORT;
+            }
+        }
+
+        /**
+         * Get the host on which the Selenium Server resides.
+         *
+         * @return The host name.
+         */
+        String getHost() {
+            return host;
+        }
+
+        /**
+         * Get the port on which the Selenium Server is listening.
+         *
+         * @return The port number.
+         */
+        int getPort() {
+            return port;
+        }
+
+        /**
+         * Check that the Selenium Server is accepting connections.
+         *
+         * @return {@code true} if a connection could be established.
+         */
+        boolean isHealthy() {
+            final Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(host, port), Constants.SERVER_HEALTH_CHECK_TIMEOUT);
+                return true;
+            } catch (final IOException e) {
+                return false;
+            } finally {
+                try {
+                    socket.close();
+                } catch (final IOException e) {
+                    // Ignore
+                }
+            }
+        }
+    }
+}
@@ -45,6 +45,20 @@ public @interface ServerConfiguration {
      */
     int serverPort() default Constants.SELENIUM_SERVER_PORT;
 
+    /**
+     * If {@code true} the test runner starts an in-process Selenium Server on a free port instead of connecting to
+     * {@link #serverHost()} and {@link #serverPort()}. The server is started once per JVM and shared by all the test
+     * classes that use it. The default value is {@code false}.
+     */
+    boolean embedded() default false;
+
+    /**
+     * The host:port addresses of several Selenium Servers across which the browser sessions are distributed. If
+     * specified, {@link #serverHost()} and {@link #serverPort()} are ignored and each session is started on the
+     * healthy server with the fewest active sessions. Servers that fail are ejected for a short period.
+     */
+    String[] servers() default {};
+
     /**
      * The browser URL.
      */
@@ -55,4 +69,10 @@ public @interface ServerConfiguration {
      * {@link Constants#DEFAULT_START_COMMAND}.
      */
     String[] browserStartCommands() default {Constants.DEFAULT_START_COMMAND};
+
+    /**
+     * The number of milliseconds that {@link com.btmatthews.selenium.junit4.rule.AdaptiveWait} waits for a condition
+     * to become true. The default value is {@link Constants#DEFAULT_WAIT_TIMEOUT}.
+     */
+    long waitTimeout() default Constants.DEFAULT_WAIT_TIMEOUT;
 }
@@ -20,6 +20,10 @@ import com.thoughtworks.selenium.DefaultSelenium;
 import com.thoughtworks.selenium.Selenium;
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 /**
  * Factory that is responsible for creating the {@link Selenium} instance and
  * acting as a an wrapper for the start and stop methods.
@@ -39,6 +43,19 @@ public final class ServerFactory implements SeleniumFactory<Selenium> {
      */
     private final String browserStartCommand;
 
+    /**
+     * The {@link HttpReplay} annotation or {@code null} if the browser is
+     * pointed directly at the browser URL.
+     */
+    private final HttpReplay httpReplay;
+
+    /**
+     * The endpoints chosen for the sessions created by this factory when
+     * {@link ServerConfiguration#servers()} is used.
+     */
+    private final Map<Selenium, ServerBalancer.Endpoint> endpoints =
+            Collections.synchronizedMap(new IdentityHashMap<Selenium, ServerBalancer.Endpoint>());
+
     /**
      * Construct the factory for creating {@link Selenium} instances.
      *
@@ -48,8 +65,33 @@ public final class ServerFactory implements SeleniumFactory<Selenium> {
      */
     public ServerFactory(final ServerConfiguration config,
                          final String startCommand) {
+        this(config, startCommand, null);
+    }
+
+    /**
+     * Construct the factory for creating {@link Selenium} instances.
+     *
+     * @param config       The {@link ServerConfiguration} annotation that provides
+     *                     configuration for the test runner.
+     * @param startCommand The browser start command (e.g. {@literal "*firefox"}).
+     * @param replay       The {@link HttpReplay} annotation used to put a local
+     *                     HTTP stand-in in front of the browser URL or {@code null}.
+     */
+    public ServerFactory(final ServerConfiguration config,
+                         final String startCommand,
+                         final HttpReplay replay) {
         configuration = config;
         browserStartCommand = startCommand;
+        httpReplay = replay;
+    }
+
+    /**
+     * Get the browser start command.
+     *
+     * @return The browser start command (e.g. {@literal "*firefox"}).
+     */
+    String getBrowserStartCommand() {
+        return browserStartCommand;
     }
 
     /**
@@ -70,24 +112,58 @@ public final class ServerFactory implements SeleniumFactory<Selenium> {
 
     /**
      * Create a connection to the the Selenium Server at the host and port
-     * address specified by configuration annotation.
+     * address specified by configuration annotation, to the least loaded of
+     * the Selenium Servers listed by {@link ServerConfiguration#servers()} or
+     * to the embedded Selenium Server if {@link ServerConfiguration#embedded()}
+     * is set. The browser is pointed at the HTTP stand-in if one is configured.
      *
      * @return A {@link DefaultSelenium} object.
+     * @throws Exception If the embedded Selenium Server or HTTP stand-in could
+     *                   not be started.
      */
-    public Selenium create() {
-        return new DefaultSelenium(configuration.serverHost(),
-                configuration.serverPort(), browserStartCommand,
-                configuration.browserURL());
+    public Selenium create() throws Exception {
+        final String browserURL;
+        if (httpReplay == null) {
+            browserURL = configuration.browserURL();
+        } else {
+            browserURL = ReplayServer.getURL(configuration.browserURL(), httpReplay);
+        }
+        if (configuration.embedded()) {
+            return new DefaultSelenium(Constants.SELENIUM_SERVER_HOST,
+                    EmbeddedServer.getPort(), browserStartCommand,
+                    browserURL);
+        } else if (configuration.servers().length > 0) {
+            final ServerBalancer.Endpoint endpoint = ServerBalancer.acquire(configuration.servers());
+            final Selenium server = new DefaultSelenium(endpoint.getHost(),
+                    endpoint.getPort(), browserStartCommand,
+                    browserURL);
+            endpoints.put(server, endpoint);
+            return server;
+        } else {
+            return new DefaultSelenium(configuration.serverHost(),
+                    configuration.serverPort(), browserStartCommand,
+                    browserURL);
+        }
     }
 
     /**
-     * Connect to the Selenium Server.
+     * Connect to the Selenium Server. If the session could not be started the
+     * Selenium Server is ejected from the list of candidate servers.
      *
      * @param server The Selenium Server.
      * @see SeleniumFactory#start(Object)
      */
     public void start(final Selenium server) {
-        server.start();
+        try {
+            server.start();
+        } catch (final RuntimeException e) {
+            final ServerBalancer.Endpoint endpoint = endpoints.remove(server);
+            if (endpoint != null) {
+                ServerBalancer.eject(endpoint);
+                ServerBalancer.release(endpoint);
+            }
+            throw e;
+        }
     }
 
     /**
@@ -97,6 +173,13 @@ public final class ServerFactory implements SeleniumFactory<Selenium> {
      * @see SeleniumFactory#stop(Object)
      */
     public void stop(final Selenium server) {
-        server.stop();
+        try {
+            server.stop();
+        } finally {
+            final ServerBalancer.Endpoint endpoint = endpoints.remove(server);
+            if (endpoint != null) {
+                ServerBalancer.release(endpoint);
+            }
+        }
     }
 }
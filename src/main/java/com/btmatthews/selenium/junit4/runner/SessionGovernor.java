@@ -0,0 +1,378 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of browser sessions that are live at once across the JVM.
+ * A session is admitted when the number of live sessions is below the limit
+ * set by the {@link Constants#MAX_SESSIONS_PROPERTY} system property, the free
+ * physical memory is above {@link Constants#MIN_FREE_MEMORY_PROPERTY} and the
+ * system load average per processor is below {@link Constants#MAX_LOAD_PROPERTY}.
+ * The first session is always admitted.
+ * <p/>
+ * Waiting sessions are queued by browser and the browsers take turns so that
+ * one browser cannot starve the others. While the memory or load limits are in
+ * force only one session is admitted per {@link Constants#DEFAULT_ADMISSION_INTERVAL}
+ * so that the measurements reflect the browsers that have already started.
+ * The time each session spent waiting is logged and a summary for each browser
+ * is logged when the JVM exits.
+ * <p/>
+ * Once a session has been created its slot is held on behalf of the Selenium
+ * object and released the first time {@link #release(Object)} is called for
+ * it, so a session that is abandoned by the {@link SessionReaper} while it is
+ * still stopping frees its slot without freeing it again if it does stop.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class SessionGovernor {
+
+    /**
+     * Used to log the wait times.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionGovernor.class);
+
+    /**
+     * The number of bytes in a megabyte.
+     */
+    private static final long MEGABYTE = 1024L * 1024L;
+
+    /**
+     * Guards the queues and the count of live sessions.
+     */
+    private static final ReentrantLock LOCK = new ReentrantLock();
+
+    /**
+     * Signalled when a session is admitted or released.
+     */
+    private static final Condition CHANGED = LOCK.newCondition();
+
+    /**
+     * The queues of waiting sessions for each browser in the order the
+     * browsers first requested a session.
+     */
+    private static final Map<String, LinkedList<Object>> QUEUES = new LinkedHashMap<String, LinkedList<Object>>();
+
+    /**
+     * The wait statistics for each browser.
+     */
+    private static final Map<String, long[]> STATISTICS = new LinkedHashMap<String, long[]>();
+
+    /**
+     * Index of the number of sessions admitted in the wait statistics.
+     */
+    private static final int ADMITTED = 0;
+
+    /**
+     * Index of the total wait time in the wait statistics.
+     */
+    private static final int TOTAL_WAIT = 1;
+
+    /**
+     * Index of the longest wait time in the wait statistics.
+     */
+    private static final int MAX_WAIT = 2;
+
+    /**
+     * Used to measure the system load average.
+     */
+    private static final OperatingSystemMXBean OPERATING_SYSTEM = ManagementFactory.getOperatingSystemMXBean();
+
+    /**
+     * The method used to measure the free physical memory or {@code null} if
+     * it is not supported by the JVM.
+     */
+    private static final Method FREE_MEMORY = getFreeMemoryMethod();
+
+    /**
+     * The Selenium objects of the live sessions that still hold a slot.
+     */
+    private static final Map<Object, Boolean> SESSIONS = new IdentityHashMap<Object, Boolean>();
+
+    /**
+     * The maximum number of live sessions.
+     */
+    private static int maxSessions;
+
+    /**
+     * The free physical memory, in bytes, required to admit a session or zero
+     * if there is no memory limit.
+     */
+    private static long minFreeMemory;
+
+    /**
+     * The maximum load average per processor at which a session can be
+     * admitted or zero if there is no load limit.
+     */
+    private static double maxLoad;
+
+    /**
+     * {@code true} once the limits have been read and the shutdown hook
+     * registered.
+     */
+    private static boolean initialised;
+
+    /**
+     * The number of live sessions.
+     */
+    private static int liveSessions;
+
+    /**
+     * The browser that was last admitted a session.
+     */
+    private static String lastBrowser;
+
+    /**
+     * The time the last session was admitted.
+     */
+    private static long lastAdmission;
+
+    /**
+     * Default constructor is private.
+     */
+    private SessionGovernor() {
+    }
+
+    /**
+     * Wait until a session for the browser can be admitted.
+     *
+     * @param browser The browser name.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    static void acquire(final String browser) throws InterruptedException {
+        final Object ticket = new Object();
+        final long queued = System.currentTimeMillis();
+        LOCK.lock();
+        try {
+            initialise();
+            LinkedList<Object> queue = QUEUES.get(browser);
+            if (queue == null) {
+                queue = new LinkedList<Object>();
+                QUEUES.put(browser, queue);
+            }
+            queue.add(ticket);
+            try {
+                while (next() != ticket || !hasCapacity()) {
+                    CHANGED.await(Constants.DEFAULT_ADMISSION_INTERVAL, TimeUnit.MILLISECONDS);
+                }
+            } catch (final InterruptedException e) {
+                queue.remove(ticket);
+                CHANGED.signalAll();
+                throw e;
+            }
+            queue.removeFirst();
+            liveSessions++;
+            lastBrowser = browser;
+            lastAdmission = System.currentTimeMillis();
+            record(browser, lastAdmission - queued);
+            CHANGED.signalAll();
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    /**
+     * Release the slot held by a session that could not be created.
+     */
+    static void release() {
+        LOCK.lock();
+        try {
+            liveSessions--;
+            CHANGED.signalAll();
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    /**
+     * Hand the slot acquired for a session over to its Selenium object once
+     * the session has been created.
+     *
+     * @param session The Selenium object.
+     */
+    static void hold(final Object session) {
+        LOCK.lock();
+        try {
+            SESSIONS.put(session, Boolean.TRUE);
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    /**
+     * Release the slot held by a session that has been stopped, could not be
+     * started or was abandoned. The slot is only released the first time.
+     *
+     * @param session The Selenium object.
+     */
+    static void release(final Object session) {
+        LOCK.lock();
+        try {
+            if (SESSIONS.remove(session) != null) {
+                liveSessions--;
+                CHANGED.signalAll();
+            }
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    /**
+     * Find the session that is next in line. The browsers take turns starting
+     * with the browser after the one that was last admitted a session.
+     *
+     * @return The ticket of the next session or {@code null} if there are no
+     *         sessions waiting.
+     */
+    private static Object next() {
+        final List<String> browsers = new ArrayList<String>(QUEUES.keySet());
+        final int start = browsers.indexOf(lastBrowser) + 1;
+        for (int i = 0; i < browsers.size(); i++) {
+            final LinkedList<Object> queue = QUEUES.get(browsers.get((start + i) % browsers.size()));
+            if (!queue.isEmpty()) {
+                return queue.getFirst();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Determine whether another session can be admitted.
+     *
+     * @return {@code true} if another session can be admitted.
+     */
+    private static boolean hasCapacity() {
+        if (liveSessions == 0) {
+            return true;
+        }
+        if (liveSessions >= maxSessions) {
+            return false;
+        }
+        if (minFreeMemory > 0 || maxLoad > 0) {
+            if (System.currentTimeMillis() - lastAdmission < Constants.DEFAULT_ADMISSION_INTERVAL) {
+                return false;
+            }
+            final long freeMemory = getFreeMemory();
+            if (minFreeMemory > 0 && freeMemory >= 0 && freeMemory < minFreeMemory) {
+                return false;
+            }
+            final double load = OPERATING_SYSTEM.getSystemLoadAverage();
+            if (maxLoad > 0 && load >= 0 && load / OPERATING_SYSTEM.getAvailableProcessors() > maxLoad) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Record the time a session waited to be admitted.
+     *
+     * @param browser The browser name.
+     * @param wait    The number of milliseconds the session waited.
+     */
+    private static void record(final String browser, final long wait) {
+        long[] statistics = STATISTICS.get(browser);
+        if (statistics == null) {
+            statistics = new long[3];
+            STATISTICS.put(browser, statistics);
+        }
+        statistics[ADMITTED]++;
+        statistics[TOTAL_WAIT] += wait;
+        statistics[MAX_WAIT] = Math.max(statistics[MAX_WAIT], wait);
+        if (wait > 0) {
+            LOGGER.debug("{} session waited {} ms to start with {} live sessions",
+                    new Object[]{browser, wait, liveSessions - 1});
+        }
+    }
+
+    /**
+     * Read the limits from the system properties and register the shutdown
+     * hook that logs the wait statistics.
+     */
+    private static void initialise() {
+        if (!initialised) {
+            maxSessions = Integer.getInteger(Constants.MAX_SESSIONS_PROPERTY, Integer.MAX_VALUE);
+            minFreeMemory = Long.getLong(Constants.MIN_FREE_MEMORY_PROPERTY, 0L) * MEGABYTE;
+            maxLoad = Double.parseDouble(System.getProperty(Constants.MAX_LOAD_PROPERTY, "0"));
+            initialised = true;
+            Runtime.getRuntime().addShutdownHook(new Thread("session-governor") {
+                @Override
+                public void run() {
+                    LOCK.lock();
+                    try {
+                        for (final Map.Entry<String, long[]> entry : STATISTICS.entrySet()) {
+                            final long[] statistics = entry.getValue();
+                            LOGGER.info("{} sessions: {} started, {} ms total wait, {} ms longest wait",
+                                    new Object[]{entry.getKey(), statistics[ADMITTED],
+                                            statistics[TOTAL_WAIT], statistics[MAX_WAIT]});
+                        }
+                    } finally {
+                        LOCK.unlock();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Measure the free physical memory.
+     *
+     * @return The number of bytes of free physical memory or {@code -1} if it
+     *         could not be measured.
+     */
+    private static long getFreeMemory() {
+        if (FREE_MEMORY != null) {
+            try {
+                return (Long)FREE_MEMORY.invoke(OPERATING_SYSTEM);
+            } catch (final Exception e) {
+                LOGGER.debug("Could not measure free memory", e);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Look up the method used to measure the free physical memory. It is only
+     * available on JVMs that provide the {@code com.sun.management} extensions.
+     *
+     * @return The method or {@code null} if it is not available.
+     */
+    private static Method getFreeMemoryMethod() {
+        try {
+            return Class.forName("com.sun.management.OperatingSystemMXBean").getMethod("getFreePhysicalMemorySize");
+        } catch (final Exception e) {
+            LOGGER.debug("Free memory cannot be measured", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Stops browser sessions on behalf of the test runners. By default the
+ * sessions are stopped inline. If the {@link Constants#ASYNC_TEARDOWN_PROPERTY}
+ * system property is {@literal true} they are stopped on background threads so
+ * that the next test runner can start without waiting for the browser to exit.
+ * <p/>
+ * The number of sessions being stopped at once is bounded and test runners
+ * wait for a slot when the limit is reached. A session that has not stopped
+ * within the grace period is abandoned, its teardown thread is interrupted and
+ * its {@link SessionGovernor} slot is released.
+ * The processes of an abandoned session are only killed if process tracking
+ * is enabled by the {@link Constants#PROCESS_TRACKING_PROPERTY} system
+ * property and the JVM is Java 9 or later. Otherwise they are left running and
+ * a warning is logged when asynchronous teardown is first used. When the JVM
+ * exits it waits up to the grace period for the sessions that are still being
+ * stopped.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class SessionReaper {
+
+    /**
+     * Used to log teardown failures.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionReaper.class);
+
+    /**
+     * Creates the daemon threads that stop the browser sessions.
+     */
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "session-reaper");
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    /**
+     * Limits the number of sessions being stopped at once.
+     */
+    private static Semaphore slots;
+
+    /**
+     * Runs the teardown tasks or {@code null} if asynchronous teardown has not
+     * been used yet.
+     */
+    private static ExecutorService executor;
+
+    /**
+     * Abandons teardown tasks that exceed the grace period.
+     */
+    private static ScheduledExecutorService watchdog;
+
+    /**
+     * The number of milliseconds a session is given to stop.
+     */
+    private static long gracePeriod;
+
+    /**
+     * Default constructor is private.
+     */
+    private SessionReaper() {
+    }
+
+    /**
+     * Stop a browser session inline or, if asynchronous teardown is enabled,
+     * on a background thread.
+     *
+     * @param factory  The factory used to stop the session.
+     * @param selenium The Selenium object.
+     * @param <T>      The type of Selenium object.
+     * @throws Exception If the session was stopped inline and there was an
+     *                   error stopping it.
+     */
+    static <T> void stop(final SeleniumFactory<T> factory, final T selenium) throws Exception {
+        if (Boolean.getBoolean(Constants.ASYNC_TEARDOWN_PROPERTY)) {
+            stopAsync(factory, selenium);
+        } else {
+            factory.stop(selenium);
+        }
+    }
+
+    /**
+     * Stop a browser session on a background thread, waiting for a slot if
+     * the maximum number of sessions are already being stopped.
+     *
+     * @param factory  The factory used to stop the session.
+     * @param selenium The Selenium object.
+     * @param <T>      The type of Selenium object.
+     * @throws InterruptedException If interrupted while waiting for a slot.
+     */
+    private static <T> void stopAsync(final SeleniumFactory<T> factory, final T selenium)
+            throws InterruptedException {
+        initialise();
+        slots.acquire();
+        final AtomicBoolean released = new AtomicBoolean();
+        final String browser = factory.getBrowser();
+        final Future<?> future = executor.submit(new Runnable() {
+            public void run() {
+                try {
+                    factory.stop(selenium);
+                } catch (final Exception e) {
+                    LOGGER.warn("Error stopping " + browser + " session", e);
+                } finally {
+                    release(released);
+                }
+            }
+        });
+        watchdog.schedule(new Runnable() {
+            public void run() {
+                if (!future.isDone()) {
+                    LOGGER.warn("Abandoning {} session that did not stop within {} ms", browser, gracePeriod);
+                    future.cancel(true);
+                    ProcessRegistry.reap(selenium);
+                    SessionGovernor.release(selenium);
+                    release(released);
+                }
+            }
+        }, gracePeriod, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Release the slot held by a teardown task if it has not already been
+     * released.
+     *
+     * @param released Tracks whether the slot has been released.
+     */
+    private static void release(final AtomicBoolean released) {
+        if (released.compareAndSet(false, true)) {
+            slots.release();
+        }
+    }
+
+    /**
+     * Wait up to the grace period for the sessions that are being stopped on
+     * background threads.
+     */
+    static void awaitPending() {
+        final ExecutorService pending;
+        synchronized (SessionReaper.class) {
+            pending = executor;
+        }
+        if (pending != null) {
+            pending.shutdown();
+            try {
+                if (!pending.awaitTermination(gracePeriod, TimeUnit.MILLISECONDS)) {
+                    LOGGER.warn("Browser sessions did not stop within {} ms", gracePeriod);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Create the thread pools and register the shutdown hook that waits for
+     * the sessions being stopped when the JVM exits.
+     */
+    private static synchronized void initialise() {
+        if (executor == null) {
+            final int maxInFlight = Integer.getInteger(Constants.TEARDOWN_MAX_IN_FLIGHT_PROPERTY,
+                    Constants.DEFAULT_TEARDOWN_MAX_IN_FLIGHT);
+            gracePeriod = Long.getLong(Constants.TEARDOWN_GRACE_PERIOD_PROPERTY,
+                    Constants.DEFAULT_TEARDOWN_GRACE_PERIOD);
+            slots = new Semaphore(maxInFlight);
+            executor = Executors.newCachedThreadPool(THREAD_FACTORY);
+            watchdog = Executors.newSingleThreadScheduledExecutor(THREAD_FACTORY);
+            if (!ProcessRegistry.isEnabled()) {
+                LOGGER.warn("Process tracking is not enabled so browser sessions that do not stop within {} ms will be"
+                        + " abandoned without killing their processes", gracePeriod);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread("session-reaper-barrier") {
+                @Override
+                public void run() {
+                    awaitPending();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import java.lang.annotation.*;
+
+/**
+ * {@code SharedBrowser} instructs the {@link SeleniumJUnit4ClassRunner} to run
+ * the tests for each browser concurrently in several windows of a single
+ * browser session instead of starting a browser session for each concurrent
+ * test. Each test is bound to its own window and the commands sent by the
+ * tests are serialised because a browser session can only act on one window
+ * at a time. This applies to test classes annotated with
+ * {@link WebDriverConfiguration} or {@link RemoteDriverConfiguration} and
+ * requires a browser that can open windows from JavaScript.
+ * <p/>
+ * The test methods are handed out to the windows as they become idle. The
+ * {@link org.junit.BeforeClass}, {@link org.junit.AfterClass} and
+ * {@link org.junit.ClassRule} fixtures run once for each browser around all
+ * the test methods, but the test methods themselves run concurrently so
+ * static state shared between them must be thread-safe.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface SharedBrowser {
+
+    /**
+     * The number of windows in which tests run concurrently. The default
+     * value is {@link Constants#DEFAULT_SHARED_BROWSER_WINDOWS}.
+     */
+    int windows() default Constants.DEFAULT_SHARED_BROWSER_WINDOWS;
+}
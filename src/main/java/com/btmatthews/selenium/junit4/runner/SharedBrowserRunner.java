@@ -0,0 +1,180 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner.SeleniumWebDriverJUnit4ClassRunner;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.model.RunnerScheduler;
+import org.openqa.selenium.WebDriver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the tests for a browser concurrently in several windows of a single
+ * browser session as described by a {@link SharedBrowser} annotation. The
+ * class level fixtures, such as {@link org.junit.BeforeClass},
+ * {@link org.junit.AfterClass} and {@link org.junit.ClassRule}, run once and
+ * the test methods are run concurrently inside them by a pool of threads. Each
+ * thread is given a web driver bound to its own window by a
+ * {@link SharedWindowFactory} the first time it runs a test method and takes
+ * the next test method as soon as it is idle.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class SharedBrowserRunner {
+
+    /**
+     * Default constructor is private.
+     */
+    private SharedBrowserRunner() {
+    }
+
+    /**
+     * Run the tests for a browser in several windows.
+     *
+     * @param runner        The test runner for the browser.
+     * @param configuration The shared browser configuration.
+     * @param notifier      Used to report the test results.
+     */
+    static void run(final SeleniumWebDriverJUnit4ClassRunner runner,
+                    final SharedBrowser configuration, final RunNotifier notifier) {
+        final int methods = runner.getDescription().getChildren().size();
+        final int windows = Math.max(Math.min(configuration.windows(), methods), 1);
+        runner.runScheduled(notifier, new WindowScheduler(runner, windows));
+    }
+
+    /**
+     * Runs the test methods on a pool of threads that are each bound to their
+     * own window. The windows are closed when all the test methods have
+     * finished.
+     */
+    private static final class WindowScheduler implements RunnerScheduler {
+
+        /**
+         * The test runner for the browser.
+         */
+        private final SeleniumWebDriverJUnit4ClassRunner runner;
+
+        /**
+         * Opens the windows in the shared browser session.
+         */
+        private final SharedWindowFactory factory;
+
+        /**
+         * The threads that run the test methods.
+         */
+        private final ExecutorService executor;
+
+        /**
+         * The window bound to each thread.
+         */
+        private final ThreadLocal<WebDriver> window = new ThreadLocal<WebDriver>();
+
+        /**
+         * The windows that have been opened.
+         */
+        private final List<WebDriver> windows = new ArrayList<WebDriver>();
+
+        /**
+         * The test methods that have been scheduled.
+         */
+        private final List<Future<?>> futures = new ArrayList<Future<?>>();
+
+        /**
+         * Construct the scheduler.
+         *
+         * @param browserRunner The test runner for the browser.
+         * @param threads       The number of windows.
+         */
+        WindowScheduler(final SeleniumWebDriverJUnit4ClassRunner browserRunner, final int threads) {
+            runner = browserRunner;
+            factory = new SharedWindowFactory(browserRunner.getSeleniumFactory());
+            executor = Executors.newFixedThreadPool(threads);
+        }
+
+        /**
+         * Run a test method on the next idle thread, opening a window for the
+         * thread if it does not have one yet.
+         *
+         * @param childStatement Runs the test method.
+         */
+        public void schedule(final Runnable childStatement) {
+            futures.add(executor.submit(new Runnable() {
+                public void run() {
+                    if (window.get() == null) {
+                        final WebDriver webDriver;
+                        try {
+                            webDriver = factory.create();
+                        } catch (final Exception e) {
+                            throw new IllegalStateException("Could not open a window in the "
+                                    + factory.getBrowser() + " session", e);
+                        }
+                        synchronized (windows) {
+                            windows.add(webDriver);
+                        }
+                        window.set(webDriver);
+                        runner.bind(webDriver);
+                    }
+                    childStatement.run();
+                }
+            }));
+        }
+
+        /**
+         * Wait for all the test methods to finish and then close the windows.
+         * The first error that prevented a test method from being run is
+         * rethrown so that it is reported against the test class.
+         */
+        public void finished() {
+            RuntimeException error = null;
+            try {
+                for (final Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (final ExecutionException e) {
+                        if (error == null) {
+                            error = new IllegalStateException(e.getCause());
+                        }
+                    }
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error = new IllegalStateException(e);
+            } finally {
+                executor.shutdownNow();
+                for (final WebDriver webDriver : windows) {
+                    try {
+                        SessionReaper.stop(factory, webDriver);
+                    } catch (final Exception e) {
+                        if (error == null) {
+                            error = new IllegalStateException(e);
+                        }
+                    }
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+}
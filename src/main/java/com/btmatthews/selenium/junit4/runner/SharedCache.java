@@ -0,0 +1,99 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import com.gargoylesoftware.htmlunit.Cache;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.WebResponse;
+import org.w3c.dom.css.CSSStyleSheet;
+
+/**
+ * A thread-safe, size-bounded HTML Unit {@link Cache} that is shared by all the
+ * HTML Unit sessions in the JVM so that static scripts, style sheets and images
+ * are only downloaded and parsed once. The base class guards its entries with a
+ * synchronized map but evicts entries without holding the lock, so every
+ * operation is synchronized on the cache itself.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class SharedCache extends Cache {
+
+    /**
+     * Serialization version.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The cache shared by all HTML Unit sessions.
+     */
+    private static final SharedCache INSTANCE = new SharedCache(Constants.HTMLUNIT_CACHE_SIZE);
+
+    /**
+     * Construct the cache.
+     *
+     * @param size The maximum number of entries.
+     */
+    private SharedCache(final int size) {
+        setMaxSize(size);
+    }
+
+    /**
+     * Get the cache shared by all HTML Unit sessions.
+     *
+     * @return The shared cache.
+     */
+    static SharedCache getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public synchronized void cacheIfPossible(final WebRequest request, final WebResponse response,
+                                             final Object toCache) {
+        super.cacheIfPossible(request, response, toCache);
+    }
+
+    @Override
+    public synchronized void cache(final String css, final CSSStyleSheet styleSheet) {
+        super.cache(css, styleSheet);
+    }
+
+    @Override
+    public synchronized Object getCachedObject(final WebRequest request) {
+        return super.getCachedObject(request);
+    }
+
+    @Override
+    public synchronized CSSStyleSheet getCachedStyleSheet(final String url) {
+        return super.getCachedStyleSheet(url);
+    }
+
+    @Override
+    public synchronized int getSize() {
+        return super.getSize();
+    }
+
+    @Override
+    public synchronized void clear() {
+        super.clear();
+    }
+
+    @Override
+    protected synchronized void deleteOverflow() {
+        super.deleteOverflow();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import com.thoughtworks.selenium.Selenium;
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Factory that shares a single Selenium object between the test runners for
+ * several test classes. The Selenium object is created and started by the
+ * underlying factory when it is first requested and is only stopped when
+ * {@link #close()} is called. The cookies are deleted each time the Selenium
+ * object is handed to another test runner. The Selenium object is replaced if
+ * it no longer responds, for example because the browser crashed or a test
+ * quit it.
+ *
+ * @param <T> <ul>
+ *            <li>{@link Selenium} for tests that use the Selenium 1.0 API</li>
+ *            <li>{@link WebDriver} for tests that use the Selenium 2.0 API</li>
+ *            </ul>
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class SharedSessionFactory<T> implements SeleniumFactory<T> {
+
+    /**
+     * Used to log when the Selenium object is replaced.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedSessionFactory.class);
+
+    /**
+     * The factory used to create, start and stop the Selenium object.
+     */
+    private final SeleniumFactory<T> delegate;
+
+    /**
+     * The shared Selenium object or {@code null} if it has not been created.
+     */
+    private T session;
+
+    /**
+     * Construct the factory.
+     *
+     * @param factory The factory used to create, start and stop the Selenium
+     *                object.
+     */
+    SharedSessionFactory(final SeleniumFactory<T> factory) {
+        delegate = factory;
+    }
+
+    /**
+     * Get the browser name from the underlying factory.
+     *
+     * @return The browser name.
+     */
+    public String getBrowser() {
+        return delegate.getBrowser();
+    }
+
+    /**
+     * Return the shared Selenium object, creating and starting it if this is
+     * the first request or the shared Selenium object no longer responds.
+     *
+     * @return The shared Selenium object.
+     * @throws Exception If the Selenium object could not be created or
+     *                   started.
+     */
+    public synchronized T create() throws Exception {
+        if (session != null && !reset(session)) {
+            LOGGER.warn("Replacing {} session that is not responding", getBrowser());
+            try {
+                SessionReaper.stop(delegate, session);
+            } catch (final Exception e) {
+                LOGGER.debug("Error stopping " + getBrowser() + " session", e);
+            } finally {
+                session = null;
+            }
+        }
+        if (session == null) {
+            final T created = delegate.create();
+            delegate.start(created);
+            session = created;
+        }
+        return session;
+    }
+
+    /**
+     * Check that the shared Selenium object still responds and delete its
+     * cookies.
+     *
+     * @param selenium The shared Selenium object.
+     * @return {@code true} if the Selenium object responded.
+     */
+    private boolean reset(final T selenium) {
+        try {
+            if (selenium instanceof WebDriver) {
+                ((WebDriver)selenium).getWindowHandle();
+                ((WebDriver)selenium).manage().deleteAllCookies();
+            } else if (selenium instanceof Selenium) {
+                ((Selenium)selenium).getTitle();
+                ((Selenium)selenium).deleteAllVisibleCookies();
+            }
+            return true;
+        } catch (final RuntimeException e) {
+            LOGGER.debug("Shared " + getBrowser() + " session did not respond", e);
+            return false;
+        }
+    }
+
+    /**
+     * This method is not implemented because the shared Selenium object was
+     * started when it was created.
+     *
+     * @param selenium The shared Selenium object.
+     */
+    public void start(final T selenium) {
+    }
+
+    /**
+     * This method is not implemented because the shared Selenium object is
+     * stopped by {@link #close()}.
+     *
+     * @param selenium The shared Selenium object.
+     */
+    public void stop(final T selenium) {
+    }
+
+    /**
+     * Stop the shared Selenium object if it was created.
+     *
+     * @throws Exception If there was an error stopping the Selenium object.
+     */
+    public synchronized void close() throws Exception {
+        if (session != null) {
+            try {
+                SessionReaper.stop(delegate, session);
+            } finally {
+                session = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner;
+
+import org.apache.commons.lang3.ClassUtils;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Factory that hands out {@link WebDriver} objects that are each bound to
+ * their own window of a single browser session. The browser session is
+ * created by the underlying factory when the first window is requested and
+ * stopped when the last window is closed. The first window is loaded with a
+ * blank page so that the browser can open the other windows from JavaScript. Commands are serialised through a
+ * fair lock and the browser is switched to the window bound to the caller
+ * before each command.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+final class SharedWindowFactory implements SeleniumFactory<WebDriver> {
+
+    /**
+     * The script used to open a new window.
+     */
+    private static final String OPEN_WINDOW_SCRIPT = "window.open('about:blank', arguments[0]);";
+
+    /**
+     * The factory used to create, start and stop the browser session.
+     */
+    private final SeleniumFactory<WebDriver> delegate;
+
+    /**
+     * Serialises the commands sent to the browser session. The lock is fair
+     * so that each window is given a turn.
+     */
+    private final Lock scheduler = new ReentrantLock(true);
+
+    /**
+     * The browser session or {@code null} if it has not been created yet.
+     */
+    private WebDriver webDriver;
+
+    /**
+     * The handle of the window that the browser session is acting on.
+     */
+    private String currentWindow;
+
+    /**
+     * {@code true} if the first window of the browser session has been handed
+     * out.
+     */
+    private boolean firstWindowUsed;
+
+    /**
+     * The number of windows that have been handed out and not closed.
+     */
+    private int openWindows;
+
+    /**
+     * The number of windows that have been opened used to name the windows.
+     */
+    private int windowCount;
+
+    /**
+     * Construct the factory.
+     *
+     * @param factory The factory used to create, start and stop the browser
+     *                session.
+     */
+    SharedWindowFactory(final SeleniumFactory<WebDriver> factory) {
+        delegate = factory;
+    }
+
+    /**
+     * Get the browser name from the underlying factory.
+     *
+     * @return The browser name.
+     */
+    public String getBrowser() {
+        return delegate.getBrowser();
+    }
+
+    /**
+     * Open a window in the browser session, creating the browser session if
+     * necessary, and return a web driver bound to that window.
+     *
+     * @return The web driver bound to the window.
+     * @throws Exception If the browser session could not be created.
+     */
+    public WebDriver create() throws Exception {
+        scheduler.lock();
+        try {
+            final String handle;
+            if (webDriver == null) {
+                webDriver = delegate.create();
+                delegate.start(webDriver);
+                webDriver.get("about:blank");
+                firstWindowUsed = false;
+            }
+            if (firstWindowUsed) {
+                final Set<String> existing = new HashSet<String>(webDriver.getWindowHandles());
+                ((JavascriptExecutor)webDriver).executeScript(OPEN_WINDOW_SCRIPT, "window" + ++windowCount);
+                final Set<String> handles = new HashSet<String>(webDriver.getWindowHandles());
+                handles.removeAll(existing);
+                if (handles.isEmpty()) {
+                    throw new IllegalStateException("Browser " + getBrowser() + " did not open a new window");
+                }
+                handle = handles.iterator().next();
+            } else {
+                handle = webDriver.getWindowHandle();
+                firstWindowUsed = true;
+            }
+            ++openWindows;
+            final WindowHandler handler = new WindowHandler(webDriver, handle);
+            handler.window = (WebDriver)bind(webDriver, handler);
+            ProcessRegistry.share(handler.window, webDriver);
+            return handler.window;
+        } finally {
+            scheduler.unlock();
+        }
+    }
+
+    /**
+     * This method is not implemented because the browser session was started
+     * when it was created.
+     *
+     * @param window The web driver bound to a window.
+     */
+    public void start(final WebDriver window) {
+    }
+
+    /**
+     * Close the window bound to the web driver and stop the browser session
+     * if it was the last window.
+     *
+     * @param window The web driver bound to a window.
+     * @throws Exception If there was an error stopping the browser session.
+     */
+    public void stop(final WebDriver window) throws Exception {
+        window.quit();
+    }
+
+    /**
+     * Close a window and stop the browser session if it was the last window.
+     * The browser session is stopped on the calling thread because the window
+     * is already being stopped by the {@link SessionReaper} when teardown is
+     * asynchronous. The window stays linked to the browser session in the
+     * {@link ProcessRegistry} until it has closed so that the browser
+     * processes are killed if it is abandoned. Called with the scheduler lock
+     * held.
+     *
+     * @param window The web driver bound to the window.
+     * @param handle The window handle.
+     * @throws Exception If there was an error stopping the browser session.
+     */
+    private void closeWindow(final WebDriver window, final String handle) throws Exception {
+        --openWindows;
+        try {
+            if (openWindows == 0) {
+                try {
+                    delegate.stop(webDriver);
+                } finally {
+                    webDriver = null;
+                    currentWindow = null;
+                }
+            } else {
+                switchTo(handle);
+                webDriver.close();
+                currentWindow = null;
+            }
+        } finally {
+            ProcessRegistry.unshare(window);
+        }
+    }
+
+    /**
+     * Switch the browser session to a window if it is acting on another
+     * window. Called with the scheduler lock held.
+     *
+     * @param handle The window handle.
+     */
+    private void switchTo(final String handle) {
+        if (!handle.equals(currentWindow)) {
+            webDriver.switchTo().window(handle);
+            currentWindow = handle;
+        }
+    }
+
+    /**
+     * Create a proxy for an object returned by the browser session that
+     * implements the same interfaces and forwards calls through the window
+     * handler.
+     *
+     * @param target  The object returned by the browser session.
+     * @param handler The window handler.
+     * @return The proxy.
+     */
+    private static Object bind(final Object target, final InvocationHandler handler) {
+        final List<Class<?>> interfaces = ClassUtils.getAllInterfaces(target.getClass());
+        return Proxy.newProxyInstance(SharedWindowFactory.class.getClassLoader(),
+                interfaces.toArray(new Class<?>[interfaces.size()]), handler);
+    }
+
+    /**
+     * Forwards calls to the browser session, or an object returned by it,
+     * after switching to the bound window. The objects returned by the calls
+     * are bound to the same window.
+     */
+    private final class WindowHandler implements InvocationHandler {
+
+        /**
+         * The object to which calls are forwarded.
+         */
+        private final Object target;
+
+        /**
+         * The handler for the web driver bound to the window which holds the
+         * window handle.
+         */
+        private final WindowHandler root;
+
+        /**
+         * The web driver bound to the window. Only used by the root handler.
+         */
+        private WebDriver window;
+
+        /**
+         * The window handle. Only used by the root handler.
+         */
+        private String handle;
+
+        /**
+         * {@code true} if the window has been closed. Only used by the root
+         * handler.
+         */
+        private boolean closed;
+
+        /**
+         * Construct the handler for the web driver bound to a window.
+         *
+         * @param driver The browser session.
+         * @param handle The window handle.
+         */
+        WindowHandler(final WebDriver driver, final String handle) {
+            target = driver;
+            root = this;
+            this.handle = handle;
+        }
+
+        /**
+         * Construct the handler for an object returned by the browser session.
+         *
+         * @param object      The object returned by the browser session.
+         * @param rootHandler The handler for the web driver bound to the window.
+         */
+        WindowHandler(final Object object, final WindowHandler rootHandler) {
+            target = object;
+            root = rootHandler;
+        }
+
+        /**
+         * Forward a call to the browser session after switching to the bound
+         * window. Calls to {@link WebDriver#quit()} and
+         * {@link WebDriver#close()} close the bound window.
+         *
+         * @param proxy  The proxy.
+         * @param method The method being called.
+         * @param args   The method arguments.
+         * @return The value returned by the call.
+         * @throws Throwable The exception thrown by the call.
+         */
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return invokeObjectMethod(proxy, method, args);
+            }
+            scheduler.lock();
+            try {
+                if (root.closed) {
+                    throw new IllegalStateException("Window has been closed");
+                }
+                if (target == webDriver && ("quit".equals(method.getName()) || "close".equals(method.getName()))) {
+                    root.closed = true;
+                    closeWindow(root.window, root.handle);
+                    return null;
+                }
+                switchTo(root.handle);
+                final Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (final InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (target instanceof WebDriver.TargetLocator && "window".equals(method.getName())) {
+                    root.handle = webDriver.getWindowHandle();
+                    currentWindow = root.handle;
+                }
+                return wrap(method.getReturnType(), result);
+            } finally {
+                scheduler.unlock();
+            }
+        }
+
+        /**
+         * Bind the objects returned by the browser session to the window if
+         * they are declared as Selenium interfaces.
+         *
+         * @param type   The declared return type.
+         * @param result The value returned by the call.
+         * @return The value or a proxy bound to the window.
+         */
+        private Object wrap(final Class<?> type, final Object result) {
+            if (result == null) {
+                return null;
+            } else if (result == webDriver) {
+                return bind(result, root);
+            } else if (result instanceof List) {
+                final List<Object> elements = new ArrayList<Object>();
+                for (final Object element : (List<?>)result) {
+                    if (element instanceof WebElement) {
+                        elements.add(bind(element, new WindowHandler(element, root)));
+                    } else {
+                        elements.add(element);
+                    }
+                }
+                return elements;
+            } else if (type.isInterface() && type.getName().startsWith("org.openqa.selenium.")) {
+                return bind(result, new WindowHandler(result, root));
+            } else {
+                return result;
+            }
+        }
+
+        /**
+         * Handle the methods of {@link Object} without sending commands to the
+         * browser session.
+         *
+         * @param proxy  The proxy.
+         * @param method The method being called.
+         * @param args   The method arguments.
+         * @return The result.
+         */
+        private Object invokeObjectMethod(final Object proxy, final Method method, final Object[] args) {
+            if ("equals".equals(method.getName())) {
+                return proxy == args[0];
+            } else if ("hashCode".equals(method.getName())) {
+                return System.identityHashCode(proxy);
+            } else {
+                return target.getClass().getSimpleName() + " bound to window " + root.handle;
+            }
+        }
+    }
+}
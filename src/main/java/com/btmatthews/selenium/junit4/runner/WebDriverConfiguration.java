@@ -41,4 +41,10 @@ public @interface WebDriverConfiguration {
      * href="http://htmlunit.sourceforge.net/">HTML Unit</a>.
      */
     Class<? extends WebDriver>[] baseDrivers() default {HtmlUnitDriver.class};
+
+    /**
+     * The number of milliseconds that {@link com.btmatthews.selenium.junit4.rule.AdaptiveWait} waits for a condition
+     * to become true. The default value is {@link Constants#DEFAULT_WAIT_TIMEOUT}.
+     */
+    long waitTimeout() default Constants.DEFAULT_WAIT_TIMEOUT;
 }
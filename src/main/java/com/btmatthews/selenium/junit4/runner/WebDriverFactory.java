@@ -17,6 +17,7 @@
 package com.btmatthews.selenium.junit4.runner;
 
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
 
 /**
  * Factory that is responsible for creating the {@link WebDriver} instance and
@@ -32,13 +33,31 @@ public final class WebDriverFactory implements SeleniumFactory<WebDriver> {
      */
     private final Class<? extends WebDriver> webDriverClass;
 
+    /**
+     * The profile used to tune {@link HtmlUnitDriver} instances or {@code null}.
+     */
+    private final HtmlUnitProfile htmlUnitProfile;
+
     /**
      * Construct the factory for creating {@link WebDriver} instances.
      *
      * @param driverClass The {@link WebDriver} class.
      */
     public WebDriverFactory(final Class<? extends WebDriver> driverClass) {
+        this(driverClass, null);
+    }
+
+    /**
+     * Construct the factory for creating {@link WebDriver} instances.
+     *
+     * @param driverClass The {@link WebDriver} class.
+     * @param profile     The {@link HtmlUnitProfile} annotation used to tune
+     *                    {@link HtmlUnitDriver} instances or {@code null}.
+     */
+    public WebDriverFactory(final Class<? extends WebDriver> driverClass,
+                            final HtmlUnitProfile profile) {
         webDriverClass = driverClass;
+        htmlUnitProfile = profile;
     }
 
     /**
@@ -52,14 +71,20 @@ public final class WebDriverFactory implements SeleniumFactory<WebDriver> {
     }
 
     /**
-     * Create an instance of the {@link WebDriver} using reflection.
+     * Create an instance of the {@link WebDriver} using reflection. If a
+     * {@link HtmlUnitProfile} was supplied it is used to tune the
+     * {@link HtmlUnitDriver} case.
      *
      * @return The new {@link WebDriver} instance.
      * @throws Exception If the {@link WebDriver} could not be instantiated.
      * @see SeleniumFactory#create()
      */
     public WebDriver create() throws Exception {
-        return webDriverClass.newInstance();
+        if (htmlUnitProfile != null && HtmlUnitDriver.class.isAssignableFrom(webDriverClass)) {
+            return new ProfiledHtmlUnitDriver(htmlUnitProfile);
+        } else {
+            return webDriverClass.newInstance();
+        }
     }
 
     /**
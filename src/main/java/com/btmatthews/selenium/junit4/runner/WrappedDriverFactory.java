@@ -43,6 +43,17 @@ public final class WrappedDriverFactory implements SeleniumFactory<Selenium> {
      */
     private final Class<? extends WebDriver> webDriverClass;
 
+    /**
+     * The profile used to tune {@link HtmlUnitDriver} instances or {@code null}.
+     */
+    private final HtmlUnitProfile htmlUnitProfile;
+
+    /**
+     * The {@link HttpReplay} annotation or {@code null} if the browser is
+     * pointed directly at the browser URL.
+     */
+    private final HttpReplay httpReplay;
+
     /**
      * Construct the factory for creating {@link Selenium} instances that wrap
      * web drivers.
@@ -53,8 +64,45 @@ public final class WrappedDriverFactory implements SeleniumFactory<Selenium> {
      */
     public WrappedDriverFactory(final WrappedDriverConfiguration config,
                                 final Class<? extends WebDriver> driverClass) {
+        this(config, driverClass, null);
+    }
+
+    /**
+     * Construct the factory for creating {@link Selenium} instances that wrap
+     * web drivers.
+     *
+     * @param config      The {@link WrappedDriverConfiguration} annotation that
+     *                    provides configuration for the test runner.
+     * @param driverClass The {@link WebDriver} class.
+     * @param profile     The {@link HtmlUnitProfile} annotation used to tune
+     *                    {@link HtmlUnitDriver} instances or {@code null}.
+     */
+    public WrappedDriverFactory(final WrappedDriverConfiguration config,
+                                final Class<? extends WebDriver> driverClass,
+                                final HtmlUnitProfile profile) {
+        this(config, driverClass, profile, null);
+    }
+
+    /**
+     * Construct the factory for creating {@link Selenium} instances that wrap
+     * web drivers.
+     *
+     * @param config      The {@link WrappedDriverConfiguration} annotation that
+     *                    provides configuration for the test runner.
+     * @param driverClass The {@link WebDriver} class.
+     * @param profile     The {@link HtmlUnitProfile} annotation used to tune
+     *                    {@link HtmlUnitDriver} instances or {@code null}.
+     * @param replay      The {@link HttpReplay} annotation used to put a local
+     *                    HTTP stand-in in front of the browser URL or {@code null}.
+     */
+    public WrappedDriverFactory(final WrappedDriverConfiguration config,
+                                final Class<? extends WebDriver> driverClass,
+                                final HtmlUnitProfile profile,
+                                final HttpReplay replay) {
         configuration = config;
         webDriverClass = driverClass;
+        htmlUnitProfile = profile;
+        httpReplay = replay;
     }
 
     /**
@@ -70,14 +118,25 @@ public final class WrappedDriverFactory implements SeleniumFactory<Selenium> {
     /**
      * Create a Selenium Server object that wraps the {@link WebDriver} that is
      * created using reflection. We are explicitly enabling JavaScript for the
-     * {@link HtmlUnitDriver} case.
+     * {@link HtmlUnitDriver} case unless a {@link HtmlUnitProfile} was supplied
+     * to tune it. The browser is pointed at the HTTP stand-in if one is
+     * configured.
      *
      * @return The new {@link WebDriver} instance.
+     * @throws Exception If the HTTP stand-in could not be started.
      */
-    public Selenium create() {
+    public Selenium create() throws Exception {
+        final String browserURL;
+        if (httpReplay == null) {
+            browserURL = configuration.browserURL();
+        } else {
+            browserURL = ReplayServer.getURL(configuration.browserURL(), httpReplay);
+        }
         return new WebDriverBackedSelenium(new Supplier<WebDriver>() {
             public WebDriver get() {
-                if (HtmlUnitDriver.class.isAssignableFrom(webDriverClass)) {
+                if (htmlUnitProfile != null && HtmlUnitDriver.class.isAssignableFrom(webDriverClass)) {
+                    return new ProfiledHtmlUnitDriver(htmlUnitProfile);
+                } else if (HtmlUnitDriver.class.isAssignableFrom(webDriverClass)) {
                     final DesiredCapabilities capabilities = DesiredCapabilities.htmlUnit();
                     capabilities.setJavascriptEnabled(true);
                     return new HtmlUnitDriver(capabilities);
@@ -89,7 +148,7 @@ public final class WrappedDriverFactory implements SeleniumFactory<Selenium> {
                     }
                 }
             }
-        }, configuration.browserURL());
+        }, browserURL);
     }
 
     /**
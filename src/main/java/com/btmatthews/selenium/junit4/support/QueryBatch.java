@@ -0,0 +1,505 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.support;
+
+import com.thoughtworks.selenium.Selenium;
+import org.apache.commons.lang3.StringUtils;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.internal.WrapsDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects element queries and executes them in a single round-trip to the browser. Each query locates an element
+ * and extracts its text, visibility, presence, attribute value or the number of matching elements. The queries are
+ * compiled into one {@link JavascriptExecutor#executeScript(String, Object...)} call. Queries are executed one at a
+ * time using the {@link WebDriver} API if the web driver cannot execute JavaScript or the locator cannot be
+ * translated into JavaScript. Only the locators created by the static methods of {@link By} are translated and any
+ * other locator, including sub-classes of the {@link By} implementations, is used as it is. They are also executed individually if the browser fails to execute the script,
+ * for example because JavaScript is disabled or a DOM method used by a locator strategy is not supported.
+ * <p/>
+ * The JavaScript implementation trims the text content of elements and considers an element displayed if neither it
+ * nor any of its ancestors are hidden by the {@literal display} or {@literal visibility} styles. This is close to, but
+ * not exactly the same as, the results returned by {@link WebElement#getText()} and {@link WebElement#isDisplayed()}.
+ * Attribute values are taken from the element property of the same name when there is one, as they are by
+ * {@link WebElement#getAttribute(String)}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public final class QueryBatch {
+
+    /**
+     * Used to log the reason for falling back to executing the queries individually.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryBatch.class);
+
+    /**
+     * The script that executes the queries passed in the first argument and returns an array of results.
+     */
+    private static final String SCRIPT = "var queries = arguments[0], results = [], i, j;"
+            + "function find(strategy, value) {"
+            + "  var found = [], nodes = [], text;"
+            + "  if (strategy === 'id') { nodes = [document.getElementById(value)]; }"
+            + "  else if (strategy === 'css') { nodes = document.querySelectorAll(value); }"
+            + "  else if (strategy === 'name') { nodes = document.getElementsByName(value); }"
+            + "  else if (strategy === 'class') { nodes = document.getElementsByClassName(value); }"
+            + "  else if (strategy === 'tag') { nodes = document.getElementsByTagName(value); }"
+            + "  else if (strategy === 'xpath') {"
+            + "    var snapshot = document.evaluate(value, document, null, 7, null);"
+            + "    for (j = 0; j < snapshot.snapshotLength; j++) { nodes.push(snapshot.snapshotItem(j)); }"
+            + "  } else {"
+            + "    var links = document.getElementsByTagName('a');"
+            + "    for (j = 0; j < links.length; j++) {"
+            + "      text = content(links[j]);"
+            + "      if (strategy === 'link' ? text === value : text.indexOf(value) >= 0) { nodes.push(links[j]); }"
+            + "    }"
+            + "  }"
+            + "  for (j = 0; j < nodes.length; j++) { if (nodes[j]) { found.push(nodes[j]); } }"
+            + "  return found;"
+            + "}"
+            + "function content(element) {"
+            + "  var text = element.innerText;"
+            + "  if (text === undefined) { text = element.textContent; }"
+            + "  return text.replace(/^\\s+|\\s+$/g, '');"
+            + "}"
+            + "function attribute(element, name) {"
+            + "  var value = element[name], type = typeof value;"
+            + "  if (type === 'boolean') { return value ? 'true' : null; }"
+            + "  if (type === 'string' || type === 'number') { return String(value); }"
+            + "  return element.getAttribute(name);"
+            + "}"
+            + "function style(element) {"
+            + "  return window.getComputedStyle ? window.getComputedStyle(element, null) : element.currentStyle;"
+            + "}"
+            + "function displayed(element) {"
+            + "  var visibility = style(element).visibility;"
+            + "  if (visibility === 'hidden' || visibility === 'collapse') { return false; }"
+            + "  for (; element && element.nodeType === 1; element = element.parentNode) {"
+            + "    if (style(element).display === 'none') { return false; }"
+            + "  }"
+            + "  return true;"
+            + "}"
+            + "for (i = 0; i < queries.length; i++) {"
+            + "  var query = queries[i], elements = find(query[1], query[2]), first = elements[0] || null;"
+            + "  if (query[0] === 'text') { results.push(first ? content(first) : null); }"
+            + "  else if (query[0] === 'displayed') { results.push(first ? displayed(first) : false); }"
+            + "  else if (query[0] === 'present') { results.push(elements.length > 0); }"
+            + "  else if (query[0] === 'count') { results.push(elements.length); }"
+            + "  else { results.push(first ? attribute(first, query[3]) : null); }"
+            + "}"
+            + "return results;";
+
+    /**
+     * The web driver used to execute the queries.
+     */
+    private final WebDriver webDriver;
+
+    /**
+     * The queries in the order they were added.
+     */
+    private final List<Query> queries = new ArrayList<Query>();
+
+    /**
+     * The keys of the queries that have been added.
+     */
+    private final Set<String> keys = new HashSet<String>();
+
+    /**
+     * Construct a batch of queries that will be executed using a web driver.
+     *
+     * @param driver The web driver.
+     */
+    public QueryBatch(final WebDriver driver) {
+        webDriver = driver;
+    }
+
+    /**
+     * Construct a batch of queries that will be executed using the web driver wrapped by a Selenium RC object.
+     *
+     * @param server The Selenium RC object. This must wrap a web driver.
+     * @throws IllegalArgumentException If the Selenium RC object does not wrap a web driver.
+     */
+    public QueryBatch(final Selenium server) {
+        if (!(server instanceof WrapsDriver)) {
+            throw new IllegalArgumentException("Selenium object does not wrap a web driver");
+        }
+        webDriver = ((WrapsDriver)server).getWrappedDriver();
+    }
+
+    /**
+     * Add a query that extracts the text of the first matching element.
+     *
+     * @param key     Identifies the result.
+     * @param locator Locates the element.
+     * @return This batch so that calls can be chained.
+     * @throws IllegalArgumentException If a query with the same key has already been added.
+     */
+    public QueryBatch text(final String key, final By locator) {
+        return add(key, QueryType.TEXT, locator, null);
+    }
+
+    /**
+     * Add a query that determines whether the first matching element is displayed.
+     *
+     * @param key     Identifies the result.
+     * @param locator Locates the element.
+     * @return This batch so that calls can be chained.
+     * @throws IllegalArgumentException If a query with the same key has already been added.
+     */
+    public QueryBatch displayed(final String key, final By locator) {
+        return add(key, QueryType.DISPLAYED, locator, null);
+    }
+
+    /**
+     * Add a query that determines whether any element matches.
+     *
+     * @param key     Identifies the result.
+     * @param locator Locates the element.
+     * @return This batch so that calls can be chained.
+     * @throws IllegalArgumentException If a query with the same key has already been added.
+     */
+    public QueryBatch present(final String key, final By locator) {
+        return add(key, QueryType.PRESENT, locator, null);
+    }
+
+    /**
+     * Add a query that counts the matching elements.
+     *
+     * @param key     Identifies the result.
+     * @param locator Locates the elements.
+     * @return This batch so that calls can be chained.
+     * @throws IllegalArgumentException If a query with the same key has already been added.
+     */
+    public QueryBatch count(final String key, final By locator) {
+        return add(key, QueryType.COUNT, locator, null);
+    }
+
+    /**
+     * Add a query that extracts an attribute value from the first matching element.
+     *
+     * @param key     Identifies the result.
+     * @param locator Locates the element.
+     * @param name    The attribute name.
+     * @return This batch so that calls can be chained.
+     * @throws IllegalArgumentException If a query with the same key has already been added.
+     */
+    public QueryBatch attribute(final String key, final By locator, final String name) {
+        return add(key, QueryType.ATTRIBUTE, locator, name);
+    }
+
+    /**
+     * Execute the queries. The queries that can be translated into JavaScript are executed in a single round-trip
+     * if the web driver supports it and the remaining queries are executed individually.
+     *
+     * @return The results indexed by key.
+     */
+    public QueryResults execute() {
+        final Map<String, Object> results = new LinkedHashMap<String, Object>();
+        final List<Query> scripted = new ArrayList<Query>();
+        for (final Query query : queries) {
+            if (webDriver instanceof JavascriptExecutor && query.strategy != null) {
+                scripted.add(query);
+            } else {
+                results.put(query.key, query.execute(webDriver));
+            }
+        }
+        if (!scripted.isEmpty()) {
+            final List<Object> arguments = new ArrayList<Object>(scripted.size());
+            for (final Query query : scripted) {
+                arguments.add(Arrays.asList(query.type.name().toLowerCase(), query.strategy, query.value,
+                        StringUtils.defaultString(query.attribute)));
+            }
+            try {
+                final List<?> values = (List<?>)((JavascriptExecutor)webDriver).executeScript(SCRIPT, arguments);
+                for (int i = 0; i < scripted.size(); ++i) {
+                    results.put(scripted.get(i).key, values.get(i));
+                }
+            } catch (final WebDriverException e) {
+                LOGGER.debug("Browser could not execute batched queries", e);
+                executeEach(scripted, results);
+            } catch (final UnsupportedOperationException e) {
+                LOGGER.debug("Browser does not have JavaScript enabled", e);
+                executeEach(scripted, results);
+            }
+        }
+        final Map<String, Object> ordered = new LinkedHashMap<String, Object>();
+        for (final Query query : queries) {
+            ordered.put(query.key, results.get(query.key));
+        }
+        return new QueryResults(ordered);
+    }
+
+    /**
+     * Execute queries individually using the {@link WebDriver} API.
+     *
+     * @param batch   The queries.
+     * @param results The results indexed by key.
+     */
+    private void executeEach(final List<Query> batch, final Map<String, Object> results) {
+        for (final Query query : batch) {
+            results.put(query.key, query.execute(webDriver));
+        }
+    }
+
+    /**
+     * Add a query to the batch.
+     *
+     * @param key       Identifies the result.
+     * @param type      The type of query.
+     * @param locator   Locates the element.
+     * @param attribute The attribute name for {@link QueryType#ATTRIBUTE} queries.
+     * @return This batch so that calls can be chained.
+     * @throws IllegalArgumentException If a query with the same key has already been added.
+     */
+    private QueryBatch add(final String key, final QueryType type, final By locator, final String attribute) {
+        if (!keys.add(key)) {
+            throw new IllegalArgumentException("Duplicate query key " + key);
+        }
+        queries.add(new Query(key, type, locator, attribute));
+        return this;
+    }
+
+    /**
+     * The types of query.
+     */
+    private enum QueryType {
+
+        /**
+         * Extract the text of the first matching element.
+         */
+        TEXT,
+
+        /**
+         * Determine whether the first matching element is displayed.
+         */
+        DISPLAYED,
+
+        /**
+         * Determine whether any element matches.
+         */
+        PRESENT,
+
+        /**
+         * Count the matching elements.
+         */
+        COUNT,
+
+        /**
+         * Extract an attribute value from the first matching element.
+         */
+        ATTRIBUTE
+    }
+
+    /**
+     * A single query.
+     */
+    private static final class Query {
+
+        /**
+         * Identifies the result.
+         */
+        private final String key;
+
+        /**
+         * The type of query.
+         */
+        private final QueryType type;
+
+        /**
+         * Locates the element.
+         */
+        private final By locator;
+
+        /**
+         * The attribute name for {@link QueryType#ATTRIBUTE} queries.
+         */
+        private final String attribute;
+
+        /**
+         * The JavaScript locator strategy or {@code null} if the locator cannot be translated into JavaScript.
+         */
+        private final String strategy;
+
+        /**
+         * The value passed to the JavaScript locator strategy or {@code null} if the locator cannot be translated
+         * into JavaScript.
+         */
+        private final String value;
+
+        /**
+         * Construct a query and translate the locator into a JavaScript locator strategy.
+         *
+         * @param resultKey     Identifies the result.
+         * @param queryType     The type of query.
+         * @param by            Locates the element.
+         * @param attributeName The attribute name for {@link QueryType#ATTRIBUTE} queries.
+         */
+        Query(final String resultKey, final QueryType queryType, final By by, final String attributeName) {
+            key = resultKey;
+            type = queryType;
+            locator = by;
+            attribute = attributeName;
+            final Strategy translation = Strategy.of(by);
+            if (translation == null) {
+                strategy = null;
+                value = null;
+            } else {
+                strategy = translation.script;
+                value = StringUtils.removeStart(by.toString(), translation.prefix);
+            }
+        }
+
+        /**
+         * Execute the query using the {@link WebDriver} API.
+         *
+         * @param webDriver The web driver.
+         * @return The result of the query.
+         */
+        Object execute(final WebDriver webDriver) {
+            final List<WebElement> elements = webDriver.findElements(locator);
+            final WebElement first;
+            if (elements.isEmpty()) {
+                first = null;
+            } else {
+                first = elements.get(0);
+            }
+            switch (type) {
+                case TEXT:
+                    if (first == null) {
+                        return null;
+                    }
+                    return first.getText();
+                case DISPLAYED:
+                    return first != null && first.isDisplayed();
+                case PRESENT:
+                    return first != null;
+                case COUNT:
+                    return Long.valueOf(elements.size());
+                default:
+                    if (first == null) {
+                        return null;
+                    }
+                    return first.getAttribute(attribute);
+            }
+        }
+    }
+
+    /**
+     * The locators that can be translated into JavaScript. A locator is only translated if it is an instance of
+     * one of the {@link By} implementations, rather than a sub-class, and its description has the expected format,
+     * so that the value can be taken from the description. Otherwise the query is executed using the
+     * {@link WebDriver} API.
+     */
+    private enum Strategy {
+
+        /**
+         * Locate an element by its id.
+         */
+        ID(By.ById.class, "id", "By.id: "),
+
+        /**
+         * Locate elements using a CSS selector.
+         */
+        CSS(By.ByCssSelector.class, "css", "By.selector: "),
+
+        /**
+         * Locate elements using an XPath expression.
+         */
+        XPATH(By.ByXPath.class, "xpath", "By.xpath: "),
+
+        /**
+         * Locate elements by their name attribute.
+         */
+        NAME(By.ByName.class, "name", "By.name: "),
+
+        /**
+         * Locate elements by their class name.
+         */
+        CLASS_NAME(By.ByClassName.class, "class", "By.className: "),
+
+        /**
+         * Locate elements by their tag name.
+         */
+        TAG_NAME(By.ByTagName.class, "tag", "By.tagName: "),
+
+        /**
+         * Locate links by their text.
+         */
+        LINK_TEXT(By.ByLinkText.class, "link", "By.linkText: "),
+
+        /**
+         * Locate links by part of their text.
+         */
+        PARTIAL_LINK_TEXT(By.ByPartialLinkText.class, "partial", "By.partialLinkText: ");
+
+        /**
+         * The locator class.
+         */
+        private final Class<? extends By> type;
+
+        /**
+         * The name of the strategy used by the script.
+         */
+        private final String script;
+
+        /**
+         * The prefix of the locator description that precedes the value.
+         */
+        private final String prefix;
+
+        /**
+         * Construct the strategy.
+         *
+         * @param locatorType    The locator class.
+         * @param scriptStrategy The name of the strategy used by the script.
+         * @param valuePrefix    The prefix of the locator description that precedes the value.
+         */
+        Strategy(final Class<? extends By> locatorType, final String scriptStrategy, final String valuePrefix) {
+            type = locatorType;
+            script = scriptStrategy;
+            prefix = valuePrefix;
+        }
+
+        /**
+         * Find the strategy for a locator.
+         *
+         * @param by The locator.
+         * @return The strategy or {@code null} if the locator cannot be translated into JavaScript.
+         */
+        static Strategy of(final By by) {
+            for (final Strategy strategy : values()) {
+                if (by.getClass() == strategy.type && by.toString().startsWith(strategy.prefix)) {
+                    return strategy;
+                }
+            }
+            return null;
+        }
+    }
+}
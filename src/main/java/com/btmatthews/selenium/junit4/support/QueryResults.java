@@ -0,0 +1,99 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.support;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The typed results of the queries executed by a {@link QueryBatch} indexed by the keys supplied when the queries
+ * were added.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public final class QueryResults {
+
+    /**
+     * The results indexed by key.
+     */
+    private final Map<String, Object> results;
+
+    /**
+     * Construct the query results.
+     *
+     * @param values The results indexed by key.
+     */
+    QueryResults(final Map<String, Object> values) {
+        results = Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Get the result of a {@link QueryBatch#text(String, org.openqa.selenium.By)} or
+     * {@link QueryBatch#attribute(String, org.openqa.selenium.By, String)} query.
+     *
+     * @param key The key of the query.
+     * @return The text or attribute value or {@code null} if the element or attribute was not found.
+     */
+    public String getString(final String key) {
+        return (String)get(key);
+    }
+
+    /**
+     * Get the result of a {@link QueryBatch#displayed(String, org.openqa.selenium.By)} or
+     * {@link QueryBatch#present(String, org.openqa.selenium.By)} query.
+     *
+     * @param key The key of the query.
+     * @return The result of the query.
+     */
+    public boolean getBoolean(final String key) {
+        return (Boolean)get(key);
+    }
+
+    /**
+     * Get the result of a {@link QueryBatch#count(String, org.openqa.selenium.By)} query.
+     *
+     * @param key The key of the query.
+     * @return The number of matching elements.
+     */
+    public long getLong(final String key) {
+        return ((Number)get(key)).longValue();
+    }
+
+    /**
+     * Get all the results indexed by key.
+     *
+     * @return An unmodifiable map of the results.
+     */
+    public Map<String, Object> asMap() {
+        return results;
+    }
+
+    /**
+     * Get the result of a query.
+     *
+     * @param key The key of the query.
+     * @return The result.
+     * @throws IllegalArgumentException If there was no query with that key.
+     */
+    private Object get(final String key) {
+        if (!results.containsKey(key)) {
+            throw new IllegalArgumentException("No query with key " + key);
+        }
+        return results.get(key);
+    }
+}
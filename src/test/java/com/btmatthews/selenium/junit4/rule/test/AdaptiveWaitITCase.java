@@ -0,0 +1,132 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.rule.test;
+
+import com.btmatthews.selenium.junit4.rule.AdaptiveWait;
+import com.btmatthews.selenium.junit4.runner.HtmlUnitProfile;
+import com.btmatthews.selenium.junit4.runner.SeleniumFixture;
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner;
+import com.btmatthews.selenium.junit4.runner.SeleniumWebDriver;
+import com.btmatthews.selenium.junit4.runner.WebDriverConfiguration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for the {@link AdaptiveWait} method rule.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+@RunWith(SeleniumJUnit4ClassRunner.class)
+@WebDriverConfiguration(waitTimeout = 1000L)
+@HtmlUnitProfile
+public final class AdaptiveWaitITCase {
+
+    /**
+     * The object used to start/stop the web browser used for testing.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumWebDriver
+    private WebDriver webDriver;
+
+    /**
+     * The base URL of the fixture web server serving src/test/resources/fixtures.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumFixture
+    private String fixtureURL;
+
+    /**
+     * The method rule that waits for conditions.
+     */
+    @Rule
+    public AdaptiveWait adaptiveWait = new AdaptiveWait();
+
+    /**
+     * A method rule whose maximum interval between polls is shorter than the time taken by a slow poll.
+     */
+    @Rule
+    public AdaptiveWait shortIntervalWait = new AdaptiveWait(10L, 20L);
+
+    /**
+     * Verify that the timeout is read from the configuration annotation.
+     */
+    @Test
+    public void testTimeout() {
+        assertEquals(1000L, adaptiveWait.getTimeout());
+    }
+
+    /**
+     * Verify that we can wait for several conditions at once.
+     */
+    @Test
+    public void testUntil() {
+        webDriver.navigate().to(fixtureURL + "/index.html");
+        assertTrue(adaptiveWait.until(ExpectedConditions.titleIs("Fixture")));
+        adaptiveWait.untilAll("document.title == 'Fixture'", "document.getElementById('heading') != null");
+        assertEquals(1, adaptiveWait.untilAny("document.getElementById('missing') != null", "document.title == 'Fixture'"));
+        assertEquals(3, adaptiveWait.getWaitTimes().size());
+    }
+
+    /**
+     * Verify that the wait times out if the condition never becomes true.
+     */
+    @Test(expected = TimeoutException.class)
+    public void testTimedOut() {
+        webDriver.navigate().to(fixtureURL + "/index.html");
+        adaptiveWait.setTimeout(100L);
+        adaptiveWait.untilAll("document.title == 'Missing'");
+    }
+
+    /**
+     * Verify that the interval between polls is not shorter than the time taken by the previous poll even when that
+     * is longer than the maximum interval. Each poll takes 100 milliseconds so no more than one poll can start in each
+     * 200 milliseconds of the timeout.
+     */
+    @Test
+    public void testSlowPollsSpacedOut() {
+        final AtomicInteger polls = new AtomicInteger();
+        shortIntervalWait.setTimeout(1000L);
+        try {
+            shortIntervalWait.until(new ExpectedCondition<Boolean>() {
+                public Boolean apply(final WebDriver driver) {
+                    polls.incrementAndGet();
+                    try {
+                        Thread.sleep(100L);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return Boolean.FALSE;
+                }
+            });
+            fail("Expected TimeoutException");
+        } catch (final TimeoutException e) {
+            assertTrue("Polled " + polls.get() + " times", polls.get() <= 6);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.rule.test;
+
+import com.btmatthews.selenium.junit4.rule.ImageComparator;
+import com.btmatthews.selenium.junit4.rule.ImageComparison;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link ImageComparator} using generated images so that no browser is required.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public final class ImageComparatorITCase {
+
+    /**
+     * The width of the generated images.
+     */
+    private static final int WIDTH = 40;
+
+    /**
+     * The height of the generated images.
+     */
+    private static final int HEIGHT = 30;
+
+    /**
+     * The colour of the generated images.
+     */
+    private static final int GREY = 0xFF808080;
+
+    /**
+     * The colour used to highlight different pixels in the difference image.
+     */
+    private static final int HIGHLIGHT = 0xFFFF0000;
+
+    /**
+     * The colour of a matching grey pixel in the difference image.
+     */
+    private static final int FADED_GREY = 0xFF404040;
+
+    /**
+     * The tile size, chosen so that the images are split into several tiles.
+     */
+    private static final int TILE_SIZE = 16;
+
+    /**
+     * Verify that identical images match whether or not they share a storage layout.
+     */
+    @Test
+    public void testIdenticalImagesMatch() {
+        final ImageComparator comparator = new ImageComparator(0, 0L, TILE_SIZE);
+        final ImageComparison same = comparator.compare(image(WIDTH, HEIGHT), image(WIDTH, HEIGHT));
+        assertTrue(same.isMatch());
+        assertEquals(0L, same.getDifferentPixels());
+        assertNull(same.getDifference());
+        final BufferedImage rgb = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        fill(rgb, GREY);
+        final ImageComparison converted = comparator.compare(image(WIDTH, HEIGHT), rgb);
+        assertTrue(converted.isMatch());
+        assertEquals(0L, converted.getDifferentPixels());
+    }
+
+    /**
+     * Verify that small differences are accepted within the configured tolerances.
+     */
+    @Test
+    public void testDifferencesWithinTolerance() {
+        final BufferedImage actual = image(WIDTH, HEIGHT);
+        actual.setRGB(1, 1, 0xFF828282);
+        actual.setRGB(20, 20, 0xFF000000);
+        final ImageComparison comparison = new ImageComparator(2, 1L, TILE_SIZE).compare(image(WIDTH, HEIGHT), actual);
+        assertTrue(comparison.isMatch());
+        assertEquals(1L, comparison.getDifferentPixels());
+        assertNull(comparison.getDifference());
+    }
+
+    /**
+     * Verify that a mismatch is reported with a difference image that highlights the different pixels and fades the
+     * others, including in tiles that have no differences.
+     */
+    @Test
+    public void testMismatch() {
+        final BufferedImage actual = image(WIDTH, HEIGHT);
+        actual.setRGB(3, 4, 0xFF000000);
+        actual.setRGB(35, 25, 0xFFFFFFFF);
+        final ImageComparison comparison = new ImageComparator(0, 1L, TILE_SIZE).compare(image(WIDTH, HEIGHT), actual);
+        assertFalse(comparison.isMatch());
+        assertEquals(2L, comparison.getDifferentPixels());
+        final BufferedImage difference = comparison.getDifference();
+        assertNotNull(difference);
+        assertEquals(WIDTH, difference.getWidth());
+        assertEquals(HEIGHT, difference.getHeight());
+        assertEquals(HIGHLIGHT, difference.getRGB(3, 4));
+        assertEquals(HIGHLIGHT, difference.getRGB(35, 25));
+        assertEquals(FADED_GREY, difference.getRGB(4, 4));
+        assertEquals(FADED_GREY, difference.getRGB(20, 5));
+    }
+
+    /**
+     * Verify that images of different sizes never match and that the pixels outside the smaller image are
+     * highlighted.
+     */
+    @Test
+    public void testSizeChange() {
+        final ImageComparison comparison = new ImageComparator(0, Long.MAX_VALUE, TILE_SIZE)
+                .compare(image(WIDTH, HEIGHT), image(WIDTH, HEIGHT + 2));
+        assertFalse(comparison.isMatch());
+        assertEquals(2L * WIDTH, comparison.getDifferentPixels());
+        final BufferedImage difference = comparison.getDifference();
+        assertEquals(WIDTH, difference.getWidth());
+        assertEquals(HEIGHT + 2, difference.getHeight());
+        assertEquals(FADED_GREY, difference.getRGB(0, HEIGHT - 1));
+        assertEquals(HIGHLIGHT, difference.getRGB(0, HEIGHT));
+        assertEquals(HIGHLIGHT, difference.getRGB(WIDTH - 1, HEIGHT + 1));
+    }
+
+    /**
+     * Create a grey image.
+     *
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @return The image.
+     */
+    private static BufferedImage image(final int width, final int height) {
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        fill(image, GREY);
+        return image;
+    }
+
+    /**
+     * Fill an image with a single colour.
+     *
+     * @param image  The image.
+     * @param colour The colour.
+     */
+    private static void fill(final BufferedImage image, final int colour) {
+        for (int y = 0; y < image.getHeight(); ++y) {
+            for (int x = 0; x < image.getWidth(); ++x) {
+                image.setRGB(x, y, colour);
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.rule.test;
+
+import com.btmatthews.selenium.junit4.rule.PageTiming;
+import com.btmatthews.selenium.junit4.rule.PerformanceBudget;
+import com.btmatthews.selenium.junit4.runner.HtmlUnitProfile;
+import com.btmatthews.selenium.junit4.runner.SeleniumFixture;
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner;
+import com.btmatthews.selenium.junit4.runner.SeleniumWebDriver;
+import com.btmatthews.selenium.junit4.runner.WebDriverConfiguration;
+import com.btmatthews.selenium.junit4.runner.test.ForkedJVM;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openqa.selenium.WebDriver;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link PageTiming} method rule. HTML Unit does not support the Navigation Timing API so the page
+ * load time is only measured when the tests are run against a real browser.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+@RunWith(SeleniumJUnit4ClassRunner.class)
+@WebDriverConfiguration()
+@HtmlUnitProfile
+@PerformanceBudget(loadTime = 10000L, resources = 10)
+public final class PageTimingITCase {
+
+    /**
+     * The report directory used by the forked test run.
+     */
+    private static final String RUN_DIRECTORY = "target/page-timing-run";
+
+    /**
+     * The object used to start/stop the web browser used for testing.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumWebDriver
+    private WebDriver webDriver;
+
+    /**
+     * The base URL of the fixture web server serving src/test/resources/fixtures.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumFixture
+    private String fixtureURL;
+
+    /**
+     * The method rule that measures the page load times.
+     */
+    @Rule
+    public PageTiming pageTiming = new PageTiming("target/page-timing");
+
+    /**
+     * Verify that the fixture page loads within the budget.
+     */
+    @Test
+    public void testFixturePage() {
+        webDriver.navigate().to(fixtureURL + "/index.html");
+        final long loadTime = pageTiming.measure();
+        assertTrue(loadTime >= -1L && loadTime <= 10000L);
+    }
+
+    /**
+     * Verify that the summary is written when the JVM exits and only includes the samples of the current test run,
+     * including those appended to the samples file by other JVMs in the same test run. The timing fixture page
+     * supplies its own timing data if the browser does not support the Navigation Timing API.
+     *
+     * @throws Exception If there was an error reading or writing the report.
+     */
+    @Test
+    public void testSummaryForCurrentRun() throws Exception {
+        final File directory = new File(RUN_DIRECTORY);
+        FileUtils.deleteQuietly(directory);
+        FileUtils.writeStringToFile(new File(directory, "page-timing-samples.csv"),
+                "run,timestamp,browser,url,load,first_byte,resources\n"
+                        + "\"previous\",1,\"previous\",\"http://previous/\",1,1,1\n"
+                        + "\"current\",2,\"other\",\"http://other/a,b\",1234,56,7\n", "UTF-8");
+        assertEquals(ForkedJVM.PASSED,
+                ForkedJVM.run(new String[]{"selenium.junit4.timing.run=current"}, TimingPage.class));
+        final String summary = FileUtils.readFileToString(new File(directory, "page-timing.csv"), "UTF-8");
+        assertTrue(summary, summary.contains("\"other\",\"http://other/a,b\",1,1234,"));
+        assertTrue(summary, summary.contains("/timing.html\","));
+        assertFalse(summary, summary.contains("previous"));
+    }
+
+    /**
+     * Test class that measures the timing fixture page in a forked JVM.
+     */
+    @RunWith(SeleniumJUnit4ClassRunner.class)
+    @WebDriverConfiguration
+    @HtmlUnitProfile
+    public static final class TimingPage {
+
+        /**
+         * The web driver.
+         */
+        @SeleniumWebDriver
+        private WebDriver webDriver;
+
+        /**
+         * The base URL of the fixture web server serving src/test/resources/fixtures.
+         */
+        @SeleniumFixture
+        private String fixtureURL;
+
+        /**
+         * The method rule that measures the page load times.
+         */
+        @Rule
+        public PageTiming pageTiming = new PageTiming(RUN_DIRECTORY);
+
+        /**
+         * Measure the timing fixture page and verify that the summary has not been written yet.
+         */
+        @Test
+        public void testPage() {
+            webDriver.navigate().to(fixtureURL + "/timing.html");
+            assertTrue(pageTiming.measure() >= 0L);
+            assertFalse(new File(RUN_DIRECTORY, "page-timing.csv").exists());
+        }
+    }
+}
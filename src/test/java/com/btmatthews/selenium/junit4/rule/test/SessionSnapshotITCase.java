@@ -0,0 +1,144 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.rule.test;
+
+import com.btmatthews.selenium.junit4.rule.Authenticator;
+import com.btmatthews.selenium.junit4.rule.SessionSnapshot;
+import com.btmatthews.selenium.junit4.runner.SeleniumFixture;
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner;
+import com.btmatthews.selenium.junit4.runner.SeleniumWebDriver;
+import com.btmatthews.selenium.junit4.runner.WebDriverConfiguration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.WebDriver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Unit tests for the {@link SessionSnapshot} method rule.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+@RunWith(SeleniumJUnit4ClassRunner.class)
+@WebDriverConfiguration()
+public final class SessionSnapshotITCase {
+
+    /**
+     * The number of times the authentication fixture has run.
+     */
+    private static int authentications;
+
+    /**
+     * The object used to start/stop the web browser used for testing.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumWebDriver
+    private WebDriver webDriver;
+
+    /**
+     * The base URL of the fixture web server serving src/test/resources/fixtures.
+     */
+    @SeleniumFixture
+    private String fixtureURL;
+
+    /**
+     * The method rule that logs in once and restores the session for the other test cases.
+     */
+    @Rule
+    public SessionSnapshot sessionSnapshot = new SessionSnapshot("user", new Authenticator() {
+        public void authenticate(final WebDriver driver) {
+            ++authentications;
+            driver.navigate().to(fixtureURL + "/index.html");
+            driver.manage().addCookie(new Cookie("session", "secret"));
+        }
+    });
+
+    /**
+     * Verify that the session cookie is present.
+     */
+    @Test
+    public void testFirst() {
+        verifySession();
+    }
+
+    /**
+     * Verify that the session cookie is present.
+     */
+    @Test
+    public void testSecond() {
+        verifySession();
+    }
+
+    /**
+     * Verify that a test case is not run if the authentication fixture fails.
+     */
+    @Test
+    public void testFailedAuthenticationAbortsTest() {
+        final Result result = JUnitCore.runClasses(FailingAuthentication.class);
+        assertEquals(1, result.getFailureCount());
+        assertEquals("Login failed", result.getFailures().get(0).getMessage());
+        assertFalse(FailingAuthentication.bodyRan);
+    }
+
+    /**
+     * Verify that the authentication fixture ran once and the session cookie is present.
+     */
+    private void verifySession() {
+        assertEquals(1, authentications);
+        final Cookie cookie = webDriver.manage().getCookieNamed("session");
+        assertNotNull(cookie);
+        assertEquals("secret", cookie.getValue());
+    }
+
+    /**
+     * Test class whose authentication fixture fails.
+     */
+    @RunWith(SeleniumJUnit4ClassRunner.class)
+    @WebDriverConfiguration()
+    public static final class FailingAuthentication {
+
+        /**
+         * Set if the test case was run.
+         */
+        private static boolean bodyRan;
+
+        /**
+         * The method rule with an authentication fixture that always fails.
+         */
+        @Rule
+        public SessionSnapshot sessionSnapshot = new SessionSnapshot("failing", new Authenticator() {
+            public void authenticate(final WebDriver driver) {
+                throw new IllegalStateException("Login failed");
+            }
+        });
+
+        /**
+         * Record that the test case was run.
+         */
+        @Test
+        public void testBody() {
+            bodyRan = true;
+        }
+    }
+}
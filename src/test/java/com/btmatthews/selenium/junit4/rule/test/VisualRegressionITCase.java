@@ -0,0 +1,75 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.rule.test;
+
+import com.btmatthews.selenium.junit4.rule.VisualRegression;
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner;
+import com.btmatthews.selenium.junit4.runner.SeleniumWebDriver;
+import com.btmatthews.selenium.junit4.runner.WebDriverConfiguration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.firefox.FirefoxDriver;
+
+/**
+ * Integration test cases for the {@link VisualRegression} rule.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+@RunWith(SeleniumJUnit4ClassRunner.class)
+@WebDriverConfiguration(baseDrivers = FirefoxDriver.class)
+public class VisualRegressionITCase {
+
+    /**
+     * This rule records baselines in the target/baselines directory on the first run and compares against them on
+     * subsequent runs.
+     */
+    @Rule
+    public VisualRegression visualRegression = new VisualRegression("target/baselines", "target/differences");
+
+    /**
+     * The object used to start/stop the web browser used for testing.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumWebDriver
+    private WebDriver webDriver;
+
+    /**
+     * Verify that the entire page matches the baseline.
+     *
+     * @throws Exception If there was an error reading or writing the images.
+     */
+    @Test
+    public void testPage() throws Exception {
+        webDriver.navigate().to("http://www.google.com");
+        visualRegression.verify("home");
+    }
+
+    /**
+     * Verify that a single element matches the baseline.
+     *
+     * @throws Exception If there was an error reading or writing the images.
+     */
+    @Test
+    public void testElement() throws Exception {
+        webDriver.navigate().to("http://www.google.com");
+        visualRegression.verify("logo", webDriver.findElement(By.id("hplogo")));
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner.test;
+
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner;
+import com.btmatthews.selenium.junit4.runner.SeleniumWebDriver;
+import com.btmatthews.selenium.junit4.runner.SharedBrowser;
+import com.btmatthews.selenium.junit4.runner.WebDriverConfiguration;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for stopping browser sessions on background threads. The test classes are run in a separate JVM
+ * because the teardown settings are read once per JVM.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public final class AsyncTeardownITCase {
+
+    /**
+     * The number of browser sessions stopped by the test classes.
+     */
+    private static final int SESSIONS = 4;
+
+    /**
+     * The number of browser sessions being stopped.
+     */
+    private static final AtomicInteger STOPPING = new AtomicInteger();
+
+    /**
+     * The largest number of browser sessions that were being stopped at once.
+     */
+    private static final AtomicInteger PEAK = new AtomicInteger();
+
+    /**
+     * The number of browser sessions that have stopped.
+     */
+    private static final AtomicInteger STOPPED = new AtomicInteger();
+
+    /**
+     * Verify that no more than the maximum number of browser sessions are stopped at once and that a shared browser
+     * session is stopped when its last window is closed even though that uses the only teardown slot.
+     *
+     * @throws Exception If the JVM could not be run.
+     */
+    @Test
+    public void testMaxInFlight() throws Exception {
+        assertEquals(ForkedJVM.PASSED, ForkedJVM.run(
+                new String[]{"selenium.junit4.teardown.async=true", "selenium.junit4.teardown.maxInFlight=1"},
+                SharedFixture.class, SessionFixture.class, SessionFixture.class, SessionFixture.class,
+                AwaitTeardown.class));
+    }
+
+    /**
+     * Verify that a browser session that never stops is abandoned after the grace period and that its slot is
+     * released so that the next test class can start a browser session when only one session may be live.
+     *
+     * @throws Exception If the JVM could not be run.
+     */
+    @Test
+    public void testAbandonedSessionReleasesSlot() throws Exception {
+        assertEquals(ForkedJVM.PASSED, ForkedJVM.run(
+                new String[]{"selenium.junit4.teardown.async=true", "selenium.junit4.teardown.gracePeriod=2000",
+                        "selenium.junit4.sessions.max=1"},
+                HangingFixture.class, SessionFixture.class));
+    }
+
+    /**
+     * Web driver that takes a while to stop and counts the sessions being stopped.
+     */
+    public static final class SlowStoppingDriver extends HtmlUnitDriver {
+
+        /**
+         * Construct the web driver with JavaScript enabled so that it can open windows.
+         */
+        public SlowStoppingDriver() {
+            super(true);
+        }
+
+        /**
+         * Stop the session after a delay.
+         */
+        @Override
+        public void quit() {
+            final int stopping = STOPPING.incrementAndGet();
+            int peak = PEAK.get();
+            while (stopping > peak && !PEAK.compareAndSet(peak, stopping)) {
+                peak = PEAK.get();
+            }
+            try {
+                Thread.sleep(500L);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                super.quit();
+                STOPPING.decrementAndGet();
+                STOPPED.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Web driver that never stops.
+     */
+    public static final class HangingDriver extends HtmlUnitDriver {
+
+        /**
+         * Block forever, ignoring interrupts, without stopping the session.
+         */
+        @Override
+        public void quit() {
+            while (true) {
+                try {
+                    Thread.sleep(1000L);
+                } catch (final InterruptedException e) {
+                    // Keep hanging
+                }
+            }
+        }
+    }
+
+    /**
+     * Test class that runs its tests in two windows of a shared browser session.
+     */
+    @RunWith(SeleniumJUnit4ClassRunner.class)
+    @WebDriverConfiguration(baseDrivers = SlowStoppingDriver.class)
+    @SharedBrowser(windows = 2)
+    public static final class SharedFixture {
+
+        /**
+         * The web driver bound to the window in which the test runs.
+         */
+        @SeleniumWebDriver
+        private WebDriver webDriver;
+
+        /**
+         * Use the first window.
+         */
+        @Test
+        public void testFirstWindow() {
+            webDriver.navigate().to("about:blank");
+        }
+
+        /**
+         * Use the second window.
+         */
+        @Test
+        public void testSecondWindow() {
+            webDriver.navigate().to("about:blank");
+        }
+    }
+
+    /**
+     * Test class that uses its own browser session.
+     */
+    @RunWith(SeleniumJUnit4ClassRunner.class)
+    @WebDriverConfiguration(baseDrivers = SlowStoppingDriver.class)
+    public static final class SessionFixture {
+
+        /**
+         * The web driver.
+         */
+        @SeleniumWebDriver
+        private WebDriver webDriver;
+
+        /**
+         * Use the browser session.
+         */
+        @Test
+        public void testSession() {
+            webDriver.navigate().to("about:blank");
+        }
+    }
+
+    /**
+     * Test class whose browser session never stops.
+     */
+    @RunWith(SeleniumJUnit4ClassRunner.class)
+    @WebDriverConfiguration(baseDrivers = HangingDriver.class)
+    public static final class HangingFixture {
+
+        /**
+         * The web driver.
+         */
+        @SeleniumWebDriver
+        private WebDriver webDriver;
+
+        /**
+         * Use the browser session.
+         */
+        @Test
+        public void testSession() {
+            webDriver.navigate().to("about:blank");
+        }
+    }
+
+    /**
+     * Test class that waits for the browser sessions to stop.
+     */
+    public static final class AwaitTeardown {
+
+        /**
+         * Verify that all the browser sessions stopped and that they were stopped one at a time.
+         *
+         * @throws Exception If interrupted while waiting.
+         */
+        @Test
+        public void testStopped() throws Exception {
+            final long deadline = System.currentTimeMillis() + 30000L;
+            while (STOPPED.get() < SESSIONS && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100L);
+            }
+            assertEquals(SESSIONS, STOPPED.get());
+            assertEquals(1, PEAK.get());
+        }
+    }
+}
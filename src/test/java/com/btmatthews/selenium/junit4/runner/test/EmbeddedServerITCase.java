@@ -0,0 +1,74 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner.test;
+
+import com.btmatthews.selenium.junit4.runner.SeleniumBrowser;
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner;
+import com.btmatthews.selenium.junit4.runner.SeleniumServer;
+import com.btmatthews.selenium.junit4.runner.ServerConfiguration;
+import com.thoughtworks.selenium.Selenium;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Unit tests for the embedded Selenium Server started by {@link ServerConfiguration#embedded()}. The serverHost and
+ * serverPort point at an address on which nothing is listening so the tests can only pass if the embedded server is
+ * used. The Selenium Server's mock browser is used so that no real browser is required.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+@RunWith(SeleniumJUnit4ClassRunner.class)
+@ServerConfiguration(embedded = true, serverHost = "localhost", serverPort = 1,
+        browserStartCommands = "*mock", browserURL = "http://localhost")
+public final class EmbeddedServerITCase {
+
+    /**
+     * The object used to drive the mock browser through the embedded Selenium Server.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumServer
+    private Selenium server;
+
+    /**
+     * The name of the browser being used for the test.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumBrowser
+    private String browserName;
+
+    /**
+     * Verify that the test runner injected the Selenium Server.
+     */
+    @Test
+    public void testInjection() {
+        assertNotNull(server);
+        assertEquals("mock", browserName);
+    }
+
+    /**
+     * Verify that commands are executed by the embedded Selenium Server.
+     */
+    @Test
+    public void testCommands() {
+        server.open("/");
+        assertNotNull(server.getTitle());
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner.test;
+
+import com.btmatthews.selenium.junit4.runner.SeleniumFixture;
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner;
+import com.btmatthews.selenium.junit4.runner.SeleniumWebDriver;
+import com.btmatthews.selenium.junit4.runner.WebDriverConfiguration;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Unit tests for the {@link SeleniumFixture} embedded fixture web server.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+@RunWith(SeleniumJUnit4ClassRunner.class)
+@WebDriverConfiguration()
+public final class FixtureITCase {
+
+    /**
+     * The object used to start/stop the web browser used for testing.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumWebDriver
+    private WebDriver webDriver;
+
+    /**
+     * The base URL of the fixture web server serving src/test/resources/fixtures.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumFixture
+    private String fixtureURL;
+
+    /**
+     * Verify that the test runner injected the fixture web server URL.
+     */
+    @Test
+    public void testInjection() {
+        assertNotNull(fixtureURL);
+    }
+
+    /**
+     * Verify that we can navigate to the fixture page.
+     */
+    @Test
+    public void testFixturePage() {
+        webDriver.navigate().to(fixtureURL + "/index.html");
+        assertEquals("Fixture", webDriver.getTitle());
+        assertEquals("Selenium JUnit 4 Runner", webDriver.findElement(By.id("heading")).getText());
+    }
+}
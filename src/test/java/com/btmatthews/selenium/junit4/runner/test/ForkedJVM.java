@@ -0,0 +1,114 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner.test;
+
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs test classes in a separate JVM for the tests of features that are configured once per JVM using system
+ * properties.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public final class ForkedJVM {
+
+    /**
+     * The exit code used when the test classes passed.
+     */
+    public static final int PASSED = 0;
+
+    /**
+     * The exit code used when the test classes failed.
+     */
+    public static final int FAILED = 1;
+
+    /**
+     * The exit code used when the test classes did not finish within the timeout.
+     */
+    public static final int TIMED_OUT = 2;
+
+    /**
+     * The number of milliseconds the test classes are given to finish.
+     */
+    private static final long TIMEOUT = 60000L;
+
+    /**
+     * Default constructor is private.
+     */
+    private ForkedJVM() {
+    }
+
+    /**
+     * Run test classes in a separate JVM.
+     *
+     * @param properties The system properties as {@code name=value} pairs.
+     * @param classes    The test classes.
+     * @return The exit code of the JVM.
+     * @throws Exception If the JVM could not be run.
+     */
+    public static int run(final String[] properties, final Class<?>... classes) throws Exception {
+        final List<String> command = new ArrayList<String>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        for (final String property : properties) {
+            command.add("-D" + property);
+        }
+        command.add(ForkedJVM.class.getName());
+        for (final Class<?> klass : classes) {
+            command.add(klass.getName());
+        }
+        return new ProcessBuilder(command).inheritIO().start().waitFor();
+    }
+
+    /**
+     * Run the test classes one after another and exit with {@link #PASSED}, {@link #FAILED} or
+     * {@link #TIMED_OUT}. The JVM is halted if the test classes do not finish so that threads that are deadlocked
+     * do not keep it running.
+     *
+     * @param args The names of the test classes.
+     * @throws Exception If a test class could not be loaded.
+     */
+    public static void main(final String[] args) throws Exception {
+        final List<Class<?>> classes = new ArrayList<Class<?>>();
+        for (final String name : args) {
+            classes.add(Class.forName(name));
+        }
+        final AtomicBoolean passed = new AtomicBoolean();
+        final Thread thread = new Thread(new Runnable() {
+            public void run() {
+                final Result result = new JUnitCore().run(classes.toArray(new Class<?>[classes.size()]));
+                System.err.println(result.getFailures());
+                passed.set(result.wasSuccessful());
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        thread.join(TIMEOUT);
+        if (thread.isAlive()) {
+            Runtime.getRuntime().halt(TIMED_OUT);
+        }
+        System.exit(passed.get() ? PASSED : FAILED);
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner.test;
+
+import com.btmatthews.selenium.junit4.runner.HtmlUnitProfile;
+import com.btmatthews.selenium.junit4.runner.SeleniumFixture;
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner;
+import com.btmatthews.selenium.junit4.runner.SeleniumWebDriver;
+import com.btmatthews.selenium.junit4.runner.WebDriverConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.openqa.selenium.WebDriver;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link HtmlUnitProfile}. The fixture content is written to a directory so that a script can be
+ * changed between browser sessions. The files are given a last modified time in the past so that HTML Unit
+ * considers them cacheable.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public final class HtmlUnitProfileITCase {
+
+    /**
+     * The directory from which the fixture web server serves the content.
+     */
+    private static final String FIXTURE_DIRECTORY = "target/htmlunit-profile-fixture";
+
+    /**
+     * The last modified time given to the fixture files.
+     */
+    private static final long LAST_MODIFIED = System.currentTimeMillis() - 3600000L;
+
+    /**
+     * The title of the last page loaded by a fixture test class.
+     */
+    private static String title;
+
+    /**
+     * Write the fixture content.
+     *
+     * @throws Exception If the fixture content could not be written.
+     */
+    @BeforeClass
+    public static void setUpFixture() throws Exception {
+        final File directory = new File(FIXTURE_DIRECTORY);
+        FileUtils.deleteQuietly(directory);
+        write("script.html", "<html><head><title>none</title><script type=\"text/javascript\" src=\"script.js\">"
+                + "</script></head><body></body></html>");
+        write("script.js", "document.title = 'first';");
+        write("image.html", "<html><head><title>none</title></head><body>"
+                + "<img src=\"image.png\" onload=\"document.title = 'loaded';\"/></body></html>");
+    }
+
+    /**
+     * Verify that a script downloaded by one browser session is served to the next browser session from the
+     * shared cache and that a browser session that does not use the shared cache downloads it again.
+     *
+     * @throws Exception If the script could not be changed.
+     */
+    @Test
+    public void testSharedCache() throws Exception {
+        assertEquals("first", run(SharedCachePage.class));
+        write("script.js", "document.title = 'second';");
+        assertEquals("first", run(SharedCachePage.class));
+        assertEquals("second", run(PrivateCachePage.class));
+    }
+
+    /**
+     * Verify that image requests are answered without contacting the fixture web server when images are disabled.
+     * There is no image on the fixture web server so the image can only load, and change the title, if the request
+     * is suppressed.
+     */
+    @Test
+    public void testImagesDisabled() {
+        assertEquals("none", run(ImagesEnabledPage.class));
+        assertEquals("loaded", run(ImagesDisabledPage.class));
+    }
+
+    /**
+     * Run a fixture test class in its own browser session.
+     *
+     * @param fixture The fixture test class.
+     * @return The title of the page it loaded.
+     */
+    private static String run(final Class<?> fixture) {
+        title = null;
+        final Result result = JUnitCore.runClasses(fixture);
+        assertTrue(result.getFailures().toString(), result.wasSuccessful());
+        return title;
+    }
+
+    /**
+     * Write a fixture file and give it a last modified time in the past.
+     *
+     * @param name    The file name.
+     * @param content The file content.
+     * @throws IOException If the file could not be written.
+     */
+    private static void write(final String name, final String content) throws IOException {
+        final File file = new File(FIXTURE_DIRECTORY, name);
+        FileUtils.writeStringToFile(file, content, "UTF-8");
+        assertTrue(file.setLastModified(LAST_MODIFIED));
+    }
+
+    /**
+     * Test class that loads the page with the script using the shared cache.
+     */
+    @RunWith(SeleniumJUnit4ClassRunner.class)
+    @WebDriverConfiguration
+    @HtmlUnitProfile
+    public static final class SharedCachePage {
+
+        /**
+         * The web driver.
+         */
+        @SeleniumWebDriver
+        private WebDriver webDriver;
+
+        /**
+         * The base URL of the fixture web server.
+         */
+        @SeleniumFixture(FIXTURE_DIRECTORY)
+        private String fixtureURL;
+
+        /**
+         * Load the page and record its title.
+         */
+        @Test
+        public void testPage() {
+            webDriver.navigate().to(fixtureURL + "/script.html");
+            title = webDriver.getTitle();
+        }
+    }
+
+    /**
+     * Test class that loads the page with the script without using the shared cache.
+     */
+    @RunWith(SeleniumJUnit4ClassRunner.class)
+    @WebDriverConfiguration
+    @HtmlUnitProfile(sharedCache = false)
+    public static final class PrivateCachePage {
+
+        /**
+         * The web driver.
+         */
+        @SeleniumWebDriver
+        private WebDriver webDriver;
+
+        /**
+         * The base URL of the fixture web server.
+         */
+        @SeleniumFixture(FIXTURE_DIRECTORY)
+        private String fixtureURL;
+
+        /**
+         * Load the page and record its title.
+         */
+        @Test
+        public void testPage() {
+            webDriver.navigate().to(fixtureURL + "/script.html");
+            title = webDriver.getTitle();
+        }
+    }
+
+    /**
+     * Test class that loads the page with the image with images enabled.
+     */
+    @RunWith(SeleniumJUnit4ClassRunner.class)
+    @WebDriverConfiguration
+    @HtmlUnitProfile
+    public static final class ImagesEnabledPage {
+
+        /**
+         * The web driver.
+         */
+        @SeleniumWebDriver
+        private WebDriver webDriver;
+
+        /**
+         * The base URL of the fixture web server.
+         */
+        @SeleniumFixture(FIXTURE_DIRECTORY)
+        private String fixtureURL;
+
+        /**
+         * Load the page and record its title.
+         */
+        @Test
+        public void testPage() {
+            webDriver.navigate().to(fixtureURL + "/image.html");
+            title = webDriver.getTitle();
+        }
+    }
+
+    /**
+     * Test class that loads the page with the image with images disabled.
+     */
+    @RunWith(SeleniumJUnit4ClassRunner.class)
+    @WebDriverConfiguration
+    @HtmlUnitProfile(imagesEnabled = false)
+    public static final class ImagesDisabledPage {
+
+        /**
+         * The web driver.
+         */
+        @SeleniumWebDriver
+        private WebDriver webDriver;
+
+        /**
+         * The base URL of the fixture web server.
+         */
+        @SeleniumFixture(FIXTURE_DIRECTORY)
+        private String fixtureURL;
+
+        /**
+         * Load the page and record its title.
+         */
+        @Test
+        public void testPage() {
+            webDriver.navigate().to(fixtureURL + "/image.html");
+            title = webDriver.getTitle();
+        }
+    }
+}
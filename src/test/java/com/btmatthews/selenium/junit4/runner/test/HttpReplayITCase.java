@@ -0,0 +1,171 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner.test;
+
+import com.btmatthews.selenium.junit4.runner.HttpReplay;
+import com.btmatthews.selenium.junit4.runner.SeleniumFixture;
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner;
+import com.btmatthews.selenium.junit4.runner.SeleniumServer;
+import com.btmatthews.selenium.junit4.runner.SeleniumWebDriver;
+import com.btmatthews.selenium.junit4.runner.WebDriverConfiguration;
+import com.btmatthews.selenium.junit4.runner.WrappedDriverConfiguration;
+import com.thoughtworks.selenium.Selenium;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.openqa.selenium.WebDriver;
+
+import java.io.File;
+import java.net.URL;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link HttpReplay} stand-in. The responses of the embedded fixture web server, including a
+ * redirect, are recorded and then replayed by a stand-in listening on a different port.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public final class HttpReplayITCase {
+
+    /**
+     * The system property used to override the browser URL.
+     */
+    private static final String BROWSER_URL_PROPERTY = "selenium.junit4.browserURL";
+
+    /**
+     * The system property used to override the replay mode.
+     */
+    private static final String MODE_PROPERTY = "selenium.junit4.replay.mode";
+
+    /**
+     * The directory in which the responses are recorded.
+     */
+    private static final String STORE = "target/http-replay-test";
+
+    /**
+     * The base URL of the fixture web server.
+     */
+    private static String fixtureURL;
+
+    /**
+     * The location of the page after the redirect was followed.
+     */
+    private static String location;
+
+    /**
+     * Discard any previous recording and find the fixture web server.
+     */
+    @Before
+    public void setUp() {
+        FileUtils.deleteQuietly(new File(STORE));
+        assertTrue(JUnitCore.runClasses(FixtureLocator.class).wasSuccessful());
+        System.setProperty(BROWSER_URL_PROPERTY, fixtureURL);
+    }
+
+    /**
+     * Clear the overrides.
+     */
+    @After
+    public void tearDown() {
+        System.clearProperty(BROWSER_URL_PROPERTY);
+        System.clearProperty(MODE_PROPERTY);
+    }
+
+    /**
+     * Verify that a redirect recorded by one stand-in is followed to a replaying stand-in on a different port.
+     *
+     * @throws Exception If a location could not be parsed.
+     */
+    @Test
+    public void testRecordThenReplayRedirect() throws Exception {
+        System.setProperty(MODE_PROPERTY, "RECORD");
+        final Result recorded = JUnitCore.runClasses(ReplayFixture.class);
+        assertTrue(recorded.getFailures().toString(), recorded.wasSuccessful());
+        final URL recordedLocation = new URL(location);
+        System.setProperty(MODE_PROPERTY, "REPLAY");
+        final Result replayed = JUnitCore.runClasses(ReplayFixture.class);
+        assertTrue(replayed.getFailures().toString(), replayed.wasSuccessful());
+        final URL replayedLocation = new URL(location);
+        assertEquals(recordedLocation.getPath(), replayedLocation.getPath());
+        assertTrue(recordedLocation.getPort() != replayedLocation.getPort());
+        assertTrue(recordedLocation.getPort() != new URL(fixtureURL).getPort());
+    }
+
+    /**
+     * Test class that captures the base URL of the fixture web server.
+     */
+    @RunWith(SeleniumJUnit4ClassRunner.class)
+    @WebDriverConfiguration
+    public static final class FixtureLocator {
+
+        /**
+         * The web driver.
+         */
+        @SuppressWarnings("unused")
+        @SeleniumWebDriver
+        private WebDriver webDriver;
+
+        /**
+         * The base URL of the fixture web server.
+         */
+        @SeleniumFixture
+        private String url;
+
+        /**
+         * Capture the base URL.
+         */
+        @Test
+        public void testLocate() {
+            assertNotNull(url);
+            fixtureURL = url;
+        }
+    }
+
+    /**
+     * Test class that follows a redirect through the stand-in.
+     */
+    @RunWith(SeleniumJUnit4ClassRunner.class)
+    @WrappedDriverConfiguration(browserURL = "http://localhost/")
+    @HttpReplay(store = STORE)
+    public static final class ReplayFixture {
+
+        /**
+         * The Selenium session.
+         */
+        @SuppressWarnings("unused")
+        @SeleniumServer
+        private Selenium server;
+
+        /**
+         * Open a directory without its trailing slash so that the fixture web server redirects.
+         */
+        @Test
+        public void testRedirect() {
+            server.open("/redirect");
+            assertEquals("Redirected", server.getTitle());
+            location = server.getLocation();
+        }
+    }
+}
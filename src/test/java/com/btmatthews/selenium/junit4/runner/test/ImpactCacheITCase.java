@@ -0,0 +1,217 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.btmatthews.selenium.junit4.runner.test;
+
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner;
+import com.btmatthews.selenium.junit4.runner.SeleniumServer;
+import com.btmatthews.selenium.junit4.runner.SeleniumWebDriver;
+import com.btmatthews.selenium.junit4.runner.WebDriverConfiguration;
+import com.btmatthews.selenium.junit4.runner.WrappedDriverConfiguration;
+import com.thoughtworks.selenium.Selenium;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.openqa.selenium.WebDriver;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the test impact cache that skips test classes that are unchanged since they last passed.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public final class ImpactCacheITCase {
+
+    /**
+     * The system property used to enable the test impact cache.
+     */
+    private static final String CACHE_PROPERTY = "selenium.junit4.impact.cache";
+
+    /**
+     * The system property used to supply the application version key.
+     */
+    private static final String VERSION_PROPERTY = "selenium.junit4.impact.version";
+
+    /**
+     * The system property used to override the browser URL.
+     */
+    private static final String BROWSER_URL_PROPERTY = "selenium.junit4.browserURL";
+
+    /**
+     * The number of times the fixture test has been run.
+     */
+    private static final AtomicInteger RUNS = new AtomicInteger();
+
+    /**
+     * The cache directory.
+     */
+    private final File cacheDirectory = new File("target/impact-cache-test");
+
+    /**
+     * Enable the test impact cache with an empty cache.
+     */
+    @Before
+    public void setUp() {
+        FileUtils.deleteQuietly(cacheDirectory);
+        System.setProperty(CACHE_PROPERTY, cacheDirectory.getPath());
+        System.setProperty(VERSION_PROPERTY, "1.0");
+        RUNS.set(0);
+    }
+
+    /**
+     * Disable the test impact cache.
+     */
+    @After
+    public void tearDown() {
+        System.clearProperty(CACHE_PROPERTY);
+        System.clearProperty(VERSION_PROPERTY);
+        System.clearProperty(BROWSER_URL_PROPERTY);
+        FileUtils.deleteQuietly(cacheDirectory);
+    }
+
+    /**
+     * Verify that the tests are skipped after they pass until the application version key changes or the cache is
+     * deleted.
+     */
+    @Test
+    public void testSkipUnchanged() {
+        assertTrue(run(Request.aClass(ImpactFixture.class), 0).wasSuccessful());
+        assertEquals(1, RUNS.get());
+        run(Request.aClass(ImpactFixture.class), 2);
+        assertEquals(1, RUNS.get());
+        System.setProperty(VERSION_PROPERTY, "1.1");
+        run(Request.aClass(ImpactFixture.class), 0);
+        assertEquals(2, RUNS.get());
+        FileUtils.deleteQuietly(cacheDirectory);
+        run(Request.aClass(ImpactFixture.class), 0);
+        assertEquals(3, RUNS.get());
+    }
+
+    /**
+     * Verify that running a subset of the tests does not record the test class as passed.
+     */
+    @Test
+    public void testFilteredRunNotRecorded() {
+        run(Request.method(ImpactFixture.class, "testRun"), 0);
+        run(Request.method(ImpactFixture.class, "testRun"), 0);
+        assertEquals(2, RUNS.get());
+    }
+
+    /**
+     * Verify that the tests are run again when the browser URL is overridden because they are then run against a
+     * different application.
+     */
+    @Test
+    public void testOverrideChanged() {
+        assertTrue(run(Request.aClass(WrappedFixture.class), 0).wasSuccessful());
+        assertEquals(1, RUNS.get());
+        run(Request.aClass(WrappedFixture.class), 1);
+        assertEquals(1, RUNS.get());
+        System.setProperty(BROWSER_URL_PROPERTY, "http://localhost:8081");
+        run(Request.aClass(WrappedFixture.class), 0);
+        assertEquals(2, RUNS.get());
+        run(Request.aClass(WrappedFixture.class), 1);
+        assertEquals(2, RUNS.get());
+    }
+
+    /**
+     * Run the fixture tests and check how many were skipped.
+     *
+     * @param request The tests to run.
+     * @param skipped The expected number of skipped tests.
+     * @return The result.
+     */
+    private Result run(final Request request, final int skipped) {
+        final AtomicInteger assumptionFailures = new AtomicInteger();
+        final JUnitCore core = new JUnitCore();
+        core.addListener(new RunListener() {
+            @Override
+            public void testAssumptionFailure(final Failure failure) {
+                assumptionFailures.incrementAndGet();
+            }
+        });
+        final Result result = core.run(request);
+        assertEquals(skipped, assumptionFailures.get());
+        return result;
+    }
+
+    /**
+     * Test class whose runs are counted.
+     */
+    @RunWith(SeleniumJUnit4ClassRunner.class)
+    @WebDriverConfiguration
+    public static final class ImpactFixture {
+
+        /**
+         * The web driver.
+         */
+        @SuppressWarnings("unused")
+        @SeleniumWebDriver
+        private WebDriver webDriver;
+
+        /**
+         * Count the run.
+         */
+        @Test
+        public void testRun() {
+            RUNS.incrementAndGet();
+        }
+
+        /**
+         * Verify that the test runner injected the web driver.
+         */
+        @Test
+        public void testInjection() {
+            assertNotNull(webDriver);
+        }
+    }
+
+    /**
+     * Test class whose runs are counted and whose browser URL can be overridden.
+     */
+    @RunWith(SeleniumJUnit4ClassRunner.class)
+    @WrappedDriverConfiguration(browserURL = "http://localhost:8080")
+    public static final class WrappedFixture {
+
+        /**
+         * The Selenium Server that wraps the web driver.
+         */
+        @SeleniumServer
+        private Selenium server;
+
+        /**
+         * Count the run.
+         */
+        @Test
+        public void testRun() {
+            assertNotNull(server);
+            RUNS.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner.test;
+
+import com.btmatthews.selenium.junit4.runner.LoadTest;
+import com.btmatthews.selenium.junit4.runner.SeleniumFixture;
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner;
+import com.btmatthews.selenium.junit4.runner.SeleniumWebDriver;
+import com.btmatthews.selenium.junit4.runner.WebDriverConfiguration;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openqa.selenium.WebDriver;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link LoadTest} load generation mode.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+@RunWith(SeleniumJUnit4ClassRunner.class)
+@WebDriverConfiguration()
+@LoadTest(users = 2, rampUp = 500L, duration = 4000L, maxErrorRate = 0.0, report = "target/load-test")
+public final class LoadTestITCase {
+
+    /**
+     * The number of times the class level fixtures have been run.
+     */
+    private static final AtomicInteger SET_UPS = new AtomicInteger();
+
+    /**
+     * The object used to start/stop the web browser used for testing.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumWebDriver
+    private WebDriver webDriver;
+
+    /**
+     * The base URL of the fixture web server serving src/test/resources/fixtures.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumFixture
+    private String fixtureURL;
+
+    /**
+     * Count the times the class level fixtures are run.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        SET_UPS.incrementAndGet();
+    }
+
+    /**
+     * Load the fixture page and verify that the class level fixtures have only been run once around the browsers and
+     * once for each virtual user rather than once for each iteration.
+     */
+    @Test
+    public void testFixturePage() {
+        webDriver.navigate().to(fixtureURL + "/index.html");
+        assertEquals("Fixture", webDriver.getTitle());
+        assertTrue(SET_UPS.toString(), SET_UPS.get() <= 3);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.btmatthews.selenium.junit4.runner.test;
+
+import com.btmatthews.selenium.junit4.runner.SeleniumBrowser;
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner;
+import com.btmatthews.selenium.junit4.runner.WebDriverConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the external overrides of the browser matrix.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public final class MatrixOverrideITCase {
+
+    /**
+     * The system property used to exclude web drivers.
+     */
+    private static final String EXCLUDE_PROPERTY = "selenium.junit4.browsers.drivers.exclude";
+
+    /**
+     * The system property used to replace browser start commands.
+     */
+    private static final String COMMANDS_REPLACE_PROPERTY = "selenium.junit4.browsers.commands.replace";
+
+    /**
+     * The system property used to name the properties file.
+     */
+    private static final String FILE_PROPERTY = "selenium.junit4.matrix.file";
+
+    /**
+     * The browsers that have run the fixture test.
+     */
+    private static final Set<String> BROWSERS = new HashSet<String>();
+
+    /**
+     * Remove the overrides.
+     */
+    @After
+    public void tearDown() {
+        System.clearProperty(EXCLUDE_PROPERTY);
+        System.clearProperty(COMMANDS_REPLACE_PROPERTY);
+        System.clearProperty(FILE_PROPERTY);
+        BROWSERS.clear();
+    }
+
+    /**
+     * Verify that a browser can be excluded using a system property.
+     */
+    @Test
+    public void testExclude() {
+        System.setProperty(EXCLUDE_PROPERTY, "SecondHtmlUnitDriver");
+        final Result result = new JUnitCore().run(OverrideFixture.class);
+        assertTrue(result.wasSuccessful());
+        assertEquals(Collections.singleton("HtmlUnitDriver"), BROWSERS);
+    }
+
+    /**
+     * Verify that the browsers can be replaced using a properties file.
+     *
+     * @throws Exception If the properties file could not be written.
+     */
+    @Test
+    public void testReplaceFromFile() throws Exception {
+        final File file = new File("target/matrix-override-test.properties");
+        FileUtils.writeStringToFile(file, "selenium.junit4.browsers.drivers.replace="
+                + SecondHtmlUnitDriver.class.getName() + "\n", "UTF-8");
+        System.setProperty(FILE_PROPERTY, file.getPath());
+        final Result result = new JUnitCore().run(OverrideFixture.class);
+        assertTrue(result.wasSuccessful());
+        assertEquals(Collections.singleton("SecondHtmlUnitDriver"), BROWSERS);
+    }
+
+    /**
+     * Verify that browser start commands are not applied to a test class that is configured with web drivers.
+     */
+    @Test
+    public void testOtherTypeIgnored() {
+        System.setProperty(COMMANDS_REPLACE_PROPERTY, "*firefox");
+        final Result result = new JUnitCore().run(OverrideFixture.class);
+        assertTrue(result.wasSuccessful());
+        assertEquals(new HashSet<String>(Arrays.asList("HtmlUnitDriver", "SecondHtmlUnitDriver")), BROWSERS);
+    }
+
+    /**
+     * A second browser for the matrix.
+     */
+    public static final class SecondHtmlUnitDriver extends HtmlUnitDriver {
+    }
+
+    /**
+     * Test class whose browsers are recorded.
+     */
+    @RunWith(SeleniumJUnit4ClassRunner.class)
+    @WebDriverConfiguration(baseDrivers = {HtmlUnitDriver.class, SecondHtmlUnitDriver.class})
+    public static final class OverrideFixture {
+
+        /**
+         * The browser name.
+         */
+        @SuppressWarnings("unused")
+        @SeleniumBrowser
+        private String browser;
+
+        /**
+         * Record the browser.
+         */
+        @Test
+        public void testBrowser() {
+            synchronized (BROWSERS) {
+                BROWSERS.add(browser);
+            }
+        }
+    }
+}
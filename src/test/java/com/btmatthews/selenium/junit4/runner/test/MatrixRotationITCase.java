@@ -0,0 +1,230 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.btmatthews.selenium.junit4.runner.test;
+
+import com.btmatthews.selenium.junit4.runner.SeleniumBrowser;
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner;
+import com.btmatthews.selenium.junit4.runner.SeleniumParameters;
+import com.btmatthews.selenium.junit4.runner.WebDriverConfiguration;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the browser matrix rotation that runs each test method on one browser per build.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public final class MatrixRotationITCase {
+
+    /**
+     * The system property used to enable rotation.
+     */
+    private static final String ROTATE_PROPERTY = "selenium.junit4.matrix.rotate";
+
+    /**
+     * The system property used to set the build number.
+     */
+    private static final String BUILD_PROPERTY = "selenium.junit4.matrix.build";
+
+    /**
+     * The browser and test method pairs that have been run.
+     */
+    private static final Set<String> PAIRS = new HashSet<String>();
+
+    /**
+     * The data sets that have been run.
+     */
+    private static final List<String> DATA_SETS = new ArrayList<String>();
+
+    /**
+     * The number of times the data sets have been requested.
+     */
+    private static int requests;
+
+    /**
+     * Disable rotation.
+     */
+    @After
+    public void tearDown() {
+        System.clearProperty(ROTATE_PROPERTY);
+        System.clearProperty(BUILD_PROPERTY);
+        PAIRS.clear();
+        DATA_SETS.clear();
+        requests = 0;
+    }
+
+    /**
+     * Verify that each build runs each test method once and two consecutive builds cover the whole matrix.
+     */
+    @Test
+    public void testRotation() {
+        System.setProperty(ROTATE_PROPERTY, "true");
+        for (int build = 0; build < 2; ++build) {
+            System.setProperty(BUILD_PROPERTY, Integer.toString(build));
+            final Result result = new JUnitCore().run(RotationFixture.class);
+            assertTrue(result.wasSuccessful());
+            assertEquals(3, result.getRunCount());
+        }
+        assertEquals(new HashSet<String>(Arrays.asList(
+                "HtmlUnitDriver:testA", "HtmlUnitDriver:testB", "HtmlUnitDriver:testC",
+                "SecondHtmlUnitDriver:testA", "SecondHtmlUnitDriver:testB", "SecondHtmlUnitDriver:testC")), PAIRS);
+    }
+
+    /**
+     * Verify that the data sets are requested once for all the browsers so that each data set is run once even if
+     * the data set method returns them in a different order each time it is invoked.
+     */
+    @Test
+    public void testDataSetRotation() {
+        System.setProperty(ROTATE_PROPERTY, "true");
+        final Result result = new JUnitCore().run(DataSetFixture.class);
+        assertTrue(result.getFailures().toString(), result.wasSuccessful());
+        assertEquals(1, requests);
+        Collections.sort(DATA_SETS);
+        assertEquals(Arrays.asList("a", "b", "c"), DATA_SETS);
+    }
+
+    /**
+     * Verify that the whole matrix runs when rotation is not enabled.
+     */
+    @Test
+    public void testFullMatrix() {
+        final Result result = new JUnitCore().run(RotationFixture.class);
+        assertTrue(result.wasSuccessful());
+        assertEquals(6, result.getRunCount());
+    }
+
+    /**
+     * A second browser for the matrix.
+     */
+    public static final class SecondHtmlUnitDriver extends HtmlUnitDriver {
+    }
+
+    /**
+     * Test class whose browser and test method pairs are recorded.
+     */
+    @RunWith(SeleniumJUnit4ClassRunner.class)
+    @WebDriverConfiguration(baseDrivers = {HtmlUnitDriver.class, SecondHtmlUnitDriver.class})
+    public static final class RotationFixture {
+
+        /**
+         * Provides the test method name.
+         */
+        @Rule
+        public TestName testName = new TestName();
+
+        /**
+         * The browser name.
+         */
+        @SuppressWarnings("unused")
+        @SeleniumBrowser
+        private String browser;
+
+        /**
+         * Record the first test method.
+         */
+        @Test
+        public void testA() {
+            record();
+        }
+
+        /**
+         * Record the second test method.
+         */
+        @Test
+        public void testB() {
+            record();
+        }
+
+        /**
+         * Record the third test method.
+         */
+        @Test
+        public void testC() {
+            record();
+        }
+
+        /**
+         * Record the browser and test method pair.
+         */
+        private void record() {
+            synchronized (PAIRS) {
+                PAIRS.add(browser + ':' + testName.getMethodName());
+            }
+        }
+    }
+
+    /**
+     * Data-driven test class whose data set method returns the data sets in a different order each time.
+     */
+    @RunWith(SeleniumJUnit4ClassRunner.class)
+    @WebDriverConfiguration(baseDrivers = {HtmlUnitDriver.class, SecondHtmlUnitDriver.class})
+    public static final class DataSetFixture {
+
+        /**
+         * The value of the data set.
+         */
+        private final String value;
+
+        /**
+         * Construct the test for a data set.
+         *
+         * @param dataSetValue The value of the data set.
+         */
+        public DataSetFixture(final String dataSetValue) {
+            value = dataSetValue;
+        }
+
+        /**
+         * Provide the data sets, rotated by the number of times they have been requested.
+         *
+         * @return The data sets.
+         */
+        @SeleniumParameters
+        public static Iterable<Object> dataSets() {
+            final List<Object> dataSets = new ArrayList<Object>(Arrays.asList("a", "b", "c"));
+            Collections.rotate(dataSets, requests++);
+            return dataSets;
+        }
+
+        /**
+         * Record the data set.
+         */
+        @Test
+        public void testDataSet() {
+            synchronized (DATA_SETS) {
+                DATA_SETS.add(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner.test;
+
+import com.btmatthews.selenium.junit4.runner.SeleniumFixture;
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner;
+import com.btmatthews.selenium.junit4.runner.SeleniumPage;
+import com.btmatthews.selenium.junit4.runner.WebDriverConfiguration;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.FindBy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Unit tests for the {@link SeleniumPage} page object injection.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+@RunWith(SeleniumJUnit4ClassRunner.class)
+@WebDriverConfiguration()
+public final class PageObjectITCase {
+
+    /**
+     * The base URL of the fixture web server serving src/test/resources/fixtures.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumFixture
+    private String fixtureURL;
+
+    /**
+     * The page object for the fixture page.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumPage
+    private FixturePage page;
+
+    /**
+     * Verify that the test runner injected the page object.
+     */
+    @Test
+    public void testInjection() {
+        assertNotNull(page);
+        assertNotNull(page.webDriver);
+    }
+
+    /**
+     * Verify that the element proxy relocates the element after the page has been reloaded.
+     */
+    @Test
+    public void testRelocation() {
+        page.open(fixtureURL);
+        assertEquals("Selenium JUnit 4 Runner", page.heading.getText());
+        page.open(fixtureURL);
+        assertEquals("Selenium JUnit 4 Runner", page.heading.getText());
+    }
+
+    /**
+     * The page object for the fixture page.
+     */
+    public static final class FixturePage {
+
+        /**
+         * The web driver passed to the constructor.
+         */
+        private final WebDriver webDriver;
+
+        /**
+         * The page heading.
+         */
+        @FindBy(id = "heading")
+        private WebElement heading;
+
+        /**
+         * Construct the page object.
+         *
+         * @param driver The web driver.
+         */
+        public FixturePage(final WebDriver driver) {
+            webDriver = driver;
+        }
+
+        /**
+         * Navigate to the fixture page.
+         *
+         * @param fixtureURL The base URL of the fixture web server.
+         */
+        public void open(final String fixtureURL) {
+            webDriver.navigate().to(fixtureURL + "/index.html");
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner.test;
+
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner;
+import com.btmatthews.selenium.junit4.runner.SeleniumWebDriver;
+import com.btmatthews.selenium.junit4.runner.WebDriverConfiguration;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for killing the processes spawned for a browser session that could not be stopped.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public final class ProcessRegistryITCase {
+
+    /**
+     * The system property used to enable process tracking.
+     */
+    private static final String TRACKING_PROPERTY = "selenium.junit4.processes.track";
+
+    /**
+     * The process spawned by the web driver.
+     */
+    private static Process process;
+
+    /**
+     * Make sure the spawned process has stopped and disable process tracking.
+     */
+    @After
+    public void tearDown() {
+        System.clearProperty(TRACKING_PROPERTY);
+        if (process != null) {
+            process.destroy();
+            process = null;
+        }
+    }
+
+    /**
+     * Verify that the process spawned while a browser session was created is killed when the session fails to
+     * stop.
+     *
+     * @throws Exception If interrupted while waiting for the process to be killed.
+     */
+    @Test
+    public void testProcessKilledWhenSessionFailsToStop() throws Exception {
+        System.setProperty(TRACKING_PROPERTY, "true");
+        final Result result = new JUnitCore().run(SpawningFixture.class);
+        assertEquals(1, result.getRunCount());
+        assertEquals(1, result.getFailureCount());
+        assertNotNull(process);
+        assertFalse(isRunning(process, 10000L));
+    }
+
+    /**
+     * Verify that the process spawned while a browser session was created is left alone when process tracking is
+     * not enabled.
+     *
+     * @throws Exception If interrupted while waiting for the process.
+     */
+    @Test
+    public void testProcessNotKilledWhenTrackingDisabled() throws Exception {
+        final Result result = new JUnitCore().run(SpawningFixture.class);
+        assertEquals(1, result.getFailureCount());
+        assertNotNull(process);
+        assertTrue(isRunning(process, 1000L));
+    }
+
+    /**
+     * Wait for a process to exit.
+     *
+     * @param child   The process.
+     * @param timeout The number of milliseconds to wait.
+     * @return {@code true} if the process is still running.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private static boolean isRunning(final Process child, final long timeout) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + timeout;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                child.exitValue();
+                return false;
+            } catch (final IllegalThreadStateException e) {
+                Thread.sleep(100L);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Web driver that spawns a process, standing in for a browser, when it is created and fails to stop.
+     */
+    public static final class SpawningDriver extends HtmlUnitDriver {
+
+        /**
+         * Construct the web driver and spawn the process.
+         *
+         * @throws Exception If the process could not be spawned.
+         */
+        public SpawningDriver() throws Exception {
+            process = new ProcessBuilder(
+                    new File(new File(System.getProperty("java.home"), "bin"), "java").getPath(),
+                    "-cp", System.getProperty("java.class.path"),
+                    StandInBrowser.class.getName())
+                    .start();
+        }
+
+        /**
+         * Fail to stop the browser session.
+         */
+        @Override
+        public void quit() {
+            super.quit();
+            throw new WebDriverException("Browser did not stop");
+        }
+    }
+
+    /**
+     * The process spawned by {@link SpawningDriver}.
+     */
+    public static final class StandInBrowser {
+
+        /**
+         * Default constructor is private.
+         */
+        private StandInBrowser() {
+        }
+
+        /**
+         * Wait for a minute.
+         *
+         * @param args Not used.
+         * @throws Exception If interrupted.
+         */
+        public static void main(final String[] args) throws Exception {
+            Thread.sleep(60000L);
+        }
+    }
+
+    /**
+     * Test class whose browser session spawns a process and fails to stop.
+     */
+    @RunWith(SeleniumJUnit4ClassRunner.class)
+    @WebDriverConfiguration(baseDrivers = SpawningDriver.class)
+    public static final class SpawningFixture {
+
+        /**
+         * The web driver.
+         */
+        @SeleniumWebDriver
+        private WebDriver webDriver;
+
+        /**
+         * Use the browser session.
+         */
+        @Test
+        public void testSession() {
+            webDriver.navigate().to("about:blank");
+        }
+    }
+}
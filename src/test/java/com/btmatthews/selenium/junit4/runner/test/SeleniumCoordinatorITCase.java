@@ -0,0 +1,134 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.btmatthews.selenium.junit4.runner.test;
+
+import com.btmatthews.selenium.junit4.runner.SeleniumCoordinator;
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner;
+import com.btmatthews.selenium.junit4.runner.SeleniumWebDriver;
+import com.btmatthews.selenium.junit4.runner.SeleniumWorker;
+import com.btmatthews.selenium.junit4.runner.WebDriverConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openqa.selenium.WebDriver;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link SeleniumCoordinator} and {@link SeleniumWorker} that share out work items between
+ * worker JVMs.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public final class SeleniumCoordinatorITCase {
+
+    /**
+     * The file created when the slow test class starts.
+     */
+    private static final File STARTED = new File("target/selenium-coordinator-slow.started");
+
+    /**
+     * The number of milliseconds the slow test class takes.
+     */
+    private static final long SLOW_DURATION = 6000L;
+
+    /**
+     * The number of times the slow test class has been run in this JVM.
+     */
+    private static final AtomicInteger SLOW_RUNS = new AtomicInteger();
+
+    /**
+     * Verify that the work items are run by a worker in a separate JVM and a worker in this JVM and the results are
+     * merged into one report. The worker in this JVM is only started once the other worker is running the slow test
+     * class so it runs the other work items and is then given a copy of the slow work item as a straggler.
+     *
+     * @throws Exception If the test failed.
+     */
+    @Test
+    public void testWorkers() throws Exception {
+        final File reportDirectory = new File("target/selenium-coordinator-test");
+        FileUtils.deleteQuietly(reportDirectory);
+        FileUtils.deleteQuietly(STARTED);
+        final SeleniumCoordinator coordinator = new SeleniumCoordinator(0, reportDirectory,
+                Arrays.asList(SlowFixture.class.getName(), FixtureITCase.class.getName(),
+                        PageObjectITCase.class.getName()));
+        coordinator.start();
+        final Process process = new ProcessBuilder(
+                new File(new File(System.getProperty("java.home"), "bin"), "java").getPath(),
+                "-cp", System.getProperty("java.class.path"),
+                SeleniumWorker.class.getName(), Integer.toString(coordinator.getPort()))
+                .inheritIO()
+                .start();
+        try {
+            final long deadline = System.currentTimeMillis() + 60000L;
+            while (!STARTED.exists() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100L);
+            }
+            assertTrue(STARTED.exists());
+            new SeleniumWorker(coordinator.getPort()).run();
+            assertTrue(coordinator.await());
+        } finally {
+            process.destroy();
+        }
+        final List<String> lines = FileUtils.readLines(new File(reportDirectory, "results.csv"), "UTF-8");
+        assertEquals("Class,Browser,Worker,Test,Result,Duration (ms),Message", lines.get(0));
+        assertEquals(6, lines.size());
+        final Set<String> workers = new HashSet<String>();
+        for (final String line : lines.subList(1, lines.size())) {
+            assertTrue(line, line.contains(",passed,"));
+            workers.add(line.split(",")[2]);
+        }
+        assertEquals(2, workers.size());
+        assertTrue(workers.contains(ManagementFactory.getRuntimeMXBean().getName()));
+        assertEquals(1, SLOW_RUNS.get());
+    }
+
+    /**
+     * Test class that takes long enough for the other work items to be run by another worker.
+     */
+    @RunWith(SeleniumJUnit4ClassRunner.class)
+    @WebDriverConfiguration
+    public static final class SlowFixture {
+
+        /**
+         * The web driver.
+         */
+        @SeleniumWebDriver
+        private WebDriver webDriver;
+
+        /**
+         * Signal that the test class has started and then take a while.
+         *
+         * @throws Exception If the signal could not be written or interrupted while waiting.
+         */
+        @Test
+        public void testSlow() throws Exception {
+            SLOW_RUNS.incrementAndGet();
+            FileUtils.touch(STARTED);
+            Thread.sleep(SLOW_DURATION);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.btmatthews.selenium.junit4.runner.test;
+
+import com.btmatthews.selenium.junit4.runner.SeleniumDaemon;
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner;
+import com.btmatthews.selenium.junit4.runner.SeleniumWebDriver;
+import com.btmatthews.selenium.junit4.runner.WebDriverConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.openqa.selenium.WebDriver;
+
+import java.io.DataOutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link SeleniumDaemon} test daemon.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public final class SeleniumDaemonITCase {
+
+    /**
+     * The system property used to set the port of the test daemon.
+     */
+    private static final String DAEMON_PORT_PROPERTY = "selenium.junit4.daemon.port";
+
+    /**
+     * The test daemon.
+     */
+    private SeleniumDaemon daemon;
+
+    /**
+     * Start the test daemon on a free port and direct the test runners to it.
+     *
+     * @throws Exception If the test daemon could not be started.
+     */
+    @Before
+    public void setUp() throws Exception {
+        daemon = new SeleniumDaemon(0);
+        daemon.start();
+        System.setProperty(DAEMON_PORT_PROPERTY, Integer.toString(daemon.getPort()));
+    }
+
+    /**
+     * Stop the test daemon.
+     */
+    @After
+    public void tearDown() {
+        System.clearProperty(DAEMON_PORT_PROPERTY);
+        daemon.close();
+    }
+
+    /**
+     * Verify that the tests run in the daemon and the results, including failures, are streamed back for repeated
+     * runs.
+     */
+    @Test
+    public void testRunTwice() {
+        for (int i = 0; i < 2; ++i) {
+            final Result result = new JUnitCore().run(DaemonFixture.class);
+            assertEquals(2, result.getRunCount());
+            assertEquals(1, result.getFailureCount());
+            assertEquals("expected failure", result.getFailures().get(0).getMessage());
+        }
+    }
+
+    /**
+     * Verify that only the requested test is run when the test class is filtered.
+     */
+    @Test
+    public void testRunSingleMethod() {
+        final Result result = new JUnitCore().run(Request.method(DaemonFixture.class, "testDaemonThread"));
+        assertEquals(1, result.getRunCount());
+        assertTrue(result.wasSuccessful());
+    }
+
+    /**
+     * Verify that the warm browser session is replaced when it has been quit by an earlier run.
+     */
+    @Test
+    public void testDeadSessionReplaced() {
+        final Result quit = new JUnitCore().run(QuittingFixture.class);
+        assertTrue(quit.wasSuccessful());
+        final Result result = new JUnitCore().run(Request.method(DaemonFixture.class, "testDaemonThread"));
+        assertEquals(1, result.getRunCount());
+        assertTrue(result.getFailures().toString(), result.wasSuccessful());
+    }
+
+    /**
+     * Verify that a test run request with the wrong token is rejected without running the test class.
+     *
+     * @throws Exception If there was an error connecting to the daemon.
+     */
+    @Test
+    public void testInvalidTokenRejected() throws Exception {
+        final Socket socket = new Socket(InetAddress.getByName(null), daemon.getPort());
+        try {
+            final DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+            output.writeUTF("not-the-token");
+            output.flush();
+            assertEquals(-1, socket.getInputStream().read());
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Test class that is sent to the daemon.
+     */
+    @RunWith(SeleniumJUnit4ClassRunner.class)
+    @WebDriverConfiguration
+    public static final class DaemonFixture {
+
+        /**
+         * The web driver from the warm browser session.
+         */
+        @SuppressWarnings("unused")
+        @SeleniumWebDriver
+        private WebDriver webDriver;
+
+        /**
+         * Verify that the test is run by the daemon.
+         */
+        @Test
+        public void testDaemonThread() {
+            assertNotNull(webDriver);
+            assertEquals("selenium-daemon", Thread.currentThread().getName());
+        }
+
+        /**
+         * A test that fails so that failures are streamed back.
+         */
+        @Test
+        public void testFailure() {
+            throw new AssertionError("expected failure");
+        }
+    }
+
+    /**
+     * Test class that quits the warm browser session.
+     */
+    @RunWith(SeleniumJUnit4ClassRunner.class)
+    @WebDriverConfiguration
+    public static final class QuittingFixture {
+
+        /**
+         * The web driver from the warm browser session.
+         */
+        @SeleniumWebDriver
+        private WebDriver webDriver;
+
+        /**
+         * Quit the warm browser session.
+         */
+        @Test
+        public void testQuit() {
+            webDriver.quit();
+        }
+    }
+}
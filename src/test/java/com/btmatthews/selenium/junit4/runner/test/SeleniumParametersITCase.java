@@ -0,0 +1,135 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.btmatthews.selenium.junit4.runner.test;
+
+import com.btmatthews.selenium.junit4.runner.SeleniumFixture;
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner;
+import com.btmatthews.selenium.junit4.runner.SeleniumParameters;
+import com.btmatthews.selenium.junit4.runner.SeleniumWebDriver;
+import com.btmatthews.selenium.junit4.runner.WebDriverConfiguration;
+import org.junit.AfterClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+import org.junit.runner.RunWith;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for data-driven tests that use {@link SeleniumParameters} to run each test method once for each data
+ * set.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+@RunWith(SeleniumJUnit4ClassRunner.class)
+@WebDriverConfiguration
+public final class SeleniumParametersITCase {
+
+    /**
+     * The web drivers used by the data sets.
+     */
+    private static final Set<WebDriver> DRIVERS = new HashSet<WebDriver>();
+
+    /**
+     * The names of the tests that have run.
+     */
+    private static final Set<String> TESTS = new HashSet<String>();
+
+    /**
+     * Provides the test name including the data set name.
+     */
+    @Rule
+    public TestName testName = new TestName();
+
+    /**
+     * The web driver.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumWebDriver
+    private WebDriver webDriver;
+
+    /**
+     * The base URL of the fixture web server.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumFixture
+    private String fixtureURL;
+
+    /**
+     * The id of the element to check.
+     */
+    private final String id;
+
+    /**
+     * The expected text of the element.
+     */
+    private final String text;
+
+    /**
+     * Construct the test for a data set.
+     *
+     * @param elementId    The id of the element to check.
+     * @param expectedText The expected text of the element.
+     */
+    public SeleniumParametersITCase(final String elementId, final String expectedText) {
+        id = elementId;
+        text = expectedText;
+    }
+
+    /**
+     * Provide the data sets.
+     *
+     * @return The data sets.
+     */
+    @SeleniumParameters(name = "{0}")
+    public static Iterable<Object[]> dataSets() {
+        return Arrays.asList(new Object[][]{
+                {"heading", "Selenium JUnit 4 Runner"},
+                {"missing", ""}
+        });
+    }
+
+    /**
+     * Verify that the data sets shared a single browser session and were named after their first value.
+     */
+    @AfterClass
+    public static void checkDataSets() {
+        assertEquals(1, DRIVERS.size());
+        assertEquals(new HashSet<String>(Arrays.asList("testElement[heading]", "testElement[missing]")), TESTS);
+    }
+
+    /**
+     * Verify the text of the element for the data set.
+     */
+    @Test
+    public void testElement() {
+        DRIVERS.add(webDriver);
+        TESTS.add(testName.getMethodName());
+        webDriver.navigate().to(fixtureURL + "/index.html");
+        final String actual = webDriver.findElements(By.id(id)).isEmpty()
+                ? "" : webDriver.findElement(By.id(id)).getText();
+        assertEquals(text, actual);
+        assertTrue(testName.getMethodName().endsWith("[" + id + "]"));
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner.test;
+
+import com.btmatthews.selenium.junit4.runner.HtmlUnitProfile;
+import com.btmatthews.selenium.junit4.runner.SeleniumSuite;
+import com.btmatthews.selenium.junit4.runner.SeleniumWebDriver;
+import com.btmatthews.selenium.junit4.runner.WebDriverConfiguration;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite.SuiteClasses;
+import org.openqa.selenium.WebDriver;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link SeleniumSuite}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public final class SeleniumSuiteITCase {
+
+    /**
+     * The browser sessions injected into the fixture test classes.
+     */
+    private static final Set<WebDriver> SESSIONS =
+            Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<WebDriver, Boolean>()));
+
+    /**
+     * Verify that the fixture and page object tests pass when they share a single HTML Unit browser session.
+     */
+    @Test
+    public void testSharedSession() {
+        final Result result = JUnitCore.runClasses(FixtureSuite.class);
+        assertTrue(result.getFailures().toString(), result.wasSuccessful());
+    }
+
+    /**
+     * Verify that test classes whose configurations only differ in settings that do not affect the browser session
+     * share a browser session and that a test class with a different {@link HtmlUnitProfile} gets its own.
+     */
+    @Test
+    public void testSessionPerBrowser() {
+        SESSIONS.clear();
+        final Result result = JUnitCore.runClasses(SessionSuite.class);
+        assertTrue(result.getFailures().toString(), result.wasSuccessful());
+        assertEquals(2, SESSIONS.size());
+    }
+
+    /**
+     * Runs the fixture and page object tests.
+     */
+    @RunWith(SeleniumSuite.class)
+    @SuiteClasses({FixtureITCase.class, PageObjectITCase.class})
+    public static final class FixtureSuite {
+    }
+
+    /**
+     * Runs the test classes that record their browser sessions.
+     */
+    @RunWith(SeleniumSuite.class)
+    @SuiteClasses({DefaultTimeout.class, LongTimeout.class, PrivateCache.class})
+    public static final class SessionSuite {
+    }
+
+    /**
+     * Test class that uses the default wait timeout.
+     */
+    @WebDriverConfiguration
+    public static final class DefaultTimeout {
+
+        /**
+         * The web driver.
+         */
+        @SeleniumWebDriver
+        private WebDriver webDriver;
+
+        /**
+         * Record the browser session.
+         */
+        @Test
+        public void testSession() {
+            SESSIONS.add(webDriver);
+        }
+    }
+
+    /**
+     * Test class that uses a longer wait timeout.
+     */
+    @WebDriverConfiguration(waitTimeout = 60000L)
+    public static final class LongTimeout {
+
+        /**
+         * The web driver.
+         */
+        @SeleniumWebDriver
+        private WebDriver webDriver;
+
+        /**
+         * Record the browser session.
+         */
+        @Test
+        public void testSession() {
+            SESSIONS.add(webDriver);
+        }
+    }
+
+    /**
+     * Test class that does not use the shared HTML Unit cache.
+     */
+    @WebDriverConfiguration
+    @HtmlUnitProfile(sharedCache = false)
+    public static final class PrivateCache {
+
+        /**
+         * The web driver.
+         */
+        @SeleniumWebDriver
+        private WebDriver webDriver;
+
+        /**
+         * Record the browser session.
+         */
+        @Test
+        public void testSession() {
+            SESSIONS.add(webDriver);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner.test;
+
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner;
+import com.btmatthews.selenium.junit4.runner.SeleniumServer;
+import com.btmatthews.selenium.junit4.runner.ServerConfiguration;
+import com.thoughtworks.selenium.Selenium;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.seleniumhq.jetty7.server.Request;
+import org.seleniumhq.jetty7.server.Server;
+import org.seleniumhq.jetty7.server.handler.AbstractHandler;
+import org.seleniumhq.jetty7.server.nio.SelectChannelConnector;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for distributing Selenium RC sessions across the Selenium Servers listed in
+ * {@link ServerConfiguration#servers()}. Two stand-in Selenium Servers that answer the RC protocol without launching
+ * a browser are started on fixed ports.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public final class ServerBalancerITCase {
+
+    /**
+     * The port of the first stand-in Selenium Server.
+     */
+    private static final int FIRST_PORT = 14444;
+
+    /**
+     * The port of the second stand-in Selenium Server.
+     */
+    private static final int SECOND_PORT = 14445;
+
+    /**
+     * The number of test classes that are run concurrently.
+     */
+    private static final int SESSIONS = 4;
+
+    /**
+     * Makes sure all the sessions are open at the same time.
+     */
+    private static final CyclicBarrier BARRIER = new CyclicBarrier(SESSIONS);
+
+    /**
+     * The first stand-in Selenium Server.
+     */
+    private final StandIn first = new StandIn();
+
+    /**
+     * The second stand-in Selenium Server.
+     */
+    private final StandIn second = new StandIn();
+
+    /**
+     * The Jetty servers hosting the stand-ins.
+     */
+    private final List<Server> servers = new ArrayList<Server>();
+
+    /**
+     * Start the stand-in Selenium Servers.
+     *
+     * @throws Exception If the servers could not be started.
+     */
+    @Before
+    public void setUp() throws Exception {
+        start(FIRST_PORT, first);
+        start(SECOND_PORT, second);
+    }
+
+    /**
+     * Stop the stand-in Selenium Servers.
+     *
+     * @throws Exception If the servers could not be stopped.
+     */
+    @After
+    public void tearDown() throws Exception {
+        for (final Server server : servers) {
+            server.stop();
+        }
+    }
+
+    /**
+     * Verify that sessions that are started concurrently are spread evenly across the Selenium Servers.
+     *
+     * @throws Exception If there was an error running the test classes.
+     */
+    @Test
+    public void testConcurrentSessionsSpread() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(SESSIONS);
+        try {
+            final List<Future<Result>> results = new ArrayList<Future<Result>>();
+            for (int i = 0; i < SESSIONS; ++i) {
+                results.add(executor.submit(new Callable<Result>() {
+                    public Result call() {
+                        return JUnitCore.runClasses(BalancedFixture.class);
+                    }
+                }));
+            }
+            for (final Future<Result> result : results) {
+                assertTrue(result.get(1, TimeUnit.MINUTES).wasSuccessful());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(SESSIONS / 2, first.peak.get());
+        assertEquals(SESSIONS / 2, second.peak.get());
+        assertEquals(0, first.active.get());
+        assertEquals(0, second.active.get());
+    }
+
+    /**
+     * Start a stand-in Selenium Server.
+     *
+     * @param port    The port.
+     * @param handler The stand-in.
+     * @throws Exception If the server could not be started.
+     */
+    private void start(final int port, final StandIn handler) throws Exception {
+        final Server server = new Server();
+        final SelectChannelConnector connector = new SelectChannelConnector();
+        connector.setHost("localhost");
+        connector.setPort(port);
+        server.addConnector(connector);
+        server.setHandler(handler);
+        server.start();
+        servers.add(server);
+    }
+
+    /**
+     * Answers the Selenium RC driver commands and counts the sessions that are open.
+     */
+    private static final class StandIn extends AbstractHandler {
+
+        /**
+         * The number of open sessions.
+         */
+        private final AtomicInteger active = new AtomicInteger();
+
+        /**
+         * The largest number of sessions that were open at the same time.
+         */
+        private final AtomicInteger peak = new AtomicInteger();
+
+        /**
+         * The number used to generate session identifiers.
+         */
+        private final AtomicInteger sequence = new AtomicInteger();
+
+        /**
+         * Handle a driver command.
+         *
+         * @param target      The request path.
+         * @param baseRequest The Jetty request.
+         * @param request     The servlet request.
+         * @param response    The servlet response.
+         * @throws IOException If the response could not be written.
+         */
+        public void handle(final String target, final Request baseRequest, final HttpServletRequest request,
+                           final HttpServletResponse response) throws IOException {
+            final String command = request.getParameter("cmd");
+            final String reply;
+            if ("getNewBrowserSession".equals(command)) {
+                final int count = active.incrementAndGet();
+                int current = peak.get();
+                while (count > current && !peak.compareAndSet(current, count)) {
+                    current = peak.get();
+                }
+                reply = "OK," + sequence.incrementAndGet();
+            } else {
+                if ("testComplete".equals(command)) {
+                    active.decrementAndGet();
+                }
+                reply = "OK";
+            }
+            response.setContentType("text/plain");
+            response.getWriter().write(reply);
+            baseRequest.setHandled(true);
+        }
+    }
+
+    /**
+     * Test class that holds its session open until all the concurrent sessions have started.
+     */
+    @RunWith(SeleniumJUnit4ClassRunner.class)
+    @ServerConfiguration(servers = {"localhost:14444", "localhost:14445"}, browserURL = "http://localhost/")
+    public static final class BalancedFixture {
+
+        /**
+         * The Selenium RC session.
+         */
+        @SuppressWarnings("unused")
+        @SeleniumServer
+        private Selenium server;
+
+        /**
+         * Wait for the other sessions.
+         *
+         * @throws Exception If the other sessions did not start.
+         */
+        @Test
+        public void testSession() throws Exception {
+            assertNotNull(server);
+            BARRIER.await(1, TimeUnit.MINUTES);
+        }
+    }
+}
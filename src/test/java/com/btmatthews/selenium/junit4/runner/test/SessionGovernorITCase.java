@@ -0,0 +1,169 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner.test;
+
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner;
+import com.btmatthews.selenium.junit4.runner.SeleniumWebDriver;
+import com.btmatthews.selenium.junit4.runner.WebDriverConfiguration;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for limiting the number of live browser sessions. The test classes are run in a separate JVM because
+ * the limits are read once per JVM.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public final class SessionGovernorITCase {
+
+    /**
+     * The maximum number of live browser sessions.
+     */
+    private static final int MAX_SESSIONS = 2;
+
+    /**
+     * The number of test classes that are run concurrently.
+     */
+    private static final int RUNS = 6;
+
+    /**
+     * The number of live browser sessions.
+     */
+    private static final AtomicInteger LIVE = new AtomicInteger();
+
+    /**
+     * The largest number of browser sessions that were live at once.
+     */
+    private static final AtomicInteger PEAK = new AtomicInteger();
+
+    /**
+     * Verify that no more than the maximum number of browser sessions are live at once when test classes are run
+     * concurrently.
+     *
+     * @throws Exception If the JVM could not be run.
+     */
+    @Test
+    public void testMaxSessions() throws Exception {
+        assertEquals(ForkedJVM.PASSED, ForkedJVM.run(
+                new String[]{"selenium.junit4.sessions.max=" + MAX_SESSIONS}, ConcurrentRuns.class));
+    }
+
+    /**
+     * Web driver that counts the live browser sessions.
+     */
+    public static final class CountingDriver extends HtmlUnitDriver {
+
+        /**
+         * Construct the web driver and count the session.
+         */
+        public CountingDriver() {
+            final int live = LIVE.incrementAndGet();
+            int peak = PEAK.get();
+            while (live > peak && !PEAK.compareAndSet(peak, live)) {
+                peak = PEAK.get();
+            }
+        }
+
+        /**
+         * Stop the session and stop counting it.
+         */
+        @Override
+        public void quit() {
+            try {
+                super.quit();
+            } finally {
+                LIVE.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Test class that holds its browser session open for a while.
+     */
+    @RunWith(SeleniumJUnit4ClassRunner.class)
+    @WebDriverConfiguration(baseDrivers = CountingDriver.class)
+    public static final class SessionFixture {
+
+        /**
+         * The web driver.
+         */
+        @SeleniumWebDriver
+        private WebDriver webDriver;
+
+        /**
+         * Use the browser session.
+         *
+         * @throws Exception If interrupted.
+         */
+        @Test
+        public void testSession() throws Exception {
+            webDriver.navigate().to("about:blank");
+            Thread.sleep(200L);
+        }
+    }
+
+    /**
+     * Test class that runs {@link SessionFixture} concurrently.
+     */
+    public static final class ConcurrentRuns {
+
+        /**
+         * Verify that the concurrent runs pass and that the number of live browser sessions reached but did not
+         * exceed the maximum.
+         *
+         * @throws Exception If the runs did not finish.
+         */
+        @Test
+        public void testRuns() throws Exception {
+            final ExecutorService executor = Executors.newFixedThreadPool(RUNS);
+            try {
+                final List<Future<Result>> results = new ArrayList<Future<Result>>();
+                for (int i = 0; i < RUNS; ++i) {
+                    results.add(executor.submit(new Callable<Result>() {
+                        public Result call() {
+                            return JUnitCore.runClasses(SessionFixture.class);
+                        }
+                    }));
+                }
+                for (final Future<Result> result : results) {
+                    assertTrue(result.get(1, TimeUnit.MINUTES).wasSuccessful());
+                }
+            } finally {
+                executor.shutdown();
+            }
+            assertEquals(MAX_SESSIONS, PEAK.get());
+            assertEquals(0, LIVE.get());
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.runner.test;
+
+import com.btmatthews.selenium.junit4.runner.HtmlUnitProfile;
+import com.btmatthews.selenium.junit4.runner.SeleniumFixture;
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner;
+import com.btmatthews.selenium.junit4.runner.SeleniumWebDriver;
+import com.btmatthews.selenium.junit4.runner.SharedBrowser;
+import com.btmatthews.selenium.junit4.runner.WebDriverConfiguration;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link SharedBrowser} mode that runs tests in separate windows of one browser session.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+@RunWith(SeleniumJUnit4ClassRunner.class)
+@WebDriverConfiguration()
+@HtmlUnitProfile
+@SharedBrowser(windows = 2)
+public final class SharedBrowserITCase {
+
+    /**
+     * The web driver bound to the window in which the test runs.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumWebDriver
+    private WebDriver webDriver;
+
+    /**
+     * The base URL of the fixture web server serving src/test/resources/fixtures.
+     */
+    @SuppressWarnings("unused")
+    @SeleniumFixture
+    private String fixtureURL;
+
+    /**
+     * Verify that the first window stays on its own page.
+     */
+    @Test
+    public void testFirstWindow() throws Exception {
+        verifyWindow("first");
+    }
+
+    /**
+     * Verify that the second window stays on its own page.
+     */
+    @Test
+    public void testSecondWindow() throws Exception {
+        verifyWindow("second");
+    }
+
+    /**
+     * Verify that the third window stays on its own page.
+     */
+    @Test
+    public void testThirdWindow() throws Exception {
+        verifyWindow("third");
+    }
+
+    /**
+     * Verify that the class level fixtures of a test class run once around all its test methods rather than once for
+     * each window and that the test methods run concurrently. The test runner for the browser is nested in the
+     * test suite which also runs the class level fixtures.
+     */
+    @Test
+    public void testClassFixturesRunOnce() {
+        final Result result = JUnitCore.runClasses(ClassFixtures.class);
+        assertTrue(result.getFailures().toString(), result.wasSuccessful());
+        assertEquals(4, result.getRunCount());
+        assertEquals(ClassFixtures.FIXTURE_RUNS, ClassFixtures.BEFORE_CLASS.get());
+        assertEquals(ClassFixtures.FIXTURE_RUNS, ClassFixtures.AFTER_CLASS.get());
+        assertEquals(2, ClassFixtures.PEAK.get());
+    }
+
+    /**
+     * Navigate to the fixture page and verify that the window is still showing it after the other tests have had a
+     * chance to navigate their own windows.
+     *
+     * @param marker Identifies the window in the page URL.
+     * @throws Exception If the test was interrupted.
+     */
+    private void verifyWindow(final String marker) throws Exception {
+        webDriver.navigate().to(fixtureURL + "/index.html?window=" + marker);
+        for (int i = 0; i < 5; ++i) {
+            Thread.sleep(20L);
+            assertTrue(webDriver.getCurrentUrl().endsWith("window=" + marker));
+            assertEquals("Selenium JUnit 4 Runner", webDriver.findElement(By.id("heading")).getText());
+        }
+    }
+
+    /**
+     * Test class that counts how often its class level fixtures run and how many of its test methods run at once.
+     */
+    @RunWith(SeleniumJUnit4ClassRunner.class)
+    @WebDriverConfiguration()
+    @HtmlUnitProfile
+    @SharedBrowser(windows = 2)
+    public static final class ClassFixtures {
+
+        /**
+         * The number of times the class level fixtures run: once by the test suite and once by the test runner for
+         * the browser.
+         */
+        static final int FIXTURE_RUNS = 2;
+
+        /**
+         * The number of times the {@link BeforeClass} method ran.
+         */
+        static final AtomicInteger BEFORE_CLASS = new AtomicInteger();
+
+        /**
+         * The number of times the {@link AfterClass} method ran.
+         */
+        static final AtomicInteger AFTER_CLASS = new AtomicInteger();
+
+        /**
+         * The number of test methods running.
+         */
+        static final AtomicInteger RUNNING = new AtomicInteger();
+
+        /**
+         * The largest number of test methods that ran at once.
+         */
+        static final AtomicInteger PEAK = new AtomicInteger();
+
+        /**
+         * The web driver bound to the window in which the test runs.
+         */
+        @SeleniumWebDriver
+        private WebDriver webDriver;
+
+        /**
+         * Count the {@link BeforeClass} run.
+         */
+        @BeforeClass
+        public static void setUpClass() {
+            BEFORE_CLASS.incrementAndGet();
+        }
+
+        /**
+         * Count the {@link AfterClass} run.
+         */
+        @AfterClass
+        public static void tearDownClass() {
+            AFTER_CLASS.incrementAndGet();
+        }
+
+        /**
+         * Run a test method.
+         *
+         * @throws Exception If the test was interrupted.
+         */
+        @Test
+        public void testFirst() throws Exception {
+            runMethod();
+        }
+
+        /**
+         * Run a test method.
+         *
+         * @throws Exception If the test was interrupted.
+         */
+        @Test
+        public void testSecond() throws Exception {
+            runMethod();
+        }
+
+        /**
+         * Run a test method.
+         *
+         * @throws Exception If the test was interrupted.
+         */
+        @Test
+        public void testThird() throws Exception {
+            runMethod();
+        }
+
+        /**
+         * Run a test method.
+         *
+         * @throws Exception If the test was interrupted.
+         */
+        @Test
+        public void testFourth() throws Exception {
+            runMethod();
+        }
+
+        /**
+         * Check that the class level fixtures have run once for the browser and hold the window long enough for the other test
+         * methods to start.
+         *
+         * @throws Exception If the test was interrupted.
+         */
+        private void runMethod() throws Exception {
+            assertEquals(FIXTURE_RUNS, BEFORE_CLASS.get());
+            assertEquals(0, AFTER_CLASS.get());
+            final int running = RUNNING.incrementAndGet();
+            int peak = PEAK.get();
+            while (running > peak && !PEAK.compareAndSet(peak, running)) {
+                peak = PEAK.get();
+            }
+            try {
+                webDriver.navigate().to("about:blank");
+                Thread.sleep(200L);
+            } finally {
+                RUNNING.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.selenium.junit4.support.test;
+
+import com.btmatthews.selenium.junit4.runner.HtmlUnitProfile;
+import com.btmatthews.selenium.junit4.runner.SeleniumFixture;
+import com.btmatthews.selenium.junit4.runner.SeleniumJUnit4ClassRunner;
+import com.btmatthews.selenium.junit4.runner.SeleniumWebDriver;
+import com.btmatthews.selenium.junit4.runner.WebDriverConfiguration;
+import com.btmatthews.selenium.junit4.support.QueryBatch;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link QueryBatch}. The same queries are run against the fixture page with JavaScript enabled, so
+ * that they are executed in a single script, and with JavaScript disabled, so that they are executed individually.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.1.0
+ */
+public final class QueryBatchITCase {
+
+    /**
+     * The expected result of each query.
+     */
+    private static final Map<String, Object> EXPECTED = new LinkedHashMap<String, Object>();
+
+    static {
+        EXPECTED.put("heading", "Batched Queries");
+        EXPECTED.put("firstNote", "First note");
+        EXPECTED.put("missingText", null);
+        EXPECTED.put("headingDisplayed", Boolean.TRUE);
+        EXPECTED.put("missingDisplayed", Boolean.FALSE);
+        EXPECTED.put("linkPresent", Boolean.TRUE);
+        EXPECTED.put("partialLinkPresent", Boolean.TRUE);
+        EXPECTED.put("missingPresent", Boolean.FALSE);
+        EXPECTED.put("items", Long.valueOf(3));
+        EXPECTED.put("notes", Long.valueOf(2));
+        EXPECTED.put("username", "brian");
+        EXPECTED.put("usernameTitle", "User name");
+        EXPECTED.put("remember", "true");
+        EXPECTED.put("missingAttribute", null);
+    }
+
+    /**
+     * The results of the queries executed in a single script.
+     */
+    private static Map<String, Object> scriptedResults;
+
+    /**
+     * The results of the queries executed individually.
+     */
+    private static Map<String, Object> fallbackResults;
+
+    /**
+     * Verify that the queries return the expected results whether they are executed in a single script or
+     * individually.
+     */
+    @Test
+    public void testScriptedAndFallbackResultsEqual() {
+        final Result scripted = JUnitCore.runClasses(ScriptedQueries.class);
+        assertTrue(scripted.getFailures().toString(), scripted.wasSuccessful());
+        final Result fallback = JUnitCore.runClasses(FallbackQueries.class);
+        assertTrue(fallback.getFailures().toString(), fallback.wasSuccessful());
+        assertEquals(EXPECTED, scriptedResults);
+        assertEquals(EXPECTED, fallbackResults);
+    }
+
+    /**
+     * Verify that a key cannot be used by more than one query.
+     */
+    @Test
+    public void testDuplicateKeyRejected() {
+        final QueryBatch batch = new QueryBatch((WebDriver)null).text("heading", By.id("heading"));
+        try {
+            batch.count("heading", By.tagName("h1"));
+            fail("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("heading"));
+        }
+    }
+
+    /**
+     * Execute one query of each type and locator strategy against the fixture page.
+     *
+     * @param webDriver The web driver.
+     * @return The results indexed by key.
+     */
+    private static Map<String, Object> query(final WebDriver webDriver) {
+        return new QueryBatch(webDriver)
+                .text("heading", By.id("heading"))
+                .text("firstNote", By.className("note"))
+                .text("missingText", By.id("missing"))
+                .displayed("headingDisplayed", By.tagName("h1"))
+                .displayed("missingDisplayed", By.id("missing"))
+                .present("linkPresent", By.linkText("Home page"))
+                .present("partialLinkPresent", By.partialLinkText("Home"))
+                .present("missingPresent", By.cssSelector("#missing"))
+                .count("items", By.xpath("//ul[@id='list']/li"))
+                .count("notes", By.cssSelector("p.note"))
+                .attribute("username", By.name("username"), "value")
+                .attribute("usernameTitle", By.name("username"), "title")
+                .attribute("remember", By.name("remember"), "checked")
+                .attribute("missingAttribute", By.id("missing"), "value")
+                .execute()
+                .asMap();
+    }
+
+    /**
+     * A locator whose description does not match the element it locates. It must be executed as it is rather than
+     * being translated into JavaScript from its description.
+     */
+    private static final class MisleadingLocator extends By.ById {
+
+        /**
+         * Construct the locator.
+         *
+         * @param id The id of the element.
+         */
+        MisleadingLocator(final String id) {
+            super(id);
+        }
+
+        @Override
+        public String toString() {
+            return "By.id: missing";
+        }
+    }
+
+    /**
+     * Test class that executes the queries with JavaScript enabled.
+     */
+    @RunWith(SeleniumJUnit4ClassRunner.class)
+    @WebDriverConfiguration
+    @HtmlUnitProfile(javascriptEnabled = true)
+    public static final class ScriptedQueries {
+
+        /**
+         * The web driver.
+         */
+        @SeleniumWebDriver
+        private WebDriver webDriver;
+
+        /**
+         * The base URL of the fixture web server.
+         */
+        @SeleniumFixture
+        private String fixtureURL;
+
+        /**
+         * Execute the queries.
+         */
+        @Test
+        public void testQueries() {
+            webDriver.navigate().to(fixtureURL + "/queries.html");
+            assertEquals(Long.valueOf(1), ((JavascriptExecutor)webDriver).executeScript("return 1;"));
+            scriptedResults = query(webDriver);
+        }
+
+        /**
+         * Verify that a locator that is not one of the {@link By} implementations is executed as it is, alongside
+         * a query that is executed by the script.
+         */
+        @Test
+        public void testCustomLocator() {
+            webDriver.navigate().to(fixtureURL + "/queries.html");
+            final Map<String, Object> results = new QueryBatch(webDriver)
+                    .text("heading", By.id("heading"))
+                    .text("custom", new MisleadingLocator("heading"))
+                    .execute()
+                    .asMap();
+            assertEquals("Batched Queries", results.get("heading"));
+            assertEquals("Batched Queries", results.get("custom"));
+        }
+
+        /**
+         * Verify that an element inside a hidden ancestor is not displayed. HTML Unit only applies styles when
+         * JavaScript is enabled so this is not checked with JavaScript disabled.
+         */
+        @Test
+        public void testHiddenAncestor() {
+            webDriver.navigate().to(fixtureURL + "/queries.html");
+            assertEquals(Boolean.FALSE, new QueryBatch(webDriver)
+                    .displayed("nested", By.id("nested"))
+                    .execute()
+                    .asMap()
+                    .get("nested"));
+            assertEquals(Boolean.FALSE, webDriver.findElement(By.id("nested")).isDisplayed());
+        }
+    }
+
+    /**
+     * Test class that executes the queries with JavaScript disabled.
+     */
+    @RunWith(SeleniumJUnit4ClassRunner.class)
+    @WebDriverConfiguration
+    @HtmlUnitProfile(javascriptEnabled = false)
+    public static final class FallbackQueries {
+
+        /**
+         * The web driver.
+         */
+        @SeleniumWebDriver
+        private WebDriver webDriver;
+
+        /**
+         * The base URL of the fixture web server.
+         */
+        @SeleniumFixture
+        private String fixtureURL;
+
+        /**
+         * Execute the queries.
+         */
+        @Test
+        public void testQueries() {
+            webDriver.navigate().to(fixtureURL + "/queries.html");
+            try {
+                ((JavascriptExecutor)webDriver).executeScript("return 1;");
+                fail("Expected JavaScript to be disabled");
+            } catch (final UnsupportedOperationException e) {
+                fallbackResults = query(webDriver);
+            }
+        }
+    }
+}